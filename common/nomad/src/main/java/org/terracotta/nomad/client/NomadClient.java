@@ -25,47 +25,100 @@ import org.terracotta.nomad.client.status.DiscoveryProcess;
 import org.terracotta.nomad.server.ChangeRequestState;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 
 public class NomadClient<T> implements AutoCloseable {
+  private static final AtomicLong threadCount = new AtomicLong();
+
+  private final List<List<NomadEndpoint<T>>> serverGroups;
   private final List<NomadEndpoint<T>> servers;
   private final String host;
   private final String user;
   private final Clock clock;
+  private final Duration phaseTimeout;
+  // null when the servers are contacted one after another
+  private final ExecutorService executor;
 
   /**
-   * @param servers the set of servers to run the Nomad protocol across
+   * @param servers the set of servers to run the Nomad protocol across. They are contacted one after another, in order.
    * @param host    the name of the local machine
    * @param user    the name of the user the current process is running as
    */
   public NomadClient(List<NomadEndpoint<T>> servers, String host, String user, Clock clock) {
-    this.clock = clock;
+    this(singletonList(servers), host, user, clock, 1, NomadMessageSender.DEFAULT_PHASE_TIMEOUT);
+  }
+
+  /**
+   * @param serverGroups the servers to run the Nomad protocol across. At each phase of the protocol, the groups are contacted
+   *                     one after another, in order, and the servers of a group are contacted concurrently.
+   *                     I.e. passive servers can be put in a group before the group of the active servers.
+   * @param host         the name of the local machine
+   * @param user         the name of the user the current process is running as
+   * @param concurrency  the maximum number of servers contacted at the same time. 1 contacts all the servers one after another, in order.
+   * @param phaseTimeout the maximum time to wait for all the servers to answer during each phase of the protocol
+   */
+  public NomadClient(List<List<NomadEndpoint<T>>> serverGroups, String host, String user, Clock clock, int concurrency, Duration phaseTimeout) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Bad concurrency: " + concurrency);
+    }
+    this.serverGroups = serverGroups.stream().filter(group -> !group.isEmpty()).collect(toList());
+    this.servers = serverGroups.stream().flatMap(List::stream).collect(toList());
     if (servers.isEmpty()) {
       throw new IllegalArgumentException("There must be at least one server");
     }
 
-    this.servers = servers;
     this.host = host;
     this.user = user;
+    this.clock = clock;
+    this.phaseTimeout = phaseTimeout;
+    this.executor = concurrency == 1 || servers.size() == 1 ? null : createExecutor(Math.min(concurrency, servers.size()));
   }
 
   public void tryApplyChange(ChangeResultReceiver<T> results, NomadChange change) {
-    ChangeProcess<T> changeProcess = new ChangeProcess<>(servers, host, user, clock);
+    ChangeProcess<T> changeProcess = new ChangeProcess<>(serverGroups, host, user, clock, getExecutor(), phaseTimeout);
     changeProcess.applyChange(results, change);
   }
 
   public void tryRecovery(RecoveryResultReceiver<T> results, int expectedNodeCount, ChangeRequestState forcedState) {
-    RecoveryProcess<T> recoveryProcess = new RecoveryProcess<>(servers, host, user, clock);
+    RecoveryProcess<T> recoveryProcess = new RecoveryProcess<>(serverGroups, host, user, clock, getExecutor(), phaseTimeout);
     recoveryProcess.recover(results, expectedNodeCount, forcedState);
   }
 
   public void tryDiscovery(DiscoverResultsReceiver<T> results) {
-    DiscoveryProcess<T> discoveryProcess = new DiscoveryProcess<>(servers, host, user, clock);
+    DiscoveryProcess<T> discoveryProcess = new DiscoveryProcess<>(serverGroups, host, user, clock, getExecutor(), phaseTimeout);
     discoveryProcess.discover(results);
   }
 
+  private Executor getExecutor() {
+    return executor == null ? Runnable::run : executor;
+  }
+
+  private static ExecutorService createExecutor(int threads) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread t = new Thread(r, "nomad-client-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   @Override
   public void close() {
+    if (executor != null) {
+      // all the messages have been answered or cancelled when a process returns
+      executor.shutdownNow();
+    }
     RuntimeException error = null;
     for (NomadEndpoint<T> server : servers) {
       try {
@@ -21,20 +21,26 @@ import org.terracotta.nomad.client.results.DiscoverResultsReceiver;
 import org.terracotta.nomad.client.results.MuxAllResultsReceiver;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public abstract class NomadClientProcess<C, R> {
-  protected final List<NomadEndpoint<R>> servers;
+  protected final List<List<NomadEndpoint<R>>> serverGroups;
   protected final String host;
   protected final String user;
   protected final Clock clock;
+  protected final Executor executor;
+  protected final Duration phaseTimeout;
 
-  public NomadClientProcess(List<NomadEndpoint<R>> servers, String host, String user, Clock clock) {
-    this.servers = servers;
+  public NomadClientProcess(List<List<NomadEndpoint<R>>> serverGroups, String host, String user, Clock clock, Executor executor, Duration phaseTimeout) {
+    this.serverGroups = serverGroups;
     this.host = host;
     this.user = user;
     this.clock = clock;
+    this.executor = executor;
+    this.phaseTimeout = phaseTimeout;
   }
 
   protected abstract boolean act(AllResultsReceiver<R> results, NomadDecider<R> decider, NomadMessageSender<R> messageSender, C data);
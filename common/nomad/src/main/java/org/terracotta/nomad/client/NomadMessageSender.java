@@ -15,6 +15,7 @@
  */
 package org.terracotta.nomad.client;
 
+import org.terracotta.common.struct.TimeBudget;
 import org.terracotta.nomad.client.change.NomadChange;
 import org.terracotta.nomad.client.results.AllResultsReceiver;
 import org.terracotta.nomad.client.results.CommitResultsReceiver;
@@ -32,46 +33,77 @@ import org.terracotta.nomad.server.NomadException;
 
 import java.net.InetSocketAddress;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.stream.Collectors.toList;
 
 public class NomadMessageSender<T> implements AllResultsReceiver<T> {
 
+  public static final int DEFAULT_CONCURRENCY = 64;
+  public static final Duration DEFAULT_PHASE_TIMEOUT = Duration.ofMinutes(5);
+
+  private final List<List<NomadEndpoint<T>>> serverGroups;
   private final List<NomadEndpoint<T>> servers;
   private final Clock clock;
   private final String host;
   private final String user;
   private final Map<InetSocketAddress, Long> mutativeMessageCounts = new ConcurrentHashMap<>();
   private final AtomicLong maxVersionNumber = new AtomicLong();
+  private final Executor executor;
+  private final Duration phaseTimeout;
 
   private final List<NomadEndpoint<T>> preparedServers = new CopyOnWriteArrayList<>();
   protected volatile UUID changeUuid;
 
+  /**
+   * Creates a sender contacting the servers one after another, in order
+   */
   public NomadMessageSender(List<NomadEndpoint<T>> servers, String host, String user, Clock clock) {
+    this(singletonList(servers), host, user, clock, Runnable::run, DEFAULT_PHASE_TIMEOUT);
+  }
+
+  /**
+   * @param serverGroups the servers to contact at each phase. The groups are contacted one after another, in order,
+   *                     and the servers of a group are contacted concurrently, through the executor.
+   * @param executor     the executor sending the messages to the servers of a group. A direct executor contacts the servers one after another.
+   * @param phaseTimeout the maximum time to wait for all the servers to answer during a phase
+   */
+  public NomadMessageSender(List<List<NomadEndpoint<T>>> serverGroups, String host, String user, Clock clock, Executor executor, Duration phaseTimeout) {
     this.host = host;
     this.user = user;
-    this.servers = servers;
+    this.serverGroups = serverGroups;
+    this.servers = serverGroups.stream().flatMap(List::stream).collect(toList());
     this.clock = clock;
+    this.executor = executor;
+    this.phaseTimeout = phaseTimeout;
   }
 
   public void sendDiscovers(DiscoverResultsReceiver<T> results) {
     results.startDiscovery(servers.stream().map(NomadEndpoint::getAddress).collect(toList()));
-    for (NomadEndpoint<T> server : servers) {
-      runSync(
-          server::discover,
-          discovery -> results.discovered(server.getAddress(), discovery),
-          unwrap(e -> results.discoverFail(server.getAddress(), stringify(e)))
-      );
-    }
+    runAll(
+        serverGroups,
+        server -> server::discover,
+        (server, discovery) -> results.discovered(server.getAddress(), discovery),
+        (server, e) -> results.discoverFail(server.getAddress(), stringify(e))
+    );
 
     results.endDiscovery();
   }
@@ -79,23 +111,22 @@ public class NomadMessageSender<T> implements AllResultsReceiver<T> {
   public void sendSecondDiscovers(DiscoverResultsReceiver<T> results) {
     results.startSecondDiscovery();
 
-    for (NomadEndpoint<T> server : servers) {
-      long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
-      runSync(
-          server::discover,
-          discovery -> {
-            long secondMutativeMessageCount = discovery.getMutativeMessageCount();
-            if (secondMutativeMessageCount == mutativeMessageCount) {
-              results.discoverRepeated(server.getAddress());
-            } else {
-              String lastMutationHost = discovery.getLastMutationHost();
-              String lastMutationUser = discovery.getLastMutationUser();
-              results.discoverOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
-            }
-          },
-          unwrap(e -> results.discoverFail(server.getAddress(), stringify(e)))
-      );
-    }
+    runAll(
+        serverGroups,
+        server -> server::discover,
+        (server, discovery) -> {
+          long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
+          long secondMutativeMessageCount = discovery.getMutativeMessageCount();
+          if (secondMutativeMessageCount == mutativeMessageCount) {
+            results.discoverRepeated(server.getAddress());
+          } else {
+            String lastMutationHost = discovery.getLastMutationHost();
+            String lastMutationUser = discovery.getLastMutationUser();
+            results.discoverOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
+          }
+        },
+        (server, e) -> results.discoverFail(server.getAddress(), stringify(e))
+    );
 
     // The endSecondDiscovery() call is made outside this method
   }
@@ -106,10 +137,11 @@ public class NomadMessageSender<T> implements AllResultsReceiver<T> {
     long newVersionNumber = maxVersionNumber.get() + 1;
     Instant now = clock.instant();
 
-    for (NomadEndpoint<T> server : servers) {
-      long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
-      runSync(
-          () -> server.prepare(
+    runAll(
+        serverGroups,
+        server -> {
+          long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
+          return () -> server.prepare(
               new PrepareMessage(
                   mutativeMessageCount,
                   host,
@@ -119,33 +151,33 @@ public class NomadMessageSender<T> implements AllResultsReceiver<T> {
                   newVersionNumber,
                   change
               )
-          ),
-          response -> {
-            if (response.isAccepted()) {
-              results.prepared(server.getAddress());
-            } else {
-              RejectionReason rejectionReason = response.getRejectionReason();
-
-              switch (rejectionReason) {
-                case UNACCEPTABLE:
-                  String rejectionMessage = response.getRejectionMessage();
-                  results.prepareChangeUnacceptable(server.getAddress(), rejectionMessage);
-                  break;
-                case DEAD:
-                  String lastMutationHost = response.getLastMutationHost();
-                  String lastMutationUser = response.getLastMutationUser();
-                  results.prepareOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
-                  break;
-                case BAD:
-                  throw new AssertionError("A server rejected a message as bad: " + server.getAddress());
-                default:
-                  throw new AssertionError("Unexpected RejectionReason: " + rejectionReason);
-              }
+          );
+        },
+        (server, response) -> {
+          if (response.isAccepted()) {
+            results.prepared(server.getAddress());
+          } else {
+            RejectionReason rejectionReason = response.getRejectionReason();
+
+            switch (rejectionReason) {
+              case UNACCEPTABLE:
+                String rejectionMessage = response.getRejectionMessage();
+                results.prepareChangeUnacceptable(server.getAddress(), rejectionMessage);
+                break;
+              case DEAD:
+                String lastMutationHost = response.getLastMutationHost();
+                String lastMutationUser = response.getLastMutationUser();
+                results.prepareOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
+                break;
+              case BAD:
+                throw new AssertionError("A server rejected a message as bad: " + server.getAddress());
+              default:
+                throw new AssertionError("Unexpected RejectionReason: " + rejectionReason);
             }
-          },
-          unwrap(e -> results.prepareFail(server.getAddress(), stringify(e)))
-      );
-    }
+          }
+        },
+        (server, e) -> results.prepareFail(server.getAddress(), stringify(e))
+    );
 
     results.endPrepare();
   }
@@ -155,43 +187,42 @@ public class NomadMessageSender<T> implements AllResultsReceiver<T> {
 
     Instant now = clock.instant();
 
-    for (NomadEndpoint<T> server : preparedServers) {
-      long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
-      runSync(
-          () -> {
-            return server.commit(
-                new CommitMessage(
-                    mutativeMessageCount + 1,
-                    host,
-                    user,
-                    now,
-                    changeUuid
-                )
-            );
-          },
-          response -> {
-            if (response.isAccepted()) {
-              results.committed(server.getAddress());
-            } else {
-              RejectionReason rejectionReason = response.getRejectionReason();
-              switch (rejectionReason) {
-                case UNACCEPTABLE:
-                  throw new AssertionError("Commit should not return UNACCEPTABLE");
-                case DEAD:
-                  String lastMutationHost = response.getLastMutationHost();
-                  String lastMutationUser = response.getLastMutationUser();
-                  results.commitOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
-                  break;
-                case BAD:
-                  throw new AssertionError("A server rejected a message as bad: " + server.getAddress());
-                default:
-                  throw new AssertionError("Unexpected RejectionReason: " + rejectionReason);
-              }
+    runAll(
+        preparedServerGroups(),
+        server -> {
+          long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
+          return () -> server.commit(
+              new CommitMessage(
+                  mutativeMessageCount + 1,
+                  host,
+                  user,
+                  now,
+                  changeUuid
+              )
+          );
+        },
+        (server, response) -> {
+          if (response.isAccepted()) {
+            results.committed(server.getAddress());
+          } else {
+            RejectionReason rejectionReason = response.getRejectionReason();
+            switch (rejectionReason) {
+              case UNACCEPTABLE:
+                throw new AssertionError("Commit should not return UNACCEPTABLE");
+              case DEAD:
+                String lastMutationHost = response.getLastMutationHost();
+                String lastMutationUser = response.getLastMutationUser();
+                results.commitOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
+                break;
+              case BAD:
+                throw new AssertionError("A server rejected a message as bad: " + server.getAddress());
+              default:
+                throw new AssertionError("Unexpected RejectionReason: " + rejectionReason);
             }
-          },
-          unwrap(e -> results.commitFail(server.getAddress(), stringify(e)))
-      );
-    }
+          }
+        },
+        (server, e) -> results.commitFail(server.getAddress(), stringify(e))
+    );
 
     results.endCommit();
   }
@@ -201,10 +232,11 @@ public class NomadMessageSender<T> implements AllResultsReceiver<T> {
 
     Instant now = clock.instant();
 
-    for (NomadEndpoint<T> server : preparedServers) {
-      long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
-      runSync(
-          () -> server.rollback(
+    runAll(
+        preparedServerGroups(),
+        server -> {
+          long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
+          return () -> server.rollback(
               new RollbackMessage(
                   mutativeMessageCount + 1,
                   host,
@@ -212,30 +244,30 @@ public class NomadMessageSender<T> implements AllResultsReceiver<T> {
                   now,
                   changeUuid
               )
-          ),
-          response -> {
-            if (response.isAccepted()) {
-              results.rolledBack(server.getAddress());
-            } else {
-              RejectionReason rejectionReason = response.getRejectionReason();
-              switch (rejectionReason) {
-                case UNACCEPTABLE:
-                  throw new AssertionError("Rollback should not return UNACCEPTABLE");
-                case DEAD:
-                  String lastMutationHost = response.getLastMutationHost();
-                  String lastMutationUser = response.getLastMutationUser();
-                  results.rollbackOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
-                  break;
-                case BAD:
-                  throw new AssertionError("A server rejected a message as bad: " + server.getAddress());
-                default:
-                  throw new AssertionError("Unexpected RejectionReason: " + rejectionReason);
-              }
+          );
+        },
+        (server, response) -> {
+          if (response.isAccepted()) {
+            results.rolledBack(server.getAddress());
+          } else {
+            RejectionReason rejectionReason = response.getRejectionReason();
+            switch (rejectionReason) {
+              case UNACCEPTABLE:
+                throw new AssertionError("Rollback should not return UNACCEPTABLE");
+              case DEAD:
+                String lastMutationHost = response.getLastMutationHost();
+                String lastMutationUser = response.getLastMutationUser();
+                results.rollbackOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
+                break;
+              case BAD:
+                throw new AssertionError("A server rejected a message as bad: " + server.getAddress());
+              default:
+                throw new AssertionError("Unexpected RejectionReason: " + rejectionReason);
             }
-          },
-          unwrap(e -> results.rollbackFail(server.getAddress(), stringify(e)))
-      );
-    }
+          }
+        },
+        (server, e) -> results.rollbackFail(server.getAddress(), stringify(e))
+    );
 
     results.endRollback();
   }
@@ -245,40 +277,41 @@ public class NomadMessageSender<T> implements AllResultsReceiver<T> {
 
     Instant now = clock.instant();
 
-    for (NomadEndpoint<T> server : servers) {
-      long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
-      runSync(
-          () -> server.takeover(
+    runAll(
+        serverGroups,
+        server -> {
+          long mutativeMessageCount = mutativeMessageCounts.get(server.getAddress());
+          return () -> server.takeover(
               new TakeoverMessage(
                   mutativeMessageCount,
                   host,
                   user,
                   now
               )
-          ),
-          response -> {
-            if (response.isAccepted()) {
-              results.takeover(server.getAddress());
-            } else {
-              RejectionReason rejectionReason = response.getRejectionReason();
-              switch (rejectionReason) {
-                case UNACCEPTABLE:
-                  throw new AssertionError("Takeover should not return UNACCEPTABLE");
-                case DEAD:
-                  String lastMutationHost = response.getLastMutationHost();
-                  String lastMutationUser = response.getLastMutationUser();
-                  results.takeoverOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
-                  break;
-                case BAD:
-                  throw new AssertionError("A server rejected a message as bad: " + server.getAddress());
-                default:
-                  throw new AssertionError("Unexpected RejectionReason: " + rejectionReason);
-              }
+          );
+        },
+        (server, response) -> {
+          if (response.isAccepted()) {
+            results.takeover(server.getAddress());
+          } else {
+            RejectionReason rejectionReason = response.getRejectionReason();
+            switch (rejectionReason) {
+              case UNACCEPTABLE:
+                throw new AssertionError("Takeover should not return UNACCEPTABLE");
+              case DEAD:
+                String lastMutationHost = response.getLastMutationHost();
+                String lastMutationUser = response.getLastMutationUser();
+                results.takeoverOtherClient(server.getAddress(), lastMutationHost, lastMutationUser);
+                break;
+              case BAD:
+                throw new AssertionError("A server rejected a message as bad: " + server.getAddress());
+              default:
+                throw new AssertionError("Unexpected RejectionReason: " + rejectionReason);
             }
-          },
-          unwrap(e -> results.takeoverFail(server.getAddress(), stringify(e)))
-      );
-    }
+          }
+        },
+        (server, e) -> results.takeoverFail(server.getAddress(), stringify(e))
+    );
 
     results.endTakeover();
   }
@@ -297,6 +330,60 @@ public class NomadMessageSender<T> implements AllResultsReceiver<T> {
     preparedServers.add(servers.stream().filter(s -> s.getAddress().equals(address)).findAny().get());
   }
 
+  /**
+   * Sends a message to the servers, group after group. The servers of a group are contacted concurrently.
+   * The results are then reported in the order of the servers, from the calling thread, so that the result
+   * receivers do not need to be thread-safe.
+   */
+  private <R> void runAll(List<List<NomadEndpoint<T>>> serverGroups,
+                          Function<NomadEndpoint<T>, Callable<R>> messages,
+                          BiConsumer<NomadEndpoint<T>, R> onSuccess,
+                          BiConsumer<NomadEndpoint<T>, Throwable> onError) {
+    TimeBudget timeBudget = new TimeBudget(phaseTimeout.toMillis(), MILLISECONDS);
+    for (List<NomadEndpoint<T>> group : serverGroups) {
+      List<NomadEndpoint<T>> endpoints = new ArrayList<>(group);
+      List<FutureTask<R>> futures = new ArrayList<>(endpoints.size());
+      for (NomadEndpoint<T> endpoint : endpoints) {
+        FutureTask<R> future = new FutureTask<>(messages.apply(endpoint));
+        futures.add(future);
+        executor.execute(future);
+      }
+      for (int i = 0; i < endpoints.size(); i++) {
+        NomadEndpoint<T> endpoint = endpoints.get(i);
+        FutureTask<R> future = futures.get(i);
+        runSync(() -> await(future, timeBudget), response -> onSuccess.accept(endpoint, response), unwrap(e -> onError.accept(endpoint, e)));
+      }
+    }
+  }
+
+  private List<List<NomadEndpoint<T>>> preparedServerGroups() {
+    return serverGroups.stream()
+        .map(group -> group.stream().filter(preparedServers::contains).collect(toList()))
+        .collect(toList());
+  }
+
+  private <R> R await(FutureTask<R> future, TimeBudget timeBudget) throws Exception {
+    try {
+      return future.get(Math.max(0, timeBudget.remaining(MILLISECONDS)), MILLISECONDS);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw new TimeoutException("No response within " + phaseTimeout.toMillis() + "ms");
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw e;
+    }
+  }
+
   private <T> void runSync(Callable<T> callable, Consumer<T> onSuccess, Consumer<Throwable> onError) {
     try {
       T result = callable.call();
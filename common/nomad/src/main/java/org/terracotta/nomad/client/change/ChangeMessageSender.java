@@ -20,12 +20,14 @@ import org.terracotta.nomad.client.NomadMessageSender;
 
 import java.net.InetSocketAddress;
 import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 public class ChangeMessageSender<T> extends NomadMessageSender<T> {
-  public ChangeMessageSender(List<NomadEndpoint<T>> servers, String host, String user, Clock clock) {
-    super(servers, host, user, clock);
+  public ChangeMessageSender(List<List<NomadEndpoint<T>>> serverGroups, String host, String user, Clock clock, Executor executor, Duration phaseTimeout) {
+    super(serverGroups, host, user, clock, executor, phaseTimeout);
   }
 
   @Override
@@ -22,19 +22,21 @@ import org.terracotta.nomad.client.NomadMessageSender;
 import org.terracotta.nomad.client.results.AllResultsReceiver;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 public class ChangeProcess<T> extends NomadClientProcess<NomadChange, T> {
-  public ChangeProcess(List<NomadEndpoint<T>> servers, String host, String user, Clock clock) {
-    super(servers, host, user, clock);
+  public ChangeProcess(List<List<NomadEndpoint<T>>> serverGroups, String host, String user, Clock clock, Executor executor, Duration phaseTimeout) {
+    super(serverGroups, host, user, clock, executor, phaseTimeout);
   }
 
   public void applyChange(ChangeResultReceiver<T> results, NomadChange change) {
     runProcess(
         new ChangeAllResultsReceiverAdapter<>(results),
         new ChangeProcessDecider<>(),
-        new ChangeMessageSender<>(servers, host, user, clock),
+        new ChangeMessageSender<>(serverGroups, host, user, clock, executor, phaseTimeout),
         change
     );
   }
@@ -22,11 +22,13 @@ import org.terracotta.nomad.server.NomadServerMode;
 
 import java.net.InetSocketAddress;
 import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class RecoveryMessageSender<T> extends NomadMessageSender<T> {
-  public RecoveryMessageSender(List<NomadEndpoint<T>> servers, String host, String user, Clock clock) {
-    super(servers, host, user, clock);
+  public RecoveryMessageSender(List<List<NomadEndpoint<T>>> serverGroups, String host, String user, Clock clock, Executor executor, Duration phaseTimeout) {
+    super(serverGroups, host, user, clock, executor, phaseTimeout);
   }
 
   @Override
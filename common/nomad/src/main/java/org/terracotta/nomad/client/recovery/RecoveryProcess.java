@@ -23,18 +23,20 @@ import org.terracotta.nomad.client.results.AllResultsReceiver;
 import org.terracotta.nomad.server.ChangeRequestState;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class RecoveryProcess<T> extends NomadClientProcess<Void, T> {
-  public RecoveryProcess(List<NomadEndpoint<T>> servers, String host, String user, Clock clock) {
-    super(servers, host, user, clock);
+  public RecoveryProcess(List<List<NomadEndpoint<T>>> serverGroups, String host, String user, Clock clock, Executor executor, Duration phaseTimeout) {
+    super(serverGroups, host, user, clock, executor, phaseTimeout);
   }
 
   public void recover(RecoveryResultReceiver<T> results, int expectedNodeCount, ChangeRequestState forcedState) {
     runProcess(
         new RecoveryAllResultsReceiverAdapter<>(results),
         new RecoveryProcessDecider<>(expectedNodeCount, forcedState),
-        new RecoveryMessageSender<>(servers, host, user, clock),
+        new RecoveryMessageSender<>(serverGroups, host, user, clock, executor, phaseTimeout),
         null
     );
   }
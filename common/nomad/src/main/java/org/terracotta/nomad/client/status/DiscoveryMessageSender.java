@@ -24,15 +24,17 @@ import org.terracotta.nomad.client.results.RollbackResultsReceiver;
 import org.terracotta.nomad.client.results.TakeoverResultsReceiver;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 /**
  * @author Mathieu Carbou
  */
 public class DiscoveryMessageSender<T> extends NomadMessageSender<T> {
-  public DiscoveryMessageSender(List<NomadEndpoint<T>> servers, String host, String user, Clock clock) {
-    super(servers, host, user, clock);
+  public DiscoveryMessageSender(List<List<NomadEndpoint<T>>> serverGroups, String host, String user, Clock clock, Executor executor, Duration phaseTimeout) {
+    super(serverGroups, host, user, clock, executor, phaseTimeout);
   }
 
   @Override
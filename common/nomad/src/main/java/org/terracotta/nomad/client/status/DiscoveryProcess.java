@@ -24,21 +24,23 @@ import org.terracotta.nomad.client.results.AllResultsReceiver;
 import org.terracotta.nomad.client.results.DiscoverResultsReceiver;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * @author Mathieu Carbou
  */
 public class DiscoveryProcess<T> extends NomadClientProcess<NomadChange, T> {
-  public DiscoveryProcess(List<NomadEndpoint<T>> servers, String host, String user, Clock clock) {
-    super(servers, host, user, clock);
+  public DiscoveryProcess(List<List<NomadEndpoint<T>>> serverGroups, String host, String user, Clock clock, Executor executor, Duration phaseTimeout) {
+    super(serverGroups, host, user, clock, executor, phaseTimeout);
   }
 
   public void discover(DiscoverResultsReceiver<T> results) {
     runProcess(
         new DiscoveryAllResultsReceiverAdapter<>(results),
         new DiscoveryProcessDecider<>(),
-        new DiscoveryMessageSender<>(servers, host, user, clock),
+        new DiscoveryMessageSender<>(serverGroups, host, user, clock, executor, phaseTimeout),
         null
     );
   }
@@ -29,8 +29,11 @@ import org.terracotta.nomad.server.state.NomadServerState;
 import org.terracotta.nomad.server.state.NomadStateChange;
 
 import java.time.Instant;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.BiFunction;
@@ -48,6 +51,11 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
   private final NomadServerState<T> state;
   private ChangeApplicator<T> changeApplicator;
 
+  // In-memory index of the change history, loaded from the state on first use and then maintained on each prepare, commit and rollback.
+  // Loading a change from the state is costly, and the change results (configurations) are only loaded when needed.
+  private List<NomadChangeInfo> changeHistory;
+  private final Map<UUID, Integer> changeHistoryIndex = new HashMap<>();
+
   public NomadServerImpl(NomadServerState<T> state, ChangeApplicator<T> changeApplicator) throws NomadException {
     this.state = state;
     this.changeApplicator = changeApplicator;
@@ -60,6 +68,8 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
 
   @Override
   public void reset() throws NomadException {
+    changeHistory = null;
+    changeHistoryIndex.clear();
     state.reset();
     init();
   }
@@ -141,58 +151,19 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
 
   @Override
   public Optional<NomadChangeInfo> getNomadChangeInfo(UUID uuid) throws NomadException {
-    return Optional.ofNullable(state.getChangeRequest(uuid))
-        .map(changeRequest -> new NomadChangeInfo(
-            uuid,
-            changeRequest.getChange(),
-            changeRequest.getState(),
-            changeRequest.getVersion(),
-            changeRequest.getCreationHost(),
-            changeRequest.getCreationUser(),
-            changeRequest.getCreationTimestamp()
-        ));
+    return getNomadChange(uuid);
   }
 
   @Override
   public List<NomadChangeInfo> getAllNomadChanges() throws NomadException {
-    LinkedList<NomadChangeInfo> allNomadChanges = new LinkedList<>();
-    UUID changeUuid = state.getLatestChangeUuid();
-    while (changeUuid != null) {
-      ChangeRequest<T> changeRequest = state.getChangeRequest(changeUuid);
-      allNomadChanges.addFirst(
-          new NomadChangeInfo(
-              changeUuid,
-              changeRequest.getChange(),
-              changeRequest.getState(),
-              changeRequest.getVersion(),
-              changeRequest.getCreationHost(),
-              changeRequest.getCreationUser(),
-              changeRequest.getCreationTimestamp()
-          )
-      );
-      if (changeRequest.getPrevChangeId() != null) {
-        changeUuid = UUID.fromString(changeRequest.getPrevChangeId());
-      } else {
-        changeUuid = null;
-      }
-    }
-    return allNomadChanges;
+    return new ArrayList<>(getChangeHistory());
   }
 
   @Override
   public Optional<NomadChangeInfo> getNomadChange(UUID changeUuid) throws NomadException {
-    ChangeRequest<T> changeRequest = state.getChangeRequest(changeUuid);
-    if (changeRequest == null) {
-      return Optional.empty();
-    }
-    return Optional.of(new NomadChangeInfo(
-        changeUuid,
-        changeRequest.getChange(),
-        changeRequest.getState(),
-        changeRequest.getVersion(),
-        changeRequest.getCreationHost(),
-        changeRequest.getCreationUser(),
-        changeRequest.getCreationTimestamp()));
+    List<NomadChangeInfo> history = getChangeHistory();
+    Integer position = changeHistoryIndex.get(changeUuid);
+    return position == null ? Optional.empty() : Optional.of(history.get(position));
   }
 
   @Override
@@ -201,13 +172,12 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
       return false;
     }
     try {
-      DiscoverResponse<T> discover = discover();
-      ChangeDetails<T> latestChange = discover.getLatestChange();
-      if (latestChange == null) {
+      List<NomadChangeInfo> history = getChangeHistory();
+      if (history.isEmpty()) {
         return false;
       }
       // current configuration in force is 1 (we have activated a cluster) plus we have a prepared change at the end
-      return state.getMode() == NomadServerMode.PREPARED || latestChange.getState() == PREPARED;
+      return state.getMode() == NomadServerMode.PREPARED || history.get(history.size() - 1).getChangeRequestState() == PREPARED;
     } catch (NomadException e) {
       throw new IllegalStateException(e);
     }
@@ -252,7 +222,7 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
       );
     }
 
-    List<NomadChangeInfo> checkpoints = getAllNomadChanges().stream()
+    List<NomadChangeInfo> checkpoints = getChangeHistory().stream()
         .filter(nomadChangeInfo -> nomadChangeInfo.getChangeRequestState() == COMMITTED)
         .collect(Collectors.toList());
 
@@ -287,8 +257,7 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
     }
 
     UUID changeUuid = message.getChangeUuid();
-    ChangeRequest<T> existingChangeRequest = state.getChangeRequest(changeUuid);
-    if (existingChangeRequest != null) {
+    if (getNomadChange(changeUuid).isPresent()) {
       return reject(BAD, "Received an alive PrepareMessage for a change that already exists: " + changeUuid);
     }
 
@@ -326,6 +295,7 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
         .setLastMutationTimestamp(mutationTimestamp)
         .createChange(changeUuid, changeRequest)
     );
+    recordChange(toNomadChangeInfo(changeUuid, changeRequest));
 
     return result.isAllowed() ? accept() : reject(UNACCEPTABLE, result.getRejectionReason());
   }
@@ -348,13 +318,13 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
     String mutationUser = message.getMutationUser();
     Instant mutationTimestamp = message.getMutationTimestamp();
 
-    ChangeRequest<T> changeRequest = state.getChangeRequest(changeUuid);
-    if (changeRequest == null) {
+    NomadChangeInfo changeInfo = getNomadChange(changeUuid).orElse(null);
+    if (changeInfo == null) {
       return reject(BAD, "Received an alive CommitMessage for a change that does not exist: " + changeUuid);
     }
 
-    long changeVersion = changeRequest.getVersion();
-    NomadChange change = changeRequest.getChange();
+    long changeVersion = changeInfo.getVersion();
+    NomadChange change = changeInfo.getNomadChange();
 
     changeApplicator.apply(change);
 
@@ -368,6 +338,7 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
         .setLastMutationTimestamp(mutationTimestamp)
         .updateChangeRequestState(changeUuid, COMMITTED)
     );
+    recordChangeState(changeUuid, COMMITTED);
 
     return accept();
   }
@@ -394,6 +365,7 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
         .setLastMutationTimestamp(mutationTimestamp)
         .updateChangeRequestState(changeUuid, ROLLED_BACK)
     );
+    recordChangeState(changeUuid, ROLLED_BACK);
 
     return accept();
   }
@@ -458,6 +430,59 @@ public class NomadServerImpl<T> implements UpgradableNomadServer<T> {
     }
   }
 
+  private List<NomadChangeInfo> getChangeHistory() throws NomadException {
+    if (changeHistory == null) {
+      List<NomadChangeInfo> history = new ArrayList<>();
+      UUID changeUuid = state.getLatestChangeUuid();
+      while (changeUuid != null) {
+        ChangeRequest<T> changeRequest = state.getChangeRequestWithoutResult(changeUuid);
+        history.add(toNomadChangeInfo(changeUuid, changeRequest));
+        changeUuid = changeRequest.getPrevChangeId() == null ? null : UUID.fromString(changeRequest.getPrevChangeId());
+      }
+      Collections.reverse(history);
+      changeHistoryIndex.clear();
+      for (int i = 0; i < history.size(); i++) {
+        changeHistoryIndex.put(history.get(i).getChangeUuid(), i);
+      }
+      changeHistory = history;
+    }
+    return changeHistory;
+  }
+
+  private void recordChange(NomadChangeInfo changeInfo) {
+    // if the history is not loaded yet, it will be read from the state
+    if (changeHistory != null) {
+      changeHistoryIndex.put(changeInfo.getChangeUuid(), changeHistory.size());
+      changeHistory.add(changeInfo);
+    }
+  }
+
+  private void recordChangeState(UUID changeUuid, ChangeRequestState changeRequestState) {
+    Integer position = changeHistoryIndex.get(changeUuid);
+    if (changeHistory != null && position != null) {
+      NomadChangeInfo changeInfo = changeHistory.get(position);
+      changeHistory.set(position, new NomadChangeInfo(
+          changeUuid,
+          changeInfo.getNomadChange(),
+          changeRequestState,
+          changeInfo.getVersion(),
+          changeInfo.getCreationHost(),
+          changeInfo.getCreationUser(),
+          changeInfo.getCreationTimestamp()));
+    }
+  }
+
+  private static NomadChangeInfo toNomadChangeInfo(UUID changeUuid, ChangeRequest<?> changeRequest) {
+    return new NomadChangeInfo(
+        changeUuid,
+        changeRequest.getChange(),
+        changeRequest.getState(),
+        changeRequest.getVersion(),
+        changeRequest.getCreationHost(),
+        changeRequest.getCreationUser(),
+        changeRequest.getCreationTimestamp());
+  }
+
   private AcceptRejectResponse reject(RejectionReason rejectionReason, String rejectionMessage) {
     return AcceptRejectResponse.reject(rejectionReason, rejectionMessage, state.getLastMutationHost(), state.getLastMutationUser());
   }
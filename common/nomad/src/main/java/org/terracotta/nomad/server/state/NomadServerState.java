@@ -44,6 +44,14 @@ public interface NomadServerState<T> {
 
   ChangeRequest<T> getChangeRequest(UUID changeUuid) throws NomadException;
 
+  /**
+   * Same as {@link #getChangeRequest(UUID)}, but without loading the change result, which can be costly.
+   * The change result of the returned request might be null.
+   */
+  default ChangeRequest<T> getChangeRequestWithoutResult(UUID changeUuid) throws NomadException {
+    return getChangeRequest(changeUuid);
+  }
+
   NomadStateChange<T> newStateChange();
 
   void applyStateChange(NomadStateChange<T> change) throws NomadException;
@@ -0,0 +1,188 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.nomad;
+
+import org.junit.Test;
+import org.terracotta.nomad.client.Consistency;
+import org.terracotta.nomad.client.NomadClient;
+import org.terracotta.nomad.client.NomadEndpoint;
+import org.terracotta.nomad.client.change.ChangeResultReceiver;
+import org.terracotta.nomad.messages.AcceptRejectResponse;
+import org.terracotta.nomad.messages.CommitMessage;
+import org.terracotta.nomad.messages.DiscoverResponse;
+import org.terracotta.nomad.messages.PrepareMessage;
+import org.terracotta.nomad.server.ChangeApplicator;
+import org.terracotta.nomad.server.NomadException;
+import org.terracotta.nomad.server.NomadServerImpl;
+import org.terracotta.nomad.server.state.MemoryNomadServerState;
+
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class NomadConcurrencyIT {
+
+  private static final int SERVER_COUNT = 6;
+  private static final long LATENCY_MS = 300;
+
+  @Test
+  public void phasesTakeTheTimeOfTheSlowestServer() throws Exception {
+    List<NomadEndpoint<String>> servers = new ArrayList<>();
+    for (int i = 0; i < SERVER_COUNT; i++) {
+      NomadServerImpl<String> server = new NomadServerImpl<>(new MemoryNomadServerState<>());
+      server.setChangeApplicator(ChangeApplicator.allow((existing, change) -> "changeResult"));
+      // the last server is the slowest one
+      servers.add(new SlowEndpoint(InetSocketAddress.createUnresolved("localhost", 9410 + i), server, i == SERVER_COUNT - 1 ? LATENCY_MS : LATENCY_MS / 3));
+    }
+
+    List<InetSocketAddress> committed = new ArrayList<>();
+    AtomicReference<Consistency> consistency = new AtomicReference<>();
+    ChangeResultReceiver<String> results = new ChangeResultReceiver<String>() {
+      @Override
+      public void committed(InetSocketAddress server) {
+        committed.add(server);
+      }
+
+      @Override
+      public void done(Consistency c) {
+        consistency.set(c);
+      }
+    };
+
+    long start = System.nanoTime();
+    try (NomadClient<String> client = new NomadClient<>(singletonList(servers), "host", "user", Clock.systemUTC(), SERVER_COUNT, Duration.ofSeconds(30))) {
+      client.tryApplyChange(results, new SimpleNomadChange("change", "summary"));
+    }
+    long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+    // 4 phases: discover, second discover, prepare and commit
+    assertThat(elapsed, greaterThanOrEqualTo(4 * LATENCY_MS));
+    assertThat(elapsed, lessThan(4 * LATENCY_MS * 2));
+    assertEquals(Consistency.CONSISTENT, consistency.get());
+    // results are reported in the order of the servers
+    assertEquals(servers.stream().map(NomadEndpoint::getAddress).collect(toList()), committed);
+  }
+
+  @Test
+  public void slowServersFailWhenThePhaseTimesOut() throws Exception {
+    NomadServerImpl<String> server = new NomadServerImpl<>(new MemoryNomadServerState<>());
+    List<NomadEndpoint<String>> servers = new ArrayList<>();
+    servers.add(new SlowEndpoint(InetSocketAddress.createUnresolved("localhost", 9410), server, 0));
+    servers.add(new SlowEndpoint(InetSocketAddress.createUnresolved("localhost", 9411), server, 2_000));
+
+    List<InetSocketAddress> failed = new ArrayList<>();
+    ChangeResultReceiver<String> results = new ChangeResultReceiver<String>() {
+      @Override
+      public void discoverFail(InetSocketAddress server, String reason) {
+        failed.add(server);
+      }
+    };
+
+    try (NomadClient<String> client = new NomadClient<>(singletonList(servers), "host", "user", Clock.systemUTC(), 2, Duration.ofMillis(200))) {
+      client.tryApplyChange(results, new SimpleNomadChange("change", "summary"));
+    }
+
+    assertEquals(1, failed.size());
+    assertEquals(servers.get(1).getAddress(), failed.get(0));
+  }
+
+  @Test
+  public void groupsAreContactedOneAfterTheOther() throws Exception {
+    List<String> prepares = Collections.synchronizedList(new ArrayList<>());
+    List<NomadEndpoint<String>> passives = new ArrayList<>();
+    List<NomadEndpoint<String>> actives = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      NomadServerImpl<String> server = new NomadServerImpl<>(new MemoryNomadServerState<>());
+      server.setChangeApplicator(ChangeApplicator.allow((existing, change) -> "changeResult"));
+      // passives are slower than actives: the actives must still wait for them
+      SlowEndpoint endpoint = new SlowEndpoint(InetSocketAddress.createUnresolved("localhost", 9410 + i), server, i < 2 ? LATENCY_MS : 0) {
+        @Override
+        public AcceptRejectResponse prepare(PrepareMessage message) throws NomadException {
+          AcceptRejectResponse response = super.prepare(message);
+          prepares.add(getAddress().toString());
+          return response;
+        }
+      };
+      (i < 2 ? passives : actives).add(endpoint);
+    }
+
+    AtomicReference<Consistency> consistency = new AtomicReference<>();
+    ChangeResultReceiver<String> results = new ChangeResultReceiver<String>() {
+      @Override
+      public void done(Consistency c) {
+        consistency.set(c);
+      }
+    };
+
+    try (NomadClient<String> client = new NomadClient<>(asList(passives, actives), "host", "user", Clock.systemUTC(), SERVER_COUNT, Duration.ofSeconds(30))) {
+      client.tryApplyChange(results, new SimpleNomadChange("change", "summary"));
+    }
+
+    assertEquals(Consistency.CONSISTENT, consistency.get());
+    assertEquals(4, prepares.size());
+    List<String> passiveAddresses = passives.stream().map(e -> e.getAddress().toString()).collect(toList());
+    assertThat(prepares.subList(0, 2), containsInAnyOrder(passiveAddresses.toArray()));
+  }
+
+  private static class SlowEndpoint extends NomadEndpoint<String> {
+    private final long latency;
+
+    SlowEndpoint(InetSocketAddress address, NomadServerImpl<String> server, long latency) {
+      super(address, server);
+      this.latency = latency;
+    }
+
+    @Override
+    public DiscoverResponse<String> discover() throws NomadException {
+      sleep();
+      return super.discover();
+    }
+
+    @Override
+    public AcceptRejectResponse prepare(PrepareMessage message) throws NomadException {
+      sleep();
+      return super.prepare(message);
+    }
+
+    @Override
+    public AcceptRejectResponse commit(CommitMessage message) throws NomadException {
+      sleep();
+      return super.commit(message);
+    }
+
+    private void sleep() throws NomadException {
+      try {
+        Thread.sleep(latency);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new NomadException(e);
+      }
+    }
+  }
+}
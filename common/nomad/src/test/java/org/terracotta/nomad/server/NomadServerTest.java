@@ -788,6 +788,67 @@ public class NomadServerTest {
     assertEquals(getAllChanges.get(1).getNomadChange(), new SimpleNomadChange("change1", "summary1"));
   }
 
+  @Test
+  public void changeHistoryIsMaintainedAndReloaded() throws Exception {
+    when(changeApplicator.tryApply(null, new SimpleNomadChange("change", "summary"))).thenReturn(PotentialApplicationResult.allow("change-applied"));
+    when(changeApplicator.tryApply("change-applied", new SimpleNomadChange("change1", "summary1"))).thenReturn(PotentialApplicationResult.allow("change-applied1"));
+
+    DiscoverResponse<String> discoverResponse = server.discover();
+    UUID firstChangeUuid = UUID.randomUUID();
+    UUID nextChangeUuid = UUID.randomUUID();
+
+    server.prepare(new PrepareMessage(
+        discoverResponse.getMutativeMessageCount(),
+        "testhost",
+        "testuser",
+        Clock.systemDefaultZone().instant(),
+        firstChangeUuid,
+        discoverResponse.getHighestVersion() + 1,
+        new SimpleNomadChange("change", "summary")
+    ));
+    server.commit(new CommitMessage(
+        discoverResponse.getMutativeMessageCount() + 1,
+        "testhost",
+        "testuser",
+        Clock.systemDefaultZone().instant(),
+        firstChangeUuid
+    ));
+    server.prepare(new PrepareMessage(
+        discoverResponse.getMutativeMessageCount() + 2,
+        "testhost",
+        "testuser",
+        Clock.systemDefaultZone().instant(),
+        nextChangeUuid,
+        discoverResponse.getHighestVersion() + 2,
+        new SimpleNomadChange("change1", "summary1")
+    ));
+    assertTrue(server.hasIncompleteChange());
+    server.rollback(new RollbackMessage(
+        discoverResponse.getMutativeMessageCount() + 3,
+        "testhost",
+        "testuser",
+        Clock.systemDefaultZone().instant(),
+        nextChangeUuid
+    ));
+    assertFalse(server.hasIncompleteChange());
+
+    List<NomadChangeInfo> changes = server.getAllNomadChanges();
+    assertEquals(2, changes.size());
+    assertEquals(ChangeRequestState.COMMITTED, changes.get(0).getChangeRequestState());
+    assertEquals(ChangeRequestState.ROLLED_BACK, changes.get(1).getChangeRequestState());
+    assertEquals(changes.get(1), server.getNomadChange(nextChangeUuid).get());
+    assertEquals(1, server.discover().getCheckpoints().size());
+
+    // a server restarted on the same state reads the same history
+    NomadServerImpl<String> restarted = new NomadServerImpl<>(state, changeApplicator);
+    assertEquals(changes, restarted.getAllNomadChanges());
+    assertFalse(restarted.hasIncompleteChange());
+
+    verify(changeApplicator).tryApply(null, new SimpleNomadChange("change", "summary"));
+    verify(changeApplicator).tryApply("change-applied", new SimpleNomadChange("change1", "summary1"));
+    verify(changeApplicator).apply(new SimpleNomadChange("change", "summary"));
+  }
+
   private void assertState(
       NomadServerMode mode,
       long mutativeMessageCount,
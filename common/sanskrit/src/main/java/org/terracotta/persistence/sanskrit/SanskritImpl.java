@@ -228,7 +228,9 @@ public class SanskritImpl implements Sanskrit {
 
   @Override
   public SanskritObject getObject(String key) {
-    return CopyUtils.makeCopy(objectMapper, data.getObject(key));
+    SanskritObject object = data.getObject(key);
+    // the objects of the state are never modified in place (they are replaced by applyChange), so they can be shared
+    return object instanceof SanskritObjectImpl ? ((SanskritObjectImpl) object).share() : CopyUtils.makeCopy(objectMapper, object);
   }
 
   @Override
@@ -26,32 +26,56 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * A {@link MutableSanskritObject} backed by a JSON tree.
+ * <p>
+ * An object can be a shared view over a tree that is also referenced by others (i.e. the Sanskrit state): in this
+ * case, reading from it does not copy anything, and the tree is only copied on the first mutation (copy-on-write),
+ * so that the others never see the changes. The views of the children of a shared view are also shared views.
+ */
 public class SanskritObjectImpl implements MutableSanskritObject {
-  private final ObjectNode mappings;
   private final ObjectMapper objectMapper;
+  private ObjectNode mappings;
+  private boolean shared;
 
   public SanskritObjectImpl(ObjectMapper objectMapper) {
     this(objectMapper, objectMapper.createObjectNode());
   }
 
   SanskritObjectImpl(ObjectMapper objectMapper, ObjectNode node) {
+    this(objectMapper, node, false);
+  }
+
+  private SanskritObjectImpl(ObjectMapper objectMapper, ObjectNode node, boolean shared) {
     this.objectMapper = objectMapper;
     this.mappings = node;
+    this.shared = shared;
+  }
+
+  /**
+   * @return a shared view over the same tree, that will copy it if it is modified
+   */
+  SanskritObjectImpl share() {
+    return new SanskritObjectImpl(objectMapper, mappings, true);
+  }
+
+  boolean isShared() {
+    return shared;
   }
 
   @Override
   public void setString(String key, String value) {
-    mappings.put(key, value);
+    writableMappings().put(key, value);
   }
 
   @Override
   public void setLong(String key, long value) {
-    mappings.put(key, value);
+    writableMappings().put(key, value);
   }
 
   @Override
   public void setObject(String key, SanskritObject object) {
-    mappings.set(key, CopyUtils.makeCopy(objectMapper, object).mappings);
+    writableMappings().set(key, CopyUtils.makeCopy(objectMapper, object).mappings);
   }
 
   @Override
@@ -59,7 +83,7 @@ public class SanskritObjectImpl implements MutableSanskritObject {
     if (o instanceof SanskritObject) {
       setObject(key, (SanskritObject) o);
     } else {
-      mappings.set(key, o instanceof JsonNode ? (JsonNode) o : objectMapper.valueToTree(o));
+      writableMappings().set(key, o instanceof JsonNode ? (JsonNode) o : objectMapper.valueToTree(o));
     }
   }
 
@@ -75,7 +99,7 @@ public class SanskritObjectImpl implements MutableSanskritObject {
       } else if (value.isLong()) {
         visitor.setLong(key, value.longValue());
       } else if (value.isObject()) {
-        visitor.setObject(key, new SanskritObjectImpl(objectMapper, (ObjectNode) value));
+        visitor.setObject(key, new SanskritObjectImpl(objectMapper, (ObjectNode) value, shared));
       } else {
         visitor.setExternal(key, value);
       }
@@ -89,7 +113,7 @@ public class SanskritObjectImpl implements MutableSanskritObject {
       return null;
     }
     if (type.isInstance(jsonNode)) {
-      return type.cast(jsonNode);
+      return type.cast(shared ? jsonNode.deepCopy() : jsonNode);
     }
     try {
       return type.cast(objectMapper.treeToValue(jsonNode, type));
@@ -120,12 +144,21 @@ public class SanskritObjectImpl implements MutableSanskritObject {
   public SanskritObject getObject(String key) {
     return Optional.ofNullable(mappings.get(key))
         .map(ObjectNode.class::cast)
-        .map(node -> new SanskritObjectImpl(objectMapper, node))
+        .map(node -> new SanskritObjectImpl(objectMapper, node, shared))
         .orElse(null);
   }
 
   @Override
   public void removeKey(String key) {
-    mappings.remove(key);
+    writableMappings().remove(key);
+  }
+
+  private ObjectNode writableMappings() {
+    if (shared) {
+      // the children trees can be referenced by other views, so they also need to be copied
+      mappings = mappings.deepCopy();
+      shared = false;
+    }
+    return mappings;
   }
 }
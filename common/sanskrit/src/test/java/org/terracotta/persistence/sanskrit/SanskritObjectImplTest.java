@@ -15,11 +15,15 @@
  */
 package org.terracotta.persistence.sanskrit;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class SanskritObjectImplTest {
   @Test
@@ -69,4 +73,30 @@ public class SanskritObjectImplTest {
     object.setLong("A", 1L);
     assertEquals(1L, (long) object.getLong("A"));
   }
+
+  @Test
+  public void copyOnWrite() {
+    SanskritObjectImpl child = new SanskritObjectImpl(new ObjectMapper());
+    child.setString("A", "a");
+    SanskritObjectImpl object = new SanskritObjectImpl(new ObjectMapper());
+    object.setString("A", "a");
+    object.setObject("C", child);
+
+    SanskritObjectImpl view = object.share();
+    SanskritObjectImpl childView = (SanskritObjectImpl) view.getObject("C");
+    assertTrue(view.isShared());
+    assertTrue(childView.isShared());
+
+    view.setString("A", "b");
+    childView.setString("A", "c");
+    ((ObjectNode) view.getObject("C", JsonNode.class)).put("A", "d");
+    assertFalse(view.isShared());
+    assertFalse(childView.isShared());
+
+    assertEquals("b", view.getString("A"));
+    assertEquals("c", childView.getString("A"));
+    assertEquals("a", object.getString("A"));
+    assertEquals("a", object.getObject("C").getString("A"));
+    assertEquals("d", view.getObject("C").getString("A"));
+  }
 }
@@ -411,6 +411,24 @@ public class SanskritTest {
     }
   }
 
+  @Test
+  public void readsAreSnapshots() throws Exception {
+    try (Sanskrit sanskrit = Sanskrit.init(filesystemDirectory, new ObjectMapper())) {
+      SanskritObjectImpl object = new SanskritObjectImpl(new ObjectMapper());
+      object.setString("A", "B");
+      sanskrit.setObject("key", object);
+
+      SanskritObject recoveredObject1 = sanskrit.getObject("key");
+
+      object.setString("A", "C");
+      sanskrit.setObject("key", object);
+      sanskrit.removeKey("key");
+
+      assertEquals("B", recoveredObject1.getString("A"));
+      assertNull(sanskrit.getObject("key"));
+    }
+  }
+
   @Test
   public void noSneakyChangesAsReader() throws Exception {
     try (Sanskrit sanskrit = Sanskrit.init(filesystemDirectory, new ObjectMapper())) {
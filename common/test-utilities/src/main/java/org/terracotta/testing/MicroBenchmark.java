@@ -0,0 +1,115 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.testing;
+
+import org.junit.runner.Description;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Minimal micro-benchmark harness for the benchmark tests of the platform.
+ * <p>
+ * Benchmarks are plain JUnit tests using this rule. By default, they run a few iterations only, so that the
+ * build checks they still work. Meaningful timings are reported when they are run with more iterations, i.e.:
+ * {@code mvn test -Dtest=ContextBenchmark -Dbenchmark.warmup=2000 -Dbenchmark.iterations=10000}
+ * <p>
+ * The results recorded during a test are printed when the test completes.
+ */
+public class MicroBenchmark extends ExtendedTestRule {
+
+  public static final int WARMUP = Integer.getInteger("benchmark.warmup", 5);
+  public static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 20);
+
+  private final int warmup;
+  private final int iterations;
+  private final Map<String, Object> results = new LinkedHashMap<>();
+
+  // consumes the results of the measured operations so that the JIT cannot eliminate them
+  private volatile Object sink;
+  private String name;
+
+  public MicroBenchmark() {
+    this(WARMUP, ITERATIONS);
+  }
+
+  public MicroBenchmark(int warmup, int iterations) {
+    if (warmup < 0 || iterations <= 0) {
+      throw new IllegalArgumentException("Bad warmup or iterations: " + warmup + ", " + iterations);
+    }
+    this.warmup = warmup;
+    this.iterations = iterations;
+  }
+
+  public int getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Runs the operation for the warmup iterations, then measures it over the benchmark iterations
+   *
+   * @return the mean time of one call, in nanoseconds
+   */
+  public long measure(String label, Callable<?> operation) throws Exception {
+    for (int i = 0; i < warmup; i++) {
+      sink = operation.call();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      sink = operation.call();
+    }
+    long nanos = (System.nanoTime() - start) / iterations;
+    results.put(label, nanos >= 10_000 ? (nanos / 1000) + " us/op" : nanos + " ns/op");
+    return nanos;
+  }
+
+  /**
+   * Records a result that is not a time, like an encoded size
+   */
+  public MicroBenchmark record(String label, Object value) {
+    results.put(label, value);
+    return this;
+  }
+
+  public Map<String, Object> getResults() {
+    return results;
+  }
+
+  @Override
+  protected void before(Description description) {
+    name = description.getMethodName() == null ?
+        description.getTestClass().getSimpleName() :
+        description.getTestClass().getSimpleName() + "#" + description.getMethodName();
+    results.clear();
+  }
+
+  @Override
+  protected void after(Description description) {
+    if (!results.isEmpty()) {
+      System.out.println(this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(String.valueOf(name))
+        .append(" (warmup: ").append(warmup).append(", iterations: ").append(iterations).append(")");
+    results.forEach((label, value) -> sb.append(System.lineSeparator()).append(" - ").append(label).append(": ").append(value));
+    return sb.toString();
+  }
+
+}
@@ -18,6 +18,8 @@ package org.terracotta.clientcommunicator.support;
 import org.terracotta.entity.EntityMessage;
 import org.terracotta.entity.EntityResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  *  See ClientCommunicatorServerManager
  *
@@ -32,6 +34,14 @@ public interface ClientCommunicatorClientManager<M extends EntityMessage, R exte
      */
     void handleInvokeResponse(R response);
 
+    /**
+     * Non-blocking variant of {@link #handleInvokeResponse(EntityResponse)}
+     *
+     * @param response the received response
+     * @return a future completed when all the clients targeted by the server have acked or disconnected
+     */
+    CompletableFuture<Void> handleInvokeResponseAsync(R response);
+
     /**
      * Handles messages received from server using ClientCommunicatorServerManager#sendWithAck(Set, byte[], ClientDescriptor)
      *
@@ -15,16 +15,16 @@
  */
 package org.terracotta.clientcommunicator.support;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.terracotta.entity.EntityClientEndpoint;
 import org.terracotta.entity.EntityMessage;
 import org.terracotta.entity.EntityResponse;
 import org.terracotta.entity.MessageCodecException;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ExecutionException;
 
 /**
  * @author vmad
@@ -33,17 +33,28 @@ public class ClientCommunicatorClientManagerImpl<M extends EntityMessage, R exte
 
     private final EntityClientEndpoint<M, R> entityClientEndpoint;
     private final ClientCommunicatorMessageFactory<M, R> clientCommunicatorMessageFactory;
-    private final ConcurrentMap<Integer, AtomicBoolean> monitors = new ConcurrentHashMap<Integer, AtomicBoolean>();
+    // CLIENT_WAIT and REQUEST_COMPLETE can arrive in any order: the first one in creates the future, the second one removes it
+    private final ConcurrentMap<Integer, CompletableFuture<Void>> completions = new ConcurrentHashMap<Integer, CompletableFuture<Void>>();
 
     public ClientCommunicatorClientManagerImpl(EntityClientEndpoint<M, R> entityClientEndpoint, ClientCommunicatorMessageFactory<M, R> clientCommunicatorMessageFactory) {
         this.entityClientEndpoint = entityClientEndpoint;
         this.clientCommunicatorMessageFactory = clientCommunicatorMessageFactory;
     }
 
-    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
-    @SuppressFBWarnings({"JLM_JSR166_UTILCONCURRENT_MONITORENTER", "UW_UNCOND_WAIT"})
     @Override
     public void handleInvokeResponse(R response) {
+        try {
+            handleInvokeResponseAsync(response).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> handleInvokeResponseAsync(R response) {
         try {
             ClientCommunicatorRequest clientCommunicatorRequest = ClientCommunicatorRequestCodec.deserialize(clientCommunicatorMessageFactory.extractBytesFromResponse(response));
 
@@ -51,23 +62,23 @@ public class ClientCommunicatorClientManagerImpl<M extends EntityMessage, R exte
             if(clientCommunicatorRequest.getRequestType() != ClientCommunicatorRequestType.CLIENT_WAIT) {
                 throw new RuntimeException("Received Wrong ClientCommunicatorRequestType in invokeResponse: expected - " + ClientCommunicatorRequestType.CLIENT_WAIT + ", got - " + clientCommunicatorRequest.getRequestType());
             }
-            AtomicBoolean last = monitors.putIfAbsent(requestSequenceNumber, new AtomicBoolean());
-            if(last == null) {
-                AtomicBoolean monitor = monitors.get(requestSequenceNumber);
-                while (!monitor.get()) {
-                    synchronized (monitor) {
-                        monitor.wait();
-                    }
-                }
+            CompletableFuture<Void> completion = new CompletableFuture<Void>();
+            CompletableFuture<Void> last = completions.putIfAbsent(requestSequenceNumber, completion);
+            if (last != null) {
+                // REQUEST_COMPLETE already came in
+                completions.remove(requestSequenceNumber);
+                return last;
             }
-            monitors.remove(requestSequenceNumber);
-        } catch (InterruptedException | MessageCodecException e) {
+            return completion;
+        } catch (MessageCodecException e) {
             throw new RuntimeException(e);
         }
     }
 
-    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
-    @SuppressFBWarnings("JLM_JSR166_UTILCONCURRENT_MONITORENTER")
+    int getPendingCompletionCount() {
+        return completions.size();
+    }
+
     @Override
     public void handleClientCommunicatorMessage(R message, ClientCommunicatorMessageHandler clientCommunicatorMessageHandler) {
       try {
@@ -88,13 +99,13 @@ public class ClientCommunicatorClientManagerImpl<M extends EntityMessage, R exte
 
             case REQUEST_COMPLETE:
                 int requestSequenceNumber = clientCommunicatorRequest.getRequestSequenceNumber();
-                AtomicBoolean last = monitors.putIfAbsent(requestSequenceNumber, new AtomicBoolean());
-                if(last != null) {
-                    AtomicBoolean monitor = monitors.get(requestSequenceNumber);
-                    synchronized (monitor) {
-                        monitor.compareAndSet(false, true);
-                        monitor.notifyAll();
-                    }
+                CompletableFuture<Void> completion = new CompletableFuture<Void>();
+                CompletableFuture<Void> last = completions.putIfAbsent(requestSequenceNumber, completion);
+                if (last != null) {
+                    completions.remove(requestSequenceNumber);
+                    last.complete(null);
+                } else {
+                    completion.complete(null);
                 }
                 break;
 
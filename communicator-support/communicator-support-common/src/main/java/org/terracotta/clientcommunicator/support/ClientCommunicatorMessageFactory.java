@@ -19,6 +19,8 @@ import org.terracotta.entity.EntityMessage;
 import org.terracotta.entity.EntityResponse;
 import org.terracotta.entity.MessageCodecException;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author vmad
  */
@@ -44,6 +46,21 @@ public interface ClientCommunicatorMessageFactory<M extends EntityMessage, R ext
      */
     R createEntityResponse(byte[] message) throws MessageCodecException;
 
+    /**
+     * Creates a response over a read-only buffer which is shared by all the recipients of a broadcast, so the returned
+     * response must not modify it. This method is only used for messages sent to several clients: the others go through
+     * {@link #createEntityResponse(byte[])}. Factories able to wrap the buffer directly should override this method: the
+     * default implementation copies the buffer content once and delegates to {@link #createEntityResponse(byte[])}.
+     *
+     * @param message a read-only buffer, positioned at the start of the message
+     * @return the response to send to all the recipients
+     */
+    default R createEntityResponse(ByteBuffer message) throws MessageCodecException {
+        byte[] bytes = new byte[message.remaining()];
+        message.duplicate().get(bytes);
+        return createEntityResponse(bytes);
+    }
+
     /**
      *
      * @param entityResponse
@@ -21,14 +21,28 @@ import java.nio.ByteBuffer;
  * @author vmad
  */
 class ClientCommunicatorRequestCodec {
+    static final int HEADER_SIZE = 2 * 4; // Integer size
+
     public static byte[] serialize(ClientCommunicatorRequest request) {
-        int size = request.getMsgBytes().length + 2 * 4; // Integer size
-        ByteBuffer buffer = ByteBuffer.allocate(size).
-                putInt(request.getRequestType().ordinal()).
-                putInt(request.getRequestSequenceNumber()).
-                put(request.getMsgBytes());
-        return buffer.array();
+        return frame(request.getRequestType(), request.getRequestSequenceNumber(), request.getMsgBytes()).array();
+    }
+
+    /**
+     * Frames a request once so that it can be shared by all the recipients of a broadcast.
+     *
+     * @return a read-only view over the framed request
+     */
+    public static ByteBuffer frameReadOnly(ClientCommunicatorRequestType requestType, int requestSequenceNumber, byte[] msgBytes) {
+        return frame(requestType, requestSequenceNumber, msgBytes).asReadOnlyBuffer();
     }
+
+    private static ByteBuffer frame(ClientCommunicatorRequestType requestType, int requestSequenceNumber, byte[] msgBytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + msgBytes.length);
+        buffer.putInt(requestType.ordinal()).putInt(requestSequenceNumber).put(msgBytes);
+        buffer.flip();
+        return buffer;
+    }
+
     public static ClientCommunicatorRequest deserialize(byte[] bytes) {
         ByteBuffer buffer = ByteBuffer.wrap(bytes);
         ClientCommunicatorRequestType requestType = ClientCommunicatorRequestType.values()[buffer.getInt()];
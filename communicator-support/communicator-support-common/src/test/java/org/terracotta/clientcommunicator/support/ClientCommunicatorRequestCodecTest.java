@@ -18,6 +18,8 @@ package org.terracotta.clientcommunicator.support;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author vmad
  */
@@ -37,4 +39,18 @@ public class ClientCommunicatorRequestCodecTest {
         Assert.assertEquals(TEST_SEQUENCE_NUMBER, deserializedRequest.getRequestSequenceNumber());
         Assert.assertArrayEquals(TEST_MESSAGE.getBytes(), deserializedRequest.getMsgBytes());
     }
+
+    @Test
+    public void testFrameReadOnly() throws Exception {
+        ByteBuffer frame = ClientCommunicatorRequestCodec.frameReadOnly(TEST_REQUEST_TYPE, TEST_SEQUENCE_NUMBER, TEST_MESSAGE.getBytes());
+        Assert.assertTrue(frame.isReadOnly());
+
+        byte[] bytes = new byte[frame.remaining()];
+        frame.duplicate().get(bytes);
+        ClientCommunicatorRequest deserializedRequest = ClientCommunicatorRequestCodec.deserialize(bytes);
+
+        Assert.assertEquals(TEST_REQUEST_TYPE, deserializedRequest.getRequestType());
+        Assert.assertEquals(TEST_SEQUENCE_NUMBER, deserializedRequest.getRequestSequenceNumber());
+        Assert.assertArrayEquals(TEST_MESSAGE.getBytes(), deserializedRequest.getMsgBytes());
+    }
 }
@@ -21,6 +21,8 @@ import org.terracotta.entity.EntityResponse;
 import org.terracotta.entity.MessageCodecException;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -52,6 +54,24 @@ public interface ClientCommunicatorServerManager<M extends EntityMessage, R exte
      */
     R sendWithAck(Set<ClientDescriptor> toClients, byte[] message, ClientDescriptor source) throws MessageCodecException;
 
+    /**
+     * Sends a message to given set of clients and returns a future tracking their acks, without any client-side waiting
+     *
+     * The returned future completes once every targeted client has either acked the message or disconnected. If this does
+     * not happen within the given timeout, the future completes exceptionally with a {@link java.util.concurrent.TimeoutException}
+     * and late acks are ignored.
+     *
+     * Note that Entity should call {@link #handleClientAck} with client ack when it receives
+     *
+     * @param toClients Set of clients to which given message will be sent
+     * @param message   the message to be send
+     * @param timeout   the maximum time to wait for all acks, or a value &lt;= 0 to wait forever
+     * @param unit      the unit of the timeout
+     * @return a future completed when all the targeted clients have acked or disconnected
+     * @throws MessageCodecException
+     */
+    CompletableFuture<Void> sendWithAckAsync(Set<ClientDescriptor> toClients, byte[] message, long timeout, TimeUnit unit) throws MessageCodecException;
+
     /**
      * Sends a message to given set of clients
      *
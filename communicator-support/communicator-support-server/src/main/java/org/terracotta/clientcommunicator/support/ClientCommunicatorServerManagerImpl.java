@@ -25,8 +25,13 @@ import org.terracotta.entity.MessageCodecException;
 import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -34,10 +39,15 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class ClientCommunicatorServerManagerImpl<M extends EntityMessage, R extends EntityResponse> implements ClientCommunicatorServerManager<M, R> {
 
+    private static final byte[] NO_BYTES = new byte[0];
+
     private final ClientCommunicator clientCommunicator;
     private final ClientCommunicatorMessageFactory<M, R> clientCommunicatorMessageFactory;
     private final AtomicInteger requestSequence = new AtomicInteger(0);
     private final ConcurrentMap<Integer, ClientRequestInfo> pendingRequests = new ConcurrentHashMap<Integer, ClientRequestInfo>();
+    // reverse index so that a disconnect only visits the requests still waiting on that client
+    // (the sets are only ever mutated inside compute calls on their key)
+    private final ConcurrentMap<ClientDescriptor, Set<Integer>> requestsByClient = new ConcurrentHashMap<ClientDescriptor, Set<Integer>>();
 
     public ClientCommunicatorServerManagerImpl(ClientCommunicator clientCommunicator, ClientCommunicatorMessageFactory<M, R> clientCommunicatorMessageFactory) {
         this.clientCommunicator = clientCommunicator;
@@ -46,22 +56,23 @@ public class ClientCommunicatorServerManagerImpl<M extends EntityMessage, R exte
 
     @Override
     public R sendWithAck(Set<ClientDescriptor> toClients, byte[] message, ClientDescriptor source) throws MessageCodecException {
-        int requestSequenceNumber = requestSequence.getAndIncrement();
-        pendingRequests.putIfAbsent(requestSequenceNumber, new ClientRequestInfo(source, toClients));
-        for (ClientDescriptor connectedClient : toClients) {
-            clientCommunicator.sendNoResponse(connectedClient,
-                    clientCommunicatorMessageFactory.createEntityResponse(ClientCommunicatorRequestCodec.serialize(new ClientCommunicatorRequest(ClientCommunicatorRequestType.ACK, requestSequenceNumber, message))));
-        }
-
-        return clientCommunicatorMessageFactory.createEntityResponse(ClientCommunicatorRequestCodec.serialize(new ClientCommunicatorRequest(ClientCommunicatorRequestType.CLIENT_WAIT, requestSequenceNumber, new byte[0])));
+        int requestSequenceNumber = send(toClients, message, source, 0, TimeUnit.MILLISECONDS).getRequestSequenceNumber();
+        return createEntityResponse(ClientCommunicatorRequestType.CLIENT_WAIT, requestSequenceNumber, NO_BYTES, 1);
+    }
 
+    @Override
+    public CompletableFuture<Void> sendWithAckAsync(Set<ClientDescriptor> toClients, byte[] message, long timeout, TimeUnit unit) throws MessageCodecException {
+        return send(toClients, message, null, timeout, unit).getFuture();
     }
 
     @Override
     public void sendWithNoAck(Set<ClientDescriptor> toClients, byte[] message) throws MessageCodecException {
+        if (toClients.isEmpty()) {
+            return;
+        }
+        R response = createEntityResponse(ClientCommunicatorRequestType.NO_ACK, -1, message, toClients.size());
         for (ClientDescriptor connectedClient : toClients) {
-            clientCommunicator.sendNoResponse(connectedClient,
-                    clientCommunicatorMessageFactory.createEntityResponse(ClientCommunicatorRequestCodec.serialize(new ClientCommunicatorRequest(ClientCommunicatorRequestType.NO_ACK, -1, message))));
+            clientCommunicator.sendNoResponse(connectedClient, response);
         }
     }
 
@@ -69,51 +80,182 @@ public class ClientCommunicatorServerManagerImpl<M extends EntityMessage, R exte
     public void handleClientAck(ClientDescriptor client, M ackMessage) throws MessageCodecException {
         ByteBuffer buffer = ByteBuffer.wrap(clientCommunicatorMessageFactory.extractBytesFromMessage(ackMessage));
         int requestSequenceNumber = buffer.getInt();
+        unindex(client, requestSequenceNumber);
         ClientRequestInfo clientRequestInfo = pendingRequests.get(requestSequenceNumber);
-        if(clientRequestInfo != null) {
-            clientRequestInfo.addAckForClient(client);
-            if (clientRequestInfo.isAckCompleted()) {
-                clientCommunicator.sendNoResponse(clientRequestInfo.getClientDescriptor(),
-                        clientCommunicatorMessageFactory.createEntityResponse(ClientCommunicatorRequestCodec.serialize(new ClientCommunicatorRequest(ClientCommunicatorRequestType.REQUEST_COMPLETE,
-                                requestSequenceNumber, new byte[0]))));
-
-                pendingRequests.remove(requestSequenceNumber);
-            }
+        if (clientRequestInfo != null && clientRequestInfo.release(client)) {
+            complete(clientRequestInfo);
         }
     }
 
     @Override
     public void handleClientDisconnect(ClientDescriptor client) {
-        for(ClientRequestInfo requestInfo : pendingRequests.values()) {
-            requestInfo.removeDisconnectedClient(client);
+        Set<Integer> requestSequenceNumbers = requestsByClient.remove(client);
+        if (requestSequenceNumbers == null) {
+            return;
+        }
+        for (Integer requestSequenceNumber : requestSequenceNumbers) {
+            ClientRequestInfo clientRequestInfo = pendingRequests.get(requestSequenceNumber);
+            if (clientRequestInfo != null && clientRequestInfo.release(client)) {
+                try {
+                    complete(clientRequestInfo);
+                } catch (MessageCodecException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+
+    int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    private ClientRequestInfo send(Set<ClientDescriptor> toClients, byte[] message, ClientDescriptor source, long timeout, TimeUnit unit) throws MessageCodecException {
+        int requestSequenceNumber = requestSequence.getAndIncrement();
+        ClientRequestInfo clientRequestInfo = new ClientRequestInfo(requestSequenceNumber, source, toClients);
+        // register before sending anything: an ack can come back before the loop below is over
+        pendingRequests.put(requestSequenceNumber, clientRequestInfo);
+        for (ClientDescriptor connectedClient : clientRequestInfo.getTargetedClients()) {
+            index(connectedClient, requestSequenceNumber);
+        }
+        if (clientRequestInfo.isAckCompleted()) {
+            complete(clientRequestInfo);
+            return clientRequestInfo;
+        }
+        if (timeout > 0) {
+            clientRequestInfo.setTimeoutTask(Timeouts.SCHEDULER.schedule(() -> expire(clientRequestInfo, timeout, unit), timeout, unit));
+        }
+        // the sequence number is the same for every recipient: frame the message once and share it
+        R response = createEntityResponse(ClientCommunicatorRequestType.ACK, requestSequenceNumber, message, clientRequestInfo.getTargetedClients().size());
+        for (ClientDescriptor connectedClient : clientRequestInfo.getTargetedClients()) {
+            clientCommunicator.sendNoResponse(connectedClient, response);
+        }
+        return clientRequestInfo;
+    }
+
+    private void complete(ClientRequestInfo clientRequestInfo) throws MessageCodecException {
+        if (!pendingRequests.remove(clientRequestInfo.getRequestSequenceNumber(), clientRequestInfo)) {
+            return;
+        }
+        clientRequestInfo.cancelTimeoutTask();
+        try {
+            if (clientRequestInfo.getClientDescriptor() != null) {
+                clientCommunicator.sendNoResponse(clientRequestInfo.getClientDescriptor(),
+                        createEntityResponse(ClientCommunicatorRequestType.REQUEST_COMPLETE, clientRequestInfo.getRequestSequenceNumber(), NO_BYTES, 1));
+            }
+        } finally {
+            clientRequestInfo.getFuture().complete(null);
+        }
+    }
+
+    private void expire(ClientRequestInfo clientRequestInfo, long timeout, TimeUnit unit) {
+        if (!pendingRequests.remove(clientRequestInfo.getRequestSequenceNumber(), clientRequestInfo)) {
+            return;
+        }
+        Set<ClientDescriptor> remainingClients = clientRequestInfo.getRemainingClients();
+        for (ClientDescriptor client : remainingClients) {
+            unindex(client, clientRequestInfo.getRequestSequenceNumber());
+        }
+        clientRequestInfo.getFuture().completeExceptionally(new TimeoutException("No ack received after " + timeout + " " + unit + " from " + remainingClients.size() + " client(s)"));
+    }
+
+    private R createEntityResponse(ClientCommunicatorRequestType requestType, int requestSequenceNumber, byte[] message, int recipients) throws MessageCodecException {
+        if (recipients > 1) {
+            // shared by all the recipients: the factory might copy the read-only buffer, but only once
+            return clientCommunicatorMessageFactory.createEntityResponse(ClientCommunicatorRequestCodec.frameReadOnly(requestType, requestSequenceNumber, message));
         }
+        return clientCommunicatorMessageFactory.createEntityResponse(ClientCommunicatorRequestCodec.serialize(new ClientCommunicatorRequest(requestType, requestSequenceNumber, message)));
     }
 
+    private void index(ClientDescriptor client, int requestSequenceNumber) {
+        requestsByClient.compute(client, (c, requestSequenceNumbers) -> {
+            if (requestSequenceNumbers == null) {
+                requestSequenceNumbers = new HashSet<Integer>();
+            }
+            requestSequenceNumbers.add(requestSequenceNumber);
+            return requestSequenceNumbers;
+        });
+    }
+
+    private void unindex(ClientDescriptor client, int requestSequenceNumber) {
+        requestsByClient.computeIfPresent(client, (c, requestSequenceNumbers) -> {
+            requestSequenceNumbers.remove(requestSequenceNumber);
+            return requestSequenceNumbers.isEmpty() ? null : requestSequenceNumbers;
+        });
+    }
 
     private static class ClientRequestInfo {
+        private final int requestSequenceNumber;
         private final ClientDescriptor clientDescriptor;
-        private final Set<ClientDescriptor> connectedClients;
-        private final Set<ClientDescriptor> ackedClients = new HashSet<ClientDescriptor>();
+        private final Set<ClientDescriptor> targetedClients;
+        private final Set<ClientDescriptor> remainingClients = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger remainingAcks;
+        private final CompletableFuture<Void> future = new CompletableFuture<Void>();
+        private volatile ScheduledFuture<?> timeoutTask;
 
-        private ClientRequestInfo(ClientDescriptor clientDescriptor, Set<ClientDescriptor> connectedClients) {
+        private ClientRequestInfo(int requestSequenceNumber, ClientDescriptor clientDescriptor, Set<ClientDescriptor> connectedClients) {
+            this.requestSequenceNumber = requestSequenceNumber;
             this.clientDescriptor = clientDescriptor;
-            this.connectedClients = new HashSet<ClientDescriptor>(connectedClients);
+            this.targetedClients = new HashSet<ClientDescriptor>(connectedClients);
+            this.remainingClients.addAll(targetedClients);
+            this.remainingAcks = new AtomicInteger(targetedClients.size());
+        }
+
+        public int getRequestSequenceNumber() {
+            return requestSequenceNumber;
         }
 
         public ClientDescriptor getClientDescriptor() {
             return clientDescriptor;
         }
 
-        public void addAckForClient(ClientDescriptor client) {
-            ackedClients.add(client);
+        public Set<ClientDescriptor> getTargetedClients() {
+            return targetedClients;
+        }
+
+        public Set<ClientDescriptor> getRemainingClients() {
+            return new HashSet<ClientDescriptor>(remainingClients);
+        }
+
+        public CompletableFuture<Void> getFuture() {
+            return future;
+        }
+
+        /**
+         * Records that a client has acked or left. Duplicate acks are ignored.
+         *
+         * @return true if this was the last client this request was waiting on
+         */
+        public boolean release(ClientDescriptor client) {
+            return remainingClients.remove(client) && remainingAcks.decrementAndGet() == 0;
         }
 
         public boolean isAckCompleted() {
-            return ackedClients.equals(connectedClients);
+            return remainingAcks.get() == 0;
         }
 
-        public void removeDisconnectedClient(ClientDescriptor client) {
-            connectedClients.remove(client);
+        public void setTimeoutTask(ScheduledFuture<?> timeoutTask) {
+            this.timeoutTask = timeoutTask;
+        }
+
+        public void cancelTimeoutTask() {
+            ScheduledFuture<?> task = timeoutTask;
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static class Timeouts {
+        private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "client-communicator-ack-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            SCHEDULER.setRemoveOnCancelPolicy(true);
+            SCHEDULER.setKeepAliveTime(10, TimeUnit.SECONDS);
+            SCHEDULER.allowCoreThreadTimeOut(true);
         }
     }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.clientcommunicator.support;
+
+import org.junit.Test;
+import org.terracotta.entity.ClientCommunicator;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.entity.ClientSourceId;
+import org.terracotta.entity.EntityMessage;
+import org.terracotta.entity.EntityResponse;
+import org.terracotta.entity.MessageCodecException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author vmad
+ */
+public class ClientCommunicatorServerManagerImplTest {
+
+    private final RecordingClientCommunicator clientCommunicator = new RecordingClientCommunicator();
+    private final BytesMessageFactory messageFactory = new BytesMessageFactory();
+    private final ClientCommunicatorServerManagerImpl<Bytes, Bytes> manager = new ClientCommunicatorServerManagerImpl<Bytes, Bytes>(clientCommunicator, messageFactory);
+
+    private final Client source = new Client();
+    private final Client client1 = new Client();
+    private final Client client2 = new Client();
+
+    @Test
+    public void testAsyncCompletesOnAllAcks() throws Exception {
+        CompletableFuture<Void> future = manager.sendWithAckAsync(new HashSet<ClientDescriptor>(Arrays.asList(client1, client2)), "msg".getBytes(), 0, TimeUnit.SECONDS);
+        assertEquals(2, clientCommunicator.sent.size());
+        assertSame(clientCommunicator.sent.get(0), clientCommunicator.sent.get(1));
+
+        int requestSequenceNumber = ackSequenceNumber(0);
+        manager.handleClientAck(client1, ack(requestSequenceNumber));
+        manager.handleClientAck(client1, ack(requestSequenceNumber));
+        assertFalse(future.isDone());
+
+        manager.handleClientAck(client2, ack(requestSequenceNumber));
+        assertTrue(future.isDone());
+        assertEquals(0, manager.getPendingRequestCount());
+        // no source client to notify
+        assertEquals(2, clientCommunicator.sent.size());
+    }
+
+    @Test
+    public void testAsyncCompletesOnDisconnect() throws Exception {
+        CompletableFuture<Void> future = manager.sendWithAckAsync(new HashSet<ClientDescriptor>(Arrays.asList(client1, client2)), "msg".getBytes(), 0, TimeUnit.SECONDS);
+        manager.handleClientAck(client1, ack(ackSequenceNumber(0)));
+        manager.handleClientDisconnect(client2);
+        assertTrue(future.isDone());
+        assertEquals(0, manager.getPendingRequestCount());
+    }
+
+    @Test
+    public void testAsyncWithoutClients() throws Exception {
+        CompletableFuture<Void> future = manager.sendWithAckAsync(Collections.<ClientDescriptor>emptySet(), "msg".getBytes(), 0, TimeUnit.SECONDS);
+        assertTrue(future.isDone());
+        assertEquals(0, manager.getPendingRequestCount());
+    }
+
+    @Test
+    public void testAsyncTimeout() throws Exception {
+        CompletableFuture<Void> future = manager.sendWithAckAsync(Collections.<ClientDescriptor>singleton(client1), "msg".getBytes(), 50, TimeUnit.MILLISECONDS);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(0, manager.getPendingRequestCount());
+
+        // late acks and disconnects are ignored
+        manager.handleClientAck(client1, ack(ackSequenceNumber(0)));
+        manager.handleClientDisconnect(client1);
+    }
+
+    @Test
+    public void testSyncNotifiesSource() throws Exception {
+        Bytes response = manager.sendWithAck(new HashSet<ClientDescriptor>(Arrays.asList(client1, client2)), "msg".getBytes(), source);
+        ClientCommunicatorRequest wait = ClientCommunicatorRequestCodec.deserialize(response.bytes);
+        assertEquals(ClientCommunicatorRequestType.CLIENT_WAIT, wait.getRequestType());
+
+        manager.handleClientDisconnect(client1);
+        manager.handleClientAck(client2, ack(wait.getRequestSequenceNumber()));
+
+        assertEquals(3, clientCommunicator.sent.size());
+        assertEquals(source, clientCommunicator.recipients.get(2));
+        ClientCommunicatorRequest complete = ClientCommunicatorRequestCodec.deserialize(clientCommunicator.sent.get(2).bytes);
+        assertEquals(ClientCommunicatorRequestType.REQUEST_COMPLETE, complete.getRequestType());
+        assertEquals(wait.getRequestSequenceNumber(), complete.getRequestSequenceNumber());
+    }
+
+    @Test
+    public void testNoAckSharesPayload() throws Exception {
+        manager.sendWithNoAck(new HashSet<ClientDescriptor>(Arrays.asList(client1, client2)), "msg".getBytes());
+        assertEquals(2, clientCommunicator.sent.size());
+        assertSame(clientCommunicator.sent.get(0), clientCommunicator.sent.get(1));
+        ClientCommunicatorRequest request = ClientCommunicatorRequestCodec.deserialize(clientCommunicator.sent.get(0).bytes);
+        assertEquals(ClientCommunicatorRequestType.NO_ACK, request.getRequestType());
+        assertEquals("msg", new String(request.getMsgBytes()));
+    }
+
+    @Test
+    public void testSingleRecipientDoesNotUseSharedPayload() throws Exception {
+        manager.sendWithNoAck(Collections.<ClientDescriptor>singleton(client1), "msg".getBytes());
+        assertEquals(1, clientCommunicator.sent.size());
+        assertEquals(0, messageFactory.sharedResponses);
+
+        manager.sendWithNoAck(new HashSet<ClientDescriptor>(Arrays.asList(client1, client2)), "msg".getBytes());
+        assertEquals(3, clientCommunicator.sent.size());
+        assertEquals(1, messageFactory.sharedResponses);
+    }
+
+    private int ackSequenceNumber(int index) {
+        ClientCommunicatorRequest request = ClientCommunicatorRequestCodec.deserialize(clientCommunicator.sent.get(index).bytes);
+        assertEquals(ClientCommunicatorRequestType.ACK, request.getRequestType());
+        return request.getRequestSequenceNumber();
+    }
+
+    private static Bytes ack(int requestSequenceNumber) {
+        return new Bytes(ByteBuffer.allocate(4).putInt(requestSequenceNumber).array());
+    }
+
+    private static class Bytes implements EntityMessage, EntityResponse {
+        private final byte[] bytes;
+
+        private Bytes(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private static class BytesMessageFactory implements ClientCommunicatorMessageFactory<Bytes, Bytes> {
+        private int sharedResponses;
+
+        @Override
+        public Bytes createEntityMessage(byte[] message) {
+            return new Bytes(message);
+        }
+
+        @Override
+        public byte[] extractBytesFromMessage(Bytes entityMessage) {
+            return entityMessage.bytes;
+        }
+
+        @Override
+        public Bytes createEntityResponse(byte[] message) {
+            return new Bytes(message);
+        }
+
+        @Override
+        public Bytes createEntityResponse(ByteBuffer message) throws MessageCodecException {
+            sharedResponses++;
+            return ClientCommunicatorMessageFactory.super.createEntityResponse(message);
+        }
+
+        @Override
+        public byte[] extractBytesFromResponse(Bytes entityResponse) {
+            return entityResponse.bytes;
+        }
+    }
+
+    private static class RecordingClientCommunicator implements ClientCommunicator {
+        private final List<ClientDescriptor> recipients = Collections.synchronizedList(new ArrayList<ClientDescriptor>());
+        private final List<Bytes> sent = Collections.synchronizedList(new ArrayList<Bytes>());
+
+        @Override
+        public void closeClientConnection(ClientDescriptor clientDescriptor) {
+        }
+
+        @Override
+        public void sendNoResponse(ClientDescriptor clientDescriptor, EntityResponse message) {
+            recipients.add(clientDescriptor);
+            sent.add((Bytes) message);
+        }
+
+        @Override
+        public Future<Void> send(ClientDescriptor clientDescriptor, EntityResponse message) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Client implements ClientDescriptor {
+        @Override
+        public ClientSourceId getSourceId() {
+            return null;
+        }
+    }
+}
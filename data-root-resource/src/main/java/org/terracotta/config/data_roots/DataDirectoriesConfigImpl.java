@@ -30,12 +30,9 @@ import org.terracotta.management.service.monitoring.EntityManagementRegistry;
 import org.terracotta.management.service.monitoring.ManageableServerComponent;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -43,7 +40,6 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author vmad
@@ -54,6 +50,7 @@ public class DataDirectoriesConfigImpl implements DataDirectoriesConfig, Managea
   private final ConcurrentMap<String, Path> dataRootMap = new ConcurrentHashMap<>();
   private final String platformRootIdentifier;
   private final ConcurrentMap<String, DataDirectories> serverToDataRoots = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, DiskUsageTracker> diskUsageTrackers = new ConcurrentHashMap<>();
   private final IParameterSubstitutor parameterSubstitutor;
   private final PathResolver pathResolver;
 
@@ -177,6 +174,8 @@ public class DataDirectoriesConfigImpl implements DataDirectoriesConfig, Managea
 
     for (String identifier : dataDirectories.getDataDirectoryNames()) {
       LOGGER.trace("[{}] onManagementRegistryCreated() - Exposing DataDirectory:{}", consumerId, identifier);
+      // start the initial scan now so that the first statistic read does not have to wait for it
+      getDiskUsageTracker(identifier).start();
       registry.register(new DataRootBinding(identifier, dataDirectories.getDataDirectory(identifier)));
     }
 
@@ -193,12 +192,18 @@ public class DataDirectoriesConfigImpl implements DataDirectoriesConfig, Managea
     for (Map.Entry<String, Path> entry : dataRootMap.entrySet()) {
       StateDumpCollector pathDump = dump.subStateDumpCollector(entry.getKey());
       pathDump.addState("path", entry.getValue().toString());
-      pathDump.addState("totalDiskUsage", String.valueOf(getDiskUsageByRootIdentifier(entry.getKey())));
+      DiskUsageTracker diskUsageTracker = getDiskUsageTracker(entry.getKey());
+      pathDump.addState("totalDiskUsage", String.valueOf(diskUsageTracker.getTotalSize()));
+      StateDumpCollector subdirectoriesDump = pathDump.subStateDumpCollector("diskUsageBySubdirectory");
+      diskUsageTracker.getSizeBySubdirectory().forEach((name, size) -> subdirectoriesDump.addState(name, String.valueOf(size)));
     }
   }
 
   @Override
   public void close() throws IOException {
+    for (DiskUsageTracker diskUsageTracker : diskUsageTrackers.values()) {
+      diskUsageTracker.close();
+    }
     for (DataDirectories dataDirectories : serverToDataRoots.values()) {
       dataDirectories.close();
     }
@@ -225,7 +230,14 @@ public class DataDirectoriesConfigImpl implements DataDirectoriesConfig, Managea
   }
 
   public long getDiskUsageByRootIdentifier(String identifier) {
-    return computeFolderSize(getRoot(identifier));
+    return getDiskUsageTracker(identifier).getTotalSize();
+  }
+
+  /**
+   * @return the disk usage of each direct sub-directory of a data directory (i.e. one per server)
+   */
+  public Map<String, Long> getDiskUsageBySubdirectory(String identifier) {
+    return getDiskUsageTracker(identifier).getSizeBySubdirectory();
   }
 
   void ensureDirectory(Path directory) throws IOException {
@@ -243,6 +255,11 @@ public class DataDirectoriesConfigImpl implements DataDirectoriesConfig, Managea
         name -> new DataDirectoriesWithServerName(this, DataDirectoriesConfig.cleanStringForPath(name)));
   }
 
+  private DiskUsageTracker getDiskUsageTracker(String identifier) {
+    Path root = getRoot(identifier);
+    return diskUsageTrackers.computeIfAbsent(identifier, id -> new DiskUsageTracker(root));
+  }
+
   private Path compute(Path path) {
     return parameterSubstitutor.substitute(pathResolver.resolve(path)).normalize();
   }
@@ -257,37 +274,4 @@ public class DataDirectoriesConfigImpl implements DataDirectoriesConfig, Managea
     return null;
   }
 
-  /**
-   * Attempts to calculate the size of a file or directory.
-   * Since the operation is non-atomic, the returned value may be inaccurate.
-   * However, this method is quick and does its best.
-   */
-  private static long computeFolderSize(Path path) {
-    final AtomicLong size = new AtomicLong(0);
-    try {
-      Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-          size.addAndGet(attrs.size());
-          return FileVisitResult.CONTINUE;
-        }
-
-        @Override
-        public FileVisitResult visitFileFailed(Path file, IOException exc) {
-          // Skip folders that can't be traversed
-          return FileVisitResult.CONTINUE;
-        }
-
-        @Override
-        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-          // Ignore errors traversing a folder
-          return FileVisitResult.CONTINUE;
-        }
-      });
-    } catch (IOException e) {
-      throw new AssertionError("walkFileTree will not throw IOException if the FileVisitor does not");
-    }
-    return size.get();
-  }
-
 }
\ No newline at end of file
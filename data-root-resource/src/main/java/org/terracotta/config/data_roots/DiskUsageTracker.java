@@ -0,0 +1,484 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.config.data_roots;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Keeps track of the disk usage of a data root without walking the whole tree on each read.
+ * <p>
+ * The tree is scanned once in the background, then kept current from {@link WatchService} events: the size of each file
+ * is kept in a compact table per directory, and only the files reported as changed are read again, at most once per
+ * refresh interval, to apply the size difference to the totals. When the events cannot be trusted (no watch service, a
+ * directory that could not be registered, or an overflow), the tracker falls back to full rescans, at most once per
+ * rescan interval.
+ * <p>
+ * All the bookkeeping is done by the tracker thread: reads only return the last computed values.
+ */
+class DiskUsageTracker implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DiskUsageTracker.class);
+
+  static final long DEFAULT_REFRESH_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+  // the totals were previously computed by walking the tree at most every 10 seconds: degraded mode is not staler than that
+  static final long DEFAULT_RESCAN_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+  private final Path root;
+  private final long refreshIntervalMillis;
+  private final long rescanIntervalMillis;
+  private final CountDownLatch initialScan = new CountDownLatch(1);
+
+  // tracker thread only: size of each file directly under each known directory
+  private final Map<Path, FileSizes> directories = new HashMap<>();
+  private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+  private final Set<Path> dirtyFiles = new HashSet<>();
+
+  // written by the tracker thread, read by anyone
+  private final ConcurrentHashMap<String, Long> subdirectorySizes = new ConcurrentHashMap<>();
+  private volatile long totalSize;
+  private volatile long fileReads;
+
+  private volatile WatchService watchService;
+  private volatile Thread thread;
+  private volatile boolean closed;
+  private boolean degraded;
+  private boolean rescanRequested;
+
+  DiskUsageTracker(Path root) {
+    this(root, DEFAULT_REFRESH_INTERVAL, DEFAULT_RESCAN_INTERVAL);
+  }
+
+  DiskUsageTracker(Path root, long refreshIntervalMillis, long rescanIntervalMillis) {
+    this.root = root;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+    this.rescanIntervalMillis = rescanIntervalMillis;
+  }
+
+  synchronized DiskUsageTracker start() {
+    if (thread == null && !closed) {
+      try {
+        watchService = root.getFileSystem().newWatchService();
+      } catch (IOException | UnsupportedOperationException e) {
+        LOGGER.debug("Unable to watch data directory: {}. Disk usage will be refreshed every {} ms", root, rescanIntervalMillis, e);
+        degraded = true;
+      }
+      Thread t = new Thread(this::run, "DiskUsageTracker-" + root.getFileName());
+      t.setDaemon(true);
+      thread = t;
+      t.start();
+    }
+    return this;
+  }
+
+  /**
+   * @return the total size of the files under the root, waiting for the initial scan if needed
+   */
+  long getTotalSize() {
+    awaitInitialScan();
+    return totalSize;
+  }
+
+  /**
+   * @return the total size of the files under each direct sub-directory of the root, waiting for the initial scan if needed
+   */
+  Map<String, Long> getSizeBySubdirectory() {
+    awaitInitialScan();
+    return Collections.unmodifiableMap(new HashMap<>(subdirectorySizes));
+  }
+
+  /**
+   * @return the number of files read again after a change event since the tracker started, not counting the scans
+   */
+  long getFileReadCount() {
+    return fileReads;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    Thread t;
+    synchronized (this) {
+      t = thread;
+      if (t == null) {
+        // never started: nothing to wait for
+        initialScan.countDown();
+      }
+    }
+    WatchService ws = watchService;
+    if (ws != null) {
+      try {
+        ws.close();
+      } catch (IOException e) {
+        LOGGER.debug("Error closing watch service of: {}", root, e);
+      }
+    }
+    if (t != null) {
+      t.interrupt();
+    }
+  }
+
+  private void awaitInitialScan() {
+    start();
+    try {
+      initialScan.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    try {
+      rescan();
+      initialScan.countDown();
+
+      long nextRefresh = 0;
+      long nextRescan = System.currentTimeMillis() + rescanIntervalMillis;
+      while (!closed) {
+        long now = System.currentTimeMillis();
+        long deadline = Long.MAX_VALUE;
+        if (degraded) {
+          deadline = nextRescan;
+        }
+        if (!dirtyFiles.isEmpty()) {
+          deadline = Math.min(deadline, nextRefresh);
+        }
+        long wait = deadline == Long.MAX_VALUE ? rescanIntervalMillis : Math.max(0, deadline - now);
+
+        if (watchService == null) {
+          Thread.sleep(Math.max(1, wait));
+        } else {
+          WatchKey key = wait == 0 ? watchService.poll() : watchService.poll(wait, TimeUnit.MILLISECONDS);
+          // drain everything available so that a burst of events only triggers one listing per directory
+          while (key != null) {
+            onEvents(key);
+            key = watchService.poll();
+          }
+        }
+
+        now = System.currentTimeMillis();
+        if (rescanRequested || (degraded && now >= nextRescan)) {
+          rescan();
+          nextRescan = now + rescanIntervalMillis;
+        } else if (!dirtyFiles.isEmpty() && now >= nextRefresh) {
+          dirtyFiles.forEach(this::refresh);
+          dirtyFiles.clear();
+          nextRefresh = now + refreshIntervalMillis;
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // closed
+    } catch (RuntimeException e) {
+      LOGGER.warn("Disk usage tracking of data directory: {} has stopped", root, e);
+    } finally {
+      // never leave a reader hanging
+      initialScan.countDown();
+    }
+  }
+
+  private void onEvents(WatchKey key) {
+    Path directory = watchedDirectories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW || directory == null) {
+        // events were lost: only a full listing can tell what changed
+        rescanRequested = true;
+        continue;
+      }
+      Path child = directory.resolve((Path) event.context());
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+        scan(child);
+      } else if (event.kind() == ENTRY_DELETE && directories.containsKey(child)) {
+        forget(child);
+      } else {
+        dirtyFiles.add(child);
+      }
+    }
+    if (!key.reset()) {
+      watchedDirectories.remove(key);
+      if (directory != null) {
+        forget(directory);
+        if (directory.equals(root)) {
+          rescanRequested = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Walks the whole tree again and corrects the computed sizes in place, so that readers never see a partial total
+   */
+  private void rescan() {
+    dirtyFiles.clear();
+    rescanRequested = false;
+    // without a root, there is nothing to watch until it comes back
+    degraded = watchService == null || !Files.isDirectory(root);
+
+    Set<Path> visited = Files.isDirectory(root) ? scan(root) : Collections.emptySet();
+    for (Path known : new HashSet<>(directories.keySet())) {
+      if (!visited.contains(known)) {
+        forget(known);
+      }
+    }
+    LOGGER.trace("Scanned data directory: {} ({} directories, {} bytes)", root, directories.size(), totalSize);
+  }
+
+  /**
+   * Registers and accounts for a directory, all its sub-directories and their files. The files of each directory
+   * replace the ones known before, once the directory is listed.
+   *
+   * @return the visited directories
+   */
+  private Set<Path> scan(Path directory) {
+    Set<Path> visited = new HashSet<>();
+    Map<Path, FileSizes> listed = new HashMap<>();
+    try {
+      Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          watch(dir);
+          listed.put(dir, new FileSizes());
+          visited.add(dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          FileSizes files = listed.get(file.getParent());
+          if (files != null) {
+            files.put(file.getFileName().toString(), attrs.size());
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+          // Skip folders that can't be traversed
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+          // Ignore errors traversing a folder
+          FileSizes files = listed.remove(dir);
+          FileSizes previous = directories.put(dir, files);
+          account(dir, files.getTotal() - (previous == null ? 0L : previous.getTotal()));
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new AssertionError("walkFileTree will not throw IOException if the FileVisitor does not");
+    }
+    return visited;
+  }
+
+  private void watch(Path directory) {
+    if (watchService == null) {
+      return;
+    }
+    try {
+      watchedDirectories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), directory);
+    } catch (IOException e) {
+      // i.e. too many watches: this part of the tree will only be seen by the periodic rescans
+      if (!degraded) {
+        LOGGER.debug("Unable to watch directory: {}. Disk usage will be refreshed every {} ms", directory, rescanIntervalMillis, e);
+        degraded = true;
+      }
+    }
+  }
+
+  /**
+   * Removes a deleted directory and all its sub-directories from the accounting
+   */
+  private void forget(Path directory) {
+    dirtyFiles.removeIf(dirty -> dirty.startsWith(directory));
+    for (Iterator<Map.Entry<WatchKey, Path>> it = watchedDirectories.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<WatchKey, Path> entry = it.next();
+      if (entry.getValue().startsWith(directory)) {
+        entry.getKey().cancel();
+        it.remove();
+      }
+    }
+    for (Iterator<Map.Entry<Path, FileSizes>> it = directories.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<Path, FileSizes> entry = it.next();
+      if (entry.getKey().startsWith(directory)) {
+        account(entry.getKey(), -entry.getValue().getTotal());
+        it.remove();
+      }
+    }
+    if (!directory.equals(root) && directory.getParent().equals(root)) {
+      subdirectorySizes.remove(directory.getFileName().toString());
+    }
+  }
+
+  /**
+   * Reads the size of a file reported as changed and applies the difference
+   */
+  private void refresh(Path file) {
+    fileReads++;
+    try {
+      BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      if (!attrs.isDirectory()) {
+        updateFileSize(file, attrs.size());
+      }
+    } catch (IOException e) {
+      // deleted
+      updateFileSize(file, -1L);
+    }
+  }
+
+  /**
+   * @param size the file size, or -1 if the file is gone
+   */
+  private void updateFileSize(Path file, long size) {
+    Path directory = file.getParent();
+    FileSizes files = directories.get(directory);
+    if (files == null) {
+      // in a directory that is not tracked (anymore)
+      return;
+    }
+    String name = file.getFileName().toString();
+    long previous = size < 0 ? files.remove(name) : files.put(name, size);
+    account(directory, Math.max(size, 0L) - Math.max(previous, 0L));
+  }
+
+  private void account(Path directory, long delta) {
+    totalSize += delta;
+    if (!directory.equals(root)) {
+      subdirectorySizes.merge(root.relativize(directory).getName(0).toString(), delta, Long::sum);
+    }
+  }
+
+  /**
+   * Sizes of the files directly under a directory, by file name, in an open addressing table: tracking a large tree
+   * does not cost a map entry, a path and a boxed size per file
+   */
+  static final class FileSizes {
+    private String[] names = new String[8];
+    private long[] sizes = new long[8];
+    private int count;
+    private long total;
+
+    long getTotal() {
+      return total;
+    }
+
+    int getCount() {
+      return count;
+    }
+
+    /**
+     * @return the previous size of the file, or -1 if it was not known
+     */
+    long put(String name, long size) {
+      int slot = slot(name);
+      if (names[slot] != null) {
+        long previous = sizes[slot];
+        sizes[slot] = size;
+        total += size - previous;
+        return previous;
+      }
+      if ((count + 1) * 4 > names.length * 3) {
+        resize();
+        slot = slot(name);
+      }
+      names[slot] = name;
+      sizes[slot] = size;
+      count++;
+      total += size;
+      return -1L;
+    }
+
+    /**
+     * @return the size of the removed file, or -1 if it was not known
+     */
+    long remove(String name) {
+      int hole = slot(name);
+      if (names[hole] == null) {
+        return -1L;
+      }
+      long previous = sizes[hole];
+      count--;
+      total -= previous;
+      names[hole] = null;
+      // shift back the following entries of the cluster which cannot be reached anymore, instead of leaving tombstones
+      int mask = names.length - 1;
+      for (int i = (hole + 1) & mask; names[i] != null; i = (i + 1) & mask) {
+        int home = hash(names[i]) & mask;
+        if (((i - home) & mask) >= ((i - hole) & mask)) {
+          names[hole] = names[i];
+          sizes[hole] = sizes[i];
+          names[i] = null;
+          hole = i;
+        }
+      }
+      return previous;
+    }
+
+    private int slot(String name) {
+      int mask = names.length - 1;
+      int slot = hash(name) & mask;
+      while (names[slot] != null && !names[slot].equals(name)) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private void resize() {
+      String[] oldNames = names;
+      long[] oldSizes = sizes;
+      names = new String[oldNames.length * 2];
+      sizes = new long[oldNames.length * 2];
+      for (int i = 0; i < oldNames.length; i++) {
+        if (oldNames[i] != null) {
+          int slot = slot(oldNames[i]);
+          names[slot] = oldNames[i];
+          sizes[slot] = oldSizes[i];
+        }
+      }
+    }
+
+    private static int hash(String name) {
+      int h = name.hashCode();
+      return h ^ (h >>> 16);
+    }
+  }
+}
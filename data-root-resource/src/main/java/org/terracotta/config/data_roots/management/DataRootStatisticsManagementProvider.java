@@ -24,9 +24,7 @@ import org.terracotta.management.registry.collect.StatisticProvider;
 import org.terracotta.management.service.monitoring.registry.provider.AbstractExposedStatistics;
 import org.terracotta.management.service.monitoring.registry.provider.AbstractStatisticsManagementProvider;
 
-import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.terracotta.statistics.ValueStatistics.gauge;
-import static org.terracotta.statistics.ValueStatistics.memoize;
 
 @Named("DataRootStatistics")
 @RequiredContext({@Named("consumerId"), @Named("type"), @Named("alias")})
@@ -48,7 +46,8 @@ public class DataRootStatisticsManagementProvider extends AbstractStatisticsMana
     DataRootBindingExposedStatistics(Context context, DataRootBinding binding, StatisticRegistry statisticRegistry, final DataDirectoriesConfigImpl dataRootConfig) {
       super(context.with("type", "DataRoot"), binding, statisticRegistry);
 
-      getStatisticRegistry().registerStatistic("DataRoot:TotalDiskUsage", memoize(10, SECONDS, gauge(() -> dataRootConfig.getDiskUsageByRootIdentifier(binding.getAlias()))));
+      // no need to memoize: the disk usage is tracked in the background and reads are cheap
+      getStatisticRegistry().registerStatistic("DataRoot:TotalDiskUsage", gauge(() -> dataRootConfig.getDiskUsageByRootIdentifier(binding.getAlias())));
     }
   }
 }
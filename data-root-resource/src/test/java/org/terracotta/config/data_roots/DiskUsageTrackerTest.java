@@ -0,0 +1,154 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.config.data_roots;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DiskUsageTrackerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void initialScan() throws Exception {
+    Path root = folder.newFolder().toPath();
+    Files.write(root.resolve("root.txt"), new byte[10]);
+    Files.createDirectories(root.resolve("server-1").resolve("store"));
+    Files.write(root.resolve("server-1").resolve("store").resolve("segment"), new byte[100]);
+    Files.createDirectories(root.resolve("server-2"));
+
+    try (DiskUsageTracker tracker = new DiskUsageTracker(root)) {
+      assertEquals(110, tracker.getTotalSize());
+      assertEquals(100L, (long) tracker.getSizeBySubdirectory().get("server-1"));
+      assertEquals(0L, (long) tracker.getSizeBySubdirectory().get("server-2"));
+    }
+  }
+
+  @Test
+  public void followsChanges() throws Exception {
+    Path root = folder.newFolder().toPath();
+    Path server = Files.createDirectories(root.resolve("server-1"));
+
+    try (DiskUsageTracker tracker = new DiskUsageTracker(root, 10, TimeUnit.MINUTES.toMillis(1)).start()) {
+      assertEquals(0, tracker.getTotalSize());
+
+      Path store = Files.createDirectories(server.resolve("store"));
+      Files.write(store.resolve("segment-1"), new byte[100]);
+      awaitSize(100, tracker::getTotalSize);
+
+      Files.write(store.resolve("segment-1"), new byte[50]);
+      Files.write(store.resolve("segment-2"), new byte[20]);
+      awaitSize(70, tracker::getTotalSize);
+      awaitSize(70, () -> tracker.getSizeBySubdirectory().getOrDefault("server-1", -1L));
+
+      Files.delete(store.resolve("segment-1"));
+      Files.delete(store.resolve("segment-2"));
+      Files.delete(store);
+      awaitSize(0, tracker::getTotalSize);
+
+      Files.delete(server);
+      awaitSize(0, () -> tracker.getSizeBySubdirectory().size());
+    }
+  }
+
+  @Test
+  public void onlyReadsChangedFiles() throws Exception {
+    Path root = folder.newFolder().toPath();
+    Path store = Files.createDirectories(root.resolve("server-1").resolve("store"));
+    for (int i = 0; i < 100; i++) {
+      Files.write(store.resolve("segment-" + i), new byte[10]);
+    }
+
+    try (DiskUsageTracker tracker = new DiskUsageTracker(root, 10, TimeUnit.MINUTES.toMillis(1)).start()) {
+      assertEquals(1000, tracker.getTotalSize());
+
+      Files.write(store.resolve("segment-42"), new byte[110]);
+      awaitSize(1100, tracker::getTotalSize);
+      // the create, modify and delete events of a file are coalesced, but might be spread over 2 refreshes
+      assertTrue(tracker.getFileReadCount() <= 2);
+      assertEquals(1100L, (long) tracker.getSizeBySubdirectory().get("server-1"));
+    }
+  }
+
+  @Test
+  public void rescansWhenRootIsRecreated() throws Exception {
+    Path root = folder.newFolder().toPath();
+    Files.write(root.resolve("file"), new byte[10]);
+
+    try (DiskUsageTracker tracker = new DiskUsageTracker(root, 10, 50).start()) {
+      assertEquals(10, tracker.getTotalSize());
+      Files.delete(root.resolve("file"));
+      Files.delete(root);
+      awaitSize(0, tracker::getTotalSize);
+
+      Files.createDirectories(root);
+      Files.write(root.resolve("file"), new byte[30]);
+      awaitSize(30, tracker::getTotalSize);
+    }
+  }
+
+  @Test
+  public void fileSizes() {
+    DiskUsageTracker.FileSizes files = new DiskUsageTracker.FileSizes();
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(-1L, files.put("segment-" + i, i));
+    }
+    assertEquals(1000, files.getCount());
+    assertEquals(499500L, files.getTotal());
+
+    assertEquals(10L, files.put("segment-10", 20));
+    assertEquals(499510L, files.getTotal());
+
+    // removing entries must keep the other ones reachable
+    for (int i = 0; i < 1000; i += 2) {
+      assertEquals(i == 10 ? 20L : i, files.remove("segment-" + i));
+    }
+    assertEquals(-1L, files.remove("segment-0"));
+    assertEquals(500, files.getCount());
+    assertEquals(250000L, files.getTotal());
+    for (int i = 1; i < 1000; i += 2) {
+      assertEquals(i, files.put("segment-" + i, i));
+    }
+  }
+
+  @Test
+  public void closeReleasesReaders() throws Exception {
+    Path root = folder.newFolder().toPath();
+    DiskUsageTracker tracker = new DiskUsageTracker(root);
+    tracker.close();
+    assertEquals(0, tracker.getTotalSize());
+    assertFalse(tracker.getSizeBySubdirectory().containsKey("anything"));
+  }
+
+  private static void awaitSize(long expected, LongSupplier size) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (size.getAsLong() != expected && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, size.getAsLong());
+  }
+}
@@ -19,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terracotta.connection.Connection;
 import org.terracotta.diagnostic.common.Base64DiagnosticCodec;
+import org.terracotta.diagnostic.common.CompressedDiagnosticCodec;
 import org.terracotta.diagnostic.common.DiagnosticCodec;
 import org.terracotta.diagnostic.common.DiagnosticRequest;
 import org.terracotta.diagnostic.common.DiagnosticResponse;
@@ -49,6 +50,8 @@ class DiagnosticServiceImpl implements DiagnosticService {
   private final Connection connection;
   private final Diagnostics delegate;
   private final DiagnosticCodec<String> codec;
+  private final DiagnosticCodec<String> compressedCodec;
+  private volatile Boolean compressionSupported;
 
   DiagnosticServiceImpl(Connection connection, Diagnostics delegate, DiagnosticCodec<?> codec) {
     this.connection = requireNonNull(connection);
@@ -58,6 +61,10 @@ class DiagnosticServiceImpl implements DiagnosticService {
     this.codec = new EmptyParameterDiagnosticCodec()
         .around(new Base64DiagnosticCodec())
         .around(codec);
+    // used instead of the one above when the server supports it
+    this.compressedCodec = new EmptyParameterDiagnosticCodec()
+        .around(new CompressedDiagnosticCodec())
+        .around(codec);
   }
 
   // Diagnostics
@@ -84,6 +91,7 @@ class DiagnosticServiceImpl implements DiagnosticService {
     if (!Boolean.parseBoolean(invokeWithArg(MBEAN_DIAGNOSTIC_REQUEST_HANDLER, "hasServiceInterface", type.getName()))) {
       throw new DiagnosticOperationUnsupportedException(type.getName());
     }
+    negotiateEncoding();
     return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
       if (method.getDeclaringClass() == Object.class) {
         switch (method.getName()) {
@@ -197,15 +205,33 @@ class DiagnosticServiceImpl implements DiagnosticService {
   private <T> T invokeEncoded(Class<?> serviceType, String methodName, Class<T> returnType, Object... args) throws DiagnosticOperationTimeoutException, DiagnosticOperationExecutionException, DiagnosticConnectionException, DiagnosticOperationUnsupportedException {
     LOGGER.trace("invokeEncoded({}, {})", serviceType.getName(), methodName);
     DiagnosticRequest request = new DiagnosticRequest(serviceType, methodName, args);
-    String encodedReq = codec.serialize(request);
+    String encodedReq = (compressionSupported == Boolean.TRUE ? compressedCodec : codec).serialize(request);
     String encodedRes = invokeWithArg(MBEAN_DIAGNOSTIC_REQUEST_HANDLER, "request", encodedReq);
-    DiagnosticResponse<T> response = codec.deserialize(encodedRes, DiagnosticResponse.class);
+    DiagnosticResponse<T> response = (CompressedDiagnosticCodec.isEncoded(encodedRes) ? compressedCodec : codec).deserialize(encodedRes, DiagnosticResponse.class);
     response.getError().map(DiagnosticOperationExecutionException::new).ifPresent(e -> {
       throw e;
     });
     return returnType.isPrimitive() ? response.getBody() : returnType.cast(response.getBody());
   }
 
+  /**
+   * Asks the server once if it supports the compressed encoding. Older servers do not know this operation, in which case
+   * the requests keep being sent with the default B64 encoding.
+   */
+  private void negotiateEncoding() throws DiagnosticOperationTimeoutException {
+    if (compressionSupported == null) {
+      try {
+        compressionSupported = Boolean.parseBoolean(invokeWithArg(MBEAN_DIAGNOSTIC_REQUEST_HANDLER, "supportsEncoding", CompressedDiagnosticCodec.ENCODING));
+      } catch (DiagnosticOperationExecutionException | DiagnosticOperationUnsupportedException | DiagnosticOperationNotAllowedException e) {
+        LOGGER.trace("Compressed encoding not supported by server: {}", e.getMessage(), e);
+        compressionSupported = false;
+      } catch (DiagnosticConnectionException e) {
+        // will be asked again on next proxy creation
+        LOGGER.trace("Unable to negotiate encoding with server: {}", e.getMessage(), e);
+      }
+    }
+  }
+
   private String execute(Supplier<String> execution) throws DiagnosticOperationTimeoutException, DiagnosticOperationExecutionException, DiagnosticConnectionException {
     return execute(false, execution);
   }
@@ -21,15 +21,17 @@ import org.terracotta.diagnostic.client.DiagnosticService;
 
 import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static java.util.Collections.emptyMap;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -40,13 +42,20 @@ public class ConcurrentDiagnosticServiceProvider implements MultiDiagnosticServi
 
   private final DiagnosticServiceProvider diagnosticServiceProvider;
   private final Duration connectionTimeout;
-  private final ConcurrencySizing concurrencySizing;
+  // shared by all the fetches: threads are only kept while the provider is used and do not prevent the JVM from exiting
+  private final ThreadPoolExecutor executor;
 
   public ConcurrentDiagnosticServiceProvider(DiagnosticServiceProvider diagnosticServiceProvider,
                                              Duration connectionTimeout, ConcurrencySizing concurrencySizing) {
     this.connectionTimeout = connectionTimeout;
-    this.concurrencySizing = concurrencySizing;
     this.diagnosticServiceProvider = diagnosticServiceProvider;
+    int threads = concurrencySizing.getThreadCount(Integer.MAX_VALUE);
+    this.executor = new ThreadPoolExecutor(threads, threads, 30, SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "diagnostics-connect");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.allowCoreThreadTimeOut(true);
   }
 
   @Override
@@ -55,68 +64,50 @@ public class ConcurrentDiagnosticServiceProvider implements MultiDiagnosticServi
       return new DiagnosticServices(emptyMap(), emptyMap());
     }
 
-    ExecutorService executor = Executors.newFixedThreadPool(
-        concurrencySizing.getThreadCount(addresses.size()),
-        r -> new Thread(r, "diagnostics-connect"));
-
-    try {
-      CompletionService<Tuple3<InetSocketAddress, DiagnosticService, DiagnosticServiceProviderException>> completionService = new ExecutorCompletionService<>(executor);
-
-      // start all the fetches, record error if any
-      TimeBudget timeBudget = new TimeBudget(connectionTimeout.toMillis(), MILLISECONDS);
-      addresses.forEach(address -> completionService.submit(() -> {
-        try {
-          DiagnosticService diagnosticService = diagnosticServiceProvider.fetchDiagnosticService(address, Duration.ofMillis(timeBudget.remaining()));
-          return tuple3(address, diagnosticService, null);
-        } catch (DiagnosticServiceProviderException e) {
-          return tuple3(address, null, e);
-        } catch (Exception e) {
-          return tuple3(address, null, new DiagnosticServiceProviderException("Failed to create diagnostic connection to " + address, e));
-        }
-      }));
-
-      Map<InetSocketAddress, DiagnosticService> online = new HashMap<>(addresses.size());
-      Map<InetSocketAddress, DiagnosticServiceProviderException> offline = new HashMap<>(addresses.size());
+    CompletionService<Tuple3<InetSocketAddress, DiagnosticService, DiagnosticServiceProviderException>> completionService = new ExecutorCompletionService<>(executor);
+    List<Future<?>> futures = new ArrayList<>(addresses.size());
 
+    // start all the fetches, record error if any
+    TimeBudget timeBudget = new TimeBudget(connectionTimeout.toMillis(), MILLISECONDS);
+    addresses.forEach(address -> futures.add(completionService.submit(() -> {
       try {
-        // capture the task output
-        int count = addresses.size();
-        while (count-- > 0) {
-          // we do not need to handle any timeout here during a take or get because they are handled in the submitted tasks
-          Future<Tuple3<InetSocketAddress, DiagnosticService, DiagnosticServiceProviderException>> completed = completionService.take();
-          Tuple3<InetSocketAddress, DiagnosticService, DiagnosticServiceProviderException> tuple = completed.get();
-          if (tuple.t3 == null) {
-            online.put(tuple.t1, tuple.t2);
-          } else {
-            offline.put(tuple.t1, tuple.t3);
-          }
-        }
-      } catch (InterruptedException e) {
-        // take() has been interrupted.
-        // We need to cancel all the tasks and shutdown everything
-        shutdown(executor);
-        throw new RuntimeException(e);
-      } catch (ExecutionException e) {
-        // impossible since we catch Throwable in the submitted task
-        throw new AssertionError(e);
+        DiagnosticService diagnosticService = diagnosticServiceProvider.fetchDiagnosticService(address, Duration.ofMillis(timeBudget.remaining()));
+        return tuple3(address, diagnosticService, null);
+      } catch (DiagnosticServiceProviderException e) {
+        return tuple3(address, null, e);
+      } catch (Exception e) {
+        return tuple3(address, null, new DiagnosticServiceProviderException("Failed to create diagnostic connection to " + address, e));
       }
+    })));
 
-      return new DiagnosticServices(online, offline);
-    } finally {
-      shutdown(executor);
-    }
-  }
+    Map<InetSocketAddress, DiagnosticService> online = new HashMap<>(addresses.size());
+    Map<InetSocketAddress, DiagnosticServiceProviderException> offline = new HashMap<>(addresses.size());
 
-  private void shutdown(ExecutorService executor) {
-    executor.shutdown();
     try {
-      if (!executor.awaitTermination(30, SECONDS)) {
-        // timed out waiting for task closing
-        executor.shutdownNow();
+      // capture the task output
+      int count = addresses.size();
+      while (count-- > 0) {
+        // we do not need to handle any timeout here during a take or get because they are handled in the submitted tasks
+        Future<Tuple3<InetSocketAddress, DiagnosticService, DiagnosticServiceProviderException>> completed = completionService.take();
+        Tuple3<InetSocketAddress, DiagnosticService, DiagnosticServiceProviderException> tuple = completed.get();
+        if (tuple.t3 == null) {
+          online.put(tuple.t1, tuple.t2);
+        } else {
+          offline.put(tuple.t1, tuple.t3);
+        }
       }
     } catch (InterruptedException e) {
-      executor.shutdownNow();
+      // take() has been interrupted.
+      // We need to cancel all the tasks and close the connections already opened
+      futures.forEach(future -> future.cancel(true));
+      online.values().forEach(DiagnosticService::close);
       Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      // impossible since we catch Throwable in the submitted task
+      throw new AssertionError(e);
     }
+
+    return new DiagnosticServices(online, offline);
   }
 }
@@ -55,4 +55,13 @@ public class DiagnosticServiceProvider {
       throw new DiagnosticServiceProviderException(e);
     }
   }
+
+  /**
+   * Discards the connections to this address kept for reuse, if any, so that the next fetches open a new connection.
+   * To call when the node at this address is restarted or stopped.
+   * <p>
+   * This provider opens a new connection on each fetch, so there is nothing to discard.
+   */
+  public void evict(InetSocketAddress address) {
+  }
 }
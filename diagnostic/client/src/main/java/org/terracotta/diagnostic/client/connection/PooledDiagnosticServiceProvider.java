@@ -0,0 +1,281 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.diagnostic.client.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.diagnostic.client.DiagnosticConnectionException;
+import org.terracotta.diagnostic.client.DiagnosticOperationTimeoutException;
+import org.terracotta.diagnostic.client.DiagnosticService;
+import org.terracotta.json.ObjectMapperFactory;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link DiagnosticServiceProvider} that keeps the diagnostic connections once they are closed by their user so that
+ * they can be reused by the next fetches to the same address instead of opening a new connection.
+ * <p>
+ * A pooled connection is checked with {@link DiagnosticService#isConnected()} before being reused, is discarded if a
+ * connection error or timeout was raised while it was used (including through the proxies returned by
+ * {@link DiagnosticService#getProxy(Class)}), and is closed when it is not reused within the idle timeout.
+ * The connections to a node that is restarted or stopped have to be discarded with {@link #evict(InetSocketAddress)}.
+ * <p>
+ * This provider must be closed to close the idle connections.
+ */
+public class PooledDiagnosticServiceProvider extends DiagnosticServiceProvider implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PooledDiagnosticServiceProvider.class);
+
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(30);
+
+  private final long idleTimeoutNanos;
+
+  // guarded by this
+  private final Map<InetSocketAddress, Deque<IdleConnection>> idleConnections = new HashMap<>();
+  // incremented for an address each time its connections are evicted, so that the ones in use are not pooled back
+  private final Map<InetSocketAddress, Long> evictions = new HashMap<>();
+  private boolean closed;
+
+  public PooledDiagnosticServiceProvider(String connectionName, Duration connectTimeout, Duration diagnosticInvokeTimeout, String securityRootDirectory, ObjectMapperFactory objectMapperFactory) {
+    this(connectionName, connectTimeout, diagnosticInvokeTimeout, securityRootDirectory, objectMapperFactory, DEFAULT_IDLE_TIMEOUT);
+  }
+
+  public PooledDiagnosticServiceProvider(String connectionName, Duration connectTimeout, Duration diagnosticInvokeTimeout, String securityRootDirectory, ObjectMapperFactory objectMapperFactory, Duration idleTimeout) {
+    super(connectionName, connectTimeout, diagnosticInvokeTimeout, securityRootDirectory, objectMapperFactory);
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+  }
+
+  @Override
+  public DiagnosticService fetchDiagnosticService(InetSocketAddress address, Duration connectTimeout) throws DiagnosticServiceProviderException {
+    requireNonNull(address);
+    for (DiagnosticService diagnosticService = poll(address); diagnosticService != null; diagnosticService = poll(address)) {
+      if (isHealthy(diagnosticService)) {
+        LOGGER.trace("Reusing diagnostic connection to: {}", address);
+        return lease(address, diagnosticService);
+      }
+      LOGGER.trace("Discarding stale diagnostic connection to: {}", address);
+      closeQuietly(diagnosticService);
+    }
+    return lease(address, connect(address, connectTimeout));
+  }
+
+  /**
+   * Closes the idle connections to this address, and the ones in use when they are released
+   */
+  @Override
+  public void evict(InetSocketAddress address) {
+    requireNonNull(address);
+    Deque<IdleConnection> connections;
+    synchronized (this) {
+      evictions.merge(address, 1L, Long::sum);
+      connections = idleConnections.remove(address);
+    }
+    if (connections != null) {
+      LOGGER.trace("Evicting diagnostic connections to: {}", address);
+      connections.forEach(connection -> closeQuietly(connection.diagnosticService));
+    }
+  }
+
+  /**
+   * Closes all the idle connections. The connections currently in use will be closed when their user closes them.
+   */
+  @Override
+  public void close() {
+    List<DiagnosticService> toClose = new ArrayList<>();
+    synchronized (this) {
+      closed = true;
+      idleConnections.values().forEach(connections -> connections.forEach(connection -> toClose.add(connection.diagnosticService)));
+      idleConnections.clear();
+    }
+    toClose.forEach(PooledDiagnosticServiceProvider::closeQuietly);
+  }
+
+  /**
+   * Opens a new connection
+   */
+  protected DiagnosticService connect(InetSocketAddress address, Duration connectTimeout) throws DiagnosticServiceProviderException {
+    return super.fetchDiagnosticService(address, connectTimeout);
+  }
+
+  synchronized int getIdleConnectionCount() {
+    return idleConnections.values().stream().mapToInt(Deque::size).sum();
+  }
+
+  private DiagnosticService poll(InetSocketAddress address) {
+    List<DiagnosticService> evicted = new ArrayList<>(0);
+    DiagnosticService diagnosticService;
+    synchronized (this) {
+      evictIdleConnections(evicted);
+      Deque<IdleConnection> connections = idleConnections.get(address);
+      // most recently used first: it has the best chance to still be alive
+      IdleConnection connection = connections == null ? null : connections.pollFirst();
+      diagnosticService = connection == null ? null : connection.diagnosticService;
+    }
+    evicted.forEach(PooledDiagnosticServiceProvider::closeQuietly);
+    return diagnosticService;
+  }
+
+  private synchronized long getEvictionCount(InetSocketAddress address) {
+    return evictions.getOrDefault(address, 0L);
+  }
+
+  private void release(InetSocketAddress address, DiagnosticService diagnosticService, long evictionCount, boolean broken) {
+    List<DiagnosticService> evicted = new ArrayList<>(0);
+    synchronized (this) {
+      if (closed || broken || evictionCount != getEvictionCount(address)) {
+        evicted.add(diagnosticService);
+      } else {
+        idleConnections.computeIfAbsent(address, addr -> new ArrayDeque<>()).addFirst(new IdleConnection(diagnosticService, System.nanoTime()));
+      }
+      evictIdleConnections(evicted);
+    }
+    evicted.forEach(PooledDiagnosticServiceProvider::closeQuietly);
+  }
+
+  // guarded by this
+  private void evictIdleConnections(List<DiagnosticService> evicted) {
+    long now = System.nanoTime();
+    for (Iterator<Deque<IdleConnection>> it = idleConnections.values().iterator(); it.hasNext(); ) {
+      Deque<IdleConnection> connections = it.next();
+      // oldest ones are at the end
+      while (!connections.isEmpty() && now - connections.peekLast().idleSince >= idleTimeoutNanos) {
+        evicted.add(connections.pollLast().diagnosticService);
+      }
+      if (connections.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  private DiagnosticService lease(InetSocketAddress address, DiagnosticService diagnosticService) {
+    Lease lease = new Lease(address, diagnosticService, getEvictionCount(address));
+    return (DiagnosticService) Proxy.newProxyInstance(DiagnosticService.class.getClassLoader(), new Class<?>[]{DiagnosticService.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "close":
+          lease.close();
+          return null;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled(" + diagnosticService + ")";
+        case "getProxy":
+          // the service proxy uses the pooled connection too: it must fail once the lease is closed and report the errors
+          Class<?> type = (Class<?>) args[0];
+          return type.cast(lease.wrap(type, lease.invoke(diagnosticService, method, args)));
+        default:
+          return lease.invoke(diagnosticService, method, args);
+      }
+    });
+  }
+
+  private static boolean isHealthy(DiagnosticService diagnosticService) {
+    try {
+      return diagnosticService.isConnected();
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  private static void closeQuietly(DiagnosticService diagnosticService) {
+    try {
+      diagnosticService.close();
+    } catch (RuntimeException e) {
+      LOGGER.debug("Failed to close diagnostic service", e);
+    }
+  }
+
+  private class Lease {
+    final InetSocketAddress address;
+    final DiagnosticService diagnosticService;
+    final long evictionCount;
+    final AtomicBoolean released = new AtomicBoolean();
+    volatile boolean broken;
+
+    Lease(InetSocketAddress address, DiagnosticService diagnosticService, long evictionCount) {
+      this.address = address;
+      this.diagnosticService = diagnosticService;
+      this.evictionCount = evictionCount;
+    }
+
+    Object invoke(Object target, Method method, Object[] args) throws Throwable {
+      if (released.get()) {
+        // the connection might already be used by someone else
+        throw new IllegalStateException("Diagnostic service to " + address + " is closed");
+      }
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getTargetException();
+        if (cause instanceof DiagnosticConnectionException || cause instanceof DiagnosticOperationTimeoutException) {
+          // the connection will be closed instead of being pooled when released
+          broken = true;
+        }
+        throw cause;
+      }
+    }
+
+    Object wrap(Class<?> type, Object serviceProxy) {
+      return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+        if (method.getDeclaringClass() == Object.class) {
+          switch (method.getName()) {
+            case "equals":
+              return proxy == args[0];
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "toString":
+              return "Pooled(" + serviceProxy + ")";
+            default:
+              break;
+          }
+        }
+        return invoke(serviceProxy, method, args);
+      });
+    }
+
+    void close() {
+      if (released.compareAndSet(false, true)) {
+        release(address, diagnosticService, evictionCount, broken);
+      }
+    }
+  }
+
+  private static class IdleConnection {
+    final DiagnosticService diagnosticService;
+    final long idleSince;
+
+    IdleConnection(DiagnosticService diagnosticService, long idleSince) {
+      this.diagnosticService = diagnosticService;
+      this.idleSince = idleSince;
+    }
+  }
+}
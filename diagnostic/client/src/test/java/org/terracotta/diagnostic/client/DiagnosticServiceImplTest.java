@@ -31,6 +31,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.terracotta.connection.Connection;
 import org.terracotta.connection.Diagnostics;
 import org.terracotta.diagnostic.common.Base64DiagnosticCodec;
+import org.terracotta.diagnostic.common.CompressedDiagnosticCodec;
 import org.terracotta.diagnostic.common.DiagnosticRequest;
 import org.terracotta.diagnostic.common.DiagnosticResponse;
 import org.terracotta.diagnostic.common.EmptyParameterDiagnosticCodec;
@@ -283,6 +284,40 @@ public class DiagnosticServiceImplTest {
   }
 
 
+  @Test
+  public void test_compressed_encoding() {
+    Beef in = new Beef(1, true, "AAA");
+    DiagnosticResponse<Beef> diagnosticResponse = new DiagnosticResponse<>(new Beef(2, false, "AA"));
+    when(diagnostics.invokeWithArg(MBEAN_DIAGNOSTIC_REQUEST_HANDLER, "hasServiceInterface", FoodService.class.getName())).thenReturn("true");
+    when(diagnostics.invokeWithArg(MBEAN_DIAGNOSTIC_REQUEST_HANDLER, "supportsEncoding", "Compressed")).thenReturn("true");
+
+    String encodedResponse = new EmptyParameterDiagnosticCodec().around(new CompressedDiagnosticCodec()).around(jsonCodec).serialize(diagnosticResponse);
+    when(diagnostics.invokeWithArg(eq(MBEAN_DIAGNOSTIC_REQUEST_HANDLER), eq("request"), request.capture())).thenReturn(encodedResponse);
+    FoodService foodService = service.getProxy(FoodService.class);
+    service.getProxy(FoodService.class);
+
+    assertThat(foodService.cook(in), is(equalTo(diagnosticResponse.getBody())));
+    assertThat(CompressedDiagnosticCodec.isEncoded(request.getValue()), is(true));
+    // encoding is only negotiated once
+    verify(diagnostics, times(1)).invokeWithArg(MBEAN_DIAGNOSTIC_REQUEST_HANDLER, "supportsEncoding", "Compressed");
+  }
+
+  @Test
+  public void test_compressed_encoding_unsupported() {
+    Beef in = new Beef(1, true, "AAA");
+    DiagnosticResponse<Beef> diagnosticResponse = new DiagnosticResponse<>(new Beef(2, false, "AA"));
+    when(diagnostics.invokeWithArg(MBEAN_DIAGNOSTIC_REQUEST_HANDLER, "hasServiceInterface", FoodService.class.getName())).thenReturn("true");
+    // older servers do not have this operation
+    when(diagnostics.invokeWithArg(MBEAN_DIAGNOSTIC_REQUEST_HANDLER, "supportsEncoding", "Compressed")).thenReturn(MESSAGE_INVALID_JMX);
+
+    String encodedResponse = new EmptyParameterDiagnosticCodec().around(new Base64DiagnosticCodec()).around(jsonCodec).serialize(diagnosticResponse);
+    when(diagnostics.invokeWithArg(eq(MBEAN_DIAGNOSTIC_REQUEST_HANDLER), eq("request"), request.capture())).thenReturn(encodedResponse);
+    FoodService foodService = service.getProxy(FoodService.class);
+
+    assertThat(foodService.cook(in), is(equalTo(diagnosticResponse.getBody())));
+    assertThat(CompressedDiagnosticCodec.isEncoded(request.getValue()), is(false));
+  }
+
   public interface FoodService {
     Food cook(Food food);
   }
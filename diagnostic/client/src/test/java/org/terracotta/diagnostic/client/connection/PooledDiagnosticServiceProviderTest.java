@@ -0,0 +1,183 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.diagnostic.client.connection;
+
+import org.junit.Test;
+import org.terracotta.diagnostic.client.DiagnosticConnectionException;
+import org.terracotta.diagnostic.client.DiagnosticOperationTimeoutException;
+import org.terracotta.diagnostic.client.DiagnosticService;
+import org.terracotta.json.ObjectMapperFactory;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.terracotta.testing.ExceptionMatcher.throwing;
+
+public class PooledDiagnosticServiceProviderTest {
+
+  private final InetSocketAddress address1 = InetSocketAddress.createUnresolved("host1", 9410);
+  private final InetSocketAddress address2 = InetSocketAddress.createUnresolved("host2", 9410);
+  private final List<DiagnosticService> connections = new ArrayList<>();
+
+  private final PooledDiagnosticServiceProvider provider = provider(Duration.ofMinutes(1));
+
+  @Test
+  public void test_connections_are_reused() throws DiagnosticServiceProviderException {
+    provider.fetchDiagnosticService(address1).close();
+    provider.fetchDiagnosticService(address1).getLogicalServerState();
+    assertThat(connections.size(), is(1));
+    verify(connections.get(0)).getLogicalServerState();
+    verify(connections.get(0), never()).close();
+
+    // connections in use are not shared
+    DiagnosticService service1 = provider.fetchDiagnosticService(address2);
+    DiagnosticService service2 = provider.fetchDiagnosticService(address2);
+    assertThat(connections.size(), is(3));
+    service1.close();
+    service2.close();
+    assertThat(provider.getIdleConnectionCount(), is(2));
+    provider.fetchDiagnosticService(address2);
+    assertThat(connections.size(), is(3));
+  }
+
+  @Test
+  public void test_closed_lease_cannot_be_used() throws DiagnosticServiceProviderException {
+    DiagnosticService service = provider.fetchDiagnosticService(address1);
+    service.close();
+    service.close();
+    assertThat(provider.getIdleConnectionCount(), is(1));
+    assertThat(service::getLogicalServerState, is(throwing(instanceOf(IllegalStateException.class))));
+  }
+
+  @Test
+  public void test_stale_connections_are_discarded() throws DiagnosticServiceProviderException {
+    provider.fetchDiagnosticService(address1).close();
+    when(connections.get(0).isConnected()).thenReturn(false);
+
+    provider.fetchDiagnosticService(address1);
+    assertThat(connections.size(), is(2));
+    verify(connections.get(0)).close();
+  }
+
+  @Test
+  public void test_broken_connections_are_not_pooled() throws DiagnosticServiceProviderException {
+    DiagnosticService service = provider.fetchDiagnosticService(address1);
+    when(connections.get(0).getLogicalServerState()).thenThrow(new DiagnosticConnectionException());
+    assertThat(service::getLogicalServerState, is(throwing(instanceOf(DiagnosticConnectionException.class))));
+    service.close();
+
+    verify(connections.get(0)).close();
+    assertThat(provider.getIdleConnectionCount(), is(0));
+  }
+
+  @Test
+  public void test_service_proxy_errors_break_the_connection() throws DiagnosticServiceProviderException {
+    DiagnosticService service = provider.fetchDiagnosticService(address1);
+    when(connections.get(0).getProxy(MyService.class)).thenReturn(() -> {
+      throw new DiagnosticOperationTimeoutException("timeout");
+    });
+    MyService myService = service.getProxy(MyService.class);
+    assertThat(myService::hello, is(throwing(instanceOf(DiagnosticOperationTimeoutException.class))));
+    service.close();
+
+    verify(connections.get(0)).close();
+    assertThat(provider.getIdleConnectionCount(), is(0));
+  }
+
+  @Test
+  public void test_service_proxy_cannot_be_used_after_close() throws DiagnosticServiceProviderException {
+    DiagnosticService service = provider.fetchDiagnosticService(address1);
+    when(connections.get(0).getProxy(MyService.class)).thenReturn(() -> "hello");
+    MyService myService = service.getProxy(MyService.class);
+    assertThat(myService.hello(), is("hello"));
+    service.close();
+
+    assertThat(provider.getIdleConnectionCount(), is(1));
+    assertThat(myService::hello, is(throwing(instanceOf(IllegalStateException.class))));
+  }
+
+  @Test
+  public void test_evict() throws DiagnosticServiceProviderException {
+    DiagnosticService service = provider.fetchDiagnosticService(address1);
+    provider.fetchDiagnosticService(address1).close();
+    provider.fetchDiagnosticService(address2).close();
+    provider.evict(address1);
+    verify(connections.get(1)).close();
+    verify(connections.get(2), never()).close();
+    assertThat(provider.getIdleConnectionCount(), is(1));
+
+    // connections in use when evicted are closed when released
+    service.close();
+    verify(connections.get(0)).close();
+    assertThat(provider.getIdleConnectionCount(), is(1));
+
+    // new connections are pooled again
+    provider.fetchDiagnosticService(address1).close();
+    assertThat(connections.size(), is(4));
+    assertThat(provider.getIdleConnectionCount(), is(2));
+  }
+
+  @Test
+  public void test_idle_connections_are_evicted() throws DiagnosticServiceProviderException {
+    PooledDiagnosticServiceProvider provider = provider(Duration.ZERO);
+    provider.fetchDiagnosticService(address1).close();
+    provider.fetchDiagnosticService(address1);
+    assertThat(connections.size(), is(2));
+    verify(connections.get(0)).close();
+    verify(connections.get(0), never()).isConnected();
+  }
+
+  @Test
+  public void test_close() throws DiagnosticServiceProviderException {
+    DiagnosticService service1 = provider.fetchDiagnosticService(address1);
+    provider.fetchDiagnosticService(address2).close();
+    provider.close();
+    verify(connections.get(1)).close();
+    verify(connections.get(0), never()).close();
+
+    // connections in use are closed when released
+    service1.close();
+    verify(connections.get(0), times(1)).close();
+    assertThat(provider.getIdleConnectionCount(), is(0));
+  }
+
+  private PooledDiagnosticServiceProvider provider(Duration idleTimeout) {
+    Duration timeout = Duration.ofSeconds(1);
+    return new PooledDiagnosticServiceProvider("conn-name", timeout, timeout, null, new ObjectMapperFactory(), idleTimeout) {
+      @Override
+      protected DiagnosticService connect(InetSocketAddress address, Duration connectTimeout) {
+        DiagnosticService diagnosticService = mock(DiagnosticService.class);
+        when(diagnosticService.isConnected()).thenReturn(true);
+        connections.add(diagnosticService);
+        return diagnosticService;
+      }
+    };
+  }
+
+  public interface MyService {
+    String hello();
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.diagnostic.common;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A replacement for {@link Base64DiagnosticCodec} that deflates the payloads bigger than a threshold before encoding
+ * them in B64, so that large responses (i.e. topologies or configuration histories) are not inflated by the B64 encoding.
+ * <p>
+ * The encoded string starts with {@link #MARKER}, which is not part of the B64 alphabet, so that a server or client can
+ * tell apart payloads encoded with this codec from the ones encoded by older versions with the {@link Base64DiagnosticCodec}.
+ * <p>
+ * Supports byte[] and String
+ */
+public class CompressedDiagnosticCodec extends DiagnosticCodecSkeleton<String> {
+
+  /**
+   * Name of this encoding, used by the client to ask the server whether it supports it
+   */
+  public static final String ENCODING = "Compressed";
+  public static final int DEFAULT_THRESHOLD = 1024;
+  public static final int DEFAULT_MAX_INFLATED_SIZE = 64 * 1024 * 1024;
+
+  static final char MARKER = '~';
+
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+
+  // the deflate format cannot compress more than ~1032:1
+  private static final int MAX_DEFLATE_RATIO = 1032;
+
+  private final int threshold;
+  private final int maxInflatedSize;
+
+  public CompressedDiagnosticCodec() {
+    this(DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * @param threshold the size in bytes from which a payload gets deflated
+   */
+  public CompressedDiagnosticCodec(int threshold) {
+    this(threshold, DEFAULT_MAX_INFLATED_SIZE);
+  }
+
+  /**
+   * @param threshold       the size in bytes from which a payload gets deflated
+   * @param maxInflatedSize the maximum size in bytes of a decoded payload, to reject forged frames announcing a huge size
+   */
+  public CompressedDiagnosticCodec(int threshold, int maxInflatedSize) {
+    super(String.class);
+    if (maxInflatedSize < 0) {
+      throw new IllegalArgumentException("Bad max inflated size: " + maxInflatedSize);
+    }
+    this.threshold = threshold;
+    this.maxInflatedSize = maxInflatedSize;
+  }
+
+  @Override
+  public String serialize(Object o) throws DiagnosticCodecException {
+    requireNonNull(o);
+    byte[] bytes = o instanceof byte[] ? (byte[]) o : o.toString().getBytes(UTF_8);
+    byte[] frame = bytes.length >= threshold ? deflate(bytes) : null;
+    if (frame == null) {
+      // small payload or payload that does not compress
+      frame = new byte[bytes.length + 1];
+      frame[0] = RAW;
+      System.arraycopy(bytes, 0, frame, 1, bytes.length);
+    }
+    return MARKER + Base64.getEncoder().encodeToString(frame);
+  }
+
+  @Override
+  public <T> T deserialize(String encoded, Class<T> target) throws DiagnosticCodecException {
+    requireNonNull(encoded);
+    requireNonNull(target);
+    if (!target.isAssignableFrom(String.class) && !target.isAssignableFrom(byte[].class)) {
+      throw new IllegalArgumentException("Target type must be assignable from String or byte[]");
+    }
+    if (!isEncoded(encoded)) {
+      throw new DiagnosticCodecException("Unsupported encoded input");
+    }
+    byte[] bytes = decode(encoded);
+    return target.isAssignableFrom(String.class) ? target.cast(new String(bytes, UTF_8)) : target.cast(bytes);
+  }
+
+  @Override
+  public String toString() {
+    return ENCODING;
+  }
+
+  /**
+   * @return true if this string was encoded by this codec, false if it comes from a {@link Base64DiagnosticCodec}
+   */
+  public static boolean isEncoded(String encoded) {
+    return !encoded.isEmpty() && encoded.charAt(0) == MARKER;
+  }
+
+  private byte[] decode(String encoded) throws DiagnosticCodecException {
+    ByteBuffer frame;
+    try {
+      frame = ByteBuffer.wrap(Base64.getDecoder().decode(encoded.substring(1)));
+    } catch (IllegalArgumentException e) {
+      throw new DiagnosticCodecException(e);
+    }
+    if (!frame.hasRemaining()) {
+      throw new DiagnosticCodecException("Unsupported encoded input");
+    }
+    byte type = frame.get();
+    switch (type) {
+      case RAW: {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        return bytes;
+      }
+      case DEFLATED: {
+        if (frame.remaining() < 4) {
+          throw new DiagnosticCodecException("Unsupported encoded input");
+        }
+        int length = frame.getInt();
+        if (length < 0) {
+          throw new DiagnosticCodecException("Unsupported encoded input");
+        }
+        // the length comes from the wire: check it before allocating anything
+        if (length > maxInflatedSize) {
+          throw new DiagnosticCodecException("Encoded input too large: " + length + " bytes (max: " + maxInflatedSize + ")");
+        }
+        if (length > (long) frame.remaining() * MAX_DEFLATE_RATIO) {
+          throw new DiagnosticCodecException("Corrupted encoded input");
+        }
+        return inflate(frame, length);
+      }
+      default:
+        throw new DiagnosticCodecException("Unsupported encoded input: " + type);
+    }
+  }
+
+  /**
+   * @return the deflated frame, or null if deflating does not reduce the payload size
+   */
+  private static byte[] deflate(byte[] bytes) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 5);
+      out.write(DEFLATED);
+      out.write(bytes.length >>> 24);
+      out.write(bytes.length >>> 16);
+      out.write(bytes.length >>> 8);
+      out.write(bytes.length);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+        if (out.size() > bytes.length) {
+          return null;
+        }
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(ByteBuffer frame, int length) throws DiagnosticCodecException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+      byte[] bytes = new byte[length];
+      int read = 0;
+      while (read < length) {
+        int n = inflater.inflate(bytes, read, length - read);
+        if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        read += n;
+      }
+      if (read != length) {
+        throw new DiagnosticCodecException("Corrupted encoded input");
+      }
+      return bytes;
+    } catch (DataFormatException e) {
+      throw new DiagnosticCodecException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.diagnostic.common;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.testing.MicroBenchmark;
+
+import static org.terracotta.diagnostic.common.CompressedDiagnosticCodecTest.createJson;
+
+/**
+ * Compares the size and the encoding / decoding time of JSON payloads with the {@link Base64DiagnosticCodec}
+ * and with the {@link CompressedDiagnosticCodec}.
+ */
+@RunWith(JUnit4.class)
+public class CompressedDiagnosticCodecBenchmark {
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  @Test
+  public void encode_decode() throws Exception {
+    Base64DiagnosticCodec base64 = new Base64DiagnosticCodec();
+    CompressedDiagnosticCodec compressed = new CompressedDiagnosticCodec();
+
+    for (int nodes : new int[]{1, 10, 100, 1000}) {
+      String json = createJson(nodes);
+      String base64Encoded = base64.serialize(json);
+      String compressedEncoded = compressed.serialize(json);
+
+      benchmark.record(nodes + " nodes - json size", json.length() + " bytes");
+      benchmark.record(nodes + " nodes - base64 size", base64Encoded.length() + " bytes");
+      benchmark.record(nodes + " nodes - compressed size", compressedEncoded.length() + " bytes");
+      benchmark.measure(nodes + " nodes - base64 encode", () -> base64.serialize(json));
+      benchmark.measure(nodes + " nodes - base64 decode", () -> base64.deserialize(base64Encoded, String.class));
+      benchmark.measure(nodes + " nodes - compressed encode", () -> compressed.serialize(json));
+      benchmark.measure(nodes + " nodes - compressed decode", () -> compressed.deserialize(compressedEncoded, String.class));
+    }
+  }
+
+}
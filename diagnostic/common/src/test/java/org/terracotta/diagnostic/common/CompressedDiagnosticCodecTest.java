@@ -0,0 +1,122 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.diagnostic.common;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class CompressedDiagnosticCodecTest extends CommonCodecTest<String> {
+
+  public CompressedDiagnosticCodecTest() {
+    super("Compressed", new CompressedDiagnosticCodec(16));
+  }
+
+  @Test
+  public void test_serialize() {
+    assertThat(codec.serialize(""), is(equalTo("~AA==")));
+    assertThat(codec.serialize("".getBytes(UTF_8)), is(equalTo("~AA==")));
+    assertThat(codec.serialize(" "), is(equalTo("~ACA=")));
+    assertThat(codec.serialize("foo"), is(equalTo("~AGZvbw==")));
+  }
+
+  @Test
+  public void test_deserialize() {
+    assertThat(codec.deserialize("~AA==", String.class), is(equalTo("")));
+    assertThat(codec.deserialize("~ACA=", String.class), is(equalTo(" ")));
+    assertThat(codec.deserialize("~AGZvbw==", String.class), is(equalTo("foo")));
+    assertThat(codec.deserialize("~AGZvbw==", byte[].class), is(equalTo("foo".getBytes(UTF_8))));
+  }
+
+  @Test
+  public void test_large_payloads_are_deflated() {
+    String json = createJson(1000);
+    String encoded = codec.serialize(json);
+    assertThat(encoded.length(), is(lessThan(json.length() / 4)));
+    assertThat(codec.deserialize(encoded, String.class), is(equalTo(json)));
+  }
+
+  @Test
+  public void test_incompressible_payloads_are_not_deflated() {
+    byte[] bytes = new byte[4096];
+    new Random(0).nextBytes(bytes);
+    String encoded = codec.serialize(bytes);
+    assertThat(encoded.charAt(1), is(equalTo('A'))); // raw frame
+    assertThat(codec.deserialize(encoded, byte[].class), is(equalTo(bytes)));
+  }
+
+  @Test
+  public void test_isEncoded() {
+    assertThat(CompressedDiagnosticCodec.isEncoded(""), is(false));
+    assertThat(CompressedDiagnosticCodec.isEncoded(new Base64DiagnosticCodec().serialize("foo")), is(false));
+    assertThat(CompressedDiagnosticCodec.isEncoded(codec.serialize("foo")), is(true));
+  }
+
+  @Test
+  public void test_deserialize_legacy_input() {
+    exception.expect(DiagnosticCodecException.class);
+    exception.expectMessage("Unsupported encoded input");
+    codec.deserialize("Zm9v", String.class);
+  }
+
+  @Test
+  public void test_deserialize_announced_size_over_max() {
+    String encoded = new CompressedDiagnosticCodec(16, 1024).serialize(createJson(100));
+    exception.expect(DiagnosticCodecException.class);
+    exception.expectMessage("Encoded input too large");
+    new CompressedDiagnosticCodec(16, 1024).deserialize(encoded, String.class);
+  }
+
+  @Test
+  public void test_deserialize_forged_size() {
+    // a deflated frame of a few bytes announcing a 2GB payload
+    ByteBuffer frame = ByteBuffer.allocate(9).put((byte) 1).putInt(Integer.MAX_VALUE).putInt(0);
+    exception.expect(DiagnosticCodecException.class);
+    exception.expectMessage("Encoded input too large");
+    codec.deserialize("~" + Base64.getEncoder().encodeToString(frame.array()), String.class);
+  }
+
+  @Test
+  public void test_deserialize_size_over_deflate_ratio() {
+    ByteBuffer frame = ByteBuffer.allocate(9).put((byte) 1).putInt(1024 * 1024).putInt(0);
+    exception.expect(DiagnosticCodecException.class);
+    exception.expectMessage("Corrupted encoded input");
+    codec.deserialize("~" + Base64.getEncoder().encodeToString(frame.array()), String.class);
+  }
+
+  @Test
+  public void test_deserialize_type_wrong() {
+    exception.expect(IllegalArgumentException.class);
+    exception.expectMessage("Target type must be assignable from String or byte[]");
+    codec.deserialize("~AA==", getClass());
+  }
+
+  static String createJson(int nodes) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < nodes; i++) {
+      sb.append("{\"nodeName\":\"node-").append(i).append("\",\"nodeHostname\":\"localhost\",\"nodePort\":9410}");
+    }
+    return sb.toString();
+  }
+}
@@ -18,6 +18,7 @@ package org.terracotta.diagnostic.server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terracotta.diagnostic.common.Base64DiagnosticCodec;
+import org.terracotta.diagnostic.common.CompressedDiagnosticCodec;
 import org.terracotta.diagnostic.common.DiagnosticCodec;
 import org.terracotta.diagnostic.common.DiagnosticRequest;
 import org.terracotta.diagnostic.common.EmptyParameterDiagnosticCodec;
@@ -41,6 +42,7 @@ public class DiagnosticRequestHandler extends StandardMBean implements Diagnosti
   private static final Logger LOGGER = LoggerFactory.getLogger(DiagnosticRequestHandler.class);
 
   private final DiagnosticCodec<String> codec;
+  private final DiagnosticCodec<String> compressedCodec;
   private final Map<String, DiagnosticServiceDescriptor<?>> services = new ConcurrentHashMap<>();
 
   private DiagnosticRequestHandler(DiagnosticCodec<?> codec) throws NotCompliantMBeanException {
@@ -49,12 +51,25 @@ public class DiagnosticRequestHandler extends StandardMBean implements Diagnosti
     this.codec = new EmptyParameterDiagnosticCodec()
         .around(new Base64DiagnosticCodec())
         .around(codec);
+    // used instead of the one above when the client supports it
+    this.compressedCodec = new EmptyParameterDiagnosticCodec()
+        .around(new CompressedDiagnosticCodec())
+        .around(codec);
   }
 
   public DiagnosticCodec<String> getCodec() {
     return codec;
   }
 
+  public DiagnosticCodec<String> getCompressedCodec() {
+    return compressedCodec;
+  }
+
+  @Override
+  public boolean supportsEncoding(String encoding) {
+    return CompressedDiagnosticCodec.ENCODING.equals(encoding);
+  }
+
   public Collection<DiagnosticServiceDescriptor<?>> getServices() {
     return services.values();
   }
@@ -68,6 +83,8 @@ public class DiagnosticRequestHandler extends StandardMBean implements Diagnosti
   @Override
   public String request(String payload) {
     requireNonNull(payload);
+    // answers with the same encoding as the request: older clients only understand the B64 one
+    DiagnosticCodec<String> codec = CompressedDiagnosticCodec.isEncoded(payload) ? compressedCodec : this.codec;
     DiagnosticRequest request = codec.deserialize(payload, DiagnosticRequest.class);
     return findService(request.getServiceInterface().getName())
         .flatMap(diagnosticServiceDescriptor -> diagnosticServiceDescriptor.invoke(request.getMethodName(), request.getArguments()))
@@ -23,5 +23,11 @@ package org.terracotta.diagnostic.server;
 public interface DiagnosticRequestHandlerMBean {
   boolean hasServiceInterface(String serviceName);
 
+  /**
+   * Used by the clients to know if they can send their requests with an encoding other than the default B64 one.
+   * Older servers do not have this operation.
+   */
+  boolean supportsEncoding(String encoding);
+
   String request(String payload);
 }
@@ -21,16 +21,20 @@ import org.terracotta.diagnostic.common.DiagnosticResponse;
 import org.terracotta.diagnostic.server.api.DiagnosticServicesRegistration;
 import org.terracotta.diagnostic.server.api.Expose;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
 
@@ -46,6 +50,7 @@ class DiagnosticServiceDescriptor<T> implements DiagnosticServicesRegistration<T
   private final Set<String> mBeans = ConcurrentHashMap.newKeySet();
   private final Runnable onClose;
   private final Function<String, Boolean> jmxExpose;
+  private final Map<String, Invoker[]> invokers;
 
   DiagnosticServiceDescriptor(Class<T> serviceInterface, T serviceImplementation, Runnable onClose, Function<String, Boolean> jmxExpose) {
     if (!serviceInterface.isInterface()) {
@@ -55,6 +60,7 @@ class DiagnosticServiceDescriptor<T> implements DiagnosticServicesRegistration<T
     this.serviceImplementation = requireNonNull(serviceImplementation);
     this.onClose = requireNonNull(onClose);
     this.jmxExpose = requireNonNull(jmxExpose);
+    this.invokers = buildInvokers(serviceInterface, serviceImplementation);
   }
 
   @Override
@@ -77,19 +83,18 @@ class DiagnosticServiceDescriptor<T> implements DiagnosticServicesRegistration<T
   }
 
   Optional<DiagnosticResponse<?>> invoke(String methodName, Object... arguments) {
-    return findMethod(methodName).map(method -> {
-      try {
-        Object result = method.invoke(serviceImplementation, arguments);
-        return new DiagnosticResponse<>(result);
-      } catch (InvocationTargetException e) {
-        Throwable cause = e.getTargetException();
-        LOGGER.error("Failed invoking method {} on diagnostic service {}: {}", methodName, serviceInterface.getName(), cause.getMessage(), cause);
-        return new DiagnosticResponse<>(null, cause);
-      } catch (Exception e) {
-        LOGGER.error("Failed invoking method {} on diagnostic service {}: {}", methodName, serviceInterface.getName(), e.getMessage(), e);
-        return new DiagnosticResponse<>(null, e);
-      }
-    });
+    Invoker[] candidates = invokers.get(methodName);
+    if (candidates == null) {
+      return Optional.empty();
+    }
+    try {
+      Invoker invoker = select(methodName, candidates, arguments);
+      Object result = invoker.invoke(arguments);
+      return Optional.of(new DiagnosticResponse<>(result));
+    } catch (Throwable e) {
+      LOGGER.error("Failed invoking method {} on diagnostic service {}: {}", methodName, serviceInterface.getName(), e.getMessage(), e);
+      return Optional.of(new DiagnosticResponse<>(null, e));
+    }
   }
 
   boolean matches(Class<?> serviceInterface) {
@@ -100,14 +105,50 @@ class DiagnosticServiceDescriptor<T> implements DiagnosticServicesRegistration<T
     return Objects.equals(serviceInterface, this.serviceInterface.getName());
   }
 
-  private Optional<Method> findMethod(String methodName) {
-    List<Method> list = Stream.of(serviceInterface.getMethods())
-        .filter(method -> method.getName().equals(methodName))
-        .collect(Collectors.toList());
-    if (list.size() > 1) {
-      throw new AssertionError("Method overloading not yet supported: " + serviceInterface.getName());
+  private Invoker select(String methodName, Invoker[] candidates, Object[] arguments) {
+    Invoker selected = null;
+    boolean arityFound = false;
+    for (Invoker candidate : candidates) {
+      if (candidate.parameterTypes.length == arguments.length) {
+        arityFound = true;
+        if (candidate.accepts(arguments)) {
+          if (selected != null) {
+            throw new IllegalArgumentException("Ambiguous call to overloaded method " + methodName + " of " + serviceInterface.getName() + " with arguments: " + Arrays.toString(arguments));
+          }
+          selected = candidate;
+        }
+      }
+    }
+    if (selected == null) {
+      // same messages as the ones from Method.invoke()
+      throw new IllegalArgumentException(arityFound ? "argument type mismatch" : "wrong number of arguments");
+    }
+    return selected;
+  }
+
+  /**
+   * Builds the dispatch table of the service: for each method name, the list of overloads bound to the service implementation.
+   * When several interfaces of the hierarchy declare the same signature, only the most specific declaration is kept.
+   */
+  private static Map<String, Invoker[]> buildInvokers(Class<?> serviceInterface, Object serviceImplementation) {
+    Map<String, List<Method>> methods = new HashMap<>();
+    for (Method method : serviceInterface.getMethods()) {
+      List<Method> overloads = methods.computeIfAbsent(method.getName(), name -> new ArrayList<>(1));
+      int existing = -1;
+      for (int i = 0; i < overloads.size() && existing == -1; i++) {
+        if (Arrays.equals(overloads.get(i).getParameterTypes(), method.getParameterTypes())) {
+          existing = i;
+        }
+      }
+      if (existing == -1) {
+        overloads.add(method);
+      } else if (overloads.get(existing).getDeclaringClass().isAssignableFrom(method.getDeclaringClass())) {
+        overloads.set(existing, method);
+      }
     }
-    return list.stream().findAny();
+    Map<String, Invoker[]> invokers = new HashMap<>(methods.size() * 2);
+    methods.forEach((name, overloads) -> invokers.put(name, overloads.stream().map(method -> new Invoker(method, serviceImplementation)).toArray(Invoker[]::new)));
+    return invokers;
   }
 
   Optional<String> discoverMBeanName() {
@@ -121,4 +162,84 @@ class DiagnosticServiceDescriptor<T> implements DiagnosticServicesRegistration<T
   public Set<String> getRegisteredMBeans() {
     return mBeans;
   }
+
+  private static class Invoker {
+    private final Class<?>[] parameterTypes;
+    private final MethodHandle handle;
+
+    Invoker(Method method, Object target) {
+      this.parameterTypes = method.getParameterTypes();
+      MethodHandle handle;
+      try {
+        handle = MethodHandles.publicLookup().unreflect(method);
+      } catch (IllegalAccessException e) {
+        // i.e. public method of a non public interface: Method.invoke() would also require it to be made accessible
+        method.setAccessible(true);
+        try {
+          handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e2) {
+          throw new IllegalArgumentException("Unable to access method " + method + ": " + e2.getMessage(), e2);
+        }
+      }
+      // (Object[])Object, so that all the handles can be called with invokeExact()
+      this.handle = handle.bindTo(target)
+          .asSpreader(Object[].class, parameterTypes.length)
+          .asType(MethodType.methodType(Object.class, Object[].class));
+    }
+
+    Object invoke(Object[] arguments) throws Throwable {
+      return (Object) handle.invokeExact(arguments);
+    }
+
+    /**
+     * @return true if the arguments can be passed to this method the way {@link Method#invoke(Object, Object...)} would
+     * accept them: reference types must match, and primitive types accept their wrapper or a wrapper of a narrower type
+     */
+    boolean accepts(Object[] arguments) {
+      for (int i = 0; i < parameterTypes.length; i++) {
+        Class<?> type = parameterTypes[i];
+        Object argument = arguments[i];
+        if (type.isPrimitive() ? !isWideningCompatible(type, argument) : argument != null && !type.isInstance(argument)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isWideningCompatible(Class<?> primitive, Object argument) {
+      if (argument == null) {
+        return false;
+      }
+      Class<?> type = argument.getClass();
+      if (primitive == boolean.class) {
+        return type == Boolean.class;
+      }
+      if (primitive == char.class) {
+        return type == Character.class;
+      }
+      int rank = rank(type);
+      if (rank == -1) {
+        return false;
+      }
+      if (primitive == byte.class) {
+        return rank == 0;
+      }
+      if (primitive == short.class) {
+        return rank == 0 || rank == 1;
+      }
+      // int, long, float and double also accept chars
+      return rank <= rank(primitive);
+    }
+
+    private static int rank(Class<?> type) {
+      if (type == Byte.class) return 0;
+      if (type == Short.class) return 1;
+      if (type == Character.class || type == char.class) return 2;
+      if (type == Integer.class || type == int.class) return 3;
+      if (type == Long.class || type == long.class) return 4;
+      if (type == Float.class || type == float.class) return 5;
+      if (type == Double.class || type == double.class) return 6;
+      return -1;
+    }
+  }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.diagnostic.server;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.diagnostic.common.DiagnosticRequest;
+import org.terracotta.diagnostic.common.DiagnosticResponse;
+import org.terracotta.diagnostic.common.JsonDiagnosticCodec;
+import org.terracotta.json.ObjectMapperFactory;
+import org.terracotta.testing.MicroBenchmark;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Measures the dispatch of a diagnostic call through {@link DiagnosticServiceDescriptor} and through
+ * {@link DiagnosticRequestHandler#request(String)}, and compares the dispatch with the reflective method lookup
+ * and {@link Method#invoke(Object, Object...)} call that were used before.
+ */
+@RunWith(JUnit4.class)
+public class DiagnosticRequestHandlerBenchmark {
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  private final DiagnosticRequestHandler handler = DiagnosticRequestHandler.withCodec(new JsonDiagnosticCodec(new ObjectMapperFactory()));
+
+  @Test
+  public void request() throws Exception {
+    MyService service = new MyServiceImpl();
+    DiagnosticServiceDescriptor<MyService> descriptor = handler.add(MyService.class, service, () -> {}, name -> false);
+    String payload = handler.getCodec().serialize(new DiagnosticRequest(MyService.class, "getState", "node-1"));
+
+    DiagnosticResponse<?> response = handler.getCodec().deserialize(handler.request(payload), DiagnosticResponse.class);
+    assertThat(response.getBody(), is(equalTo("node-1: ACTIVE")));
+    assertThat(reflect(service, "getState", "node-1"), is(equalTo("node-1: ACTIVE")));
+
+    benchmark.measure("dispatch - reflection", () -> reflect(service, "getState", "node-1"));
+    benchmark.measure("dispatch - method handle", () -> descriptor.invoke("getState", "node-1"));
+    benchmark.measure("request(payload)", () -> handler.request(payload));
+  }
+
+  // the lookup and invocation done for each request before the dispatch table
+  private static Object reflect(MyService service, String methodName, Object... arguments) throws Exception {
+    List<Method> methods = Stream.of(MyService.class.getMethods())
+        .filter(method -> method.getName().equals(methodName))
+        .collect(toList());
+    return methods.get(0).invoke(service, arguments);
+  }
+
+  public interface MyService {
+    String getState(String node);
+
+    boolean isActive();
+
+    long getUptime();
+
+    void restart();
+  }
+
+  public static class MyServiceImpl implements MyService {
+    @Override
+    public String getState(String node) {
+      return node + ": ACTIVE";
+    }
+
+    @Override
+    public boolean isActive() {
+      return true;
+    }
+
+    @Override
+    public long getUptime() {
+      return 0;
+    }
+
+    @Override
+    public void restart() {
+    }
+  }
+}
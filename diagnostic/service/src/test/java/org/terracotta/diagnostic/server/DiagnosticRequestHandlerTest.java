@@ -16,6 +16,7 @@
 package org.terracotta.diagnostic.server;
 
 import org.junit.Test;
+import org.terracotta.diagnostic.common.CompressedDiagnosticCodec;
 import org.terracotta.diagnostic.common.DiagnosticRequest;
 import org.terracotta.diagnostic.common.DiagnosticResponse;
 import org.terracotta.diagnostic.common.JsonDiagnosticCodec;
@@ -115,6 +116,24 @@ public class DiagnosticRequestHandlerTest {
     assertThat(response.hasError(), is(false));
   }
 
+  @Test
+  public void test_request_compressed() {
+    assertThat(handler.supportsEncoding("Compressed"), is(true));
+    assertThat(handler.supportsEncoding("foo"), is(false));
+
+    handler.add(MyService.class, new MyService() {}, noop, mbean);
+    DiagnosticRequest request = new DiagnosticRequest(MyService.class, "hello", "you");
+
+    // the server answers with the encoding of the request
+    String res = handler.request(handler.getCompressedCodec().serialize(request));
+    assertThat(CompressedDiagnosticCodec.isEncoded(res), is(true));
+    assertThat(handler.getCompressedCodec().deserialize(res, DiagnosticResponse.class).getBody(), is(equalTo("Hello you!")));
+
+    res = handler.request(handler.getCodec().serialize(request));
+    assertThat(CompressedDiagnosticCodec.isEncoded(res), is(false));
+    assertThat(handler.getCodec().deserialize(res, DiagnosticResponse.class).getBody(), is(equalTo("Hello you!")));
+  }
+
   public interface MyService {
     default String hello(String name) { return "Hello " + name + "!";}
   }
@@ -91,9 +91,22 @@ public class DiagnosticServiceDescriptorTest {
     }
     // overloading
     {
-      assertThat(
-          () -> descriptor.invoke("foo"),
-          is(throwing(instanceOf(AssertionError.class)).andMessage(is(equalTo("Method overloading not yet supported: " + MyService.class.getName())))));
+      assertThat(descriptor.invoke("foo").get().getBody(), is(equalTo("foo()")));
+      assertThat(descriptor.invoke("foo", "a").get().getBody(), is(equalTo("foo(String)")));
+      assertThat(descriptor.invoke("foo", 1).get().getBody(), is(equalTo("foo(int)")));
+      assertThat(descriptor.invoke("foo", (Object) null).get().getBody(), is(equalTo("foo(String)")));
+      assertThat(descriptor.invoke("foo", 1L).get().getError().get(), containsString(IllegalArgumentException.class.getName() + ": argument type mismatch"));
+    }
+    // ambiguous overloading
+    {
+      DiagnosticResponse<?> response = descriptor.invoke("ambiguous", (Object) null).get();
+      assertThat(response.getBody(), is(nullValue()));
+      assertThat(response.getError().get(), containsString(IllegalArgumentException.class.getName() + ": Ambiguous call to overloaded method ambiguous"));
+    }
+    // primitive widening
+    {
+      assertThat(descriptor.invoke("sum", 1, (short) 2).get().getBody(), is(equalTo(3L)));
+      assertThat(descriptor.invoke("sum", 1L, 2L).get().getError().get(), containsString(IllegalArgumentException.class.getName() + ": argument type mismatch"));
     }
     // invoke with wrong args
     {
@@ -101,6 +114,11 @@ public class DiagnosticServiceDescriptorTest {
       assertThat(response.getBody(), is(nullValue()));
       assertThat(response.getError().get(), containsString(IllegalArgumentException.class.getName() + ": argument type mismatch"));
     }
+    {
+      DiagnosticResponse<?> response = descriptor.invoke("withArgs").get();
+      assertThat(response.getBody(), is(nullValue()));
+      assertThat(response.getError().get(), containsString(IllegalArgumentException.class.getName() + ": wrong number of arguments"));
+    }
     // invoke error
     {
       DiagnosticResponse<?> response = descriptor.invoke("fail").get();
@@ -110,9 +128,17 @@ public class DiagnosticServiceDescriptorTest {
   }
 
   public interface MyService {
-    default void foo() {}
+    default String foo() {return "foo()";}
+
+    default String foo(String s) {return "foo(String)";}
+
+    default String foo(int i) {return "foo(int)";}
+
+    default void ambiguous(String s) {}
+
+    default void ambiguous(Integer i) {}
 
-    default void foo(String s) {}
+    default long sum(long a, int b) {return a + b;}
 
     default void bar() {}
 
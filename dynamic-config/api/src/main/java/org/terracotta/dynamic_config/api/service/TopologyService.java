@@ -18,6 +18,7 @@ package org.terracotta.dynamic_config.api.service;
 import org.terracotta.dynamic_config.api.model.Cluster;
 import org.terracotta.dynamic_config.api.model.License;
 import org.terracotta.dynamic_config.api.model.NodeContext;
+import org.terracotta.dynamic_config.api.model.TopologySnapshot;
 import org.terracotta.nomad.server.NomadChangeInfo;
 
 import java.util.Optional;
@@ -52,6 +53,13 @@ public interface TopologyService {
    */
   NodeContext getRuntimeNodeContext();
 
+  /**
+   * Returns the upcoming and runtime topologies currently published, without copying them.
+   * <p>
+   * This is the cheapest way to read the topology, but the returned node contexts are shared and must not be modified.
+   */
+  TopologySnapshot getTopologySnapshot();
+
   /**
    * @return true if this node has been activated (is part of a named cluster that has been licensed)
    */
@@ -70,6 +78,12 @@ public interface TopologyService {
    */
   boolean hasIncompleteChange();
 
+  /**
+   * @return true if the nomad entity of this node decodes the binary format of the nomad messages.
+   * Older nodes do not know this method, so clients must not send this format to nodes failing to answer.
+   */
+  boolean isNomadBinaryEncodingSupported();
+
   /**
    * Get the current installed license information if any
    */
@@ -21,8 +21,8 @@ import org.slf4j.LoggerFactory;
 import org.terracotta.common.struct.TimeUnit;
 import org.terracotta.diagnostic.client.connection.ConcurrencySizing;
 import org.terracotta.diagnostic.client.connection.ConcurrentDiagnosticServiceProvider;
-import org.terracotta.diagnostic.client.connection.DiagnosticServiceProvider;
 import org.terracotta.diagnostic.client.connection.MultiDiagnosticServiceProvider;
+import org.terracotta.diagnostic.client.connection.PooledDiagnosticServiceProvider;
 import org.terracotta.dynamic_config.api.json.DynamicConfigApiJsonModule;
 import org.terracotta.dynamic_config.api.model.NodeContext;
 import org.terracotta.dynamic_config.cli.command.CommandRepository;
@@ -115,7 +115,8 @@ public class ConfigTool {
 
     // create services
     ObjectMapperFactory objectMapperFactory = new ObjectMapperFactory().withModule(new DynamicConfigApiJsonModule());
-    DiagnosticServiceProvider diagnosticServiceProvider = new DiagnosticServiceProvider("CONFIG-TOOL", connectionTimeout, requestTimeout, mainCommand.getSecurityRootDirectory(), objectMapperFactory);
+    // a command connects several times to the same nodes (discovery, nomad, restart, etc): connections are reused
+    PooledDiagnosticServiceProvider diagnosticServiceProvider = new PooledDiagnosticServiceProvider("CONFIG-TOOL", connectionTimeout, requestTimeout, mainCommand.getSecurityRootDirectory(), objectMapperFactory);
     MultiDiagnosticServiceProvider multiDiagnosticServiceProvider = new ConcurrentDiagnosticServiceProvider(diagnosticServiceProvider, connectionTimeout, concurrencySizing);
     NomadEntityProvider nomadEntityProvider = new NomadEntityProvider(
         "CONFIG-TOOL",
@@ -123,7 +124,8 @@ public class ConfigTool {
         // A long timeout is important here.
         // We need to block the call and wait for any return.
         // We cannot timeout shortly otherwise we won't know the outcome of the 2PC Nomad transaction in case of a failover.
-        new NomadEntity.Settings().setRequestTimeout(entityOperationTimeout),
+        // The binary encoding is only used with the stripes whose nodes are all known to support it.
+        new NomadEntity.Settings().setRequestTimeout(entityOperationTimeout).setBinaryEncoding(true),
         mainCommand.getSecurityRootDirectory());
     NomadManager<NodeContext> nomadManager = new NomadManager<>(new NomadEnvironment(), multiDiagnosticServiceProvider, nomadEntityProvider);
     RestartService restartService = new RestartService(diagnosticServiceProvider, concurrencySizing);
@@ -132,22 +134,26 @@ public class ConfigTool {
     LOGGER.debug("Injecting services in CommandRepository");
     commandRepository.inject(diagnosticServiceProvider, multiDiagnosticServiceProvider, nomadManager, restartService, stopService, objectMapperFactory);
 
-    jCommander.getAskedCommand().map(command -> {
-      // check for help
-      if (command.isHelp()) {
-        jCommander.printUsage();
+    try {
+      jCommander.getAskedCommand().map(command -> {
+        // check for help
+        if (command.isHelp()) {
+          jCommander.printUsage();
+          return true;
+        }
+        // validate the real command
+        command.validate();
+        // run the real command
+        command.run();
         return true;
-      }
-      // validate the real command
-      command.validate();
-      // run the real command
-      command.run();
-      return true;
-    }).orElseGet(() -> {
-      // If no command is provided, process help command
-      jCommander.usage();
-      return false;
-    });
+      }).orElseGet(() -> {
+        // If no command is provided, process help command
+        jCommander.usage();
+        return false;
+      });
+    } finally {
+      diagnosticServiceProvider.close();
+    }
   }
 
   private static CustomJCommander parseArguments(CommandRepository commandRepository, RemoteMainCommand mainCommand, String[] args) {
@@ -19,7 +19,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terracotta.connection.ConnectionException;
 import org.terracotta.connection.entity.Entity;
+import org.terracotta.diagnostic.client.DiagnosticOperationExecutionException;
+import org.terracotta.diagnostic.client.DiagnosticOperationUnsupportedException;
 import org.terracotta.diagnostic.client.DiagnosticService;
+import org.terracotta.diagnostic.client.connection.DiagnosticServiceProviderException;
 import org.terracotta.diagnostic.client.connection.DiagnosticServices;
 import org.terracotta.diagnostic.client.connection.MultiDiagnosticServiceProvider;
 import org.terracotta.diagnostic.model.LogicalServerState;
@@ -28,6 +31,7 @@ import org.terracotta.dynamic_config.api.model.NodeContext;
 import org.terracotta.dynamic_config.api.model.nomad.ClusterActivationNomadChange;
 import org.terracotta.dynamic_config.api.model.nomad.MultiSettingNomadChange;
 import org.terracotta.dynamic_config.api.model.nomad.NodeNomadChange;
+import org.terracotta.dynamic_config.api.service.TopologyService;
 import org.terracotta.nomad.NomadEnvironment;
 import org.terracotta.nomad.client.NomadClient;
 import org.terracotta.nomad.client.NomadEndpoint;
@@ -60,14 +64,16 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Predicate;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.terracotta.diagnostic.model.LogicalServerState.ACTIVE;
 import static org.terracotta.diagnostic.model.LogicalServerState.ACTIVE_RECONNECTING;
 import static org.terracotta.diagnostic.model.LogicalServerState.PASSIVE;
 import static org.terracotta.diagnostic.model.LogicalServerState.STARTING;
+import static org.terracotta.nomad.client.NomadMessageSender.DEFAULT_CONCURRENCY;
+import static org.terracotta.nomad.client.NomadMessageSender.DEFAULT_PHASE_TIMEOUT;
 
 public class NomadManager<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(NomadManager.class);
@@ -91,15 +97,14 @@ public class NomadManager<T> {
 
   public void runConfigurationDiscovery(Map<InetSocketAddress, LogicalServerState> nodes, DiscoverResultsReceiver<T> results) {
     LOGGER.debug("Attempting to discover nodes: {}", nodes);
-    List<InetSocketAddress> orderedList = keepOnlineAndOrderPassivesFirst(nodes);
-    try (NomadClient<T> client = createDiagnosticNomadClient(orderedList)) {
+    try (NomadClient<T> client = createDiagnosticNomadClient(keepOnlineAndGroupPassivesFirst(nodes))) {
       client.tryDiscovery(new MultiDiscoveryResultReceiver<>(asList(new LoggingResultReceiver<>(), results)));
     }
   }
 
   public void runClusterActivation(Collection<InetSocketAddress> nodes, Cluster cluster, ChangeResultReceiver<T> results) {
     LOGGER.debug("Attempting to activate cluster: {}", cluster.toShapeString());
-    try (NomadClient<T> client = createDiagnosticNomadClient(new ArrayList<>(nodes))) {
+    try (NomadClient<T> client = createDiagnosticNomadClient(singletonList(new ArrayList<>(nodes)))) {
       client.tryApplyChange(new MultiChangeResultReceiver<>(asList(new LoggingResultReceiver<>(), results)), new ClusterActivationNomadChange(cluster));
     }
   }
@@ -107,8 +112,7 @@ public class NomadManager<T> {
   public void runConfigurationChange(Map<InetSocketAddress, LogicalServerState> onlineNodes, MultiSettingNomadChange changes, ChangeResultReceiver<T> results) {
     LOGGER.debug("Attempting to make co-ordinated configuration change: {} on nodes: {}", changes, onlineNodes);
     checkServerStates(onlineNodes);
-    List<InetSocketAddress> orderedList = keepOnlineAndOrderPassivesFirst(onlineNodes);
-    try (NomadClient<T> client = createDiagnosticNomadClient(orderedList)) {
+    try (NomadClient<T> client = createDiagnosticNomadClient(keepOnlineAndGroupPassivesFirst(onlineNodes))) {
       client.tryApplyChange(new MultiChangeResultReceiver<>(asList(new LoggingResultReceiver<>(), results)), changes);
     }
   }
@@ -116,8 +120,7 @@ public class NomadManager<T> {
   public void runConfigurationRepair(ConsistencyAnalyzer<NodeContext> consistencyAnalyzer, RecoveryResultReceiver<T> results, ChangeRequestState forcedState) {
     LOGGER.debug("Attempting to repair configuration on nodes: {}", consistencyAnalyzer.getAllNodes().keySet());
     Map<InetSocketAddress, LogicalServerState> onlineActivatedNodes = consistencyAnalyzer.getOnlineActivatedNodes();
-    List<InetSocketAddress> orderedList = keepOnlineAndOrderPassivesFirst(onlineActivatedNodes);
-    try (NomadClient<T> client = createDiagnosticNomadClient(orderedList)) {
+    try (NomadClient<T> client = createDiagnosticNomadClient(keepOnlineAndGroupPassivesFirst(onlineActivatedNodes))) {
       client.tryRecovery(new MultiRecoveryResultReceiver<>(asList(new LoggingResultReceiver<>(), results)), consistencyAnalyzer.getNodeCount(), forcedState);
     }
   }
@@ -130,15 +133,15 @@ public class NomadManager<T> {
     }
   }
 
-  private NomadClient<T> createDiagnosticNomadClient(List<InetSocketAddress> expectedOnlineNodes) {
-    LOGGER.trace("createDiagnosticNomadClient({})", expectedOnlineNodes);
+  private NomadClient<T> createDiagnosticNomadClient(List<List<InetSocketAddress>> expectedOnlineNodeGroups) {
+    LOGGER.trace("createDiagnosticNomadClient({})", expectedOnlineNodeGroups);
     // create normal diagnostic endpoints
-    List<NomadEndpoint<T>> nomadEndpoints = createDiagnosticNomadEndpoints(expectedOnlineNodes);
+    List<List<NomadEndpoint<T>>> nomadEndpointGroups = createDiagnosticNomadEndpoints(expectedOnlineNodeGroups);
     // create the client
     String host = environment.getHost();
     String user = environment.getUser();
     Clock clock = environment.getClock();
-    return new NomadClient<>(nomadEndpoints, host, user, clock);
+    return new NomadClient<>(nomadEndpointGroups, host, user, clock, DEFAULT_CONCURRENCY, DEFAULT_PHASE_TIMEOUT);
   }
 
   private NomadClient<T> createTopologyChangeNomadClient(Cluster destinationCluster, Map<InetSocketAddress, LogicalServerState> onlineNodes) {
@@ -168,7 +171,7 @@ public class NomadManager<T> {
       final List<InetSocketAddress> addresses = onlineNodesPerStripe.get(i);
       try {
         LOGGER.trace("Connecting to stripe ID: {} using nodes: {}", i + 1, addresses);
-        nomadEntities.add(nomadEntityProvider.fetchNomadEntity(addresses));
+        nomadEntities.add(nomadEntityProvider.fetchNomadEntity(addresses, isNomadBinaryEncodingSupported(addresses)));
       } catch (ConnectionException e) {
         cleanup.run();
         throw new IllegalStateException("Unable to connect to stripe ID " + (i + 1) + ": " + e.getMessage(), e);
@@ -182,12 +185,12 @@ public class NomadManager<T> {
     }).collect(toList());
 
     // create normal diagnostic endpoints for the prepare phase
-    List<NomadEndpoint<T>> nomadEndpoints;
+    List<List<NomadEndpoint<T>>> nomadEndpointGroups;
     try {
-      List<InetSocketAddress> orderedList = keepOnlineAndOrderPassivesFirst(onlineNodes);
-      Collections.reverse(orderedList); // put actives first
-      LOGGER.trace("Connecting to diagnostic ports: {}", orderedList);
-      nomadEndpoints = createDiagnosticNomadEndpoints(orderedList);
+      List<List<InetSocketAddress>> groups = keepOnlineAndGroupPassivesFirst(onlineNodes);
+      Collections.reverse(groups); // put actives first
+      LOGGER.trace("Connecting to diagnostic ports: {}", groups);
+      nomadEndpointGroups = createDiagnosticNomadEndpoints(groups);
     } catch (RuntimeException e) {
       // close the entity channels if we cannot manage to open the endpoints
       cleanup.run();
@@ -196,7 +199,7 @@ public class NomadManager<T> {
 
     // override the diagnostic endpoints to go over the entity channel for the nomad commit phase
     ConcurrentMap<Integer, CompletableFuture<AcceptRejectResponse>> cache = new ConcurrentHashMap<>(stripeEndpoints.size());
-    nomadEndpoints = nomadEndpoints.stream().map(e -> new NomadEndpoint<T>(e.getAddress(), e) {
+    nomadEndpointGroups = nomadEndpointGroups.stream().map(group -> group.stream().<NomadEndpoint<T>>map(e -> new NomadEndpoint<T>(e.getAddress(), e) {
       @SuppressWarnings("OptionalGetWithoutIsPresent")
       @Override
       public AcceptRejectResponse commit(CommitMessage message) throws NomadException {
@@ -240,13 +243,13 @@ public class NomadManager<T> {
           throw new NomadException(e.getMessage(), e);
         }
       }
-    }).collect(toList());
+    }).collect(toList())).collect(toList());
 
     // create the client
     String host = environment.getHost();
     String user = environment.getUser();
     Clock clock = environment.getClock();
-    return new NomadClient<T>(nomadEndpoints, host, user, clock) {
+    return new NomadClient<T>(nomadEndpointGroups, host, user, clock, DEFAULT_CONCURRENCY, DEFAULT_PHASE_TIMEOUT) {
       @Override
       public void close() {
         try {
@@ -259,16 +262,32 @@ public class NomadManager<T> {
   }
 
   /**
-   * build a list of endpoints through diagnostic port, keeping the same order wanted by user
+   * build groups of endpoints through diagnostic port, keeping the same groups and order wanted by user
+   */
+  /**
+   * A stripe can fail over to any of its nodes, so its nomad entity is only sent binary messages when all its online
+   * nodes are known to decode them. Older nodes fail to answer.
    */
-  private List<NomadEndpoint<T>> createDiagnosticNomadEndpoints(List<InetSocketAddress> expectedOnlineNodes) {
-    LOGGER.trace("createDiagnosticNomadEndpoints({})", expectedOnlineNodes);
+  private boolean isNomadBinaryEncodingSupported(List<InetSocketAddress> addresses) {
+    try (DiagnosticServices diagnosticServices = multiDiagnosticServiceProvider.fetchOnlineDiagnosticServices(addresses)) {
+      return diagnosticServices.getOnlineEndpoints().values()
+          .stream()
+          .allMatch(diagnosticService -> diagnosticService.getProxy(TopologyService.class).isNomadBinaryEncodingSupported());
+    } catch (DiagnosticServiceProviderException | DiagnosticOperationExecutionException | DiagnosticOperationUnsupportedException e) {
+      LOGGER.trace("Nomad binary encoding not supported by: {}: {}", addresses, e.getMessage(), e);
+      return false;
+    }
+  }
+
+  private List<List<NomadEndpoint<T>>> createDiagnosticNomadEndpoints(List<List<InetSocketAddress>> expectedOnlineNodeGroups) {
+    LOGGER.trace("createDiagnosticNomadEndpoints({})", expectedOnlineNodeGroups);
 
     // connect and concurrently open a diagnostic connection
+    List<InetSocketAddress> expectedOnlineNodes = expectedOnlineNodeGroups.stream().flatMap(List::stream).collect(toList());
     DiagnosticServices diagnosticServices = multiDiagnosticServiceProvider.fetchOnlineDiagnosticServices(expectedOnlineNodes);
 
-    // build a list of endpoints, keeping the same order wanted by user
-    return expectedOnlineNodes.stream().map(addr -> {
+    // build the groups of endpoints, keeping the same order wanted by user
+    return expectedOnlineNodeGroups.stream().map(group -> group.stream().<NomadEndpoint<T>>map(addr -> {
       DiagnosticService diagnosticService = diagnosticServices.getDiagnosticService(addr).get();
       @SuppressWarnings("unchecked")
       NomadServer<T> nomadServer = diagnosticService.getProxy(NomadServer.class);
@@ -278,19 +297,20 @@ public class NomadManager<T> {
           diagnosticService.close();
         }
       };
-    }).collect(toList());
+    }).collect(toList())).collect(toList());
   }
 
   /**
-   * Put passive firsts and then actives last and filter out offline nodes
+   * Group passives first and then actives last and filter out offline nodes.
+   * The Nomad client completes each phase on a group before moving to the next one.
    */
-  private static List<InetSocketAddress> keepOnlineAndOrderPassivesFirst(Map<InetSocketAddress, LogicalServerState> expectedOnlineNodes) {
+  private static List<List<InetSocketAddress>> keepOnlineAndGroupPassivesFirst(Map<InetSocketAddress, LogicalServerState> expectedOnlineNodes) {
     Predicate<Map.Entry<InetSocketAddress, LogicalServerState>> online = e -> !e.getValue().isUnknown() && !e.getValue().isUnreacheable();
     Predicate<Map.Entry<InetSocketAddress, LogicalServerState>> actives = e -> e.getValue().isActive();
-    return Stream.concat(
-        expectedOnlineNodes.entrySet().stream().filter(online.and(actives.negate())),
-        expectedOnlineNodes.entrySet().stream().filter(online.and(actives))
-    ).map(Map.Entry::getKey).collect(toList());
+    return new ArrayList<>(asList(
+        expectedOnlineNodes.entrySet().stream().filter(online.and(actives.negate())).map(Map.Entry::getKey).collect(toList()),
+        expectedOnlineNodes.entrySet().stream().filter(online.and(actives)).map(Map.Entry::getKey).collect(toList())
+    ));
   }
 
   private static void checkServerStates(Map<InetSocketAddress, LogicalServerState> expectedOnlineNodes) {
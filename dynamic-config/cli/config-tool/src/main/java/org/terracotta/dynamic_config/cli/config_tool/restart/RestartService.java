@@ -87,6 +87,8 @@ public class RestartService {
         restartRequestFailed.put(addr, e);
         LOGGER.debug("Failed asking node {} to restart: {}", addr, e.getMessage(), e);
       }
+      // the connections to the node are lost when it restarts: they must not be reused
+      diagnosticServiceProvider.evict(addr);
     }
 
     // latch on which the requestor will wait. We will decrement it for each restarted node
@@ -190,6 +192,8 @@ public class RestartService {
    */
   private LogicalServerState isRestarted(InetSocketAddress addr, Collection<LogicalServerState> acceptedStates) {
     LOGGER.debug("Checking if node: {} has restarted", addr);
+    // the state must be read from the restarted node, not from a connection pooled before
+    diagnosticServiceProvider.evict(addr);
     try (DiagnosticService diagnosticService = diagnosticServiceProvider.fetchDiagnosticService(addr)) {
       LogicalServerState state = diagnosticService.getLogicalServerState();
       // STARTING is the state when server hasn't finished its startup yet
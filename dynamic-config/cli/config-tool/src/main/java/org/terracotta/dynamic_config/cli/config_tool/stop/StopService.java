@@ -86,6 +86,8 @@ public class StopService {
         stopRequestFailed.put(addr, e);
         LOGGER.debug("Failed asking node {} to stop: {}", addr, e.getMessage(), e);
       }
+      // the connections to the node are lost when it stops: they must not be reused
+      diagnosticServiceProvider.evict(addr);
     }
 
     // latch on which the requestor will wait. We will decrement it for each stopped node
@@ -189,6 +191,8 @@ public class StopService {
    */
   private boolean isStopped(InetSocketAddress addr) {
     LOGGER.debug("Checking if node: {} has stopped", addr);
+    // the state must be read from the stopped node, not from a connection pooled before
+    diagnosticServiceProvider.evict(addr);
     try (DiagnosticService logicalServerState = diagnosticServiceProvider.fetchDiagnosticService(addr, Duration.ofSeconds(5))) {
       LogicalServerState state = logicalServerState.getLogicalServerState();
       return state == LogicalServerState.UNREACHABLE;
@@ -0,0 +1,95 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.entity.management.server;
+
+import org.terracotta.dynamic_config.api.model.Cluster;
+import org.terracotta.dynamic_config.api.service.Props;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Keeps the last topologies referenced by the dynamic config notifications, identified by a revision number.
+ * <p>
+ * A topology is only rendered into its configuration format the first time it is requested through
+ * {@link DynamicConfigManagementProvider}, and only the last {@link #MAX_REVISIONS} revisions are kept.
+ */
+public class ConfigurationSnapshots {
+
+  static final int MAX_REVISIONS = 16;
+
+  private final Map<Long, Snapshot> snapshots = new LinkedHashMap<Long, Snapshot>() {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Snapshot> eldest) {
+      return size() > MAX_REVISIONS;
+    }
+  };
+
+  private long lastRevision;
+
+  synchronized long add(Cluster cluster) {
+    snapshots.put(++lastRevision, new Snapshot(cluster.clone()));
+    return lastRevision;
+  }
+
+  synchronized long getLastRevision() {
+    return lastRevision;
+  }
+
+  String getConfiguration(long revision) {
+    Snapshot snapshot;
+    synchronized (this) {
+      snapshot = snapshots.get(revision);
+    }
+    if (snapshot == null) {
+      throw new IllegalArgumentException("Configuration revision " + revision + " is not available (last revision: " + getLastRevision() + ")");
+    }
+    return snapshot.render();
+  }
+
+  private static class Snapshot {
+    private Cluster cluster;
+    private String rendering;
+
+    Snapshot(Cluster cluster) {
+      this.cluster = cluster;
+    }
+
+    synchronized String render() {
+      if (rendering == null) {
+        rendering = topologyToConfig(cluster);
+        cluster = null;
+      }
+      return rendering;
+    }
+  }
+
+  private static String topologyToConfig(Cluster cluster) {
+    Properties properties = cluster.toProperties(false, true);
+    try (StringWriter out = new StringWriter()) {
+      Props.store(out, properties, "Configurations:");
+      return out.toString();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.entity.management.server;
+
+import org.terracotta.management.model.capabilities.descriptors.Descriptor;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.registry.ExposedObject;
+import org.terracotta.management.registry.Named;
+import org.terracotta.management.registry.RequiredContext;
+import org.terracotta.management.registry.action.AbstractActionManagementProvider;
+import org.terracotta.management.registry.action.Exposed;
+import org.terracotta.management.service.monitoring.EntityMonitoringService;
+import org.terracotta.management.service.monitoring.registry.provider.MonitoringServiceAware;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Exposes the configurations referenced by the {@code configRevision} attribute of the dynamic config notifications.
+ * The calls use the same context as the source of these notifications.
+ */
+@Named("DynamicConfigCalls")
+@RequiredContext({@Named("consumerId"), @Named("type")})
+public class DynamicConfigManagementProvider extends AbstractActionManagementProvider<ConfigurationSnapshots> implements MonitoringServiceAware {
+
+  private EntityMonitoringService monitoringService;
+
+  DynamicConfigManagementProvider() {
+    super(ConfigurationSnapshots.class);
+  }
+
+  @Override
+  public void setMonitoringService(EntityMonitoringService monitoringService) {
+    this.monitoringService = monitoringService;
+  }
+
+  @Override
+  protected ExposedObject<ConfigurationSnapshots> wrap(ConfigurationSnapshots managedObject) {
+    Context context = Context.create("consumerId", String.valueOf(monitoringService.getConsumerId())).with("type", "DynamicConfig");
+    return new ExposedConfigurationSnapshots(managedObject, context);
+  }
+
+  public static class ExposedConfigurationSnapshots implements ExposedObject<ConfigurationSnapshots> {
+
+    private final ConfigurationSnapshots snapshots;
+    private final Context context;
+
+    ExposedConfigurationSnapshots(ConfigurationSnapshots snapshots, Context context) {
+      this.snapshots = snapshots;
+      this.context = context;
+    }
+
+    @Exposed
+    public String getConfiguration(@Named("revision") long revision) {
+      return snapshots.getConfiguration(revision);
+    }
+
+    @Exposed
+    public long getLastRevision() {
+      return snapshots.getLastRevision();
+    }
+
+    @Override
+    public ConfigurationSnapshots getTarget() {
+      return snapshots;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+      return snapshots.getClass().getClassLoader();
+    }
+
+    @Override
+    public Context getContext() {
+      return context;
+    }
+
+    @Override
+    public Collection<? extends Descriptor> getDescriptors() {
+      return Collections.emptyList();
+    }
+  }
+}
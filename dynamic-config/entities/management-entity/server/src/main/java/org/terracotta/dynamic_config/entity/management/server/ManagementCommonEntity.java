@@ -20,8 +20,8 @@ import org.slf4j.LoggerFactory;
 import org.terracotta.dynamic_config.api.model.Cluster;
 import org.terracotta.dynamic_config.api.model.Node;
 import org.terracotta.dynamic_config.api.model.NodeContext;
+import org.terracotta.dynamic_config.api.model.Operation;
 import org.terracotta.dynamic_config.api.model.nomad.SettingNomadChange;
-import org.terracotta.dynamic_config.api.service.Props;
 import org.terracotta.dynamic_config.server.api.DynamicConfigEventService;
 import org.terracotta.dynamic_config.server.api.DynamicConfigListenerAdapter;
 import org.terracotta.dynamic_config.server.api.EventRegistration;
@@ -39,21 +39,25 @@ import org.terracotta.nomad.messages.PrepareMessage;
 import org.terracotta.nomad.messages.RollbackMessage;
 import org.terracotta.nomad.server.NomadChangeInfo;
 
-import java.io.IOException;
-import java.io.StringWriter;
-import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 public class ManagementCommonEntity implements CommonServerEntity<EntityMessage, EntityResponse> {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ManagementCommonEntity.class);
 
+  // maximum number of change summaries listed in a notification coalescing several setting changes
+  static final int MAX_LISTED_CHANGES = 20;
+
   final EntityManagementRegistry managementRegistry;
   final boolean active;
 
   private final DynamicConfigEventService dynamicConfigEventService;
+  private final ConfigurationSnapshots configurationSnapshots = new ConfigurationSnapshots();
   private volatile EventRegistration eventRegistration;
 
   public ManagementCommonEntity(EntityManagementRegistry managementRegistry, DynamicConfigEventService dynamicConfigEventService) {
@@ -95,29 +99,32 @@ public class ManagementCommonEntity implements CommonServerEntity<EntityMessage,
 
       Context source = Context.create("consumerId", String.valueOf(monitoringService.getConsumerId())).with("type", "DynamicConfig");
 
+      managementRegistry.addManagementProvider(new DynamicConfigManagementProvider());
+      managementRegistry.registerAndRefresh(configurationSnapshots);
+
       eventRegistration = dynamicConfigEventService.register(new DynamicConfigListenerAdapter() {
+
+        // setting changes applied by the same nomad commit, sent as one notification per operation when the commit completes
+        private final List<SettingChange> pendingChanges = new ArrayList<>();
+
         @Override
         public void onSettingChanged(SettingNomadChange change, Cluster updated) {
-          boolean restartRequired = !change.canApplyAtRuntime();
-          Map<String, String> data = new TreeMap<>();
-          data.put("change", change.toString());
-          data.put("result", topologyToConfig(updated));
-          data.put("appliedAtRuntime", String.valueOf(!restartRequired));
-          data.put("restartRequired", String.valueOf(restartRequired));
-          String type = "DYNAMIC_CONFIG_" + change.getOperation();
-          monitoringService.pushNotification(new ContextualNotification(source, type, data));
+          synchronized (pendingChanges) {
+            pendingChanges.add(new SettingChange(change, updated));
+          }
         }
 
         @Override
         public void onNewConfigurationSaved(NodeContext nodeContext, Long version) {
           Map<String, String> data = new TreeMap<>();
           data.put("version", String.valueOf(version));
-          data.put("upcomingConfig", topologyToConfig(nodeContext.getCluster()));
+          data.put("configRevision", String.valueOf(configurationSnapshots.add(nodeContext.getCluster())));
           monitoringService.pushNotification(new ContextualNotification(source, "DYNAMIC_CONFIG_SAVED", data));
         }
 
         @Override
         public void onNomadPrepare(PrepareMessage message, AcceptRejectResponse response) {
+          flushSettingChanges(null);
           Map<String, String> data = new TreeMap<>();
           data.put("changeSummary", message.getChange().getSummary());
           data.put("changeUuid", message.getChangeUuid().toString());
@@ -134,6 +141,7 @@ public class ManagementCommonEntity implements CommonServerEntity<EntityMessage,
 
         @Override
         public void onNomadCommit(CommitMessage message, AcceptRejectResponse response, NomadChangeInfo changeInfo) {
+          flushSettingChanges(changeInfo == null ? null : changeInfo.getVersion());
           Map<String, String> data = new TreeMap<>();
           data.put("changeUuid", message.getChangeUuid().toString());
           data.put("host", String.valueOf(message.getMutationHost()));
@@ -148,6 +156,7 @@ public class ManagementCommonEntity implements CommonServerEntity<EntityMessage,
 
         @Override
         public void onNomadRollback(RollbackMessage message, AcceptRejectResponse response) {
+          flushSettingChanges(null);
           Map<String, String> data = new TreeMap<>();
           data.put("changeUuid", message.getChangeUuid().toString());
           data.put("host", String.valueOf(message.getMutationHost()));
@@ -183,19 +192,50 @@ public class ManagementCommonEntity implements CommonServerEntity<EntityMessage,
           addedNode.getNodePublicAddress().ifPresent(addr -> data.put("nodePublicAddress", addr.toString()));
           monitoringService.pushNotification(new ContextualNotification(source, "DYNAMIC_CONFIG_NODE_ADDED", data));
         }
+
+        private void flushSettingChanges(Long version) {
+          Map<Operation, List<SettingChange>> byOperation = new LinkedHashMap<>();
+          synchronized (pendingChanges) {
+            for (SettingChange settingChange : pendingChanges) {
+              byOperation.computeIfAbsent(settingChange.change.getOperation(), op -> new ArrayList<>()).add(settingChange);
+            }
+            pendingChanges.clear();
+          }
+          byOperation.forEach((operation, changes) -> {
+            boolean restartRequired = changes.stream().anyMatch(c -> !c.change.canApplyAtRuntime());
+            Map<String, String> data = new TreeMap<>();
+            data.put("change", summarize(changes));
+            data.put("changeCount", String.valueOf(changes.size()));
+            data.put("configRevision", String.valueOf(configurationSnapshots.add(changes.get(changes.size() - 1).updated)));
+            if (version != null) {
+              data.put("version", String.valueOf(version));
+            }
+            data.put("appliedAtRuntime", String.valueOf(!restartRequired));
+            data.put("restartRequired", String.valueOf(restartRequired));
+            monitoringService.pushNotification(new ContextualNotification(source, "DYNAMIC_CONFIG_" + operation, data));
+          });
+        }
       });
 
       LOGGER.info("Activated management and monitoring for dynamic configuration");
     }
   }
 
-  private static String topologyToConfig(Cluster cluster) {
-    Properties properties = cluster.toProperties(false, true);
-    try (StringWriter out = new StringWriter()) {
-      Props.store(out, properties, "Configurations:");
-      return out.toString();
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
+  private static String summarize(List<SettingChange> changes) {
+    String summary = changes.stream()
+        .limit(MAX_LISTED_CHANGES)
+        .map(c -> c.change.toString())
+        .collect(Collectors.joining("\n"));
+    return changes.size() <= MAX_LISTED_CHANGES ? summary : summary + "\n... and " + (changes.size() - MAX_LISTED_CHANGES) + " more";
+  }
+
+  private static class SettingChange {
+    final SettingNomadChange change;
+    final Cluster updated;
+
+    SettingChange(SettingNomadChange change, Cluster updated) {
+      this.change = change;
+      this.updated = updated;
     }
   }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.entity.management.server;
+
+import org.junit.Test;
+import org.terracotta.dynamic_config.api.model.Cluster;
+import org.terracotta.dynamic_config.api.model.Node;
+import org.terracotta.dynamic_config.api.model.Stripe;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ConfigurationSnapshotsTest {
+
+  private final ConfigurationSnapshots snapshots = new ConfigurationSnapshots();
+
+  @Test
+  public void test_rendering_of_a_revision() {
+    Cluster cluster = Cluster.newDefaultCluster("foo", new Stripe(Node.newDefaultNode("node1", "localhost", 9410)));
+    long revision = snapshots.add(cluster);
+
+    // later changes to the topology do not affect the snapshot
+    cluster.setName("bar");
+
+    assertThat(snapshots.getLastRevision(), is(equalTo(revision)));
+    String configuration = snapshots.getConfiguration(revision);
+    assertThat(configuration, containsString("cluster-name=foo"));
+    assertThat(configuration, not(containsString("cluster-name=bar")));
+    assertThat(snapshots.getConfiguration(revision), is(equalTo(configuration)));
+  }
+
+  @Test
+  public void test_old_revisions_are_evicted() {
+    Cluster cluster = Cluster.newDefaultCluster("foo", new Stripe(Node.newDefaultNode("node1", "localhost", 9410)));
+    long first = snapshots.add(cluster);
+    for (int i = 0; i < ConfigurationSnapshots.MAX_REVISIONS; i++) {
+      snapshots.add(cluster);
+    }
+
+    assertThat(snapshots.getLastRevision(), is(equalTo(first + ConfigurationSnapshots.MAX_REVISIONS)));
+    assertThat(snapshots.getConfiguration(first + 1), containsString("cluster-name=foo"));
+    try {
+      snapshots.getConfiguration(first);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), containsString("not available"));
+    }
+  }
+}
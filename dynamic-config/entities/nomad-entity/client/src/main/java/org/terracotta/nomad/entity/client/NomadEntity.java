@@ -61,6 +61,7 @@ public interface NomadEntity<T> extends Entity, NomadServer<T> {
 
   class Settings {
     private Duration requestTimeout = Duration.ofSeconds(20);
+    private boolean binaryEncoding;
 
     public Duration getRequestTimeout() {
       return requestTimeout;
@@ -70,5 +71,18 @@ public interface NomadEntity<T> extends Entity, NomadServer<T> {
       this.requestTimeout = requestTimeout;
       return this;
     }
+
+    public boolean isBinaryEncoding() {
+      return binaryEncoding;
+    }
+
+    /**
+     * Sends the messages with the binary format of the nomad codec instead of JSON.
+     * Only servers which are able to decode this format must be targeted.
+     */
+    public Settings setBinaryEncoding(boolean binaryEncoding) {
+      this.binaryEncoding = binaryEncoding;
+      return this;
+    }
   }
 }
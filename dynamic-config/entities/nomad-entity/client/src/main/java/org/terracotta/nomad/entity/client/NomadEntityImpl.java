@@ -56,7 +56,7 @@ class NomadEntityImpl<T> implements NomadEntity<T> {
     Duration requestTimeout = settings.getRequestTimeout();
     try {
       InvocationBuilder<NomadEntityMessage, NomadEntityResponse> builder = endpoint.beginInvoke()
-          .message(new NomadEntityMessage(mutativeMessage))
+          .message(new NomadEntityMessage(mutativeMessage, settings.isBinaryEncoding()))
           .replicate(true)
           .ackRetired()
           .blockGetOnRetire(true);
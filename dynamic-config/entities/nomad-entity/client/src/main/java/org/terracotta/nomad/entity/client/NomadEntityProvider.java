@@ -31,17 +31,30 @@ import static java.util.Objects.requireNonNull;
 public class NomadEntityProvider {
   private final String connectionName;
   private final NomadEntity.Settings settings;
+  private final NomadEntity.Settings jsonSettings;
   private final Duration connectTimeout;
   private final String securityRootDirectory;
 
   public NomadEntityProvider(String connectionName, Duration connectTimeout, NomadEntity.Settings settings, String securityRootDirectory) {
     this.connectionName = requireNonNull(connectionName);
     this.settings = requireNonNull(settings);
+    this.jsonSettings = new NomadEntity.Settings().setRequestTimeout(settings.getRequestTimeout());
     this.connectTimeout = requireNonNull(connectTimeout);
     this.securityRootDirectory = securityRootDirectory;
   }
 
   public <T> NomadEntity<T> fetchNomadEntity(Collection<InetSocketAddress> addresses) throws ConnectionException {
+    return NomadEntityFactory.fetch(addresses, connectionName, connectTimeout, jsonSettings, securityRootDirectory);
+  }
+
+  /**
+   * Connects to the Nomad entity of a stripe, sending the messages with the binary format if it is enabled in the
+   * settings and if all the nodes of the stripe are known to decode it. Otherwise the messages are sent in JSON.
+   */
+  public <T> NomadEntity<T> fetchNomadEntity(Collection<InetSocketAddress> addresses, boolean binaryEncodingSupported) throws ConnectionException {
+    if (!binaryEncodingSupported || !settings.isBinaryEncoding()) {
+      return fetchNomadEntity(addresses);
+    }
     return NomadEntityFactory.fetch(addresses, connectionName, connectTimeout, settings, securityRootDirectory);
   }
 }
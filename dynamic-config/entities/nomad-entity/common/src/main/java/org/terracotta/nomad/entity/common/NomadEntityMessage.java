@@ -16,6 +16,7 @@
 package org.terracotta.nomad.entity.common;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.terracotta.entity.EntityMessage;
 import org.terracotta.nomad.messages.MutativeMessage;
@@ -28,16 +29,30 @@ import static java.util.Objects.requireNonNull;
 public class NomadEntityMessage implements EntityMessage {
 
   private final MutativeMessage nomadMessage;
+  private final boolean binary;
 
   @JsonCreator
   public NomadEntityMessage(@JsonProperty(value = "nomadMessage", required = true) MutativeMessage nomadMessage) {
+    this(nomadMessage, false);
+  }
+
+  public NomadEntityMessage(MutativeMessage nomadMessage, boolean binary) {
     this.nomadMessage = requireNonNull(nomadMessage);
+    this.binary = binary;
   }
 
   public MutativeMessage getNomadMessage() {
     return nomadMessage;
   }
 
+  /**
+   * @return true if this message is (or has to be) encoded with the binary format of {@link NomadMessageCodec}
+   */
+  @JsonIgnore
+  public boolean isBinary() {
+    return binary;
+  }
+
   @Override
   public String toString() {
     return nomadMessage.toString();
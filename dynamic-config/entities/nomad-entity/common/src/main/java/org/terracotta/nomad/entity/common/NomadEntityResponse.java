@@ -16,6 +16,7 @@
 package org.terracotta.nomad.entity.common;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.terracotta.entity.EntityResponse;
 import org.terracotta.nomad.messages.AcceptRejectResponse;
@@ -28,16 +29,30 @@ import static java.util.Objects.requireNonNull;
 public class NomadEntityResponse implements EntityResponse {
 
   private final AcceptRejectResponse response;
+  private final boolean binary;
 
   @JsonCreator
   public NomadEntityResponse(@JsonProperty(value = "response", required = true) AcceptRejectResponse response) {
+    this(response, false);
+  }
+
+  public NomadEntityResponse(AcceptRejectResponse response, boolean binary) {
     this.response = requireNonNull(response);
+    this.binary = binary;
   }
 
   public AcceptRejectResponse getResponse() {
     return response;
   }
 
+  /**
+   * @return true if this response is (or has to be) encoded with the binary format of {@link NomadMessageCodec}
+   */
+  @JsonIgnore
+  public boolean isBinary() {
+    return binary;
+  }
+
   @Override
   public String toString() {
     return response.toString();
@@ -15,27 +15,159 @@
  */
 package org.terracotta.nomad.entity.common;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.terracotta.common.struct.Measure;
+import org.terracotta.common.struct.MemoryUnit;
+import org.terracotta.common.struct.TimeUnit;
+import org.terracotta.common.struct.Unit;
 import org.terracotta.dynamic_config.api.json.DynamicConfigApiJsonModule;
+import org.terracotta.dynamic_config.api.model.Cluster;
+import org.terracotta.dynamic_config.api.model.FailoverPriority;
+import org.terracotta.dynamic_config.api.model.Node;
+import org.terracotta.dynamic_config.api.model.Stripe;
+import org.terracotta.dynamic_config.api.model.nomad.ClusterActivationNomadChange;
 import org.terracotta.entity.MessageCodec;
 import org.terracotta.entity.MessageCodecException;
 import org.terracotta.json.ObjectMapperFactory;
+import org.terracotta.nomad.client.change.NomadChange;
+import org.terracotta.nomad.messages.AcceptRejectResponse;
+import org.terracotta.nomad.messages.CommitMessage;
+import org.terracotta.nomad.messages.MutativeMessage;
+import org.terracotta.nomad.messages.PrepareMessage;
+import org.terracotta.nomad.messages.RejectionReason;
+import org.terracotta.nomad.messages.RollbackMessage;
+import org.terracotta.nomad.messages.TakeoverMessage;
+import org.terracotta.runnel.Struct;
+import org.terracotta.runnel.decoding.StructArrayDecoder;
+import org.terracotta.runnel.decoding.StructDecoder;
+import org.terracotta.runnel.encoding.StructEncoder;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.terracotta.runnel.EnumMappingBuilder.newEnumMappingBuilder;
+import static org.terracotta.runnel.StructBuilder.newStructBuilder;
 
 /**
- * @author Mathieu Carbou
+ * Encodes the nomad messages and responses with a runnel schema.
+ * <p>
+ * The {@link NomadChange} carried by a {@link PrepareMessage} is written in JSON, because the changes are polymorphic and
+ * their JSON mapping is shared with the configuration repository. The exception is the {@link ClusterActivationNomadChange},
+ * which carries the whole cluster topology and is the biggest change: its cluster is encoded with the runnel schema.
+ * <p>
+ * Binary payloads are prefixed with {@link #BINARY} so that JSON payloads (starting with <code>{</code>) can still be
+ * decoded. The format of a payload is detected when decoding it and recorded on the decoded message or response, and
+ * each message or response is encoded in the format it carries: servers reply in the format of the request, so clients
+ * which only understand JSON keep getting JSON responses.
  */
 public class NomadMessageCodec implements MessageCodec<NomadEntityMessage, NomadEntityResponse> {
 
+  static final byte BINARY = 1;
+
+  private enum MessageType {PREPARE, COMMIT, ROLLBACK, TAKEOVER}
+
+  private static final Struct ENTRY_STRUCT = newStructBuilder()
+      .string("key", 10)
+      .string("value", 20)
+      .build();
+
+  private static final Struct MEASURE_STRUCT = newStructBuilder()
+      .byteBuffer("quantity", 10)
+      .string("unit", 20)
+      .build();
+
+  private static final Struct OFFHEAP_RESOURCE_STRUCT = newStructBuilder()
+      .string("name", 10)
+      .struct("measure", 20, MEASURE_STRUCT)
+      .build();
+
+  private static final Struct NODE_STRUCT = newStructBuilder()
+      .string("name", 10)
+      .string("hostname", 20)
+      .string("publicHostname", 30)
+      .int32("port", 40)
+      .int32("publicPort", 50)
+      .int32("groupPort", 60)
+      .string("bindAddress", 70)
+      .string("groupBindAddress", 80)
+      .string("metadataDir", 90)
+      .string("logDir", 100)
+      .string("backupDir", 110)
+      .string("securityDir", 120)
+      .string("securityAuditLogDir", 130)
+      .structs("tcProperties", 140, ENTRY_STRUCT)
+      .structs("loggerOverrides", 150, ENTRY_STRUCT)
+      .structs("dataDirs", 160, ENTRY_STRUCT)
+      .build();
+
+  private static final Struct STRIPE_STRUCT = newStructBuilder()
+      .structs("nodes", 10, NODE_STRUCT)
+      .build();
+
+  private static final Struct CLUSTER_STRUCT = newStructBuilder()
+      .string("name", 10)
+      .struct("clientReconnectWindow", 20, MEASURE_STRUCT)
+      .struct("clientLeaseDuration", 30, MEASURE_STRUCT)
+      .string("securityAuthc", 40)
+      .bool("securitySslTls", 50)
+      .bool("securityWhitelist", 60)
+      .string("failoverPriority", 70)
+      .structs("offheapResources", 80, OFFHEAP_RESOURCE_STRUCT)
+      .structs("stripes", 90, STRIPE_STRUCT)
+      .build();
+
+  private static final Struct MESSAGE_STRUCT = newStructBuilder()
+      .enm("type", 10, newEnumMappingBuilder(MessageType.class)
+          .mapping(MessageType.PREPARE, 1)
+          .mapping(MessageType.COMMIT, 2)
+          .mapping(MessageType.ROLLBACK, 3)
+          .mapping(MessageType.TAKEOVER, 4)
+          .build())
+      .int64("expectedMutativeMessageCount", 20)
+      .string("mutationHost", 30)
+      .string("mutationUser", 40)
+      .int64("mutationTimestampSeconds", 50)
+      .int32("mutationTimestampNanos", 51)
+      .int64("changeUuidMsb", 60)
+      .int64("changeUuidLsb", 61)
+      .int64("versionNumber", 70)
+      .byteBuffer("change", 80)
+      .struct("clusterActivation", 90, CLUSTER_STRUCT)
+      .build();
+
+  private static final Struct RESPONSE_STRUCT = newStructBuilder()
+      .bool("accepted", 10)
+      .enm("rejectionReason", 20, newEnumMappingBuilder(RejectionReason.class)
+          .mapping(RejectionReason.UNACCEPTABLE, 1)
+          .mapping(RejectionReason.DEAD, 2)
+          .mapping(RejectionReason.BAD, 3)
+          .build())
+      .string("rejectionMessage", 30)
+      .string("lastMutationHost", 40)
+      .string("lastMutationUser", 50)
+      .build();
+
   private final ObjectMapper objectMapper = new ObjectMapperFactory().withModule(new DynamicConfigApiJsonModule()).create();
+  private final ObjectWriter changeWriter = objectMapper.writerFor(NomadChange.class);
+  private final ObjectReader changeReader = objectMapper.readerFor(NomadChange.class);
 
   @Override
   public byte[] encodeMessage(NomadEntityMessage message) throws MessageCodecException {
     try {
-      return objectMapper.writeValueAsString(message).getBytes(UTF_8);
-    } catch (RuntimeException | JsonProcessingException e) {
+      return message.isBinary() ? encodeBinaryMessage(message.getNomadMessage()) : objectMapper.writeValueAsBytes(message);
+    } catch (RuntimeException | IOException e) {
       throw new MessageCodecException(e.getMessage(), e);
     }
   }
@@ -43,8 +175,8 @@ public class NomadMessageCodec implements MessageCodec<NomadEntityMessage, Nomad
   @Override
   public NomadEntityMessage decodeMessage(byte[] payload) throws MessageCodecException {
     try {
-      return objectMapper.readValue(new String(payload, UTF_8), NomadEntityMessage.class);
-    } catch (RuntimeException | JsonProcessingException e) {
+      return isBinary(payload) ? new NomadEntityMessage(decodeBinaryMessage(payload), true) : objectMapper.readValue(payload, NomadEntityMessage.class);
+    } catch (RuntimeException | IOException e) {
       throw new MessageCodecException(e.getMessage(), e);
     }
   }
@@ -52,8 +184,8 @@ public class NomadMessageCodec implements MessageCodec<NomadEntityMessage, Nomad
   @Override
   public byte[] encodeResponse(NomadEntityResponse response) throws MessageCodecException {
     try {
-      return objectMapper.writeValueAsString(response).getBytes(UTF_8);
-    } catch (RuntimeException | JsonProcessingException e) {
+      return response.isBinary() ? encodeBinaryResponse(response.getResponse()) : objectMapper.writeValueAsBytes(response);
+    } catch (RuntimeException | IOException e) {
       throw new MessageCodecException(e.getMessage(), e);
     }
   }
@@ -61,9 +193,263 @@ public class NomadMessageCodec implements MessageCodec<NomadEntityMessage, Nomad
   @Override
   public NomadEntityResponse decodeResponse(byte[] payload) throws MessageCodecException {
     try {
-      return objectMapper.readValue(new String(payload, UTF_8), NomadEntityResponse.class);
-    } catch (RuntimeException | JsonProcessingException e) {
+      return isBinary(payload) ? new NomadEntityResponse(decodeBinaryResponse(payload), true) : objectMapper.readValue(payload, NomadEntityResponse.class);
+    } catch (RuntimeException | IOException e) {
       throw new MessageCodecException(e.getMessage(), e);
     }
   }
+
+  private byte[] encodeBinaryMessage(MutativeMessage message) throws IOException {
+    StructEncoder<Void> encoder = MESSAGE_STRUCT.encoder();
+    UUID changeUuid = null;
+    if (message instanceof PrepareMessage) {
+      encoder.enm("type", MessageType.PREPARE);
+      changeUuid = ((PrepareMessage) message).getChangeUuid();
+    } else if (message instanceof CommitMessage) {
+      encoder.enm("type", MessageType.COMMIT);
+      changeUuid = ((CommitMessage) message).getChangeUuid();
+    } else if (message instanceof RollbackMessage) {
+      encoder.enm("type", MessageType.ROLLBACK);
+      changeUuid = ((RollbackMessage) message).getChangeUuid();
+    } else if (message instanceof TakeoverMessage) {
+      encoder.enm("type", MessageType.TAKEOVER);
+    } else {
+      throw new IllegalArgumentException("Unsupported message: " + message.getClass().getName());
+    }
+
+    encoder.int64("expectedMutativeMessageCount", message.getExpectedMutativeMessageCount())
+        .string("mutationHost", message.getMutationHost())
+        .string("mutationUser", message.getMutationUser());
+    Instant timestamp = message.getMutationTimestamp();
+    if (timestamp != null) {
+      encoder.int64("mutationTimestampSeconds", timestamp.getEpochSecond())
+          .int32("mutationTimestampNanos", timestamp.getNano());
+    }
+    if (changeUuid != null) {
+      encoder.int64("changeUuidMsb", changeUuid.getMostSignificantBits())
+          .int64("changeUuidLsb", changeUuid.getLeastSignificantBits());
+    }
+    if (message instanceof PrepareMessage) {
+      PrepareMessage prepareMessage = (PrepareMessage) message;
+      encoder.int64("versionNumber", prepareMessage.getVersionNumber());
+      if (prepareMessage.getChange() instanceof ClusterActivationNomadChange) {
+        encoder.struct("clusterActivation", ((ClusterActivationNomadChange) prepareMessage.getChange()).getCluster(), NomadMessageCodec::encodeCluster);
+      } else if (prepareMessage.getChange() != null) {
+        encoder.byteBuffer("change", ByteBuffer.wrap(changeWriter.writeValueAsBytes(prepareMessage.getChange())));
+      }
+    }
+    return withMarker(encoder.encode());
+  }
+
+  private MutativeMessage decodeBinaryMessage(byte[] payload) throws IOException {
+    StructDecoder<Void> decoder = MESSAGE_STRUCT.decoder(ByteBuffer.wrap(payload, 1, payload.length - 1).slice());
+    MessageType type = decoder.<MessageType>enm("type").get();
+    long expectedMutativeMessageCount = decoder.int64("expectedMutativeMessageCount");
+    String mutationHost = decoder.string("mutationHost");
+    String mutationUser = decoder.string("mutationUser");
+    Long seconds = decoder.int64("mutationTimestampSeconds");
+    Integer nanos = decoder.int32("mutationTimestampNanos");
+    Instant mutationTimestamp = seconds == null ? null : Instant.ofEpochSecond(seconds, nanos == null ? 0 : nanos);
+    Long msb = decoder.int64("changeUuidMsb");
+    Long lsb = decoder.int64("changeUuidLsb");
+    UUID changeUuid = msb == null || lsb == null ? null : new UUID(msb, lsb);
+
+    switch (type) {
+      case PREPARE: {
+        long versionNumber = decoder.int64("versionNumber");
+        ByteBuffer change = decoder.byteBuffer("change");
+        StructDecoder<StructDecoder<Void>> clusterActivation = decoder.struct("clusterActivation");
+        return new PrepareMessage(expectedMutativeMessageCount, mutationHost, mutationUser, mutationTimestamp, changeUuid, versionNumber,
+            change != null ? readChange(change) : clusterActivation != null ? new ClusterActivationNomadChange(decodeCluster(clusterActivation)) : null);
+      }
+      case COMMIT:
+        return new CommitMessage(expectedMutativeMessageCount, mutationHost, mutationUser, mutationTimestamp, changeUuid);
+      case ROLLBACK:
+        return new RollbackMessage(expectedMutativeMessageCount, mutationHost, mutationUser, mutationTimestamp, changeUuid);
+      case TAKEOVER:
+        return new TakeoverMessage(expectedMutativeMessageCount, mutationHost, mutationUser, mutationTimestamp);
+      default:
+        throw new AssertionError(type);
+    }
+  }
+
+  private NomadChange readChange(ByteBuffer change) throws IOException {
+    if (change.hasArray()) {
+      return changeReader.readValue(change.array(), change.arrayOffset() + change.position(), change.remaining());
+    }
+    byte[] bytes = new byte[change.remaining()];
+    change.get(bytes);
+    return changeReader.readValue(bytes);
+  }
+
+  private static void encodeCluster(StructEncoder<?> encoder, Cluster cluster) {
+    encoder.string("name", cluster.getName());
+    if (cluster.getClientReconnectWindow() != null) {
+      encoder.struct("clientReconnectWindow", cluster.getClientReconnectWindow(), NomadMessageCodec::encodeMeasure);
+    }
+    if (cluster.getClientLeaseDuration() != null) {
+      encoder.struct("clientLeaseDuration", cluster.getClientLeaseDuration(), NomadMessageCodec::encodeMeasure);
+    }
+    encoder.string("securityAuthc", cluster.getSecurityAuthc())
+        .bool("securitySslTls", cluster.isSecuritySslTls())
+        .bool("securityWhitelist", cluster.isSecurityWhitelist())
+        .string("failoverPriority", cluster.getFailoverPriority() == null ? null : cluster.getFailoverPriority().toString())
+        .structs("offheapResources", cluster.getOffheapResources().entrySet(), (e, resource) -> e
+            .string("name", resource.getKey())
+            .struct("measure", resource.getValue(), NomadMessageCodec::encodeMeasure))
+        .structs("stripes", cluster.getStripes(), (e, stripe) -> e
+            .structs("nodes", stripe.getNodes(), NomadMessageCodec::encodeNode));
+  }
+
+  private static void encodeNode(StructEncoder<?> encoder, Node node) {
+    encoder.string("name", node.getNodeName())
+        .string("hostname", node.getNodeHostname())
+        .string("publicHostname", node.getNodePublicHostname())
+        .int32("port", node.getNodePort());
+    if (node.getNodePublicPort() != null) {
+      encoder.int32("publicPort", node.getNodePublicPort());
+    }
+    encoder.int32("groupPort", node.getNodeGroupPort())
+        .string("bindAddress", node.getNodeBindAddress())
+        .string("groupBindAddress", node.getNodeGroupBindAddress())
+        .string("metadataDir", toString(node.getNodeMetadataDir()))
+        .string("logDir", toString(node.getNodeLogDir()))
+        .string("backupDir", toString(node.getNodeBackupDir()))
+        .string("securityDir", toString(node.getSecurityDir()))
+        .string("securityAuditLogDir", toString(node.getSecurityAuditLogDir()))
+        .structs("tcProperties", node.getTcProperties().entrySet(), NomadMessageCodec::encodeEntry)
+        .structs("loggerOverrides", node.getNodeLoggerOverrides().entrySet(), NomadMessageCodec::encodeEntry)
+        .structs("dataDirs", node.getDataDirs().entrySet(), (e, dataDir) -> e
+            .string("key", dataDir.getKey())
+            .string("value", dataDir.getValue().toString()));
+  }
+
+  private static void encodeEntry(StructEncoder<?> encoder, Map.Entry<String, String> entry) {
+    encoder.string("key", entry.getKey())
+        .string("value", entry.getValue());
+  }
+
+  private static void encodeMeasure(StructEncoder<?> encoder, Measure<?> measure) {
+    encoder.byteBuffer("quantity", ByteBuffer.wrap(measure.getExactQuantity().toByteArray()))
+        .string("unit", measure.getUnit().name());
+  }
+
+  private static Cluster decodeCluster(StructDecoder<?> decoder) {
+    String name = decoder.string("name");
+    Measure<TimeUnit> clientReconnectWindow = decodeMeasure(decoder.struct("clientReconnectWindow"), TimeUnit.class);
+    Measure<TimeUnit> clientLeaseDuration = decodeMeasure(decoder.struct("clientLeaseDuration"), TimeUnit.class);
+    String securityAuthc = decoder.string("securityAuthc");
+    Boolean securitySslTls = decoder.bool("securitySslTls");
+    Boolean securityWhitelist = decoder.bool("securityWhitelist");
+    String failoverPriority = decoder.string("failoverPriority");
+
+    Cluster cluster = Cluster.newCluster()
+        .setName(name)
+        .setClientReconnectWindow(clientReconnectWindow)
+        .setClientLeaseDuration(clientLeaseDuration)
+        .setSecurityAuthc(securityAuthc)
+        .setSecuritySslTls(securitySslTls)
+        .setSecurityWhitelist(securityWhitelist)
+        .setFailoverPriority(failoverPriority == null ? null : FailoverPriority.valueOf(failoverPriority));
+    decodeEach(decoder.structs("offheapResources"), resource -> cluster.setOffheapResource(
+        resource.string("name"),
+        decodeMeasure(resource.struct("measure"), MemoryUnit.class)));
+    decodeEach(decoder.structs("stripes"), stripe -> {
+      List<Node> nodes = new ArrayList<>();
+      decodeEach(stripe.structs("nodes"), node -> nodes.add(decodeNode(node)));
+      cluster.addStripe(new Stripe(nodes));
+    });
+    return cluster;
+  }
+
+  private static Node decodeNode(StructDecoder<?> decoder) {
+    Node node = Node.empty()
+        .setNodeName(decoder.string("name"))
+        .setNodeHostname(decoder.string("hostname"))
+        .setNodePublicHostname(decoder.string("publicHostname"))
+        .setNodePort(decoder.int32("port"))
+        .setNodePublicPort(decoder.int32("publicPort"))
+        .setNodeGroupPort(decoder.int32("groupPort"))
+        .setNodeBindAddress(decoder.string("bindAddress"))
+        .setNodeGroupBindAddress(decoder.string("groupBindAddress"))
+        .setNodeMetadataDir(toPath(decoder.string("metadataDir")))
+        .setNodeLogDir(toPath(decoder.string("logDir")))
+        .setNodeBackupDir(toPath(decoder.string("backupDir")))
+        .setSecurityDir(toPath(decoder.string("securityDir")))
+        .setSecurityAuditLogDir(toPath(decoder.string("securityAuditLogDir")));
+    decodeEntries(decoder.structs("tcProperties"), node::setTcProperty);
+    decodeEntries(decoder.structs("loggerOverrides"), node::setNodeLoggerOverride);
+    decodeEntries(decoder.structs("dataDirs"), (name, path) -> node.setDataDir(name, Paths.get(path)));
+    return node;
+  }
+
+  private static void decodeEntries(StructArrayDecoder<?> decoder, BiConsumer<String, String> consumer) {
+    decodeEach(decoder, entry -> consumer.accept(entry.string("key"), entry.string("value")));
+  }
+
+  private static <U extends Enum<U> & Unit<U>> Measure<U> decodeMeasure(StructDecoder<?> decoder, Class<U> unitType) {
+    if (decoder == null) {
+      return null;
+    }
+    ByteBuffer quantity = decoder.byteBuffer("quantity");
+    byte[] bytes = new byte[quantity.remaining()];
+    quantity.get(bytes);
+    Measure<U> measure = Measure.of(new BigInteger(bytes), Enum.valueOf(unitType, decoder.string("unit")));
+    decoder.end();
+    return measure;
+  }
+
+  private static void decodeEach(StructArrayDecoder<?> decoder, Consumer<StructDecoder<?>> consumer) {
+    if (decoder == null) {
+      return;
+    }
+    while (decoder.hasNext()) {
+      consumer.accept(decoder.next());
+    }
+    decoder.end();
+  }
+
+  private static String toString(Path path) {
+    return path == null ? null : path.toString();
+  }
+
+  private static Path toPath(String path) {
+    return path == null ? null : Paths.get(path);
+  }
+
+  private static byte[] encodeBinaryResponse(AcceptRejectResponse response) {
+    StructEncoder<Void> encoder = RESPONSE_STRUCT.encoder()
+        .bool("accepted", response.isAccepted());
+    if (response.getRejectionReason() != null) {
+      encoder.enm("rejectionReason", response.getRejectionReason());
+    }
+    encoder.string("rejectionMessage", response.getRejectionMessage())
+        .string("lastMutationHost", response.getLastMutationHost())
+        .string("lastMutationUser", response.getLastMutationUser());
+    return withMarker(encoder.encode());
+  }
+
+  private static AcceptRejectResponse decodeBinaryResponse(byte[] payload) {
+    StructDecoder<Void> decoder = RESPONSE_STRUCT.decoder(ByteBuffer.wrap(payload, 1, payload.length - 1).slice());
+    if (decoder.bool("accepted")) {
+      return AcceptRejectResponse.accept();
+    }
+    RejectionReason rejectionReason = decoder.<RejectionReason>enm("rejectionReason").get();
+    return AcceptRejectResponse.reject(rejectionReason,
+        decoder.string("rejectionMessage"),
+        decoder.string("lastMutationHost"),
+        decoder.string("lastMutationUser"));
+  }
+
+  private static boolean isBinary(byte[] payload) {
+    return payload.length > 0 && payload[0] == BINARY;
+  }
+
+  private static byte[] withMarker(ByteBuffer encoded) {
+    byte[] array = encoded.array();
+    byte[] bytes = new byte[array.length + 1];
+    bytes[0] = BINARY;
+    System.arraycopy(array, 0, bytes, 1, array.length);
+    return bytes;
+  }
 }
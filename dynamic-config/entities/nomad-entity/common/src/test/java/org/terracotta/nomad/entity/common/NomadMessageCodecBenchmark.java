@@ -0,0 +1,95 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.nomad.entity.common;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.common.struct.MemoryUnit;
+import org.terracotta.dynamic_config.api.model.Cluster;
+import org.terracotta.dynamic_config.api.model.Node;
+import org.terracotta.dynamic_config.api.model.Stripe;
+import org.terracotta.dynamic_config.api.model.nomad.ClusterActivationNomadChange;
+import org.terracotta.nomad.messages.AcceptRejectResponse;
+import org.terracotta.nomad.messages.CommitMessage;
+import org.terracotta.nomad.messages.MutativeMessage;
+import org.terracotta.nomad.messages.PrepareMessage;
+import org.terracotta.testing.MicroBenchmark;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.terracotta.nomad.messages.RejectionReason.UNACCEPTABLE;
+
+/**
+ * Compares the size and the encoding / decoding time of the nomad messages and responses
+ * with the JSON and the binary formats of {@link NomadMessageCodec}.
+ */
+@RunWith(JUnit4.class)
+public class NomadMessageCodecBenchmark {
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  private final NomadMessageCodec codec = new NomadMessageCodec();
+
+  @Test
+  public void messages() throws Exception {
+    Instant now = Instant.now();
+    UUID uuid = UUID.randomUUID();
+    for (int stripes : new int[]{1, 4, 16}) {
+      measure("prepare (" + stripes + " stripes)", new PrepareMessage(1, "host", "user", now, uuid, 1, new ClusterActivationNomadChange(createCluster(stripes, 2))));
+    }
+    measure("commit", new CommitMessage(1, "host", "user", now, uuid));
+  }
+
+  @Test
+  public void responses() throws Exception {
+    AcceptRejectResponse response = AcceptRejectResponse.reject(UNACCEPTABLE, "Error when applying setting change", "host", "user");
+    for (boolean binary : new boolean[]{false, true}) {
+      String name = "rejection - " + (binary ? "binary" : "json");
+      NomadEntityResponse entityResponse = new NomadEntityResponse(response, binary);
+      byte[] bytes = codec.encodeResponse(entityResponse);
+      benchmark.record(name + " size", bytes.length + " bytes");
+      benchmark.measure(name + " encode", () -> codec.encodeResponse(entityResponse));
+      benchmark.measure(name + " decode", () -> codec.decodeResponse(bytes));
+    }
+  }
+
+  private void measure(String name, MutativeMessage message) throws Exception {
+    for (boolean binary : new boolean[]{false, true}) {
+      String label = name + " - " + (binary ? "binary" : "json");
+      NomadEntityMessage entityMessage = new NomadEntityMessage(message, binary);
+      byte[] bytes = codec.encodeMessage(entityMessage);
+      benchmark.record(label + " size", bytes.length + " bytes");
+      benchmark.measure(label + " encode", () -> codec.encodeMessage(entityMessage));
+      benchmark.measure(label + " decode", () -> codec.decodeMessage(bytes));
+    }
+  }
+
+  private static Cluster createCluster(int stripes, int nodesPerStripe) {
+    Cluster cluster = Cluster.newDefaultCluster("my-cluster").setOffheapResource("main", 512, MemoryUnit.MB);
+    for (int s = 0; s < stripes; s++) {
+      Stripe stripe = new Stripe();
+      for (int n = 0; n < nodesPerStripe; n++) {
+        stripe.addNode(Node.newDefaultNode("node-" + s + "-" + n, "host-" + s + "-" + n, 9410));
+      }
+      cluster.addStripe(stripe);
+    }
+    return cluster;
+  }
+}
@@ -61,7 +61,8 @@ public class NomadActiveServerEntity<T> extends NomadCommonServerEntity<T> imple
     try {
       MutativeMessage nomadMessage = message.getNomadMessage();
       AcceptRejectResponse response = processMessage(nomadMessage);
-      return new NomadEntityResponse(response);
+      // reply in the format of the request, which older clients are able to decode
+      return new NomadEntityResponse(response, message.isBinary());
     } catch (NomadException | RuntimeException e) {
       logger.error("Failure happened while processing Nomad message: {}: {}", message, e.getMessage(), e);
       throw new EntityUserException(e.getMessage(), e);
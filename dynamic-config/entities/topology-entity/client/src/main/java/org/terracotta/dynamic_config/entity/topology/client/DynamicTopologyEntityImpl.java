@@ -36,6 +36,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import static org.terracotta.dynamic_config.entity.topology.common.Codec.NO_VERSION;
 import static org.terracotta.dynamic_config.entity.topology.common.Type.REQ_HAS_INCOMPLETE_CHANGE;
 import static org.terracotta.dynamic_config.entity.topology.common.Type.REQ_LICENSE;
 import static org.terracotta.dynamic_config.entity.topology.common.Type.REQ_MUST_BE_RESTARTED;
@@ -53,6 +54,14 @@ class DynamicTopologyEntityImpl implements DynamicTopologyEntity {
 
   private volatile Listener listener = new Listener() {};
 
+  // last clusters received, with the server version they were read at
+  private volatile VersionedCluster runtimeCluster;
+  private volatile VersionedCluster upcomingCluster;
+
+  // cluster of the last setting change event: next events only carry the configuration to apply on it
+  // (only updated from the endpoint delegate)
+  private volatile VersionedCluster eventCluster;
+
   public DynamicTopologyEntityImpl(EntityClientEndpoint<Message, Response> endpoint, Settings settings) {
     this.endpoint = endpoint;
     this.settings = settings == null ? new Settings() : settings;
@@ -73,7 +82,27 @@ class DynamicTopologyEntityImpl implements DynamicTopologyEntity {
           }
           case EVENT_SETTING_CHANGED: {
             List<Object> payload = messageFromServer.getPayload();
-            listener.onSettingChange((Configuration) payload.get(0), (Cluster) payload.get(1));
+            if (payload.size() == 2) {
+              // sent by an older server, or before this client was known to handle versions: no delta can follow
+              eventCluster = null;
+              Cluster cluster = (Cluster) payload.get(1);
+              listener.onSettingChange((Configuration) payload.get(0), cluster);
+              break;
+            }
+            long version = (Long) payload.get(0);
+            Configuration configuration = (Configuration) payload.get(1);
+            long baseVersion = (Long) payload.get(2);
+            Cluster cluster = (Cluster) payload.get(3);
+            if (cluster == null) {
+              VersionedCluster base = eventCluster;
+              if (base == null || base.version != baseVersion) {
+                throw new AssertionError("Received a change for topology version " + baseVersion + " but holding: " + (base == null ? null : base.version));
+              }
+              cluster = base.cluster.clone();
+              configuration.apply(cluster);
+            }
+            eventCluster = new VersionedCluster(version, cluster);
+            listener.onSettingChange(configuration, cluster.clone());
             break;
           }
           default:
@@ -83,6 +112,10 @@ class DynamicTopologyEntityImpl implements DynamicTopologyEntity {
 
       @Override
       public byte[] createExtendedReconnectData() {
+        // the server we reconnect to might not be the same: drop everything we have cached
+        runtimeCluster = null;
+        upcomingCluster = null;
+        eventCluster = null;
         return new byte[0];
       }
 
@@ -105,12 +138,22 @@ class DynamicTopologyEntityImpl implements DynamicTopologyEntity {
 
   @Override
   public Cluster getUpcomingCluster() throws TimeoutException, InterruptedException {
-    return request(REQ_UPCOMING_CLUSTER, Cluster.class);
+    VersionedCluster cached = upcomingCluster;
+    VersionedCluster fetched = requestCluster(REQ_UPCOMING_CLUSTER, cached);
+    if (fetched != cached) {
+      upcomingCluster = fetched;
+    }
+    return fetched.cluster.clone();
   }
 
   @Override
   public Cluster getRuntimeCluster() throws TimeoutException, InterruptedException {
-    return request(REQ_RUNTIME_CLUSTER, Cluster.class);
+    VersionedCluster cached = runtimeCluster;
+    VersionedCluster fetched = requestCluster(REQ_RUNTIME_CLUSTER, cached);
+    if (fetched != cached) {
+      runtimeCluster = fetched;
+    }
+    return fetched.cluster.clone();
   }
 
   @Override
@@ -134,11 +177,35 @@ class DynamicTopologyEntityImpl implements DynamicTopologyEntity {
   }
 
   public <T> T request(Type messageType, Class<T> type) throws TimeoutException, InterruptedException {
-    LOGGER.trace("request({})", messageType);
+    return request(new Message(messageType), type);
+  }
+
+  /**
+   * @return the cached cluster if the server says it is still current, otherwise the new one
+   */
+  private VersionedCluster requestCluster(Type messageType, VersionedCluster cached) throws TimeoutException, InterruptedException {
+    Object response = request(new Message(messageType, cached == null ? NO_VERSION : cached.version), Object.class);
+    if (response instanceof Cluster) {
+      // an older server always sends the whole cluster, without any version
+      return new VersionedCluster(NO_VERSION, (Cluster) response);
+    }
+    List<?> payload = (List<?>) response;
+    Cluster cluster = (Cluster) payload.get(1);
+    if (cluster == null) {
+      if (cached == null) {
+        throw new AssertionError("No cluster received for: " + messageType);
+      }
+      return cached;
+    }
+    return new VersionedCluster((Long) payload.get(0), cluster);
+  }
+
+  private <T> T request(Message message, Class<T> type) throws TimeoutException, InterruptedException {
+    LOGGER.trace("request({})", message);
     Duration requestTimeout = settings.getRequestTimeout();
     try {
       InvokeFuture<Response> invoke = endpoint.beginInvoke()
-          .message(new Message(messageType))
+          .message(message)
           .invoke();
       Response response = (requestTimeout == null ? invoke.get() : invoke.getWithTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS));
       LOGGER.trace("response({})", response);
@@ -147,4 +214,14 @@ class DynamicTopologyEntityImpl implements DynamicTopologyEntity {
       throw new AssertionError(e); // programming error
     }
   }
+
+  private static class VersionedCluster {
+    private final long version;
+    private final Cluster cluster;
+
+    private VersionedCluster(long version, Cluster cluster) {
+      this.version = version;
+      this.cluster = cluster;
+    }
+  }
 }
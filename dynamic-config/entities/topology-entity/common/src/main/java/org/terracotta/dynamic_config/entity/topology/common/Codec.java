@@ -27,6 +27,7 @@ import org.terracotta.entity.MessageCodecException;
 import org.terracotta.runnel.Struct;
 import org.terracotta.runnel.decoding.StructDecoder;
 import org.terracotta.runnel.encoding.StructEncoder;
+import org.terracotta.runnel.encoding.StructEncoderFunction;
 
 import java.nio.ByteBuffer;
 import java.time.LocalDate;
@@ -35,6 +36,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Properties;
 
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
@@ -50,12 +52,36 @@ import static org.terracotta.runnel.EnumMappingBuilder.newEnumMappingBuilder;
 import static org.terracotta.runnel.StructBuilder.newStructBuilder;
 
 /**
- * @author Mathieu Carbou
+ * Encodes the messages of both the clients knowing about topology versions and the older ones.
+ * <p>
+ * Older clients do not send any version in their messages, and expect the original payloads: a {@link Cluster} for the
+ * cluster requests, and a [configuration, cluster] list for the setting change events. The payloads with versions are
+ * [version, cluster or null] lists for the cluster requests, and [version, configuration, base version, cluster or null]
+ * lists for the setting change events. Each kind of payload has its own fields, so that older clients keep decoding the
+ * payloads they know. Newer clients decode both kinds, so that they can also connect to older servers.
  */
 public class Codec implements MessageCodec<Message, Response> {
 
   private static final DateTimeFormatter DT_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd", Locale.ENGLISH);
 
+  /**
+   * Version sent by a client which does not hold any topology yet
+   */
+  public static final long NO_VERSION = -1L;
+
+  // a cluster is sent as its list of properties, so that clients do not have to parse a properties file
+  private final Struct clusterStruct = newStructBuilder()
+      .structs("properties", 10, newStructBuilder()
+          .string("key", 10)
+          .string("value", 20)
+          .build())
+      .build();
+
+  private final Struct versionedClusterStruct = newStructBuilder()
+      .int64("version", 10)
+      .struct("cluster", 20, clusterStruct)
+      .build();
+
   private final Struct struct = newStructBuilder()
       .enm("type", 10, newEnumMappingBuilder(Type.class)
           .mapping(REQ_LICENSE, 1)
@@ -67,6 +93,7 @@ public class Codec implements MessageCodec<Message, Response> {
           .mapping(EVENT_NODE_REMOVAL, 7)
           .mapping(EVENT_SETTING_CHANGED, 8)
           .build())
+      .int64("version", 15)
       .struct(REQ_LICENSE.name(), 20, newStructBuilder()
           .string("date", 10)
           .structs("limits", 20, newStructBuilder()
@@ -77,7 +104,9 @@ public class Codec implements MessageCodec<Message, Response> {
       .bool(REQ_HAS_INCOMPLETE_CHANGE.name(), 30)
       .bool(REQ_MUST_BE_RESTARTED.name(), 40)
       .string(REQ_RUNTIME_CLUSTER.name(), 50)
+      .struct(REQ_RUNTIME_CLUSTER.name() + "_VERSIONED", 51, versionedClusterStruct)
       .string(REQ_UPCOMING_CLUSTER.name(), 60)
+      .struct(REQ_UPCOMING_CLUSTER.name() + "_VERSIONED", 61, versionedClusterStruct)
       .struct(EVENT_NODE_ADDITION.name(), 70, newStructBuilder()
           .int32("stripeId", 10)
           .string("node", 20)
@@ -90,15 +119,23 @@ public class Codec implements MessageCodec<Message, Response> {
           .string("configuration", 10)
           .string("cluster", 20)
           .build())
+      .struct(EVENT_SETTING_CHANGED.name() + "_VERSIONED", 91, newStructBuilder()
+          .int64("version", 10)
+          .string("configuration", 20)
+          .int64("baseVersion", 30)
+          .struct("cluster", 40, clusterStruct)
+          .build())
       .build();
 
   @Override
   public byte[] encodeMessage(Message message) throws MessageCodecException {
     try {
-      return struct.encoder()
-          .enm("type", message.getType())
-          .encode()
-          .array();
+      StructEncoder<Void> encoder = struct.encoder()
+          .enm("type", message.getType());
+      if (message.isVersioned()) {
+        encoder.int64("version", message.getVersion());
+      }
+      return encoder.encode().array();
     } catch (RuntimeException e) {
       throw new MessageCodecException(e.getMessage(), e);
     }
@@ -107,7 +144,10 @@ public class Codec implements MessageCodec<Message, Response> {
   @Override
   public Message decodeMessage(byte[] bytes) throws MessageCodecException {
     try {
-      return new Message(struct.decoder(ByteBuffer.wrap(bytes)).<Type>enm("type").get());
+      StructDecoder<Void> decoder = struct.decoder(ByteBuffer.wrap(bytes));
+      Type type = decoder.<Type>enm("type").get();
+      Long version = decoder.int64("version");
+      return version == null ? new Message(type, NO_VERSION, false) : new Message(type, version);
     } catch (RuntimeException e) {
       throw new MessageCodecException(e.getMessage(), e);
     }
@@ -138,7 +178,17 @@ public class Codec implements MessageCodec<Message, Response> {
         }
         case REQ_RUNTIME_CLUSTER:
         case REQ_UPCOMING_CLUSTER: {
-          encoder.string(type.name(), encodeCluster(response.getPayload()));
+          Object payload = response.getPayload();
+          if (payload instanceof Cluster) {
+            encoder.string(type.name(), encodeCluster((Cluster) payload));
+            break;
+          }
+          List<Object> oo = response.getPayload();
+          StructEncoder<StructEncoder<Void>> versioned = encoder.struct(type.name() + "_VERSIONED")
+              .int64("version", (Long) oo.get(0));
+          if (oo.get(1) != null) {
+            versioned.struct("cluster", (Cluster) oo.get(1), clusterEncoder());
+          }
           break;
         }
         case EVENT_NODE_ADDITION:
@@ -151,9 +201,19 @@ public class Codec implements MessageCodec<Message, Response> {
         }
         case EVENT_SETTING_CHANGED: {
           List<Object> oo = response.getPayload();
-          encoder.struct(type.name())
-              .string("configuration", encodeConfiguration((Configuration) oo.get(0)))
-              .string("cluster", encodeCluster((Cluster) oo.get(1)));
+          if (oo.size() == 2) {
+            encoder.struct(type.name())
+                .string("configuration", encodeConfiguration((Configuration) oo.get(0)))
+                .string("cluster", encodeCluster((Cluster) oo.get(1)));
+            break;
+          }
+          StructEncoder<StructEncoder<Void>> event = encoder.struct(type.name() + "_VERSIONED")
+              .int64("version", (Long) oo.get(0))
+              .string("configuration", encodeConfiguration((Configuration) oo.get(1)))
+              .int64("baseVersion", (Long) oo.get(2));
+          if (oo.get(3) != null) {
+            event.struct("cluster", (Cluster) oo.get(3), clusterEncoder());
+          }
           break;
         }
         default:
@@ -186,8 +246,16 @@ public class Codec implements MessageCodec<Message, Response> {
         case REQ_MUST_BE_RESTARTED:
           return new Response(type, decoder.bool(type.name()));
         case REQ_RUNTIME_CLUSTER:
-        case REQ_UPCOMING_CLUSTER:
-          return new Response(type, decodeCluster(decoder.string(type.name())));
+        case REQ_UPCOMING_CLUSTER: {
+          String cluster = decoder.string(type.name());
+          if (cluster != null) {
+            return new Response(type, decodeCluster(cluster));
+          }
+          StructDecoder<?> versioned = decoder.struct(type.name() + "_VERSIONED");
+          return new Response(type, asList(
+              versioned.int64("version"),
+              decodeCluster(versioned.struct("cluster"))));
+        }
         case EVENT_NODE_ADDITION:
         case EVENT_NODE_REMOVAL: {
           StructDecoder<?> event = decoder.struct(type.name());
@@ -196,10 +264,18 @@ public class Codec implements MessageCodec<Message, Response> {
               decodeNode(event.string("node"))));
         }
         case EVENT_SETTING_CHANGED: {
-          StructDecoder<?> event = decoder.struct(type.name());
+          StructDecoder<?> legacy = decoder.struct(type.name());
+          if (legacy != null) {
+            return new Response(type, asList(
+                decodeConfiguration(legacy.string("configuration")),
+                decodeCluster(legacy.string("cluster"))));
+          }
+          StructDecoder<?> event = decoder.struct(type.name() + "_VERSIONED");
           return new Response(type, asList(
+              event.int64("version"),
               decodeConfiguration(event.string("configuration")),
-              decodeCluster(event.string("cluster"))));
+              event.int64("baseVersion"),
+              decodeCluster(event.struct("cluster"))));
         }
         default:
           throw new UnsupportedOperationException(type.name());
@@ -211,6 +287,12 @@ public class Codec implements MessageCodec<Message, Response> {
 
   // the encode / decode methods below re-uses the inner mapping mechanism we have
 
+  private static StructEncoderFunction<Cluster> clusterEncoder() {
+    return (encoder, cluster) -> encoder.structs("properties", cluster.toProperties(false, true).entrySet(), (entryEncoder, entry) -> entryEncoder
+        .string("key", (String) entry.getKey())
+        .string("value", (String) entry.getValue()));
+  }
+
   private String encodeCluster(Cluster cluster) {
     requireNonNull(cluster);
     return Props.toString(cluster.toProperties(false, true));
@@ -222,6 +304,16 @@ public class Codec implements MessageCodec<Message, Response> {
     });
   }
 
+  private static Cluster decodeCluster(StructDecoder<?> decoder) {
+    if (decoder == null) {
+      return null;
+    }
+    Properties properties = new Properties();
+    decoder.structs("properties").forEachRemaining(entry -> properties.setProperty(entry.string("key"), entry.string("value")));
+    return new ClusterFactory().create(properties, configuration -> {
+    });
+  }
+
   private String encodeNode(Node node) {
     requireNonNull(node);
     Cluster container = Cluster.newDefaultCluster(new Stripe(node));
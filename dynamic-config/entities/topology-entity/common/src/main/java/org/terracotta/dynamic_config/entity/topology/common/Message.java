@@ -27,19 +27,48 @@ import static java.util.Objects.requireNonNull;
 public class Message implements EntityMessage {
 
   private final Type type;
+  private final long version;
+  private final boolean versioned;
 
   public Message(Type type) {
+    this(type, Codec.NO_VERSION);
+  }
+
+  /**
+   * @param version the version of the topology the client already holds, so that the server only sends it back if it has changed
+   */
+  public Message(Type type, long version) {
+    this(type, version, true);
+  }
+
+  Message(Type type, long version, boolean versioned) {
     this.type = requireNonNull(type);
+    this.version = version;
+    this.versioned = versioned;
   }
 
   public Type getType() {
     return type;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return false if this message comes from an older client which does not know about topology versions,
+   * and expects whole clusters in the responses and events it receives
+   */
+  public boolean isVersioned() {
+    return versioned;
+  }
+
   @Override
   public String toString() {
     return "Message{" +
         "type=" + type +
+        ", version=" + version +
+        ", versioned=" + versioned +
         '}';
   }
 
@@ -48,11 +77,13 @@ public class Message implements EntityMessage {
     if (this == o) return true;
     if (!(o instanceof Message)) return false;
     Message that = (Message) o;
-    return getType() == that.getType();
+    return getType() == that.getType() &&
+        getVersion() == that.getVersion() &&
+        isVersioned() == that.isVersioned();
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(getType());
+    return Objects.hash(getType(), getVersion(), isVersioned());
   }
 }
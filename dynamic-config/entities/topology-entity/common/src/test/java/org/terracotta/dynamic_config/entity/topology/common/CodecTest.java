@@ -21,8 +21,12 @@ import org.terracotta.dynamic_config.api.model.Configuration;
 import org.terracotta.dynamic_config.api.model.License;
 import org.terracotta.dynamic_config.api.model.Node;
 import org.terracotta.dynamic_config.api.model.Stripe;
+import org.terracotta.dynamic_config.api.service.Props;
 import org.terracotta.entity.MessageCodecException;
+import org.terracotta.runnel.Struct;
+import org.terracotta.runnel.decoding.StructDecoder;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 
 import static java.util.Arrays.asList;
@@ -39,6 +43,8 @@ import static org.terracotta.dynamic_config.entity.topology.common.Type.REQ_LICE
 import static org.terracotta.dynamic_config.entity.topology.common.Type.REQ_MUST_BE_RESTARTED;
 import static org.terracotta.dynamic_config.entity.topology.common.Type.REQ_RUNTIME_CLUSTER;
 import static org.terracotta.dynamic_config.entity.topology.common.Type.REQ_UPCOMING_CLUSTER;
+import static org.terracotta.runnel.EnumMappingBuilder.newEnumMappingBuilder;
+import static org.terracotta.runnel.StructBuilder.newStructBuilder;
 
 /**
  * @author Mathieu Carbou
@@ -56,15 +62,80 @@ public class CodecTest {
     test(REQ_MUST_BE_RESTARTED, true);
     test(REQ_HAS_INCOMPLETE_CHANGE, true);
 
-    test(REQ_RUNTIME_CLUSTER, cluster);
-    test(REQ_UPCOMING_CLUSTER, cluster);
+    test(REQ_RUNTIME_CLUSTER, asList(1L, cluster));
+    test(REQ_RUNTIME_CLUSTER, asList(1L, null));
+    test(REQ_UPCOMING_CLUSTER, asList(1L, cluster));
+    test(REQ_UPCOMING_CLUSTER, asList(1L, null));
 
     test(EVENT_NODE_ADDITION, asList(1, node));
     test(EVENT_NODE_REMOVAL, asList(1, node));
 
+    test(EVENT_SETTING_CHANGED, asList(2L, Configuration.valueOf("cluster-name=foo"), -1L, cluster));
+    test(EVENT_SETTING_CHANGED, asList(3L, Configuration.valueOf("cluster-name=foo"), 2L, null));
+
+    // payloads of the older clients
+    test(REQ_RUNTIME_CLUSTER, cluster);
+    test(REQ_UPCOMING_CLUSTER, cluster);
     test(EVENT_SETTING_CHANGED, asList(Configuration.valueOf("cluster-name=foo"), cluster));
   }
 
+  @Test
+  public void test_older_clients() throws MessageCodecException {
+    Codec codec = new Codec();
+    Cluster cluster = Cluster.newDefaultCluster("bar", new Stripe(Node.newDefaultNode("foo", "localhost", 9410)));
+    // the fields used by the clients which do not know about topology versions
+    Struct olderStruct = newStructBuilder()
+        .enm("type", 10, newEnumMappingBuilder(Type.class)
+            .mapping(REQ_LICENSE, 1)
+            .mapping(REQ_HAS_INCOMPLETE_CHANGE, 2)
+            .mapping(REQ_MUST_BE_RESTARTED, 3)
+            .mapping(REQ_RUNTIME_CLUSTER, 4)
+            .mapping(REQ_UPCOMING_CLUSTER, 5)
+            .mapping(EVENT_NODE_ADDITION, 6)
+            .mapping(EVENT_NODE_REMOVAL, 7)
+            .mapping(EVENT_SETTING_CHANGED, 8)
+            .build())
+        .string(REQ_RUNTIME_CLUSTER.name(), 50)
+        .struct(EVENT_SETTING_CHANGED.name(), 90, newStructBuilder()
+            .string("configuration", 10)
+            .string("cluster", 20)
+            .build())
+        .build();
+
+    Message message = codec.decodeMessage(olderStruct.encoder().enm("type", REQ_RUNTIME_CLUSTER).encode().array());
+    assertThat(message.isVersioned(), is(false));
+    assertThat(codec.decodeMessage(codec.encodeMessage(message)), is(equalTo(message)));
+    assertThat(codec.decodeMessage(codec.encodeMessage(new Message(REQ_RUNTIME_CLUSTER))).isVersioned(), is(true));
+
+    StructDecoder<Void> response = olderStruct.decoder(ByteBuffer.wrap(codec.encodeResponse(new Response(REQ_RUNTIME_CLUSTER, cluster))));
+    assertThat(response.<Type>enm("type").get(), is(REQ_RUNTIME_CLUSTER));
+    assertThat(response.string(REQ_RUNTIME_CLUSTER.name()), is(equalTo(Props.toString(cluster.toProperties(false, true)))));
+
+    StructDecoder<Void> event = olderStruct.decoder(ByteBuffer.wrap(codec.encodeResponse(new Response(EVENT_SETTING_CHANGED, asList(Configuration.valueOf("cluster-name=foo"), cluster)))));
+    assertThat(event.<Type>enm("type").get(), is(EVENT_SETTING_CHANGED));
+    StructDecoder<StructDecoder<Void>> setting = event.struct(EVENT_SETTING_CHANGED.name());
+    assertThat(setting.string("configuration"), is(equalTo("cluster-name=foo")));
+    assertThat(setting.string("cluster"), is(equalTo(Props.toString(cluster.toProperties(false, true)))));
+  }
+
+  @Test
+  public void test_message_version() throws MessageCodecException {
+    Codec codec = new Codec();
+    assertThat(codec.decodeMessage(codec.encodeMessage(new Message(REQ_RUNTIME_CLUSTER))).getVersion(), is(equalTo(Codec.NO_VERSION)));
+    assertThat(codec.decodeMessage(codec.encodeMessage(new Message(REQ_RUNTIME_CLUSTER, 42L))).getVersion(), is(equalTo(42L)));
+  }
+
+  @Test
+  public void test_setting_change_delta_is_smaller() throws MessageCodecException {
+    Codec codec = new Codec();
+    Cluster cluster = Cluster.newDefaultCluster("bar", new Stripe(Node.newDefaultNode("foo", "localhost", 9410)), new Stripe(Node.newDefaultNode("baz", "localhost", 9510)));
+    Configuration configuration = Configuration.valueOf("offheap-resources.main=1GB");
+
+    byte[] full = codec.encodeResponse(new Response(EVENT_SETTING_CHANGED, asList(2L, configuration, -1L, cluster)));
+    byte[] delta = codec.encodeResponse(new Response(EVENT_SETTING_CHANGED, asList(2L, configuration, 1L, null)));
+    assertThat(delta.length * 10 < full.length, is(true));
+  }
+
   private static void test(Type type, Object payload) throws MessageCodecException {
     Codec codec = new Codec();
 
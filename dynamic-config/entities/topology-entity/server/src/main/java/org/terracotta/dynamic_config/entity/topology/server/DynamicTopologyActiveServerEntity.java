@@ -20,6 +20,7 @@ import org.slf4j.LoggerFactory;
 import org.terracotta.dynamic_config.api.model.Cluster;
 import org.terracotta.dynamic_config.api.model.Configuration;
 import org.terracotta.dynamic_config.api.model.Node;
+import org.terracotta.dynamic_config.api.model.NodeContext;
 import org.terracotta.dynamic_config.api.model.nomad.SettingNomadChange;
 import org.terracotta.dynamic_config.api.service.TopologyService;
 import org.terracotta.dynamic_config.entity.topology.common.Message;
@@ -36,13 +37,20 @@ import org.terracotta.entity.EntityUserException;
 import org.terracotta.entity.MessageCodecException;
 import org.terracotta.entity.PassiveSynchronizationChannel;
 import org.terracotta.entity.StateDumpCollector;
+import org.terracotta.nomad.messages.AcceptRejectResponse;
+import org.terracotta.nomad.messages.CommitMessage;
+import org.terracotta.nomad.messages.RollbackMessage;
+import org.terracotta.nomad.server.NomadChangeInfo;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static org.terracotta.dynamic_config.entity.topology.common.Codec.NO_VERSION;
 import static org.terracotta.dynamic_config.entity.topology.common.Type.EVENT_NODE_ADDITION;
 import static org.terracotta.dynamic_config.entity.topology.common.Type.EVENT_NODE_REMOVAL;
 import static org.terracotta.dynamic_config.entity.topology.common.Type.EVENT_SETTING_CHANGED;
@@ -55,6 +63,17 @@ public class DynamicTopologyActiveServerEntity implements ActiveServerEntity<Mes
   private final DynamicConfigEventService eventService;
   private final ClientCommunicator clientCommunicator;
   private final Collection<ClientDescriptor> clients = ConcurrentHashMap.newKeySet();
+  // clients which sent versioned messages: the others are older clients expecting whole clusters
+  private final Collection<ClientDescriptor> versionedClients = ConcurrentHashMap.newKeySet();
+
+  // bumped after each topology change, so that clients can only ask for a cluster when theirs is stale
+  private final AtomicLong version = new AtomicLong();
+
+  // last cluster sent in a setting change event, and the version of it that each client holds,
+  // so that the next events can only carry the change to apply on top of it
+  private final Map<ClientDescriptor, Long> clientEventVersions = new ConcurrentHashMap<>();
+  private Cluster lastEventCluster;
+  private long lastEventVersion = NO_VERSION;
 
   private volatile EventRegistration eventRegistration;
 
@@ -76,6 +95,8 @@ public class DynamicTopologyActiveServerEntity implements ActiveServerEntity<Mes
   @Override
   public void disconnected(ClientDescriptor clientDescriptor) {
     clients.remove(clientDescriptor);
+    versionedClients.remove(clientDescriptor);
+    clientEventVersions.remove(clientDescriptor);
   }
 
   @Override
@@ -97,19 +118,31 @@ public class DynamicTopologyActiveServerEntity implements ActiveServerEntity<Mes
 
   @Override
   public ReconnectHandler startReconnect() {
-    return (clientDescriptor, extendedReconnectData) -> {
-    };
+    // clients drop their cached topology when reconnecting
+    return (clientDescriptor, extendedReconnectData) -> clientEventVersions.remove(clientDescriptor);
   }
 
   @Override
   public Response invokeActive(ActiveInvokeContext<Response> context, Message message) throws EntityUserException {
     LOGGER.trace("invokeActive({})", message);
+    if (message.isVersioned() && context.getClientDescriptor() != null) {
+      versionedClients.add(context.getClientDescriptor());
+    }
     switch (message.getType()) {
       case REQ_UPCOMING_CLUSTER: {
-        return new Response(message.getType(), topologyService.getUpcomingNodeContext().getCluster());
+        if (!message.isVersioned()) {
+          return new Response(message.getType(), topologyService.getTopologySnapshot().getUpcomingNodeContext().getCluster());
+        }
+        // read the version first: the cluster read after is at least as recent
+        long current = version.get();
+        return new Response(message.getType(), asList(current, message.getVersion() == current ? null : topologyService.getTopologySnapshot().getUpcomingNodeContext().getCluster()));
       }
       case REQ_RUNTIME_CLUSTER: {
-        return new Response(message.getType(), topologyService.getRuntimeNodeContext().getCluster());
+        if (!message.isVersioned()) {
+          return new Response(message.getType(), topologyService.getTopologySnapshot().getRuntimeNodeContext().getCluster());
+        }
+        long current = version.get();
+        return new Response(message.getType(), asList(current, message.getVersion() == current ? null : topologyService.getTopologySnapshot().getRuntimeNodeContext().getCluster()));
       }
       case REQ_MUST_BE_RESTARTED: {
         return new Response(message.getType(), topologyService.mustBeRestarted());
@@ -128,6 +161,7 @@ public class DynamicTopologyActiveServerEntity implements ActiveServerEntity<Mes
   @Override
   public void addStateTo(StateDumpCollector stateDumpCollector) {
     stateDumpCollector.addState("clients", clients.stream().map(Object::toString).collect(toList()));
+    stateDumpCollector.addState("version", String.valueOf(version.get()));
   }
 
   private void listen() {
@@ -135,23 +169,80 @@ public class DynamicTopologyActiveServerEntity implements ActiveServerEntity<Mes
       eventRegistration = eventService.register(new DynamicConfigListenerAdapter() {
         @Override
         public void onNodeAddition(int stripeId, Node addedNode) {
+          version.incrementAndGet();
           fire(new Response(EVENT_NODE_ADDITION, asList(stripeId, addedNode)));
         }
 
         @Override
         public void onNodeRemoval(int stripeId, Node removedNode) {
+          version.incrementAndGet();
           fire(new Response(EVENT_NODE_REMOVAL, asList(stripeId, removedNode)));
         }
 
         @Override
         public void onSettingChanged(SettingNomadChange change, Cluster updated) {
-          Configuration configuration = change.toConfiguration(updated);
-          fire(new Response(EVENT_SETTING_CHANGED, asList(configuration, updated)));
+          fireSettingChanged(change.toConfiguration(updated), updated, version.incrementAndGet());
+        }
+
+        @Override
+        public void onNewConfigurationSaved(NodeContext nodeContext, Long configVersion) {
+          version.incrementAndGet();
+        }
+
+        @Override
+        public void onNomadCommit(CommitMessage message, AcceptRejectResponse response, NomadChangeInfo changeInfo) {
+          version.incrementAndGet();
+        }
+
+        @Override
+        public void onNomadRollback(RollbackMessage message, AcceptRejectResponse response) {
+          version.incrementAndGet();
         }
       });
     }
   }
 
+  /**
+   * Clients holding the cluster of the previous event only receive the configuration change to apply on it,
+   * provided that applying it gives the updated cluster. Other clients receive the whole cluster, without any
+   * version for the older clients.
+   */
+  private synchronized void fireSettingChanged(Configuration configuration, Cluster updated, long eventVersion) {
+    Response delta = null;
+    if (lastEventCluster != null) {
+      Cluster candidate = lastEventCluster.clone();
+      try {
+        configuration.apply(candidate);
+        if (candidate.equals(updated)) {
+          delta = new Response(EVENT_SETTING_CHANGED, asList(eventVersion, configuration, lastEventVersion, null));
+        }
+      } catch (RuntimeException e) {
+        LOGGER.trace("Unable to apply {} on the last sent cluster: {}", configuration, e.getMessage());
+      }
+    }
+    Response full = new Response(EVENT_SETTING_CHANGED, asList(eventVersion, configuration, NO_VERSION, updated));
+    Response legacy = new Response(EVENT_SETTING_CHANGED, asList(configuration, updated));
+
+    for (ClientDescriptor client : clients) {
+      Response msg;
+      if (versionedClients.contains(client)) {
+        Long clientVersion = clientEventVersions.put(client, eventVersion);
+        msg = delta != null && clientVersion != null && clientVersion == lastEventVersion ? delta : full;
+      } else {
+        msg = legacy;
+      }
+      LOGGER.trace("fire({})", msg);
+      try {
+        clientCommunicator.sendNoResponse(client, msg);
+      } catch (MessageCodecException e) {
+        throw new AssertionError(e); // should never occur
+      }
+    }
+
+    lastEventCluster = updated.clone();
+    lastEventVersion = eventVersion;
+  }
+
   private void fire(Response msg) {
     if (!clients.isEmpty()) {
       LOGGER.trace("fire({})", msg);
@@ -24,6 +24,7 @@ import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -32,6 +33,7 @@ import java.util.OptionalInt;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -42,6 +44,7 @@ import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.IntStream.rangeClosed;
+import static org.terracotta.inet.InetSocketAddressUtils.encloseInBracketsIfIpv6;
 import static org.terracotta.dynamic_config.api.model.Scope.CLUSTER;
 
 public class Cluster implements Cloneable, PropertyHolder {
@@ -56,10 +59,16 @@ public class Cluster implements Cloneable, PropertyHolder {
   private FailoverPriority failoverPriority = FailoverPriority.availability();
   private final Map<String, Measure<MemoryUnit>> offheapResources = new ConcurrentHashMap<>();
 
+  // lazily built address lookups, rebuilt when the stripes, the nodes or their names and addresses change
+  private volatile Index index;
+  // incremented by this cluster and by its stripes and nodes on these changes
+  private final AtomicInteger version = new AtomicInteger();
+
   protected Cluster(String name,
                     List<Stripe> stripes) {
     this.stripes = new CopyOnWriteArrayList<>(requireNonNull(stripes));
     this.name = name;
+    this.stripes.forEach(stripe -> stripe.addParent(this));
   }
 
   @Override
@@ -171,6 +180,8 @@ public class Cluster implements Cloneable, PropertyHolder {
 
   public Cluster addStripe(Stripe stripe) {
     stripes.add(stripe);
+    stripe.addParent(this);
+    modified();
     return this;
   }
 
@@ -247,6 +258,10 @@ public class Cluster implements Cloneable, PropertyHolder {
   }
 
   public Optional<Stripe> getStripe(InetSocketAddress address) {
+    Index index = index();
+    if (index != null) {
+      return index.get(address).map(entry -> entry.stripe);
+    }
     return stripes.stream()
         .filter(stripe -> stripe.containsNode(address))
         .findAny();
@@ -294,24 +309,36 @@ public class Cluster implements Cloneable, PropertyHolder {
 
     Node aNode = stripes.iterator().next().getNodes().iterator().next();
     Stripe newStripe = stripe.cloneForAttachment(aNode);
-    stripes.add(newStripe);
-
-    return this;
+    return addStripe(newStripe);
   }
 
   public boolean detachStripe(Stripe stripe) {
-    return stripes.remove(stripe);
+    int idx = stripes.indexOf(stripe);
+    if (idx < 0) {
+      return false;
+    }
+    stripes.remove(idx).removeParent(this);
+    modified();
+    return true;
   }
 
   public boolean detachNode(InetSocketAddress address) {
     boolean detached = stripes.stream().anyMatch(stripe -> stripe.detachNode(address));
     if (detached) {
-      stripes.removeIf(Stripe::isEmpty);
+      for (Stripe stripe : stripes) {
+        if (stripe.isEmpty()) {
+          detachStripe(stripe);
+        }
+      }
     }
     return detached;
   }
 
   public Optional<Node> getNode(InetSocketAddress nodeAddress) {
+    Index index = index();
+    if (index != null) {
+      return index.get(nodeAddress).map(entry -> entry.node);
+    }
     return stripes.stream()
         .flatMap(stripe -> stripe.getNodes().stream())
         .filter(node -> node.hasAddress(nodeAddress))
@@ -319,6 +346,10 @@ public class Cluster implements Cloneable, PropertyHolder {
   }
 
   public OptionalInt getStripeId(InetSocketAddress address) {
+    Index index = index();
+    if (index != null) {
+      return index.get(address).map(entry -> OptionalInt.of(entry.stripeId)).orElse(OptionalInt.empty());
+    }
     return IntStream.range(0, stripes.size())
         .filter(idx -> stripes.get(idx).containsNode(address))
         .map(idx -> idx + 1)
@@ -326,6 +357,10 @@ public class Cluster implements Cloneable, PropertyHolder {
   }
 
   public OptionalInt getNodeId(InetSocketAddress address) {
+    Index index = index();
+    if (index != null) {
+      return index.get(address).map(entry -> OptionalInt.of(entry.nodeId)).orElse(OptionalInt.empty());
+    }
     return stripes.stream()
         .map(stripe -> stripe.getNodeId(address))
         .filter(OptionalInt::isPresent)
@@ -416,7 +451,9 @@ public class Cluster implements Cloneable, PropertyHolder {
   }
 
   public Cluster removeStripes() {
+    stripes.forEach(stripe -> stripe.removeParent(this));
     stripes.clear();
+    modified();
     return this;
   }
 
@@ -442,4 +479,77 @@ public class Cluster implements Cloneable, PropertyHolder {
   public static Cluster newCluster(Stripe... stripes) {
     return new Cluster(null, Arrays.asList(stripes));
   }
+
+  /**
+   * @return the address lookup index of this topology, or null if some nodes are not completely defined
+   * (i.e. missing name or unresolved placeholders in their address), in which case lookups have to scan the nodes
+   */
+  private Index index() {
+    Index index = this.index;
+    int version = this.version.get();
+    if (index == null || index.version != version) {
+      index = new Index(version, stripes);
+      this.index = index;
+    }
+    return index.byAddress == null ? null : index;
+  }
+
+  void modified() {
+    version.incrementAndGet();
+  }
+
+  private static class Index {
+    // the version of the cluster this index was built from
+    final int version;
+
+    final Map<InetSocketAddress, Entry> byAddress;
+
+    Index(int version, List<Stripe> stripes) {
+      this.version = version;
+      boolean addressable = stripes.stream().flatMap(stripe -> stripe.getNodes().stream()).allMatch(Node::isAddressable);
+      if (!addressable) {
+        this.byAddress = null;
+        return;
+      }
+
+      this.byAddress = new HashMap<>();
+      for (int i = 0; i < stripes.size(); i++) {
+        Stripe stripe = stripes.get(i);
+        List<Node> nodes = stripe.getNodes();
+        for (int j = 0; j < nodes.size(); j++) {
+          Node node = nodes.get(j);
+          Entry entry = new Entry(i + 1, stripe, j + 1, node);
+          // when several nodes match, the lookups return the first one, like a scan would do
+          byAddress.putIfAbsent(key(node.getNodeInternalAddress()), entry);
+          node.getNodePublicAddress().ifPresent(address -> byAddress.putIfAbsent(key(address), entry));
+        }
+      }
+    }
+
+    Optional<Entry> get(InetSocketAddress address) {
+      return Optional.ofNullable(byAddress.get(key(address)));
+    }
+
+    /**
+     * Normalizes the address the same way {@link org.terracotta.inet.InetSocketAddressUtils#areEqual} does, but skips
+     * the costly IPv6 validation for host names that cannot be an IPv6 address
+     */
+    private static InetSocketAddress key(InetSocketAddress address) {
+      return address.getHostName().indexOf(':') < 0 ? address : encloseInBracketsIfIpv6(address);
+    }
+  }
+
+  private static class Entry {
+    final int stripeId;
+    final Stripe stripe;
+    final int nodeId;
+    final Node node;
+
+    Entry(int stripeId, Stripe stripe, int nodeId, Node node) {
+      this.stripeId = stripeId;
+      this.stripe = stripe;
+      this.nodeId = nodeId;
+      this.node = node;
+    }
+  }
 }
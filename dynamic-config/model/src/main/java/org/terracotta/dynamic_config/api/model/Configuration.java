@@ -15,19 +15,15 @@
  */
 package org.terracotta.dynamic_config.api.model;
 
-import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Scanner;
-import java.util.function.BiFunction;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.toSet;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static org.terracotta.dynamic_config.api.model.Operation.CONFIG;
 import static org.terracotta.dynamic_config.api.model.Operation.GET;
 import static org.terracotta.dynamic_config.api.model.Operation.SET;
@@ -38,185 +34,7 @@ import static org.terracotta.dynamic_config.api.model.Scope.STRIPE;
 
 public class Configuration {
 
-  private static final Collection<String> SETTINGS = Stream.of(Setting.values()).map(Setting::toString).collect(toSet());
-
-  private static final Map<Pattern, BiFunction<String, Matcher, Configuration>> CLUSTER_PATTERNS = new LinkedHashMap<>();
-  private static final Map<Pattern, BiFunction<String, Matcher, Configuration>> STRIPE_PATTERNS = new LinkedHashMap<>();
-  private static final Map<Pattern, BiFunction<String, Matcher, Configuration>> NODE_PATTERNS = new LinkedHashMap<>();
-
-  private static final String GRP_STRIPE = "stripe\\.(\\d+)";
-  private static final String GRP_NODE = "node\\.(\\d+)";
-  private static final String SEP = "\\.";
-  private static final String NS = "[.:]"; // namespace separator
-  private static final String GRP_SETTING = "([a-z\\-]+)";
-  private static final String GRP_KEY = "([^=:]+)";
-  private static final String ASSIGN = "=";
-  private static final String GRP_VALUE = "([^=]+)";
-
-  static {
-    // stripe.<index>.node.<index>.<setting>.<key>=<value>
-    NODE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + SEP + GRP_NODE + NS + GRP_SETTING + SEP + GRP_KEY + ASSIGN + GRP_VALUE + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(3)),
-        NODE,
-        Integer.parseInt(matcher.group(1)),
-        Integer.parseInt(matcher.group(2)),
-        matcher.group(4),
-        matcher.group(5)));
-    // stripe.<index>.node.<index>.<setting>=<value>
-    NODE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + SEP + GRP_NODE + NS + GRP_SETTING + ASSIGN + GRP_VALUE + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(3)),
-        NODE,
-        Integer.parseInt(matcher.group(1)),
-        Integer.parseInt(matcher.group(2)),
-        null,
-        matcher.group(4)));
-    // stripe.<index>.<setting>.<key>=<value>
-    STRIPE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + NS + GRP_SETTING + SEP + GRP_KEY + ASSIGN + GRP_VALUE + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(2)),
-        STRIPE,
-        Integer.parseInt(matcher.group(1)),
-        null,
-        matcher.group(3),
-        matcher.group(4)));
-    // stripe.<index>.<setting>=<value>
-    STRIPE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + NS + GRP_SETTING + ASSIGN + GRP_VALUE + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(2)),
-        STRIPE,
-        Integer.parseInt(matcher.group(1)),
-        null,
-        null,
-        matcher.group(3)));
-    // <setting>.<key>=<value>
-    CLUSTER_PATTERNS.put(Pattern.compile("^" + GRP_SETTING + SEP + GRP_KEY + ASSIGN + GRP_VALUE + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(1)),
-        CLUSTER,
-        null,
-        null,
-        matcher.group(2),
-        matcher.group(3)));
-    // <setting>=<value>
-    CLUSTER_PATTERNS.put(Pattern.compile("^" + GRP_SETTING + ASSIGN + GRP_VALUE + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(1)),
-        CLUSTER,
-        null,
-        null,
-        null,
-        matcher.group(2)));
-    // stripe.<index>.node.<index>.<setting>.<key>=
-    NODE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + SEP + GRP_NODE + NS + GRP_SETTING + SEP + GRP_KEY + ASSIGN + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(3)),
-        NODE,
-        Integer.parseInt(matcher.group(1)),
-        Integer.parseInt(matcher.group(2)),
-        matcher.group(4),
-        ""));
-    // stripe.<index>.node.<index>.<setting>=
-    NODE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + SEP + GRP_NODE + NS + GRP_SETTING + ASSIGN + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(3)),
-        NODE,
-        Integer.parseInt(matcher.group(1)),
-        Integer.parseInt(matcher.group(2)),
-        null,
-        ""));
-    // stripe.<index>.<setting>.<key>=
-    STRIPE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + NS + GRP_SETTING + SEP + GRP_KEY + ASSIGN + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(2)),
-        STRIPE,
-        Integer.parseInt(matcher.group(1)),
-        null,
-        matcher.group(3),
-        ""));
-    // stripe.<index>.<setting>=
-    STRIPE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + NS + GRP_SETTING + ASSIGN + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(2)),
-        STRIPE,
-        Integer.parseInt(matcher.group(1)),
-        null,
-        null,
-        ""));
-    // <setting>.<key>=
-    CLUSTER_PATTERNS.put(Pattern.compile("^" + GRP_SETTING + SEP + GRP_KEY + ASSIGN + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(1)),
-        CLUSTER,
-        null,
-        null,
-        matcher.group(2),
-        ""));
-    // <setting>=
-    CLUSTER_PATTERNS.put(Pattern.compile("^" + GRP_SETTING + ASSIGN + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(1)),
-        CLUSTER,
-        null,
-        null,
-        null,
-        ""));
-    // stripe.<index>.node.<index>.<setting>.<key>
-    NODE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + SEP + GRP_NODE + NS + GRP_SETTING + SEP + GRP_KEY + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(3)),
-        NODE,
-        Integer.parseInt(matcher.group(1)),
-        Integer.parseInt(matcher.group(2)),
-        matcher.group(4),
-        null));
-    // stripe.<index>.node.<index>.<setting>
-    NODE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + SEP + GRP_NODE + NS + GRP_SETTING + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(3)),
-        NODE,
-        Integer.parseInt(matcher.group(1)),
-        Integer.parseInt(matcher.group(2)),
-        null,
-        null));
-    // stripe.<index>.<setting>.<key>
-    STRIPE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + NS + GRP_SETTING + SEP + GRP_KEY + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(2)),
-        STRIPE,
-        Integer.parseInt(matcher.group(1)),
-        null,
-        matcher.group(3),
-        null));
-    // stripe.<index>.<setting>
-    STRIPE_PATTERNS.put(Pattern.compile("^" + GRP_STRIPE + NS + GRP_SETTING + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(2)),
-        STRIPE,
-        Integer.parseInt(matcher.group(1)),
-        null,
-        null,
-        null));
-    // <setting>.<key>
-    CLUSTER_PATTERNS.put(Pattern.compile("^" + GRP_SETTING + SEP + GRP_KEY + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(1)),
-        CLUSTER,
-        null,
-        null,
-        matcher.group(2),
-        null));
-    // <setting>
-    CLUSTER_PATTERNS.put(Pattern.compile("^" + GRP_SETTING + "$"), (input, matcher) -> new Configuration(
-        input,
-        Setting.fromName(matcher.group(1)),
-        CLUSTER,
-        null,
-        null,
-        null,
-        null));
-  }
+  private static final Map<String, Setting> SETTINGS = Stream.of(Setting.values()).collect(toMap(Setting::toString, identity()));
 
   private final String rawInput;
   private final Setting setting;
@@ -514,69 +332,158 @@ public class Configuration {
     Integer nodeId = null;
     Setting setting = null;
 
-    try (Scanner scanner = new Scanner(input).useDelimiter("[.:=]")) {
-      while (scanner.hasNext() && setting == null) {
-        String next = scanner.next();
-        switch (next) {
-          case "stripe": {
-            if (stripeId != null) {
-              throw new IllegalArgumentException("Invalid input: '" + input + "'");
-            }
-            stripeId = scanner.nextInt(10);
-            break;
+    // first, find the setting name and the stripe and node IDs by reading the tokens separated by '.', ':' or '='
+    Tokenizer tokenizer = new Tokenizer(input);
+    while (setting == null && tokenizer.hasNext()) {
+      String next = tokenizer.next();
+      switch (next) {
+        case "stripe": {
+          if (stripeId != null) {
+            throw new IllegalArgumentException("Invalid input: '" + input + "'");
           }
-          case "node": {
-            if (nodeId != null || stripeId == null) {
-              throw new IllegalArgumentException("Invalid input: '" + input + "'");
-            }
-            nodeId = scanner.nextInt(10);
-            break;
+          stripeId = tokenizer.nextInt(input);
+          break;
+        }
+        case "node": {
+          if (nodeId != null || stripeId == null) {
+            throw new IllegalArgumentException("Invalid input: '" + input + "'");
           }
-          default: {
-            if (SETTINGS.contains(next)) {
-              setting = Setting.fromName(next);
-            } else {
-              throw new IllegalArgumentException("Invalid input: '" + input + "'. Reason: Invalid setting name: '" + next + "'");
-            }
+          nodeId = tokenizer.nextInt(input);
+          break;
+        }
+        default: {
+          setting = SETTINGS.get(next);
+          if (setting == null) {
+            throw new IllegalArgumentException("Invalid input: '" + input + "'. Reason: Invalid setting name: '" + next + "'");
           }
         }
       }
-    } catch (NoSuchElementException e) {
-      throw new IllegalArgumentException("Invalid input: '" + input + "'");
     }
 
     if (setting == null) {
       throw new IllegalArgumentException("Invalid input: '" + input + "'. Reason: valid setting name not found");
     }
 
-    if (stripeId != null && nodeId != null) {
-      for (Map.Entry<Pattern, BiFunction<String, Matcher, Configuration>> entry : NODE_PATTERNS.entrySet()) {
-        Matcher matcher = entry.getKey().matcher(input);
-        if (matcher.matches()) {
-          return entry.getValue().apply(input, matcher);
-        }
+    // then, check that the whole input follows the grammar:
+    // [stripe.<index>[.node.<index>](.|:)]<setting>[.<key>][=[<value>]]
+    int pos = 0;
+    Scope scope = CLUSTER;
+    if (stripeId != null) {
+      pos = expectIndex(input, expect(input, 0, "stripe."));
+      scope = STRIPE;
+      if (nodeId != null) {
+        pos = expectIndex(input, expect(input, pos, ".node."));
+        scope = NODE;
+      }
+      if (pos >= 0 && pos < input.length() && (input.charAt(pos) == '.' || input.charAt(pos) == ':')) {
+        pos++;
+      } else {
+        pos = -1;
       }
     }
 
-    if (stripeId != null && nodeId == null) {
-      for (Map.Entry<Pattern, BiFunction<String, Matcher, Configuration>> entry : STRIPE_PATTERNS.entrySet()) {
-        Matcher matcher = entry.getKey().matcher(input);
-        if (matcher.matches()) {
-          return entry.getValue().apply(input, matcher);
-        }
+    // setting name: [a-z\-]+
+    int end = pos;
+    while (end >= 0 && end < input.length() && (input.charAt(end) >= 'a' && input.charAt(end) <= 'z' || input.charAt(end) == '-')) {
+      end++;
+    }
+    if (end <= pos || !setting.toString().equals(input.substring(pos, end))) {
+      throw new IllegalArgumentException("Invalid input: '" + input + "'");
+    }
+    pos = end;
+
+    // key: [^=:]+
+    String key = null;
+    if (pos < input.length() && input.charAt(pos) == '.') {
+      end = pos + 1;
+      while (end < input.length() && input.charAt(end) != '=' && input.charAt(end) != ':') {
+        end++;
+      }
+      if (end == pos + 1 || end < input.length() && input.charAt(end) == ':') {
+        throw new IllegalArgumentException("Invalid input: '" + input + "'");
+      }
+      key = input.substring(pos + 1, end);
+      pos = end;
+    }
+
+    // value: [^=]*
+    String value = null;
+    if (pos < input.length()) {
+      if (input.charAt(pos) != '=' || input.indexOf('=', pos + 1) >= 0) {
+        throw new IllegalArgumentException("Invalid input: '" + input + "'");
+      }
+      value = input.substring(pos + 1);
+    }
+
+    return new Configuration(input, setting, scope, stripeId, nodeId, key, value);
+  }
+
+  private static int expect(String input, int pos, String expected) {
+    return pos >= 0 && input.startsWith(expected, pos) ? pos + expected.length() : -1;
+  }
+
+  private static int expectIndex(String input, int pos) {
+    int end = pos;
+    while (end >= 0 && end < input.length() && input.charAt(end) >= '0' && input.charAt(end) <= '9') {
+      end++;
+    }
+    return end > pos ? end : -1;
+  }
+
+  /**
+   * Splits an input on '.', ':' and '=' the same way a {@link Scanner} would with this delimiter:
+   * one delimiter is skipped before reading a token, so consecutive delimiters produce empty tokens
+   */
+  private static class Tokenizer {
+    private final String input;
+    private int pos;
+
+    Tokenizer(String input) {
+      this.input = input;
+    }
+
+    boolean hasNext() {
+      return start() < input.length();
+    }
+
+    String next() {
+      int start = start();
+      if (start >= input.length()) {
+        throw new NoSuchElementException();
+      }
+      int end = start;
+      while (end < input.length() && !isDelimiter(input.charAt(end))) {
+        end++;
       }
+      pos = end;
+      return input.substring(start, end);
     }
 
-    if (stripeId == null) {
-      for (Map.Entry<Pattern, BiFunction<String, Matcher, Configuration>> entry : CLUSTER_PATTERNS.entrySet()) {
-        Matcher matcher = entry.getKey().matcher(input);
-        if (matcher.matches()) {
-          return entry.getValue().apply(input, matcher);
+    int nextInt(String rawInput) {
+      if (!hasNext()) {
+        throw new IllegalArgumentException("Invalid input: '" + rawInput + "'");
+      }
+      String token = next();
+      try {
+        return Integer.parseInt(token);
+      } catch (NumberFormatException e) {
+        // not a plain number: let the scanner decide (signs, group separators, non-ascii digits...)
+        // the input won't match the grammar anyway
+        try (Scanner scanner = new Scanner(token).useDelimiter("[.:=]")) {
+          return scanner.nextInt(10);
+        } catch (NoSuchElementException ignored) {
+          throw new IllegalArgumentException("Invalid input: '" + rawInput + "'");
         }
       }
     }
 
-    throw new IllegalArgumentException("Invalid input: '" + input + "'");
+    private int start() {
+      return pos < input.length() && isDelimiter(input.charAt(pos)) ? pos + 1 : pos;
+    }
+
+    private static boolean isDelimiter(char c) {
+      return c == '.' || c == ':' || c == '=';
+    }
   }
 
   public static Configuration valueOf(Setting setting) {
@@ -27,7 +27,9 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.terracotta.dynamic_config.api.model.Scope.NODE;
 
@@ -53,6 +55,9 @@ public class Node implements Cloneable, PropertyHolder {
   private final Map<String, String> nodeLoggerOverrides = new ConcurrentHashMap<>();
   private final Map<String, Path> dataDirs = new ConcurrentHashMap<>();
 
+  // the stripes holding this node, told when the node name or addresses change so that the lookup index of their cluster is rebuilt
+  private final List<Stripe> parents = new CopyOnWriteArrayList<>();
+
   protected Node() {
   }
 
@@ -162,26 +167,31 @@ public class Node implements Cloneable, PropertyHolder {
 
   public Node setNodeName(String nodeName) {
     this.nodeName = nodeName;
+    modified();
     return this;
   }
 
   public Node setNodeHostname(String nodeHostname) {
     this.nodeHostname = nodeHostname;
+    modified();
     return this;
   }
 
   public Node setNodePublicHostname(String nodePublicHostname) {
     this.nodePublicHostname = nodePublicHostname;
+    modified();
     return this;
   }
 
   public Node setNodePort(int nodePort) {
     this.nodePort = nodePort;
+    modified();
     return this;
   }
 
   public Node setNodePublicPort(Integer nodePublicPort) {
     this.nodePublicPort = nodePublicPort;
+    modified();
     return this;
   }
 
@@ -258,6 +268,29 @@ public class Node implements Cloneable, PropertyHolder {
         getNodePublicAddress().map(addr -> InetSocketAddressUtils.areEqual(address, addr)).orElse(false);
   }
 
+  void addParent(Stripe stripe) {
+    if (parents.stream().noneMatch(parent -> parent == stripe)) {
+      parents.add(stripe);
+    }
+  }
+
+  void removeParent(Stripe stripe) {
+    parents.removeIf(parent -> parent == stripe);
+  }
+
+  private void modified() {
+    parents.forEach(Stripe::modified);
+  }
+
+  /**
+   * @return true if the node name is set and if its addresses can be built, without any placeholder left
+   */
+  boolean isAddressable() {
+    return nodeName != null
+        && nodeHostname != null && !Substitutor.containsSubstitutionParams(nodeHostname)
+        && (nodePublicHostname == null || nodePublicPort == null || !Substitutor.containsSubstitutionParams(nodePublicHostname));
+  }
+
   public InetSocketAddress getNodeAddress() {
     return getNodePublicAddress().orElseGet(this::getNodeInternalAddress);
   }
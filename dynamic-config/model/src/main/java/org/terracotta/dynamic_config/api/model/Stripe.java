@@ -38,8 +38,12 @@ import static java.util.stream.Collectors.toList;
 public class Stripe implements Cloneable, PropertyHolder {
   private final List<Node> nodes;
 
+  // the clusters holding this stripe, told when its nodes change so that their lookup index is rebuilt
+  private final List<Cluster> parents = new CopyOnWriteArrayList<>();
+
   public Stripe(List<Node> nodes) {
     this.nodes = new CopyOnWriteArrayList<>(requireNonNull(nodes));
+    this.nodes.forEach(node -> node.addParent(this));
   }
 
   public Stripe(Node... nodes) {
@@ -110,7 +114,14 @@ public class Stripe implements Cloneable, PropertyHolder {
   // please keep this package-local:
   // detachment of a node should be handled by cluster object
   boolean detachNode(InetSocketAddress address) {
-    return nodes.removeIf(node -> node.hasAddress(address));
+    List<Node> detached = nodes.stream().filter(node -> node.hasAddress(address)).collect(toList());
+    if (detached.isEmpty()) {
+      return false;
+    }
+    nodes.removeAll(detached);
+    detached.forEach(node -> node.removeParent(this));
+    modified();
+    return true;
   }
 
   public boolean isEmpty() {
@@ -140,6 +151,8 @@ public class Stripe implements Cloneable, PropertyHolder {
 
   public Stripe addNode(Node source) {
     nodes.add(source);
+    source.addParent(this);
+    modified();
     return this;
   }
 
@@ -204,4 +217,18 @@ public class Stripe implements Cloneable, PropertyHolder {
   public Scope getScope() {
     return Scope.STRIPE;
   }
+
+  void addParent(Cluster cluster) {
+    if (parents.stream().noneMatch(parent -> parent == cluster)) {
+      parents.add(cluster);
+    }
+  }
+
+  void removeParent(Cluster cluster) {
+    parents.removeIf(parent -> parent == cluster);
+  }
+
+  void modified() {
+    parents.forEach(Cluster::modified);
+  }
 }
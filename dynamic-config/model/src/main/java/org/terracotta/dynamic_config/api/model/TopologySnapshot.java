@@ -0,0 +1,92 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.api.model;
+
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Upcoming and runtime topologies of a node, published together.
+ * <p>
+ * A snapshot is never modified once published, and the node contexts that do not change are shared
+ * between consecutive snapshots, so reading one does not need any copy or lock. For the same reason, the
+ * node contexts of a snapshot must not be modified: use {@link NodeContext#clone()} to get a modifiable copy.
+ */
+public final class TopologySnapshot {
+
+  private final NodeContext upcomingNodeContext;
+  private final NodeContext runtimeNodeContext;
+
+  /**
+   * Snapshot of a node that is not activated, or was just started: runtime and upcoming topologies are the same
+   */
+  public TopologySnapshot(NodeContext nodeContext) {
+    this(nodeContext, nodeContext);
+  }
+
+  public TopologySnapshot(NodeContext upcomingNodeContext, NodeContext runtimeNodeContext) {
+    this.upcomingNodeContext = requireNonNull(upcomingNodeContext);
+    requireNonNull(runtimeNodeContext);
+    // share the same topology when equal so that they do not need to be compared again
+    this.runtimeNodeContext = runtimeNodeContext != upcomingNodeContext && runtimeNodeContext.equals(upcomingNodeContext) ?
+        upcomingNodeContext :
+        runtimeNodeContext;
+  }
+
+  /**
+   * @return the topology that will be effective after a restart
+   */
+  public NodeContext getUpcomingNodeContext() {
+    return upcomingNodeContext;
+  }
+
+  /**
+   * @return the topology currently in effect
+   */
+  public NodeContext getRuntimeNodeContext() {
+    return runtimeNodeContext;
+  }
+
+  /**
+   * @return true if the upcoming topology contains some changes that will only be applied after a restart
+   */
+  public boolean mustBeRestarted() {
+    return runtimeNodeContext != upcomingNodeContext;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof TopologySnapshot)) return false;
+    TopologySnapshot that = (TopologySnapshot) o;
+    return upcomingNodeContext.equals(that.upcomingNodeContext) &&
+        runtimeNodeContext.equals(that.runtimeNodeContext);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(upcomingNodeContext, runtimeNodeContext);
+  }
+
+  @Override
+  public String toString() {
+    return "TopologySnapshot{" +
+        "upcoming=" + upcomingNodeContext +
+        ", runtime=" + runtimeNodeContext +
+        '}';
+  }
+}
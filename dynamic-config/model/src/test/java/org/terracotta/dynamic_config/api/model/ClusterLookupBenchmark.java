@@ -0,0 +1,60 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.api.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.testing.MicroBenchmark;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares looking up each node of a 100 nodes cluster by address with the indexed lookups
+ * of {@link Cluster} and with a scan of all the nodes, as the lookups did before.
+ */
+@RunWith(JUnit4.class)
+public class ClusterLookupBenchmark {
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  @Test
+  public void lookups() throws Exception {
+    Cluster cluster = ConfigurationParserBenchmark.createCluster(25, 4);
+    Collection<InetSocketAddress> addresses = cluster.getNodeAddresses();
+    assertEquals(100, addresses.size());
+
+    benchmark.measure("getNode(address) - scan", () -> addresses.stream().map(address -> scan(cluster, address)).collect(toList()));
+    benchmark.measure("getNode(address) - index", () -> addresses.stream().map(cluster::getNode).collect(toList()));
+    // each change to a node address rebuilds the index on the next lookup
+    Node node = cluster.getStripes().get(0).getNodes().get(0);
+    benchmark.measure("getNode(address) after a node change - index", () -> cluster.getNode(node.setNodePort(node.getNodePort()).getNodeAddress()));
+  }
+
+  private static Optional<Node> scan(Cluster cluster, InetSocketAddress address) {
+    return cluster.getStripes().stream()
+        .flatMap(stripe -> stripe.getNodes().stream())
+        .filter(node -> node.hasAddress(address))
+        .findAny();
+  }
+}
@@ -231,6 +231,67 @@ public class ClusterTest {
         is(throwing(instanceOf(IllegalArgumentException.class)).andMessage(is(equalTo("Invalid stripe ID: 0")))));
   }
 
+  @Test
+  public void test_lookups_follow_topology_changes() {
+    InetSocketAddress address1 = node1.getNodeAddress();
+    InetSocketAddress address2 = node2.getNodeAddress();
+    assertThat(cluster.getNode(address1).get(), is(sameInstance(node1)));
+    assertThat(cluster.getNode(1, "node1").get(), is(sameInstance(node1)));
+
+    // node changes
+    node1.setNodePort(9500).setNodeName("node1-renamed");
+    assertThat(cluster.containsNode(address1), is(false));
+    assertThat(cluster.getNode(InetSocketAddress.createUnresolved("localhost", 9500)).get(), is(sameInstance(node1)));
+    assertThat(cluster.getNode(1, "node1").isPresent(), is(false));
+    assertThat(cluster.getNode(1, "node1-renamed").get(), is(sameInstance(node1)));
+
+    node1.setNodePublicHostname("public-host").setNodePublicPort(9600);
+    assertThat(cluster.getNode(InetSocketAddress.createUnresolved("public-host", 9600)).get(), is(sameInstance(node1)));
+    assertThat(cluster.getNode(InetSocketAddress.createUnresolved("localhost", 9500)).get(), is(sameInstance(node1)));
+
+    // stripe changes
+    stripe1.addNode(node2);
+    assertThat(cluster.getStripeId(address2).getAsInt(), is(1));
+    assertThat(cluster.getNodeId(address2).getAsInt(), is(2));
+
+    cluster.detachNode(address2);
+    assertThat(cluster.containsNode(address2), is(false));
+
+    // cluster changes
+    cluster.addStripe(new Stripe(node2));
+    assertThat(cluster.getStripe(address2).get(), is(sameInstance(cluster.getStripes().get(1))));
+    assertThat(cluster.getNodeId(2, "node2").getAsInt(), is(1));
+
+    cluster.detachStripe(cluster.getStripes().get(1));
+    assertThat(cluster.getStripeId(address2).isPresent(), is(false));
+    assertThat(cluster.containsNode(2, "node2"), is(false));
+
+    // when several nodes have the same address, the first one is returned
+    Node duplicate = node1.clone().setNodeName("duplicate");
+    cluster.addStripe(new Stripe(duplicate));
+    assertThat(cluster.getNode(InetSocketAddress.createUnresolved("localhost", 9500)).get(), is(sameInstance(node1)));
+    assertThat(cluster.getNode(2, "duplicate").get(), is(sameInstance(duplicate)));
+  }
+
+  @Test
+  public void test_lookups_of_shared_stripes_follow_node_changes() {
+    Cluster other = Cluster.newDefaultCluster("other", stripe1);
+    InetSocketAddress address1 = node1.getNodeAddress();
+    assertThat(cluster.getNode(address1).get(), is(sameInstance(node1)));
+    assertThat(other.getNode(address1).get(), is(sameInstance(node1)));
+
+    node1.setNodePort(9500);
+    InetSocketAddress moved = InetSocketAddress.createUnresolved("localhost", 9500);
+    assertThat(cluster.getNode(moved).get(), is(sameInstance(node1)));
+    assertThat(other.getNode(moved).get(), is(sameInstance(node1)));
+
+    // a detached stripe does not belong to the cluster anymore
+    other.detachStripe(stripe1);
+    stripe1.addNode(node2);
+    assertThat(cluster.getNodeId(node2.getNodeAddress()).getAsInt(), is(2));
+    assertThat(other.containsNode(node2.getNodeAddress()), is(false));
+  }
+
   @Test
   public void test_forEach() {
     cluster.attachStripe(new Stripe(node2));
@@ -0,0 +1,78 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.api.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.common.struct.MemoryUnit;
+import org.terracotta.dynamic_config.api.model.ConfigurationParserTest.PatternParser;
+import org.terracotta.testing.MicroBenchmark;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.stream.Collectors.toList;
+import static org.terracotta.dynamic_config.api.model.Node.newDefaultNode;
+
+/**
+ * Compares the parsing of the configuration lines of synthetic clusters of 1 to 64 stripes
+ * with {@link Configuration#valueOf(String)} and with the previous parser matching the lines against regular expressions.
+ */
+@RunWith(JUnit4.class)
+public class ConfigurationParserBenchmark {
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  @Test
+  public void parse_cluster_configurations() throws Exception {
+    for (int stripes : new int[]{1, 4, 16, 64}) {
+      List<String> lines = lines(createCluster(stripes, 2));
+
+      benchmark.record(stripes + " stripes - lines", lines.size());
+      benchmark.measure(stripes + " stripes - patterns", () -> lines.stream().map(PatternParser::valueOf).collect(toList()));
+      benchmark.measure(stripes + " stripes - parser", () -> lines.stream().map(Configuration::valueOf).collect(toList()));
+    }
+  }
+
+  static Cluster createCluster(int stripeCount, int nodesPerStripe) {
+    Stripe[] stripes = new Stripe[stripeCount];
+    for (int s = 0; s < stripeCount; s++) {
+      Node[] nodes = new Node[nodesPerStripe];
+      for (int n = 0; n < nodesPerStripe; n++) {
+        int id = s * nodesPerStripe + n;
+        nodes[n] = newDefaultNode("node-" + id, "host-" + id, 9410)
+            .setDataDir("main", Paths.get("%H/data/main"))
+            .setDataDir("second", Paths.get("%H/data/second"))
+            .setTcProperty("topology.validate", "true");
+      }
+      stripes[s] = new Stripe(nodes);
+    }
+    Cluster cluster = Cluster.newDefaultCluster("my-cluster", stripes);
+    for (int i = 0; i < 8; i++) {
+      cluster.setOffheapResource("offheap-" + i, 512, MemoryUnit.MB);
+    }
+    return cluster;
+  }
+
+  private static List<String> lines(Cluster cluster) {
+    Properties properties = cluster.toProperties(true, true);
+    return properties.stringPropertyNames().stream().map(key -> key + "=" + properties.getProperty(key)).collect(toList());
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.api.model;
+
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.terracotta.dynamic_config.api.model.Scope.CLUSTER;
+import static org.terracotta.dynamic_config.api.model.Scope.NODE;
+import static org.terracotta.dynamic_config.api.model.Scope.STRIPE;
+
+/**
+ * Compares {@link Configuration#valueOf(String)} with the previous parser, which matched the inputs against
+ * a list of regular expressions, on generated valid and invalid inputs.
+ * Run it with a larger {@code -Dconfiguration.parser.inputs} (e.g. 1200000) when changing the parser.
+ */
+public class ConfigurationParserTest {
+
+  private static final int INPUTS = Integer.getInteger("configuration.parser.inputs", 16_000);
+
+  @Test
+  public void test_same_results_as_pattern_parser() {
+    Random random = new Random(0);
+    int valid = 0;
+    for (int i = 0; i < INPUTS; i++) {
+      String input = randomInput(random);
+      String expected = outcome(input, true);
+      assertEquals(input, expected, outcome(input, false));
+      if (expected.startsWith("ok ")) {
+        valid++;
+      }
+    }
+    // make sure the generated inputs exercise both the valid and the invalid paths
+    assertTrue(String.valueOf(valid), valid > INPUTS / 50);
+    assertTrue(String.valueOf(valid), valid < INPUTS / 2);
+  }
+
+  /**
+   * @return an input following the grammar most of the time, but with random alterations
+   */
+  static String randomInput(Random random) {
+    String[] settings = Stream.of(Setting.values()).map(Setting::toString).toArray(String[]::new);
+    String[] indexes = {"1", "2", "3", "10", "64", "0", "007", "-1", "+2", "1,000", "99999999999", "\u0661", "", "a"};
+    String[] keys = {"main", "second", "a.b", "x y", "", "k:v", "stripe", "node", "1"};
+    String[] values = {"1GB", "foo/bar", "%H/dir", "localhost:9410", "a=b", " ", "", "true", "availability", "10s"};
+
+    StringBuilder sb = new StringBuilder();
+    if (random.nextInt(10) == 0) {
+      sb.append(' ');
+    }
+    int level = random.nextInt(3);
+    if (level > 0) {
+      sb.append("stripe.").append(indexes[random.nextInt(3) == 0 ? random.nextInt(indexes.length) : random.nextInt(4)]);
+      if (level > 1) {
+        sb.append(".node.").append(indexes[random.nextInt(3) == 0 ? random.nextInt(indexes.length) : random.nextInt(4)]);
+      }
+      sb.append(random.nextInt(4) == 0 ? ':' : '.');
+    }
+    sb.append(random.nextInt(20) == 0 ? "foo-bar" : settings[random.nextInt(settings.length)]);
+    if (random.nextBoolean()) {
+      sb.append('.').append(keys[random.nextInt(keys.length)]);
+    }
+    if (random.nextInt(3) > 0) {
+      sb.append('=').append(values[random.nextInt(values.length)]);
+    }
+    if (random.nextInt(10) == 0) {
+      sb.append(' ');
+    }
+
+    // alter some inputs
+    String alphabet = ".:=-_ 1az";
+    for (int i = random.nextInt(4) == 0 ? random.nextInt(3) + 1 : 0; i > 0 && sb.length() > 0; i--) {
+      int pos = random.nextInt(sb.length());
+      switch (random.nextInt(3)) {
+        case 0:
+          sb.insert(pos, alphabet.charAt(random.nextInt(alphabet.length())));
+          break;
+        case 1:
+          sb.deleteCharAt(pos);
+          break;
+        default:
+          sb.setCharAt(pos, alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String outcome(String input, boolean withPatterns) {
+    try {
+      Configuration configuration = withPatterns ? PatternParser.valueOf(input) : Configuration.valueOf(input);
+      Scope scope = configuration.getScope();
+      return "ok " + configuration
+          + " | " + scope
+          + " | " + (scope == CLUSTER ? "-" : configuration.getStripeId())
+          + " | " + (scope == NODE ? configuration.getNodeId() : "-")
+          + " | " + configuration.getSetting()
+          + " | " + configuration.getKey()
+          + " | " + configuration.getValue();
+    } catch (RuntimeException e) {
+      return e.getClass().getName() + ": " + e.getMessage();
+    }
+  }
+
+  /**
+   * The previous implementation of {@link Configuration#valueOf(String)}
+   */
+  static class PatternParser {
+    private static final Map<String, Setting> SETTINGS = Stream.of(Setting.values()).collect(toMap(Setting::toString, identity()));
+
+    private static final String GRP_STRIPE = "stripe\\.(\\d+)";
+    private static final String GRP_NODE = "node\\.(\\d+)";
+    private static final String SEP = "\\.";
+    private static final String NS = "[.:]"; // namespace separator
+    private static final String GRP_SETTING = "([a-z\\-]+)";
+    private static final String GRP_KEY = "([^=:]+)";
+    private static final String ASSIGN = "=";
+    private static final String GRP_VALUE = "([^=]+)";
+
+    private static final List<Pattern> CLUSTER_PATTERNS = patterns("");
+    private static final List<Pattern> STRIPE_PATTERNS = patterns(GRP_STRIPE + NS);
+    private static final List<Pattern> NODE_PATTERNS = patterns(GRP_STRIPE + SEP + GRP_NODE + NS);
+
+    private static final Constructor<Configuration> CONSTRUCTOR;
+
+    static {
+      try {
+        CONSTRUCTOR = Configuration.class.getDeclaredConstructor(String.class, Setting.class, Scope.class, Integer.class, Integer.class, String.class, String.class);
+        CONSTRUCTOR.setAccessible(true);
+      } catch (NoSuchMethodException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    // in the same order as before: <setting>.<key>=<value>, <setting>=<value>, <setting>.<key>=, <setting>=, <setting>.<key>, <setting>
+    private static List<Pattern> patterns(String prefix) {
+      List<Pattern> patterns = new ArrayList<>();
+      for (String assign : new String[]{ASSIGN + GRP_VALUE, ASSIGN, ""}) {
+        patterns.add(Pattern.compile("^" + prefix + GRP_SETTING + SEP + GRP_KEY + assign + "$"));
+        patterns.add(Pattern.compile("^" + prefix + GRP_SETTING + assign + "$"));
+      }
+      return patterns;
+    }
+
+    static Configuration valueOf(String input) {
+      input = input.trim();
+
+      Integer stripeId = null;
+      Integer nodeId = null;
+      Setting setting = null;
+
+      try (Scanner scanner = new Scanner(input).useDelimiter("[.:=]")) {
+        while (scanner.hasNext() && setting == null) {
+          String next = scanner.next();
+          switch (next) {
+            case "stripe": {
+              if (stripeId != null) {
+                throw new IllegalArgumentException("Invalid input: '" + input + "'");
+              }
+              stripeId = scanner.nextInt(10);
+              break;
+            }
+            case "node": {
+              if (nodeId != null || stripeId == null) {
+                throw new IllegalArgumentException("Invalid input: '" + input + "'");
+              }
+              nodeId = scanner.nextInt(10);
+              break;
+            }
+            default: {
+              if (SETTINGS.containsKey(next)) {
+                setting = Setting.fromName(next);
+              } else {
+                throw new IllegalArgumentException("Invalid input: '" + input + "'. Reason: Invalid setting name: '" + next + "'");
+              }
+            }
+          }
+        }
+      } catch (NoSuchElementException e) {
+        throw new IllegalArgumentException("Invalid input: '" + input + "'");
+      }
+
+      if (setting == null) {
+        throw new IllegalArgumentException("Invalid input: '" + input + "'. Reason: valid setting name not found");
+      }
+
+      Scope scope = stripeId == null ? CLUSTER : nodeId == null ? STRIPE : NODE;
+      List<Pattern> patterns = scope == CLUSTER ? CLUSTER_PATTERNS : scope == STRIPE ? STRIPE_PATTERNS : NODE_PATTERNS;
+      int offset = scope == CLUSTER ? 0 : scope == STRIPE ? 1 : 2;
+      for (int i = 0; i < patterns.size(); i++) {
+        Matcher matcher = patterns.get(i).matcher(input);
+        if (matcher.matches()) {
+          boolean hasKey = i % 2 == 0;
+          String key = hasKey ? matcher.group(offset + 2) : null;
+          String value = i < 2 ? matcher.group(offset + (hasKey ? 3 : 2)) : i < 4 ? "" : null;
+          return create(input, Setting.fromName(matcher.group(offset + 1)), scope,
+              offset > 0 ? Integer.parseInt(matcher.group(1)) : null,
+              offset > 1 ? Integer.parseInt(matcher.group(2)) : null,
+              key, value);
+        }
+      }
+
+      throw new IllegalArgumentException("Invalid input: '" + input + "'");
+    }
+
+    private static Configuration create(String input, Setting setting, Scope scope, Integer stripeId, Integer nodeId, String key, String value) {
+      try {
+        return CONSTRUCTOR.newInstance(input, setting, scope, stripeId, nodeId, key, value);
+      } catch (InvocationTargetException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new AssertionError(e.getCause());
+      } catch (ReflectiveOperationException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+}
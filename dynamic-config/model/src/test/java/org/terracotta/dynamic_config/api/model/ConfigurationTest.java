@@ -522,6 +522,13 @@ public class ConfigurationTest {
       rejectInput("stripe.1.node.1.stripe.1" + ns + "backup-dir", "Invalid input: 'stripe.1.node.1.stripe.1" + ns + "backup-dir'");
       rejectInput("stripe.1.node.1.node.1" + ns + "backup-dir", "Invalid input: 'stripe.1.node.1.node.1" + ns + "backup-dir'");
       rejectInput("stripe" + ns + "backup-dir", "Invalid input: 'stripe" + ns + "backup-dir'");
+      rejectInput("stripe.99999999999" + ns + "backup-dir", "Invalid input: 'stripe.99999999999" + ns + "backup-dir'");
+      rejectInput("stripe.+1" + ns + "backup-dir", "Invalid input: 'stripe.+1" + ns + "backup-dir'");
+      rejectInput(ns + "backup-dir=foo", "Invalid input: '" + ns + "backup-dir=foo'");
+      rejectInput("stripe.1" + ns + ns + "backup-dir", "Invalid input: 'stripe.1" + ns + ns + "backup-dir'. Reason: Invalid setting name: ''");
+      rejectInput("stripe.1.node.1" + ns + "backup-dir=foo=bar", "Invalid input: 'stripe.1.node.1" + ns + "backup-dir=foo=bar'");
+      rejectInput("stripe.1.node.1" + ns + "offheap-resources.=1GB", "Invalid input: 'stripe.1.node.1" + ns + "offheap-resources.=1GB'");
+      rejectInput("stripe.1.node.1" + ns + "offheap-resources.a:b=1GB", "Invalid input: 'stripe.1.node.1" + ns + "offheap-resources.a:b=1GB'");
 
       // bad settings combinations
       rejectInput("backup-dir.key", "Invalid input: 'backup-dir.key'. Reason: backup-dir is not a map and must not have a key");
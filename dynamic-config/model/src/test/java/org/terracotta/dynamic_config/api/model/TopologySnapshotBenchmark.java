@@ -0,0 +1,61 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.api.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.testing.MicroBenchmark;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares reading the topology of a 16 stripes, 64 nodes cluster by copying it, as the topology service did on each
+ * call, with reading the published {@link TopologySnapshot}.
+ */
+@RunWith(JUnit4.class)
+public class TopologySnapshotBenchmark {
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  @Test
+  public void topology_reads() throws Exception {
+    Cluster cluster = ConfigurationParserBenchmark.createCluster(16, 4);
+    assertEquals(64, cluster.getNodeCount());
+    NodeContext nodeContext = new NodeContext(cluster, 1, "node-0");
+    TopologySnapshot snapshot = new TopologySnapshot(nodeContext);
+
+    // reads the upcoming and runtime topologies, and whether they differ
+    benchmark.measure("topology reads - copies", () -> copy(nodeContext));
+    benchmark.measure("topology reads - snapshot", () -> read(snapshot));
+  }
+
+  private static int copy(NodeContext nodeContext) {
+    NodeContext upcoming = nodeContext.clone();
+    NodeContext runtime = nodeContext.clone();
+    boolean mustBeRestarted = !runtime.equals(upcoming);
+    return upcoming.getCluster().getNodeCount() + runtime.getCluster().getNodeCount() + (mustBeRestarted ? 1 : 0);
+  }
+
+  private static int read(TopologySnapshot snapshot) {
+    NodeContext upcoming = snapshot.getUpcomingNodeContext();
+    NodeContext runtime = snapshot.getRuntimeNodeContext();
+    boolean mustBeRestarted = snapshot.mustBeRestarted();
+    return upcoming.getCluster().getNodeCount() + runtime.getCluster().getNodeCount() + (mustBeRestarted ? 1 : 0);
+  }
+}
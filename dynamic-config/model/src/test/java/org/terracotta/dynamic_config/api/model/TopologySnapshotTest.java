@@ -0,0 +1,59 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.api.model;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.terracotta.dynamic_config.api.model.Node.newDefaultNode;
+
+public class TopologySnapshotTest {
+
+  Node node1 = newDefaultNode("node1", "localhost", 9410);
+  Node node2 = newDefaultNode("node2", "localhost", 9411);
+  NodeContext nodeContext = new NodeContext(Cluster.newDefaultCluster("my-cluster", new Stripe(node1, node2)), 1, "node1");
+
+  @Test
+  public void test_same_topology() {
+    TopologySnapshot snapshot = new TopologySnapshot(nodeContext);
+    assertThat(snapshot.getUpcomingNodeContext(), is(sameInstance(nodeContext)));
+    assertThat(snapshot.getRuntimeNodeContext(), is(sameInstance(nodeContext)));
+    assertThat(snapshot.mustBeRestarted(), is(false));
+  }
+
+  @Test
+  public void test_equal_topologies_are_shared() {
+    TopologySnapshot snapshot = new TopologySnapshot(nodeContext, nodeContext.clone());
+    assertThat(snapshot.getRuntimeNodeContext(), is(sameInstance(nodeContext)));
+    assertThat(snapshot.mustBeRestarted(), is(false));
+  }
+
+  @Test
+  public void test_different_topologies() {
+    NodeContext upcoming = nodeContext.clone();
+    upcoming.getCluster().setName("other-cluster");
+
+    TopologySnapshot snapshot = new TopologySnapshot(upcoming, nodeContext);
+
+    assertThat(snapshot.getUpcomingNodeContext(), is(sameInstance(upcoming)));
+    assertThat(snapshot.getRuntimeNodeContext(), is(sameInstance(nodeContext)));
+    assertThat(snapshot.getRuntimeNodeContext(), is(not(sameInstance(snapshot.getUpcomingNodeContext()))));
+    assertThat(snapshot.mustBeRestarted(), is(true));
+  }
+}
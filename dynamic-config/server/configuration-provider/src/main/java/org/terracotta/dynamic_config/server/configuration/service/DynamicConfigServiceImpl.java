@@ -25,6 +25,7 @@ import org.terracotta.dynamic_config.api.model.Cluster;
 import org.terracotta.dynamic_config.api.model.License;
 import org.terracotta.dynamic_config.api.model.Node;
 import org.terracotta.dynamic_config.api.model.NodeContext;
+import org.terracotta.dynamic_config.api.model.TopologySnapshot;
 import org.terracotta.dynamic_config.api.model.nomad.DynamicConfigNomadChange;
 import org.terracotta.dynamic_config.api.model.nomad.MultiSettingNomadChange;
 import org.terracotta.dynamic_config.api.model.nomad.SettingNomadChange;
@@ -77,19 +78,18 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
   private final Path licensePath;
   private final ObjectMapper objectMapper;
 
-  private volatile NodeContext upcomingNodeContext;
-  private volatile NodeContext runtimeNodeContext;
+  // published as a whole and never modified: readers do not need to lock or copy it
+  private volatile TopologySnapshot topology;
   private volatile boolean clusterActivated;
 
   public DynamicConfigServiceImpl(NodeContext nodeContext, LicenseService licenseService, NomadServerManager nomadServerManager, ObjectMapperFactory objectMapperFactory) {
-    this.upcomingNodeContext = requireNonNull(nodeContext);
-    this.runtimeNodeContext = requireNonNull(nodeContext);
+    this.topology = new TopologySnapshot(requireNonNull(nodeContext).clone());
     this.licenseService = requireNonNull(licenseService);
     this.nomadServerManager = requireNonNull(nomadServerManager);
     this.licensePath = nomadServerManager.getConfigurationManager().getLicensePath().resolve(LICENSE_FILE_NAME);
     this.objectMapper = objectMapperFactory.create();
     if (hasLicenseFile()) {
-      validateAgainstLicense(upcomingNodeContext.getCluster());
+      validateAgainstLicense(topology.getUpcomingNodeContext().getCluster());
     }
     new ClusterValidator(nodeContext.getCluster()).validate();
   }
@@ -101,6 +101,7 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
     if (isActivated()) {
       throw new AssertionError("Already activated");
     }
+    NodeContext upcomingNodeContext = topology.getUpcomingNodeContext();
     LOGGER.info("Preparing activation of Node with validated topology: {}", upcomingNodeContext.getCluster().toShapeString());
     nomadServerManager.upgradeForWrite(upcomingNodeContext.getStripeId(), upcomingNodeContext.getNodeName());
     LOGGER.debug("Setting nomad writable successful");
@@ -128,9 +129,10 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
     stateDumpCollector.addState("hasLicenseFile", hasLicenseFile());
     stateDumpCollector.addState("configurationDir", nomadServerManager.getConfigurationManager().getConfigurationDirectory().toString());
     stateDumpCollector.addState("activated", isActivated());
-    stateDumpCollector.addState("mustBeRestarted", mustBeRestarted());
-    stateDumpCollector.addState("runtimeNodeContext", toMap(getRuntimeNodeContext()));
-    stateDumpCollector.addState("upcomingNodeContext", toMap(getUpcomingNodeContext()));
+    TopologySnapshot topology = this.topology;
+    stateDumpCollector.addState("mustBeRestarted", topology.mustBeRestarted());
+    stateDumpCollector.addState("runtimeNodeContext", toMap(topology.getRuntimeNodeContext()));
+    stateDumpCollector.addState("upcomingNodeContext", toMap(topology.getUpcomingNodeContext()));
     StateDumpCollector nomad = stateDumpCollector.subStateDumpCollector("Nomad");
     try {
       DiscoverResponse<NodeContext> discoverResponse = nomadServerManager.getNomadServer().discover();
@@ -167,10 +169,10 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
   public void onSettingChanged(SettingNomadChange change, Cluster updated) {
     if (change.canApplyAtRuntime()) {
       LOGGER.info("Configuration change: {} applied at runtime", change.getSummary());
-      LOGGER.info("New cluster configuration: {}", runtimeNodeContext.getCluster().toProperties(true, true));
+      LOGGER.info("New cluster configuration: {}", topology.getRuntimeNodeContext().getCluster().toProperties(true, true));
     } else {
       LOGGER.info("Configuration change: {} will be applied after restart", change.getSummary());
-      LOGGER.info("Pending cluster configuration: {}", upcomingNodeContext.getCluster().toProperties(true, true));
+      LOGGER.info("Pending cluster configuration: {}", topology.getUpcomingNodeContext().getCluster().toProperties(true, true));
     }
     // do not fire events within a synchronized block
     listeners.forEach(c -> c.onSettingChanged(change, updated));
@@ -220,17 +222,27 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
       // the following code will be executed on all the nodes, regardless of the applicability
       // level to update the config
       synchronized (this) {
+        // changes are applied onto copies (see DynamicConfigNomadChange.apply()) so the published snapshot is left untouched
+        NodeContext upcomingNodeContext = topology.getUpcomingNodeContext();
+        NodeContext runtimeNodeContext = topology.getRuntimeNodeContext();
         for (DynamicConfigNomadChange nomadChange : nomadChanges) {
+          boolean shared = runtimeNodeContext == upcomingNodeContext;
           // first we update the upcoming one
           Cluster upcomingCluster = nomadChange.apply(upcomingNodeContext.getCluster());
           upcomingNodeContext = upcomingNodeContext.withCluster(upcomingCluster).orElseGet(upcomingNodeContext::alone);
           // if the change can be applied at runtime, it was previously done in the config change handler.
           // so update also the runtime topology there
           if (nomadChange.canApplyAtRuntime()) {
-            Cluster runtimeCluster = nomadChange.apply(runtimeNodeContext.getCluster());
-            runtimeNodeContext = runtimeNodeContext.withCluster(runtimeCluster).orElseGet(runtimeNodeContext::alone);
+            if (shared) {
+              // same topology, same change: no need to compute it twice
+              runtimeNodeContext = upcomingNodeContext;
+            } else {
+              Cluster runtimeCluster = nomadChange.apply(runtimeNodeContext.getCluster());
+              runtimeNodeContext = runtimeNodeContext.withCluster(runtimeCluster).orElseGet(runtimeNodeContext::alone);
+            }
           }
         }
+        topology = new TopologySnapshot(upcomingNodeContext, runtimeNodeContext);
       }
     } else {
       LOGGER.warn("Nomad change {} failed to commit: {}", message.getChangeUuid(), response);
@@ -249,13 +261,18 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
   }
 
   @Override
-  public synchronized NodeContext getUpcomingNodeContext() {
-    return upcomingNodeContext.clone();
+  public NodeContext getUpcomingNodeContext() {
+    return topology.getUpcomingNodeContext().clone();
   }
 
   @Override
-  public synchronized NodeContext getRuntimeNodeContext() {
-    return runtimeNodeContext.clone();
+  public NodeContext getRuntimeNodeContext() {
+    return topology.getRuntimeNodeContext().clone();
+  }
+
+  @Override
+  public TopologySnapshot getTopologySnapshot() {
+    return topology;
   }
 
   @Override
@@ -264,8 +281,8 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
   }
 
   @Override
-  public synchronized boolean mustBeRestarted() {
-    return !runtimeNodeContext.equals(upcomingNodeContext);
+  public boolean mustBeRestarted() {
+    return topology.mustBeRestarted();
   }
 
   @Override
@@ -273,32 +290,39 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
     return nomadServerManager.getNomadServer().hasIncompleteChange();
   }
 
+  @Override
+  public boolean isNomadBinaryEncodingSupported() {
+    return true;
+  }
+
   @Override
   public synchronized void setUpcomingCluster(Cluster updatedCluster) {
     if (isActivated()) {
-      throw new IllegalStateException("Use Nomad instead to change the topology of activated node: " + runtimeNodeContext.getNode().getNodeAddress());
+      throw new IllegalStateException("Use Nomad instead to change the topology of activated node: " + topology.getRuntimeNodeContext().getNode().getNodeAddress());
     }
 
     requireNonNull(updatedCluster);
 
     new ClusterValidator(updatedCluster).validate();
 
+    NodeContext upcomingNodeContext = topology.getUpcomingNodeContext();
     Node oldMe = upcomingNodeContext.getNode();
     Node newMe = findMe(updatedCluster);
 
     if (newMe != null) {
       // we have updated the topology and I am still part of this cluster
       LOGGER.info("Set upcoming topology to: {}", updatedCluster.toShapeString());
-      this.upcomingNodeContext = new NodeContext(updatedCluster, newMe.getNodeAddress());
+      // the snapshot must not be modified afterwards: do not keep the caller's instance
+      upcomingNodeContext = new NodeContext(updatedCluster.clone(), newMe.getNodeAddress());
     } else {
       // We have updated the topology and I am not part anymore of the cluster
       // So we just reset the cluster object so that this node is alone
       LOGGER.info("Node {} ({}) removed from pending topology: {}", oldMe.getNodeName(), oldMe.getNodeAddress(), updatedCluster.toShapeString());
-      this.upcomingNodeContext = this.upcomingNodeContext.withOnlyNode(oldMe);
+      upcomingNodeContext = upcomingNodeContext.withOnlyNode(oldMe);
     }
 
     // When node is not yet activated, runtimeNodeContext == upcomingNodeContext
-    this.runtimeNodeContext = upcomingNodeContext;
+    this.topology = new TopologySnapshot(upcomingNodeContext);
   }
 
   @Override
@@ -313,7 +337,7 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
     if (findMe(maybeUpdatedCluster) == null) {
       throw new IllegalArgumentException(String.format(
           "No match found for node: %s in cluster topology: %s",
-          upcomingNodeContext.getNodeName(),
+          topology.getUpcomingNodeContext().getNodeName(),
           maybeUpdatedCluster
       ));
     }
@@ -400,7 +424,7 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
       try {
         tempFile = Files.createTempFile("terracotta-license-", ".xml");
         Files.write(tempFile, licenseContent.getBytes(StandardCharsets.UTF_8));
-        licenseService.validate(tempFile, upcomingNodeContext.getCluster());
+        licenseService.validate(tempFile, topology.getUpcomingNodeContext().getCluster());
         LOGGER.info("License validated");
         LOGGER.debug("Moving license file: {} to: {}", tempFile, licensePath);
         org.terracotta.utilities.io.Files.relocate(tempFile, licensePath, StandardCopyOption.REPLACE_EXISTING);
@@ -440,6 +464,7 @@ public class DynamicConfigServiceImpl implements TopologyService, DynamicConfigS
    * So we try to find the best match we can...
    */
   private synchronized Node findMe(Cluster updatedCluster) {
+    final NodeContext upcomingNodeContext = topology.getUpcomingNodeContext();
     final Node me = upcomingNodeContext.getNode();
     return updatedCluster.getNode(me.getNodeInternalAddress()) // important to use the internal address
         .orElseGet(() -> updatedCluster.getNode(upcomingNodeContext.getStripeId(), me.getNodeName())
@@ -71,6 +71,27 @@ class Check {
     }
   }
 
+  /**
+   * Finds the common ancestor of the passive and active histories by only looking at the change identity
+   * (UUID, version and state), which is cheap compared to a full comparison of the changes.
+   *
+   * @return the index of the last change among the first {@code count} ones that are the same on both nodes,
+   * or -1 if the first change already differs
+   */
+  static int lastIndexOfCommonChange(List<NomadChangeInfo> passiveNomadChanges, List<NomadChangeInfo> activeNomadChanges, int count) {
+    int to = min(min(count, passiveNomadChanges.size()), activeNomadChanges.size());
+    for (int i = 0; i < to; i++) {
+      NomadChangeInfo passiveChange = passiveNomadChanges.get(i);
+      NomadChangeInfo activeChange = activeNomadChanges.get(i);
+      if (!passiveChange.getChangeUuid().equals(activeChange.getChangeUuid())
+          || passiveChange.getVersion() != activeChange.getVersion()
+          || passiveChange.getChangeRequestState() != activeChange.getChangeRequestState()) {
+        return i - 1;
+      }
+    }
+    return to - 1;
+  }
+
   static boolean canRepair(List<NomadChangeInfo> passiveNomadChanges, List<NomadChangeInfo> activeNomadChanges) {
     int last = passiveNomadChanges.size() - 1;
     NomadChangeInfo lastPassiveChange = passiveNomadChanges.get(last);
@@ -58,6 +58,11 @@ public class DynamicConfigurationPassiveSync {
     this.licenseContent = licenseContent;
   }
 
+  /**
+   * The sync is driven by the active without any message from the passive, so the active cannot know
+   * the last change of the passive: the whole append log is sent, and the passive only replays the
+   * changes after the last one it shares with the active.
+   */
   public DynamicConfigSyncData getSyncData() {
     try {
       return new DynamicConfigSyncData(nomadServer.getAllNomadChanges(), licenseContent.get());
@@ -193,11 +198,22 @@ public class DynamicConfigurationPassiveSync {
     } else {
       // passive is either not new or the activation was done at the same time with the active
       // (so the beginning of the append log is the same)
-      LOGGER.info("Comparing all changes from active and passive node");
-
-      // All the N changes of the passive node from 0 -> N-1 must be the same
       final int last = passiveNomadChanges.size() - 1;
-      Check.requireEquals(passiveNomadChanges, activeNomadChanges, 0, last);
+
+      // The passive history is usually a prefix of the active one: in this case, we only need to fully compare
+      // the last common change (the common ancestor) and to replay the changes after it.
+      // If the histories diverged, we fall back to a full comparison, which will report the first mismatch.
+      final int ancestor = Check.lastIndexOfCommonChange(passiveNomadChanges, activeNomadChanges, last);
+      if (ancestor == last - 1) {
+        if (ancestor >= 0) {
+          LOGGER.info("Passive history matches active history up to change version {}", activeNomadChanges.get(ancestor).getVersion());
+          Check.requireEquals(passiveNomadChanges, activeNomadChanges, ancestor, 1);
+        }
+      } else {
+        LOGGER.info("Comparing all changes from active and passive node");
+        // All the N changes of the passive node from 0 -> N-1 must be the same
+        Check.requireEquals(passiveNomadChanges, activeNomadChanges, 0, last);
+      }
 
       // Check if the last change can be repaired , otherwise, it has to match the active one.
       if (Check.canRepair(passiveNomadChanges, activeNomadChanges)) {
@@ -220,9 +236,14 @@ public class DynamicConfigurationPassiveSync {
   private Collection<Require> normalSync(List<NomadChangeInfo> changes, int from) throws NomadException {
     Collection<Require> requires = new HashSet<>(2);
     if (from < changes.size()) {
-      LOGGER.info("Passive is syncing {} configuration changes", changes.size());
+      LOGGER.info("Passive is syncing {} configuration changes", changes.size() - from);
+      // each prepare, commit or rollback accepted by the passive increments its mutative message count,
+      // so we only need to discover it once for the whole sync
+      long mutativeMessageCount = nomadServer.discover().getMutativeMessageCount();
       for (; from < changes.size(); from++) {
-        Require require = syncNomadChange(changes.get(from));
+        NomadChangeInfo change = changes.get(from);
+        Require require = syncNomadChange(change, mutativeMessageCount);
+        mutativeMessageCount += change.getChangeRequestState() == PREPARED ? 1 : 2;
         requires.add(require);
       }
     } else {
@@ -257,7 +278,7 @@ public class DynamicConfigurationPassiveSync {
     }
   }
 
-  private Require syncNomadChange(NomadChangeInfo nomadChangeInfo) throws NomadException {
+  private Require syncNomadChange(NomadChangeInfo nomadChangeInfo, long mutativeMessageCount) throws NomadException {
     LOGGER.debug("Syncing change version {} ({}) created at {} by {} from {}",
         nomadChangeInfo.getVersion(),
         nomadChangeInfo.getNomadChange().getSummary(),
@@ -265,9 +286,6 @@ public class DynamicConfigurationPassiveSync {
         nomadChangeInfo.getCreationUser(),
         nomadChangeInfo.getCreationHost());
 
-    DiscoverResponse<NodeContext> discoverResponse = nomadServer.discover();
-    long mutativeMessageCount = discoverResponse.getMutativeMessageCount();
-
     switch (nomadChangeInfo.getChangeRequestState()) {
       case PREPARED:
         prepare(nomadChangeInfo, mutativeMessageCount);
@@ -48,7 +48,9 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.terracotta.dynamic_config.api.model.nomad.Applicability.cluster;
@@ -248,6 +250,84 @@ public class DynamicConfigurationPassiveSyncTest {
     assertThat(requires.size(), is(equalTo(0)));
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSyncOnlyReplaysChangesAfterCommonAncestor() throws NomadException {
+    List<NomadChangeInfo> activeNomadChanges = new ArrayList<>();
+    UUID firstChange = UUID.randomUUID();
+    activeNomadChanges.add(activation);
+    activeNomadChanges.add(new NomadChangeInfo(firstChange, createOffheapChange("a", "100"), ChangeRequestState.COMMITTED, 1L, "SYSTEM", "SYSTEM", now));
+    activeNomadChanges.add(new NomadChangeInfo(UUID.randomUUID(), createOffheapChange("b", "200"), ChangeRequestState.COMMITTED, 2L, "SYSTEM", "SYSTEM", now));
+    activeNomadChanges.add(new NomadChangeInfo(UUID.randomUUID(), createOffheapChange("c", "300"), ChangeRequestState.COMMITTED, 3L, "SYSTEM", "SYSTEM", now));
+
+    UpgradableNomadServer<NodeContext> activeNomadServer = mock(UpgradableNomadServer.class);
+    DynamicConfigurationPassiveSync activeSyncManager = new DynamicConfigurationPassiveSync(startupTopology, activeNomadServer, mock(DynamicConfigService.class), () -> null);
+    when(activeNomadServer.getAllNomadChanges()).thenReturn(activeNomadChanges);
+    byte[] active = codec.encode(activeSyncManager.getSyncData());
+
+    List<NomadChangeInfo> passiveNomadChanges = new ArrayList<>();
+    passiveNomadChanges.add(activation);
+    passiveNomadChanges.add(new NomadChangeInfo(firstChange, createOffheapChange("a", "100"), ChangeRequestState.COMMITTED, 1L, "SYSTEM", "SYSTEM", now));
+
+    UpgradableNomadServer<NodeContext> nomadServer = mock(UpgradableNomadServer.class);
+    DiscoverResponse<NodeContext> discoverResponse = mock(DiscoverResponse.class);
+    AcceptRejectResponse acceptRejectResponse = mock(AcceptRejectResponse.class);
+    when(nomadServer.getAllNomadChanges()).thenReturn(passiveNomadChanges);
+    when(nomadServer.discover()).thenReturn(discoverResponse);
+    when(discoverResponse.getMutativeMessageCount()).thenReturn(10L);
+    when(nomadServer.prepare(any(PrepareMessage.class))).thenReturn(acceptRejectResponse);
+    when(nomadServer.commit(any(CommitMessage.class))).thenReturn(acceptRejectResponse);
+    when(acceptRejectResponse.isAccepted()).thenReturn(true);
+
+    DynamicConfigurationPassiveSync syncManager = new DynamicConfigurationPassiveSync(startupTopology, nomadServer, mock(DynamicConfigService.class), () -> null);
+    Set<Require> requires = syncManager.sync(codec.decode(active));
+    assertThat(requires, hasItem(RESTART_REQUIRED));
+
+    // only the 2 changes after the common ancestor are replayed, with a single discovery
+    verify(nomadServer, times(1)).discover();
+    verify(nomadServer, times(2)).prepare(any(PrepareMessage.class));
+    verify(nomadServer).prepare(argThat(m -> m.getChangeUuid().equals(activeNomadChanges.get(2).getChangeUuid()) && m.getExpectedMutativeMessageCount() == 10L));
+    verify(nomadServer).commit(argThat(m -> m.getChangeUuid().equals(activeNomadChanges.get(2).getChangeUuid()) && m.getExpectedMutativeMessageCount() == 11L));
+    verify(nomadServer).prepare(argThat(m -> m.getChangeUuid().equals(activeNomadChanges.get(3).getChangeUuid()) && m.getExpectedMutativeMessageCount() == 12L));
+    verify(nomadServer).commit(argThat(m -> m.getChangeUuid().equals(activeNomadChanges.get(3).getChangeUuid()) && m.getExpectedMutativeMessageCount() == 13L));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSyncWorkIsProportionalToMissedChanges() throws NomadException {
+    List<NomadChangeInfo> activeNomadChanges = new ArrayList<>();
+    activeNomadChanges.add(activation);
+    for (int i = 1; i <= 100; i++) {
+      activeNomadChanges.add(new NomadChangeInfo(UUID.randomUUID(), createOffheapChange("r" + i, String.valueOf(i)), ChangeRequestState.COMMITTED, i, "SYSTEM", "SYSTEM", now));
+    }
+
+    UpgradableNomadServer<NodeContext> activeNomadServer = mock(UpgradableNomadServer.class);
+    DynamicConfigurationPassiveSync activeSyncManager = new DynamicConfigurationPassiveSync(startupTopology, activeNomadServer, mock(DynamicConfigService.class), () -> null);
+    when(activeNomadServer.getAllNomadChanges()).thenReturn(activeNomadChanges);
+    byte[] active = codec.encode(activeSyncManager.getSyncData());
+
+    // the passive missed the last 3 changes
+    List<NomadChangeInfo> passiveNomadChanges = new ArrayList<>(activeNomadChanges.subList(0, activeNomadChanges.size() - 3));
+
+    UpgradableNomadServer<NodeContext> nomadServer = mock(UpgradableNomadServer.class);
+    DiscoverResponse<NodeContext> discoverResponse = mock(DiscoverResponse.class);
+    AcceptRejectResponse acceptRejectResponse = mock(AcceptRejectResponse.class);
+    when(nomadServer.getAllNomadChanges()).thenReturn(passiveNomadChanges);
+    when(nomadServer.discover()).thenReturn(discoverResponse);
+    when(discoverResponse.getMutativeMessageCount()).thenReturn(200L);
+    when(nomadServer.prepare(any(PrepareMessage.class))).thenReturn(acceptRejectResponse);
+    when(nomadServer.commit(any(CommitMessage.class))).thenReturn(acceptRejectResponse);
+    when(acceptRejectResponse.isAccepted()).thenReturn(true);
+
+    DynamicConfigurationPassiveSync syncManager = new DynamicConfigurationPassiveSync(startupTopology, nomadServer, mock(DynamicConfigService.class), () -> null);
+    syncManager.sync(codec.decode(active));
+
+    // the passive applies 3 changes out of the 101 of the history, with a single discovery
+    verify(nomadServer, times(1)).discover();
+    verify(nomadServer, times(3)).prepare(any(PrepareMessage.class));
+    verify(nomadServer, times(3)).commit(any(CommitMessage.class));
+  }
+
   private static SettingNomadChange createOffheapChange(String resourceName, String size) {
     return SettingNomadChange.set(cluster(), Setting.OFFHEAP_RESOURCES, resourceName, size);
   }
@@ -22,13 +22,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terracotta.dynamic_config.api.model.NodeContext;
 import org.terracotta.dynamic_config.server.api.DynamicConfigListener;
-import org.terracotta.dynamic_config.server.configuration.nomad.persistence.ClusterConfigFilename;
 import org.terracotta.dynamic_config.server.configuration.nomad.persistence.ConfigStorageAdapter;
 import org.terracotta.dynamic_config.server.configuration.nomad.persistence.ConfigStorageException;
 import org.terracotta.dynamic_config.server.configuration.nomad.persistence.DefaultHashComputer;
-import org.terracotta.dynamic_config.server.configuration.nomad.persistence.FileConfigStorage;
 import org.terracotta.dynamic_config.server.configuration.nomad.persistence.InitialConfigStorage;
 import org.terracotta.dynamic_config.server.configuration.nomad.persistence.NomadConfigurationManager;
+import org.terracotta.dynamic_config.server.configuration.nomad.persistence.PackedConfigStorage;
 import org.terracotta.dynamic_config.server.configuration.nomad.persistence.SanskritNomadServerState;
 import org.terracotta.json.ObjectMapperFactory;
 import org.terracotta.nomad.messages.AcceptRejectResponse;
@@ -75,7 +74,8 @@ public class NomadServerFactory {
     Sanskrit sanskrit = Sanskrit.init(filesystemDirectory, objectMapper);
 
     Path clusterDir = configurationManager.getClusterPath();
-    InitialConfigStorage<NodeContext> configStorage = new InitialConfigStorage<>(new ConfigStorageAdapter<NodeContext>(new FileConfigStorage(clusterDir, nodeName)) {
+    PackedConfigStorage packedConfigStorage = new PackedConfigStorage(clusterDir, nodeName);
+    InitialConfigStorage<NodeContext> configStorage = new InitialConfigStorage<>(new ConfigStorageAdapter<NodeContext>(packedConfigStorage) {
       @Override
       public void saveConfig(long version, NodeContext config) throws ConfigStorageException {
         super.saveConfig(version, config);
@@ -86,8 +86,7 @@ public class NomadServerFactory {
     SanskritNomadServerState<NodeContext> serverState = new SanskritNomadServerState<>(sanskrit, configStorage, new DefaultHashComputer(objectMapper));
     long currentVersion = serverState.getCurrentVersion();
     if (currentVersion != 0) {
-      String filename = ClusterConfigFilename.with(nodeName, currentVersion).getFilename();
-      LOGGER.info("Loading version: {} of saved configuration from: {}", currentVersion, clusterDir.resolve(filename));
+      LOGGER.info("Loading version: {} of saved configuration from: {}", currentVersion, packedConfigStorage.getFile());
     }
 
     return new SingleThreadedNomadServer<>(new UpgradableNomadServerAdapter<NodeContext>(new NomadServerImpl<>(serverState, changeApplicator)) {
@@ -109,6 +108,15 @@ public class NomadServerFactory {
       @Override
       public AcceptRejectResponse rollback(RollbackMessage message) throws NomadException {
         AcceptRejectResponse response = super.rollback(message);
+        if (response.isAccepted()) {
+          long version = getNomadChange(message.getChangeUuid()).get().getVersion();
+          try {
+            packedConfigStorage.rollback(version, serverState.getCurrentVersion());
+          } catch (ConfigStorageException e) {
+            // the properties files are only kept for book-keeping: the rollback itself succeeded
+            LOGGER.warn("Unable to update the configuration files after the rollback of version: {}: {}", version, e.getMessage(), e);
+          }
+        }
         listener.onNomadRollback(message, response);
         return response;
       }
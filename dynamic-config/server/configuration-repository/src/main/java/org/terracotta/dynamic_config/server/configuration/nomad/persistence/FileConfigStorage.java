@@ -47,53 +47,47 @@ public class FileConfigStorage implements ConfigStorage<NodeContext> {
     this.nodeName = requireNonNull(nodeName);
   }
 
-  @SuppressWarnings("unused")
   @Override
-  @SuppressFBWarnings("DLS_DEAD_LOCAL_STORE")
   public NodeContext getConfig(long version) throws ConfigStorageException {
     Path file = toPath(version);
     LOGGER.debug("Loading version: {} from file: {}", version, file);
     try {
-      Properties properties = Props.load(file);
-
-      // removing extra information put
-      int stripeId = Integer.parseInt(properties.remove("this.stripe-id").toString());
-      int nodeId = Integer.parseInt(properties.remove("this.node-id").toString());
-      String nodeName = properties.remove("this.name").toString();
-
-      Cluster cluster = new ClusterFactory().create(properties, configuration -> {
-      }); // do not over-log added configs
-      return new NodeContext(cluster, stripeId, nodeName);
+      return fromProperties(Props.load(file));
     } catch (RuntimeException e) {
       throw new ConfigStorageException(e);
     }
   }
 
   @Override
-  @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
   public void saveConfig(long version, NodeContext config) throws ConfigStorageException {
+    LOGGER.debug("Saving topology: {} with version: {} to file: {}", config, version, toPath(version));
+    saveProperties(version, toProperties(config));
+  }
+
+  @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+  void saveProperties(long version, Properties properties) throws ConfigStorageException {
     Path file = toPath(version);
-    LOGGER.debug("Saving topology: {} with version: {} to file: {}", config, version, file);
     try {
       if (file.getParent() != null) {
         Files.createDirectories(file.getParent());
       }
-      Properties nonDefaults = config.getCluster().toProperties(false, false);
-
-      // adds extra information about this node
-      nonDefaults.setProperty("this.stripe-id", String.valueOf(config.getStripeId()));
-      nonDefaults.setProperty("this.node-id", String.valueOf(config.getNodeId()));
-      nonDefaults.setProperty("this.name", String.valueOf(config.getNodeName()));
-
       StringWriter out = new StringWriter();
       String comments = "THIS FILE IS INTENDED FOR BOOK-KEEPING PURPOSES ONLY, AND IS NOT SUPPOSED TO BE EDITED. DO NOT ATTEMPT TO MODIFY.";
-      Props.store(out, nonDefaults, comments);
+      Props.store(out, properties, comments);
       Files.write(file, out.toString().getBytes(UTF_8));
     } catch (IOException e) {
       throw new ConfigStorageException(e);
     }
   }
 
+  void deleteConfig(long version) throws ConfigStorageException {
+    try {
+      Files.deleteIfExists(toPath(version));
+    } catch (IOException e) {
+      throw new ConfigStorageException(e);
+    }
+  }
+
   @Override
   public void reset() throws ConfigStorageException {
     String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd.HHmmss"));
@@ -122,6 +116,29 @@ public class FileConfigStorage implements ConfigStorage<NodeContext> {
     }
   }
 
+  static Properties toProperties(NodeContext config) {
+    Properties nonDefaults = config.getCluster().toProperties(false, false);
+
+    // adds extra information about this node
+    nonDefaults.setProperty("this.stripe-id", String.valueOf(config.getStripeId()));
+    nonDefaults.setProperty("this.node-id", String.valueOf(config.getNodeId()));
+    nonDefaults.setProperty("this.name", String.valueOf(config.getNodeName()));
+    return nonDefaults;
+  }
+
+  @SuppressWarnings("unused")
+  @SuppressFBWarnings("DLS_DEAD_LOCAL_STORE")
+  static NodeContext fromProperties(Properties properties) {
+    // removing extra information put
+    int stripeId = Integer.parseInt(properties.remove("this.stripe-id").toString());
+    int nodeId = Integer.parseInt(properties.remove("this.node-id").toString());
+    String nodeName = properties.remove("this.name").toString();
+
+    Cluster cluster = new ClusterFactory().create(properties, configuration -> {
+    }); // do not over-log added configs
+    return new NodeContext(cluster, stripeId, nodeName);
+  }
+
   private Path toPath(long version) {
     String filename = ClusterConfigFilename.with(nodeName, version).getFilename();
     return root.resolve(filename);
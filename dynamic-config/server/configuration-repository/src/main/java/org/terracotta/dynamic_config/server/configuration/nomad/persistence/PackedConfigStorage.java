@@ -0,0 +1,461 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.server.configuration.nomad.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.dynamic_config.api.model.NodeContext;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stores all the configuration versions of a node in a single append-only binary file.
+ * <p>
+ * Each version is written as a record containing either a full snapshot of the configuration properties,
+ * or only the properties that changed since the previous record. A snapshot is written every
+ * {@link #SNAPSHOT_INTERVAL} records, or when a delta would not be smaller than a snapshot, so that
+ * loading a version only needs to decode a few records. Decoded configurations are kept in a small LRU cache.
+ * <p>
+ * Record layout: {@code length (int) | kind (byte) | version (long) | entries... | crc32 (int)}.
+ * A record partially written at the end of the file (i.e. after a crash) is truncated when the file is opened,
+ * and so is a record which failed to be written. A corrupted record anywhere else fails the loading of the file.
+ * <p>
+ * Versions that are not found in this file are loaded from the {@link FileConfigStorage} properties files,
+ * so that existing configuration directories can still be read. A properties file of the latest saved version
+ * is still written next to the log for book-keeping purposes, and is moved back to the current version on rollback.
+ * <p>
+ * The configuration that was saved is kept in the cache, so that the hash verification and the loading of the
+ * current configuration that follow a save do not need to parse the properties again.
+ */
+public class PackedConfigStorage implements ConfigStorage<NodeContext> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PackedConfigStorage.class);
+
+  static final String FILE_SUFFIX = ".configs";
+  static final int SNAPSHOT_INTERVAL = 32;
+  static final int CACHE_SIZE = 8;
+
+  private static final byte SNAPSHOT = 1;
+  private static final byte DELTA = 2;
+
+  private final Path root;
+  private final String nodeName;
+  private final Path file;
+  private final FileConfigStorage legacy;
+  private final Map<Long, NodeContext> cache = new LinkedHashMap<Long, NodeContext>(CACHE_SIZE, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, NodeContext> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  // lazily loaded from the file: the records in file order, and the position of the last record of each version
+  private List<Record> records;
+  private Map<Long, Integer> index;
+  private long fileSize;
+  private int deltasSinceSnapshot;
+
+  // properties of the last record, used to compute the next delta
+  private Map<String, String> lastProperties;
+
+  public PackedConfigStorage(Path root, String nodeName) {
+    this.root = requireNonNull(root);
+    this.nodeName = requireNonNull(nodeName);
+    this.file = root.resolve(nodeName + FILE_SUFFIX);
+    this.legacy = new FileConfigStorage(root, nodeName);
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  @Override
+  public synchronized NodeContext getConfig(long version) throws ConfigStorageException {
+    NodeContext config = cache.get(version);
+    if (config == null) {
+      loadIndex();
+      Integer position = index.get(version);
+      if (position == null) {
+        config = legacy.getConfig(version);
+      } else {
+        LOGGER.debug("Loading version: {} from file: {}", version, file);
+        try {
+          config = FileConfigStorage.fromProperties(toProperties(readProperties(position)));
+        } catch (IOException | RuntimeException e) {
+          throw new ConfigStorageException(e);
+        }
+      }
+      cache.put(version, config);
+    }
+    // the model is mutable: never share the cached instance
+    return config.clone();
+  }
+
+  @Override
+  public synchronized void saveConfig(long version, NodeContext config) throws ConfigStorageException {
+    LOGGER.debug("Saving topology: {} with version: {} to file: {}", config, version, file);
+    loadIndex();
+    Properties properties = FileConfigStorage.toProperties(config);
+    Map<String, String> current = new HashMap<>(properties.size());
+    properties.stringPropertyNames().forEach(key -> current.put(key, properties.getProperty(key)));
+
+    Record previous = records.isEmpty() ? null : records.get(records.size() - 1);
+    try {
+      if (previous != null && lastProperties == null) {
+        lastProperties = readProperties(records.size() - 1);
+      }
+      byte[] body = encode(version, lastProperties, current);
+      Record record = new Record(body[0], version, fileSize + 4, body.length);
+      append(body);
+
+      records.add(record);
+      index.put(version, records.size() - 1);
+      fileSize += body.length + 8;
+      deltasSinceSnapshot = record.kind == SNAPSHOT ? 0 : deltasSinceSnapshot + 1;
+      lastProperties = current;
+      // the version might have been saved before (i.e. prepared again after a rollback)
+      cache.put(version, config.clone());
+    } catch (IOException e) {
+      // the record might have been partially written: remove it, and reload the index on the next access
+      discardFrom(fileSize);
+      throw new ConfigStorageException(e);
+    }
+
+    // keep a human-readable copy of the latest version only
+    legacy.saveProperties(version, properties);
+    deleteBookKeepingExcept(version);
+  }
+
+  /**
+   * Moves the book-keeping properties file back to the current version after a prepared version was rolled back.
+   * The rolled back version is kept in the log, so that the change history can still be loaded.
+   *
+   * @param version        the version that was rolled back
+   * @param currentVersion the current committed version, or 0 if there is none
+   */
+  public synchronized void rollback(long version, long currentVersion) throws ConfigStorageException {
+    loadIndex();
+    if (!index.containsKey(version)) {
+      return;
+    }
+    LOGGER.debug("Rolling back book-keeping of version: {} to version: {}", version, currentVersion);
+    Integer position = index.get(currentVersion);
+    if (position != null) {
+      try {
+        legacy.saveProperties(currentVersion, toProperties(readProperties(position)));
+      } catch (IOException e) {
+        throw new ConfigStorageException(e);
+      }
+    }
+    deleteBookKeepingExcept(currentVersion);
+  }
+
+  @Override
+  public synchronized void reset() throws ConfigStorageException {
+    legacy.reset();
+    records = null;
+    index = null;
+    lastProperties = null;
+    cache.clear();
+    if (Files.exists(file)) {
+      String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd.HHmmss"));
+      Path backup = file.resolveSibling("backup-" + file.getFileName() + "-" + time);
+      try {
+        org.terracotta.utilities.io.Files.relocate(file, backup);
+      } catch (IOException e) {
+        throw new ConfigStorageException(e);
+      }
+    }
+  }
+
+  /**
+   * Deletes the book-keeping properties files of the versions stored in the log, except the given one.
+   * The properties files of the versions that are not in the log are the only copies of these versions and are kept.
+   */
+  private void deleteBookKeepingExcept(long version) throws ConfigStorageException {
+    List<Long> versions = new ArrayList<>();
+    try (Stream<Path> stream = Files.list(root)) {
+      stream.map(path -> ClusterConfigFilename.from(path.getFileName().toString()))
+          .filter(Optional::isPresent)
+          .map(Optional::get)
+          .filter(ccf -> ccf.getNodeName().equals(nodeName) && ccf.getVersion() != version && index.containsKey(ccf.getVersion()))
+          .forEach(ccf -> versions.add(ccf.getVersion()));
+    } catch (IOException e) {
+      throw new ConfigStorageException(e);
+    }
+    for (long v : versions) {
+      legacy.deleteConfig(v);
+    }
+  }
+
+  private byte[] encode(long version, Map<String, String> previous, Map<String, String> current) throws IOException {
+    Map<String, String> changed = current;
+    List<String> removed = new ArrayList<>();
+    byte kind = SNAPSHOT;
+
+    if (previous != null && deltasSinceSnapshot < SNAPSHOT_INTERVAL - 1) {
+      changed = new HashMap<>();
+      for (Map.Entry<String, String> entry : current.entrySet()) {
+        if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+          changed.put(entry.getKey(), entry.getValue());
+        }
+      }
+      for (String key : previous.keySet()) {
+        if (!current.containsKey(key)) {
+          removed.add(key);
+        }
+      }
+      if (changed.size() + removed.size() < current.size()) {
+        kind = DELTA;
+      } else {
+        changed = current;
+        removed.clear();
+      }
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(kind);
+    out.writeLong(version);
+    out.writeInt(changed.size());
+    for (Map.Entry<String, String> entry : changed.entrySet()) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+    if (kind == DELTA) {
+      out.writeInt(removed.size());
+      for (String key : removed) {
+        writeString(out, key);
+      }
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private void append(byte[] body) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(body, 0, body.length);
+    ByteBuffer buffer = ByteBuffer.allocate(body.length + 8);
+    buffer.putInt(body.length).put(body).putInt((int) crc.getValue());
+    buffer.flip();
+
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    // the whole record is written at once and forced to disk before the change is applied to the nomad state
+    try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, APPEND)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+  }
+
+  private void discardFrom(long offset) {
+    records = null;
+    index = null;
+    lastProperties = null;
+    if (Files.exists(file)) {
+      try (FileChannel channel = FileChannel.open(file, WRITE)) {
+        channel.truncate(offset);
+        channel.force(false);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to truncate file: {} to offset: {}", file, offset, e);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the properties of a record by applying all the deltas since the previous snapshot
+   */
+  private Map<String, String> readProperties(int position) throws IOException {
+    if (position == records.size() - 1 && lastProperties != null) {
+      return lastProperties;
+    }
+    int from = position;
+    while (records.get(from).kind != SNAPSHOT) {
+      from--;
+    }
+    Map<String, String> properties = new HashMap<>();
+    try (FileChannel channel = FileChannel.open(file, READ)) {
+      for (int i = from; i <= position; i++) {
+        Record record = records.get(i);
+        ByteBuffer buffer = ByteBuffer.allocate(record.length + 4);
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, record.offset + buffer.position()) < 0) {
+            throw new EOFException("Unexpected end of file: " + file);
+          }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, record.length);
+        if (buffer.getInt(record.length) != (int) crc.getValue()) {
+          throw corrupted(record.offset - 4);
+        }
+        apply(buffer.array(), properties);
+      }
+    }
+    return properties;
+  }
+
+  private void loadIndex() throws ConfigStorageException {
+    if (records != null) {
+      return;
+    }
+    records = new ArrayList<>();
+    index = new HashMap<>();
+    fileSize = 0;
+    deltasSinceSnapshot = 0;
+    if (!Files.exists(file)) {
+      return;
+    }
+    try {
+      long size = Files.size(file);
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+        while (fileSize < size) {
+          Record record = readRecord(in, fileSize, size);
+          if (record == null) {
+            LOGGER.warn("Truncating partially written configuration record at offset {} of file: {}", fileSize, file);
+            try (FileChannel channel = FileChannel.open(file, WRITE)) {
+              channel.truncate(fileSize);
+              channel.force(false);
+            }
+            break;
+          }
+          records.add(record);
+          index.put(record.version, records.size() - 1);
+          fileSize += record.length + 8;
+          deltasSinceSnapshot = record.kind == SNAPSHOT ? 0 : deltasSinceSnapshot + 1;
+        }
+      }
+    } catch (IOException e) {
+      records = null;
+      index = null;
+      throw new ConfigStorageException(e);
+    }
+  }
+
+  /**
+   * @return the record read, or null if it is the last record of the file and was only partially written
+   * @throws IOException if the record is corrupted
+   */
+  private Record readRecord(DataInputStream in, long offset, long size) throws IOException {
+    if (size - offset < 4) {
+      return null;
+    }
+    int length = in.readInt();
+    if (length < 9) {
+      throw corrupted(offset);
+    }
+    long end = offset + length + 8;
+    if (end > size) {
+      return null;
+    }
+    byte[] body = new byte[length];
+    in.readFully(body);
+    CRC32 crc = new CRC32();
+    crc.update(body, 0, length);
+    if (in.readInt() != (int) crc.getValue()) {
+      // the content of the last record might not have reached the disk before a crash
+      if (end == size) {
+        return null;
+      }
+      throw corrupted(offset);
+    }
+    return new Record(body[0], ByteBuffer.wrap(body, 1, 8).getLong(), offset + 4, length);
+  }
+
+  private IOException corrupted(long offset) {
+    return new IOException("Corrupted configuration record at offset " + offset + " of file: " + file);
+  }
+
+  private static void apply(byte[] body, Map<String, String> properties) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+    byte kind = in.readByte();
+    in.readLong(); // version
+    if (kind == SNAPSHOT) {
+      properties.clear();
+    }
+    for (int i = in.readInt(); i > 0; i--) {
+      properties.put(readString(in), readString(in));
+    }
+    if (kind == DELTA) {
+      for (int i = in.readInt(); i > 0; i--) {
+        properties.remove(readString(in));
+      }
+    }
+  }
+
+  private static Properties toProperties(Map<String, String> map) {
+    Properties properties = new Properties();
+    properties.putAll(map);
+    return properties;
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static class Record {
+    final byte kind;
+    final long version;
+    final long offset;
+    final int length;
+
+    Record(byte kind, long version, long offset, int length) {
+      this.kind = kind;
+      this.version = version;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
@@ -117,6 +117,15 @@ public class SanskritNomadServerState<T> implements NomadServerState<T> {
 
   @Override
   public ChangeRequest<T> getChangeRequest(UUID changeUuid) throws NomadException {
+    return getChangeRequest(changeUuid, true);
+  }
+
+  @Override
+  public ChangeRequest<T> getChangeRequestWithoutResult(UUID changeUuid) throws NomadException {
+    return getChangeRequest(changeUuid, false);
+  }
+
+  private ChangeRequest<T> getChangeRequest(UUID changeUuid, boolean withResult) throws NomadException {
     try {
       String uuidString = changeUuid.toString();
       SanskritObject child = getObject(uuidString);
@@ -134,10 +143,13 @@ public class SanskritNomadServerState<T> implements NomadServerState<T> {
       String creationUser = child.getString(CHANGE_CREATION_USER);
       Instant creationTimestamp = Instant.parse(child.getString(CHANGE_CREATION_TIMESTAMP));
 
-      T newConfiguration = configStorage.getConfig(version);
-      String actualHash = hashComputer.computeHash(newConfiguration);
-      if (!actualHash.equals(expectedHash)) {
-        throw new NomadException("Bad hash for change: " + changeUuid + ". Hash: " + actualHash + ". Expected: " + expectedHash + ". Loaded configuration: " + newConfiguration);
+      T newConfiguration = null;
+      if (withResult) {
+        newConfiguration = configStorage.getConfig(version);
+        String actualHash = hashComputer.computeHash(newConfiguration);
+        if (!actualHash.equals(expectedHash)) {
+          throw new NomadException("Bad hash for change: " + changeUuid + ". Hash: " + actualHash + ". Expected: " + expectedHash + ". Loaded configuration: " + newConfiguration);
+        }
       }
 
       return new ChangeRequest<>(state, version, prevChangeUuid, change, newConfiguration, creationHost, creationUser, creationTimestamp);
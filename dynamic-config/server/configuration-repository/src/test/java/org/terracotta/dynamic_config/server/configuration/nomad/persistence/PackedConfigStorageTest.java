@@ -0,0 +1,245 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.dynamic_config.server.configuration.nomad.persistence;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.terracotta.common.struct.MemoryUnit;
+import org.terracotta.dynamic_config.api.model.Cluster;
+import org.terracotta.dynamic_config.api.model.Node;
+import org.terracotta.dynamic_config.api.model.NodeContext;
+import org.terracotta.dynamic_config.api.model.Stripe;
+import org.terracotta.testing.TmpDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PackedConfigStorageTest {
+
+  @Rule
+  public TmpDir temporaryFolder = new TmpDir(Paths.get(System.getProperty("user.dir"), "target"), false);
+
+  @Test
+  public void saveAndRetrieveAcrossSnapshots() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    int versions = PackedConfigStorage.SNAPSHOT_INTERVAL * 2 + 5;
+
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+    for (int version = 1; version <= versions; version++) {
+      storage.saveConfig(version, topology(version));
+    }
+
+    // reads from the cache and from the file
+    for (int version = 1; version <= versions; version++) {
+      assertThat(storage.getConfig(version), is(topology(version)));
+    }
+
+    // reads from a fresh instance, in a random order
+    PackedConfigStorage reopened = new PackedConfigStorage(root, "node-1");
+    for (int version = versions; version >= 1; version -= 7) {
+      assertThat(reopened.getConfig(version), is(topology(version)));
+    }
+
+    // returned configs are copies
+    assertThat(reopened.getConfig(versions), is(not(sameInstance(reopened.getConfig(versions)))));
+
+    // only the latest version is kept as a properties file
+    assertTrue(Files.exists(root.resolve("node-1." + versions + ".properties")));
+    assertFalse(Files.exists(root.resolve("node-1." + (versions - 1) + ".properties")));
+  }
+
+  @Test
+  public void deltasAreSmallerThanSnapshots() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+
+    storage.saveConfig(1L, topology(1));
+    long snapshot = Files.size(storage.getFile());
+
+    storage.saveConfig(2L, topology(2));
+    long delta = Files.size(storage.getFile()) - snapshot;
+
+    assertThat(delta, is(lessThan(snapshot)));
+  }
+
+  @Test
+  public void incompleteRecordIsTruncated() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+    storage.saveConfig(1L, topology(1));
+    storage.saveConfig(2L, topology(2));
+    long size = Files.size(storage.getFile());
+    storage.saveConfig(3L, topology(3));
+
+    // simulate a crash while writing the last record
+    try (FileChannel channel = FileChannel.open(storage.getFile(), WRITE)) {
+      channel.truncate(Files.size(storage.getFile()) - 3);
+    }
+
+    PackedConfigStorage reopened = new PackedConfigStorage(root, "node-1");
+    assertThat(reopened.getConfig(2L), is(topology(2)));
+    assertThat(Files.size(storage.getFile()), is(size));
+
+    reopened.saveConfig(3L, topology(4));
+    assertThat(new PackedConfigStorage(root, "node-1").getConfig(3L), is(topology(4)));
+  }
+
+  @Test
+  public void corruptedLastRecordIsTruncated() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+    storage.saveConfig(1L, topology(1));
+    storage.saveConfig(2L, topology(2));
+    long size = Files.size(storage.getFile());
+    storage.saveConfig(3L, topology(3));
+
+    // simulate a crash before the content of the last record reached the disk
+    corrupt(storage.getFile(), Files.size(storage.getFile()) - 6);
+
+    PackedConfigStorage reopened = new PackedConfigStorage(root, "node-1");
+    assertThat(reopened.getConfig(2L), is(topology(2)));
+    assertThat(Files.size(storage.getFile()), is(size));
+  }
+
+  @Test
+  public void corruptedRecordBeforeTheEndIsNotTruncated() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+    storage.saveConfig(1L, topology(1));
+    storage.saveConfig(2L, topology(2));
+    storage.saveConfig(3L, topology(3));
+    long size = Files.size(storage.getFile());
+
+    corrupt(storage.getFile(), 20);
+
+    PackedConfigStorage reopened = new PackedConfigStorage(root, "node-1");
+    try {
+      reopened.getConfig(3L);
+      fail();
+    } catch (ConfigStorageException e) {
+      assertThat(e.getCause().getMessage(), containsString("Corrupted configuration record at offset 0"));
+    }
+    assertThat(Files.size(storage.getFile()), is(size));
+  }
+
+  @Test
+  public void corruptedRecordIsDetectedWhenRead() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+    // the first versions are evicted from the cache
+    for (int version = 1; version <= PackedConfigStorage.CACHE_SIZE + 2; version++) {
+      storage.saveConfig(version, topology(version));
+    }
+
+    corrupt(storage.getFile(), 20);
+
+    try {
+      storage.getConfig(1L);
+      fail();
+    } catch (ConfigStorageException e) {
+      assertThat(e.getCause().getMessage(), containsString("Corrupted configuration record at offset 0"));
+    }
+  }
+
+  @Test
+  public void readsLegacyPropertiesFiles() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    new FileConfigStorage(root, "node-1").saveConfig(1L, topology(1));
+
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+    assertThat(storage.getConfig(1L), is(topology(1)));
+
+    storage.saveConfig(2L, topology(2));
+    assertThat(storage.getConfig(1L), is(topology(1)));
+    assertThat(storage.getConfig(2L), is(topology(2)));
+    assertTrue(Files.exists(root.resolve("node-1.1.properties")));
+  }
+
+  @Test
+  public void rollbackThenRestart() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+    storage.saveConfig(1L, topology(1));
+    storage.saveConfig(2L, topology(2));
+
+    // version 2 was only prepared and is rolled back
+    storage.rollback(2L, 1L);
+    assertTrue(Files.exists(root.resolve("node-1.1.properties")));
+    assertFalse(Files.exists(root.resolve("node-1.2.properties")));
+    assertThat(new FileConfigStorage(root, "node-1").getConfig(1L), is(topology(1)));
+
+    // after a restart, both versions are still in the history
+    PackedConfigStorage restarted = new PackedConfigStorage(root, "node-1");
+    assertThat(restarted.getConfig(1L), is(topology(1)));
+    assertThat(restarted.getConfig(2L), is(topology(2)));
+
+    // the next change only keeps its own properties file
+    restarted.saveConfig(3L, topology(3));
+    assertFalse(Files.exists(root.resolve("node-1.1.properties")));
+    assertFalse(Files.exists(root.resolve("node-1.2.properties")));
+    assertTrue(Files.exists(root.resolve("node-1.3.properties")));
+    assertThat(new PackedConfigStorage(root, "node-1").getConfig(3L), is(topology(3)));
+  }
+
+  @Test
+  public void reset() throws Exception {
+    Path root = temporaryFolder.getRoot();
+    PackedConfigStorage storage = new PackedConfigStorage(root, "node-1");
+    storage.saveConfig(1L, topology(1));
+
+    storage.reset();
+    assertFalse(Files.exists(storage.getFile()));
+    assertFalse(Files.exists(root.resolve("node-1.1.properties")));
+
+    storage.saveConfig(1L, topology(2));
+    assertThat(new PackedConfigStorage(root, "node-1").getConfig(1L), is(topology(2)));
+  }
+
+  private static void corrupt(Path file, long position) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(1);
+      channel.read(buffer, position);
+      buffer.put(0, (byte) ~buffer.get(0));
+      buffer.rewind();
+      channel.write(buffer, position);
+    }
+  }
+
+  private static NodeContext topology(int version) {
+    Cluster cluster = Cluster.newDefaultCluster("bar", new Stripe(Node.newDefaultNode("node-1", "localhost")));
+    cluster.setOffheapResource("main", 512L + version, MemoryUnit.MB);
+    if (version % 3 == 0) {
+      cluster.setOffheapResource("extra-" + version, version, MemoryUnit.MB);
+    }
+    return new NodeContext(cluster, 1, "node-1");
+  }
+}
@@ -62,6 +62,13 @@ public abstract class AbstractNode<P extends Contextual> implements Node {
     return map;
   }
 
+  /**
+   * @return the attributes of this node, without its management registry and its child nodes
+   */
+  public Map<String, Object> toAttributeMap() {
+    return toMap();
+  }
+
   @Override
   public void setContext(Context context) {
     // nothing: we do not replace the context of a topology
@@ -255,8 +255,15 @@ public final class Client extends AbstractManageableNode<Cluster> {
   }
 
   @Override
-  @SuppressWarnings("rawtypes")
   public Map<String, Object> toMap() {
+    Map<String, Object> map = toAttributeMap();
+    map.put("managementRegistry", getManagementRegistry().map(ManagementRegistry::toMap).orElse(null));
+    return map;
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Map<String, Object> toAttributeMap() {
     Map<String, Object> map = super.toMap();
     map.put("pid", getPid());
     map.put("hostAddress", getHostAddress());
@@ -268,7 +275,6 @@ public final class Client extends AbstractManageableNode<Cluster> {
     map.put("tags", getTags());
     map.put("properties", getProperties());
     map.put("connections", connectionStream().sorted(Comparator.comparing(AbstractNode::getId)).map(Connection::toMap).collect(Collectors.toList()));
-    map.put("managementRegistry", getManagementRegistry().map(ManagementRegistry::toMap).orElse(null));
     return map;
   }
 
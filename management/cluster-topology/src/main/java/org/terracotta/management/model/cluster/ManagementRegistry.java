@@ -17,6 +17,7 @@ package org.terracotta.management.model.cluster;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.terracotta.management.model.capabilities.Capability;
+import org.terracotta.management.model.capabilities.ManagementRegistryDelta;
 import org.terracotta.management.model.capabilities.context.CapabilityContext;
 import org.terracotta.management.model.capabilities.descriptors.CallDescriptor;
 import org.terracotta.management.model.capabilities.descriptors.Descriptor;
@@ -43,7 +44,7 @@ public final class ManagementRegistry implements Serializable {
 
   private static final long serialVersionUID = 2;
 
-  private final ContextContainer contextContainer;
+  private ContextContainer contextContainer;
   private final Collection<Capability> capabilities = new ArrayList<>();
 
   private ManagementRegistry(ContextContainer contextContainer) {
@@ -84,6 +85,19 @@ public final class ManagementRegistry implements Serializable {
     return contextContainer;
   }
 
+  /**
+   * Applies the changes of a delta onto this registry. The parts of the registry that the delta does not change are kept.
+   */
+  public ManagementRegistry apply(ManagementRegistryDelta delta) {
+    if (delta.changesSubContexts()) {
+      contextContainer = delta.applyTo(contextContainer);
+    }
+    if (delta.changesCapabilities()) {
+      setCapabilities(delta.applyTo(capabilities));
+    }
+    return this;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -321,6 +321,13 @@ public final class Server extends AbstractNode<Stripe> {
   public Map<String, Object> toMap() {
     Map<String, Object> map = super.toMap();
     map.put("serverEntities", serverEntityStream().sorted((o1, o2) -> o1.getId().compareTo(o2.getId())).map(ServerEntity::toMap).collect(Collectors.toList()));
+    map.putAll(toAttributeMap());
+    return map;
+  }
+
+  @Override
+  public Map<String, Object> toAttributeMap() {
+    Map<String, Object> map = super.toMap();
     map.put("serverName", this.getServerName());
     map.put("hostName", this.hostName);
     map.put("hostAddress", this.hostAddress);
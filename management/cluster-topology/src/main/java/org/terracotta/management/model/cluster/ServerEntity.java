@@ -123,11 +123,17 @@ public final class ServerEntity extends AbstractManageableNode<Server> {
 
   @Override
   public Map<String, Object> toMap() {
+    Map<String, Object> map = toAttributeMap();
+    map.put("managementRegistry", getManagementRegistry().map(ManagementRegistry::toMap).orElse(null));
+    return map;
+  }
+
+  @Override
+  public Map<String, Object> toAttributeMap() {
     Map<String, Object> map = super.toMap();
     map.put("type", getType());
     map.put("name", getName());
     map.put("consumerId", getConsumerId());
-    map.put("managementRegistry", getManagementRegistry().map(ManagementRegistry::toMap).orElse(null));
     return map;
   }
 
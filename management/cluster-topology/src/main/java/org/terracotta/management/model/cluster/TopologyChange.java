@@ -0,0 +1,142 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.cluster;
+
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.context.Contextual;
+import org.terracotta.management.sequence.Sequence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A single change applied to the topology of a stripe: a node (server, entity or client) was added, removed or updated.
+ * <p>
+ * Changes are versioned with the {@link Sequence} generated on the server at the time the change was applied,
+ * so that a consumer can resume reading the changes from the last version it has seen.
+ */
+public final class TopologyChange implements Contextual {
+
+  private static final long serialVersionUID = 1;
+
+  public enum Type {
+    ADDED,
+    REMOVED,
+    UPDATED
+  }
+
+  private final Sequence version;
+  private final Type type;
+  private final String event;
+  private Context context;
+  private final Map<String, Object> node;
+
+  public TopologyChange(Sequence version, Type type, String event, Context context, Map<String, Object> node) {
+    this.version = Objects.requireNonNull(version);
+    this.type = Objects.requireNonNull(type);
+    this.event = Objects.requireNonNull(event);
+    this.context = Objects.requireNonNull(context);
+    this.node = node == null ? Collections.emptyMap() : copyOf(node);
+  }
+
+  public Sequence getVersion() {
+    return version;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return the name of the notification that was fired for this change (i.e. CLIENT_CONNECTED)
+   */
+  public String getEvent() {
+    return event;
+  }
+
+  /**
+   * @return the attributes of the changed node, as returned by its {@code toAttributeMap()} method, or an empty map
+   * for removals. The management registries are not included: read the topology to get them.
+   * A registry update sent as a delta by a client only carries what the delta changes, under the
+   * {@code managementRegistryDelta} key.
+   */
+  public Map<String, Object> getNode() {
+    return node;
+  }
+
+  @Override
+  public Context getContext() {
+    return context;
+  }
+
+  @Override
+  public void setContext(Context context) {
+    this.context = Objects.requireNonNull(context);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    TopologyChange that = (TopologyChange) o;
+    return version.equals(that.version)
+        && type == that.type
+        && event.equals(that.event)
+        && context.equals(that.context)
+        && node.equals(that.node);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = version.hashCode();
+    result = 31 * result + type.hashCode();
+    result = 31 * result + event.hashCode();
+    result = 31 * result + context.hashCode();
+    result = 31 * result + node.hashCode();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "TopologyChange{" +
+        "version=" + version +
+        ", type=" + type +
+        ", event='" + event + '\'' +
+        ", context=" + context +
+        '}';
+  }
+
+  // the node maps are built from live topology objects, so we detach them from any mutable collection
+  @SuppressWarnings("unchecked")
+  private static <T> T copyOf(T o) {
+    if (o instanceof Map) {
+      Map<Object, Object> copy = new LinkedHashMap<>();
+      ((Map<?, ?>) o).forEach((k, v) -> copy.put(k, copyOf(v)));
+      return (T) copy;
+    }
+    if (o instanceof Collection) {
+      Collection<Object> copy = new ArrayList<>(((Collection<?>) o).size());
+      ((Collection<?>) o).forEach(e -> copy.add(copyOf(e)));
+      return (T) copy;
+    }
+    return o;
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.cluster;
+
+import org.terracotta.management.sequence.Sequence;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The answer to a topology change feed read: either the list of changes that happened after the version
+ * asked by the consumer, or a full snapshot of the topology when the consumer has no version yet or when
+ * the changes it has missed are not available anymore.
+ */
+public final class TopologyChanges implements Serializable {
+
+  private static final long serialVersionUID = 1;
+
+  private final Sequence version;
+  private final Cluster snapshot;
+  private final List<TopologyChange> changes;
+
+  private TopologyChanges(Sequence version, Cluster snapshot, List<TopologyChange> changes) {
+    this.version = version;
+    this.snapshot = snapshot;
+    this.changes = Collections.unmodifiableList(new ArrayList<>(changes));
+  }
+
+  /**
+   * @return the version of the topology once all the changes (or the snapshot) have been applied.
+   * This is the version to use to read the next changes. It is null for the snapshots of the servers which do not
+   * support reading the topology changes: the next read then returns a full snapshot again.
+   */
+  public Sequence getVersion() {
+    return version;
+  }
+
+  public boolean isSnapshot() {
+    return snapshot != null;
+  }
+
+  public Optional<Cluster> getSnapshot() {
+    return Optional.ofNullable(snapshot);
+  }
+
+  /**
+   * @return the ordered list of changes since the version requested, empty if this is a snapshot
+   */
+  public List<TopologyChange> getChanges() {
+    return changes;
+  }
+
+  @Override
+  public String toString() {
+    return "TopologyChanges{" +
+        "version=" + version +
+        ", snapshot=" + isSnapshot() +
+        ", changes=" + changes.size() +
+        '}';
+  }
+
+  public static TopologyChanges snapshot(Sequence version, Cluster cluster) {
+    return new TopologyChanges(version, Objects.requireNonNull(cluster), Collections.emptyList());
+  }
+
+  public static TopologyChanges delta(Sequence version, List<TopologyChange> changes) {
+    return new TopologyChanges(Objects.requireNonNull(version), null, changes);
+  }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.capabilities;
+
+import org.terracotta.management.model.capabilities.descriptors.Descriptor;
+import org.terracotta.management.model.context.ContextContainer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes made to a management registry (its context container and its capabilities) between two versions,
+ * or a whole registry when {@link #isFull()}.
+ * <p>
+ * Removed sub-contexts and removed descriptors are identified by their position in the base version, so a delta
+ * must only be applied onto the exact content it was computed from. The sender must keep the result of
+ * {@link #applyTo(ContextContainer)} and {@link #applyTo(Collection)} as its new base, which can differ in ordering
+ * from what it diffed against.
+ */
+public final class ManagementRegistryDelta implements Serializable {
+
+  private static final long serialVersionUID = 1;
+
+  public static final long NO_VERSION = -1;
+
+  private final long baseVersion;
+  private final long version;
+  private final String contextName;
+  private final String contextValue;
+  private final int[] removedSubContexts;
+  private final ArrayList<ContextContainer> addedSubContexts;
+  private final ArrayList<String> removedCapabilities;
+  private final ArrayList<Capability> updatedCapabilities;
+  private final LinkedHashMap<String, DescriptorChanges> descriptorChanges;
+
+  private ManagementRegistryDelta(long baseVersion, long version, String contextName, String contextValue,
+                                  int[] removedSubContexts, ArrayList<ContextContainer> addedSubContexts,
+                                  ArrayList<String> removedCapabilities, ArrayList<Capability> updatedCapabilities,
+                                  LinkedHashMap<String, DescriptorChanges> descriptorChanges) {
+    this.baseVersion = baseVersion;
+    this.version = version;
+    this.contextName = contextName;
+    this.contextValue = contextValue;
+    this.removedSubContexts = removedSubContexts;
+    this.addedSubContexts = addedSubContexts;
+    this.removedCapabilities = removedCapabilities;
+    this.updatedCapabilities = updatedCapabilities;
+    this.descriptorChanges = descriptorChanges;
+  }
+
+  /**
+   * @return the version this delta applies onto, or {@link #NO_VERSION} for a whole registry
+   */
+  public long getBaseVersion() {
+    return baseVersion;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public boolean isFull() {
+    return baseVersion == NO_VERSION;
+  }
+
+  public boolean isEmpty() {
+    return !isFull()
+        && removedSubContexts.length == 0
+        && addedSubContexts.isEmpty()
+        && removedCapabilities.isEmpty()
+        && updatedCapabilities.isEmpty()
+        && descriptorChanges.isEmpty();
+  }
+
+  /**
+   * @return true if this delta changes the sub-contexts of the registry context container
+   */
+  public boolean changesSubContexts() {
+    return isFull() || removedSubContexts.length > 0 || !addedSubContexts.isEmpty();
+  }
+
+  /**
+   * @return true if this delta changes the capabilities of the registry
+   */
+  public boolean changesCapabilities() {
+    return isFull() || !removedCapabilities.isEmpty() || !updatedCapabilities.isEmpty() || !descriptorChanges.isEmpty();
+  }
+
+  public ContextContainer applyTo(ContextContainer base) {
+    if (isFull()) {
+      return new ContextContainer(contextName, contextValue, new ArrayList<>(addedSubContexts));
+    }
+    List<ContextContainer> subContexts = removeAt(base.getSubContexts(), removedSubContexts, addedSubContexts.size());
+    subContexts.addAll(addedSubContexts);
+    return new ContextContainer(contextName, contextValue, subContexts);
+  }
+
+  public List<Capability> applyTo(Collection<? extends Capability> base) {
+    if (isFull()) {
+      return new ArrayList<>(updatedCapabilities);
+    }
+    Set<String> removed = new HashSet<>(removedCapabilities);
+    Map<String, Capability> updated = new LinkedHashMap<>();
+    for (Capability capability : updatedCapabilities) {
+      updated.put(capability.getName(), capability);
+    }
+    List<Capability> capabilities = new ArrayList<>(base.size() + updated.size());
+    for (Capability capability : base) {
+      String name = capability.getName();
+      if (removed.contains(name)) {
+        continue;
+      }
+      Capability replacement = updated.remove(name);
+      if (replacement != null) {
+        capabilities.add(replacement);
+      } else {
+        DescriptorChanges changes = descriptorChanges.get(name);
+        capabilities.add(changes == null ? capability : changes.applyTo(capability));
+      }
+    }
+    capabilities.addAll(updated.values());
+    return capabilities;
+  }
+
+  /**
+   * @return what this delta changes, with simple types: its versions, the number of removed and added sub-contexts
+   * and the names of the removed, replaced and changed capabilities
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("baseVersion", baseVersion);
+    map.put("version", version);
+    map.put("removedSubContexts", removedSubContexts.length);
+    map.put("addedSubContexts", addedSubContexts.size());
+    map.put("removedCapabilities", new ArrayList<>(removedCapabilities));
+    List<String> updated = new ArrayList<>(updatedCapabilities.size());
+    for (Capability capability : updatedCapabilities) {
+      updated.add(capability.getName());
+    }
+    map.put("updatedCapabilities", updated);
+    map.put("changedCapabilities", new ArrayList<>(descriptorChanges.keySet()));
+    return map;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("ManagementRegistryDelta{");
+    sb.append("baseVersion=").append(baseVersion);
+    sb.append(", version=").append(version);
+    sb.append(", context=").append(contextName).append('=').append(contextValue);
+    sb.append(", removedSubContexts=").append(removedSubContexts.length);
+    sb.append(", addedSubContexts=").append(addedSubContexts.size());
+    sb.append(", removedCapabilities=").append(removedCapabilities);
+    sb.append(", updatedCapabilities=").append(updatedCapabilities.size());
+    sb.append(", descriptorChanges=").append(descriptorChanges);
+    sb.append('}');
+    return sb.toString();
+  }
+
+  public static ManagementRegistryDelta full(long version, ContextContainer contextContainer, Collection<? extends Capability> capabilities) {
+    return new ManagementRegistryDelta(NO_VERSION, version, contextContainer.getName(), contextContainer.getValue(),
+        new int[0], new ArrayList<>(contextContainer.getSubContexts()),
+        new ArrayList<>(), new ArrayList<>(capabilities),
+        new LinkedHashMap<>());
+  }
+
+  /**
+   * Computes the changes to go from a base registry content to a new one. A whole registry is returned when the
+   * changes cannot be expressed as a delta (different root context or duplicate capability names).
+   */
+  public static ManagementRegistryDelta between(long baseVersion, ContextContainer baseContextContainer, Collection<? extends Capability> baseCapabilities,
+                                                long version, ContextContainer contextContainer, Collection<? extends Capability> capabilities) {
+    if (!baseContextContainer.getName().equals(contextContainer.getName()) || !baseContextContainer.getValue().equals(contextContainer.getValue())) {
+      return full(version, contextContainer, capabilities);
+    }
+    Map<String, Capability> baseByName = byName(baseCapabilities);
+    Map<String, Capability> byName = byName(capabilities);
+    if (baseByName == null || byName == null) {
+      return full(version, contextContainer, capabilities);
+    }
+
+    ArrayList<ContextContainer> addedSubContexts = new ArrayList<>();
+    int[] removedSubContexts = diff(new ArrayList<>(baseContextContainer.getSubContexts()), contextContainer.getSubContexts(), addedSubContexts);
+
+    ArrayList<String> removedCapabilities = new ArrayList<>();
+    for (String name : baseByName.keySet()) {
+      if (!byName.containsKey(name)) {
+        removedCapabilities.add(name);
+      }
+    }
+
+    ArrayList<Capability> updatedCapabilities = new ArrayList<>();
+    LinkedHashMap<String, DescriptorChanges> descriptorChanges = new LinkedHashMap<>();
+    for (Capability capability : capabilities) {
+      Capability base = baseByName.get(capability.getName());
+      if (base == null || !base.getCapabilityContext().equals(capability.getCapabilityContext())) {
+        updatedCapabilities.add(capability);
+      } else if (!base.equals(capability)) {
+        ArrayList<Descriptor> added = new ArrayList<>();
+        int[] removed = diff(new ArrayList<>(base.getDescriptors()), capability.getDescriptors(), added);
+        if (removed.length > 0 || !added.isEmpty()) {
+          descriptorChanges.put(capability.getName(), new DescriptorChanges(removed, added));
+        }
+      }
+    }
+
+    return new ManagementRegistryDelta(baseVersion, version, contextContainer.getName(), contextContainer.getValue(),
+        removedSubContexts, addedSubContexts, removedCapabilities, updatedCapabilities, descriptorChanges);
+  }
+
+  private static Map<String, Capability> byName(Collection<? extends Capability> capabilities) {
+    Map<String, Capability> byName = new LinkedHashMap<>();
+    for (Capability capability : capabilities) {
+      if (byName.put(capability.getName(), capability) != null) {
+        return null;
+      }
+    }
+    return byName;
+  }
+
+  /**
+   * Collects in {@code added} the elements of {@code target} not in {@code base} and returns the positions in
+   * {@code base} of the elements not in {@code target}.
+   */
+  private static <T> int[] diff(List<T> base, Collection<? extends T> target, List<T> added) {
+    Map<T, Integer> remaining = new HashMap<>();
+    for (T element : target) {
+      remaining.merge(element, 1, Integer::sum);
+    }
+    int[] removed = new int[base.size()];
+    int count = 0;
+    for (int i = 0; i < base.size(); i++) {
+      T element = base.get(i);
+      Integer left = remaining.get(element);
+      if (left == null) {
+        removed[count++] = i;
+      } else if (left == 1) {
+        remaining.remove(element);
+      } else {
+        remaining.put(element, left - 1);
+      }
+    }
+    // what is still remaining was not in base
+    for (T element : target) {
+      Integer left = remaining.get(element);
+      if (left != null) {
+        added.add(element);
+        if (left == 1) {
+          remaining.remove(element);
+        } else {
+          remaining.put(element, left - 1);
+        }
+      }
+    }
+    return Arrays.copyOf(removed, count);
+  }
+
+  private static <T> List<T> removeAt(Collection<? extends T> base, int[] positions, int extraCapacity) {
+    List<T> result = new ArrayList<>(base.size() - positions.length + extraCapacity);
+    int i = 0, next = 0;
+    for (T element : base) {
+      if (next < positions.length && positions[next] == i) {
+        next++;
+      } else {
+        result.add(element);
+      }
+      i++;
+    }
+    return result;
+  }
+
+  private static final class DescriptorChanges implements Serializable {
+
+    private static final long serialVersionUID = 1;
+
+    private final int[] removed;
+    private final ArrayList<Descriptor> added;
+
+    DescriptorChanges(int[] removed, ArrayList<Descriptor> added) {
+      this.removed = removed;
+      this.added = added;
+    }
+
+    Capability applyTo(Capability capability) {
+      List<Descriptor> descriptors = removeAt(capability.getDescriptors(), removed, added.size());
+      descriptors.addAll(added);
+      return new DefaultCapability(capability.getName(), capability.getCapabilityContext(), descriptors);
+    }
+
+    @Override
+    public String toString() {
+      return "{removed=" + removed.length + ", added=" + added.size() + "}";
+    }
+  }
+}
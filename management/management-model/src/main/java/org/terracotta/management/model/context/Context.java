@@ -15,14 +15,31 @@
  */
 package org.terracotta.management.model.context;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
+ * An immutable and ordered set of key / value pairs.
+ * <p>
+ * A context is a chain of nodes: each context adds one entry to its parent context, so {@link #with(String, String)}
+ * only allocates one node and all the contexts built from a same prefix share it. The hash code is computed
+ * incrementally and cached, and two contexts sharing a prefix only compare their entries up to this prefix.
+ * Common prefixes can be shared across the contexts built from different places with {@link #intern()}.
+ *
  * @author Ludovic Orban
  * @author Mathieu Carbou
  */
@@ -30,22 +47,51 @@ public class Context extends AbstractMap<String, String> implements Serializable
 
   private static final long serialVersionUID = 1;
 
-  private final Map<String, String> back = new LinkedHashMap<String, String>();
+  // serialized form of the previous LinkedHashMap-based implementation, kept for compatibility with older peers
+  private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("back", LinkedHashMap.class)};
+
+  private static final Context EMPTY = new Context(null, null, null);
+
+  private static final Map<Context, WeakReference<Context>> INTERNED = new WeakHashMap<Context, WeakReference<Context>>();
 
-  private Context(Map<String, String> back) {
-    this.back.putAll(back);
+  private final transient Context parent;
+  private final transient String key;
+  private final transient String value;
+  private final transient int size;
+  private final transient int hash;
+
+  // only set on a deserialized instance, which is then replaced by the context built from these entries
+  private transient Map<String, String> back;
+
+  private Context(Context parent, String key, String value) {
+    this.parent = parent;
+    this.key = key;
+    this.value = value;
+    this.size = parent == null ? 0 : parent.size + 1;
+    this.hash = parent == null ? 0 : parent.hash + (Objects.hashCode(key) ^ value.hashCode());
   }
 
   public Map<String, String> toMap() {
-    return Collections.unmodifiableMap(back);
+    return Collections.unmodifiableMap(this);
   }
 
   public Context with(String key, String val) {
     if (val == null) {
       throw new NullPointerException();
     }
-    Context context = new Context(back);
-    context.back.put(key, val);
+    Context existing = find(key);
+    if (existing == null) {
+      return new Context(this, key, val);
+    }
+    if (existing.value.equals(val)) {
+      return this;
+    }
+    // the key keeps its position: rebuild the nodes added after it
+    Context[] nodes = nodes();
+    Context context = new Context(existing.parent, key, val);
+    for (int i = existing.size; i < size; i++) {
+      context = new Context(context, nodes[i].key, nodes[i].value);
+    }
     return context;
   }
 
@@ -55,24 +101,90 @@ public class Context extends AbstractMap<String, String> implements Serializable
         throw new NullPointerException();
       }
     }
-    Context context = new Context(back);
-    context.back.putAll(props);
+    if (size == 0 && props instanceof Context) {
+      return (Context) props;
+    }
+    Context context = this;
+    for (Entry<String, String> entry : props.entrySet()) {
+      context = context.with(entry.getKey(), entry.getValue());
+    }
     return context;
   }
 
+  /**
+   * @return the canonical instance of this context, so that equal contexts created from different places share their nodes
+   */
+  public Context intern() {
+    if (size == 0) {
+      return EMPTY;
+    }
+    synchronized (INTERNED) {
+      WeakReference<Context> ref = INTERNED.get(this);
+      Context interned = ref == null ? null : ref.get();
+      if (interned == null) {
+        INTERNED.put(this, new WeakReference<Context>(this));
+        interned = this;
+      }
+      return interned;
+    }
+  }
+
   public String get(String key) {
-    return back.get(key);
+    Context node = find(key);
+    return node == null ? null : node.value;
+  }
+
+  @Override
+  public String get(Object key) {
+    return key == null || key instanceof String ? get((String) key) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return (key == null || key instanceof String) && find((String) key) != null;
   }
 
   public int size() {
-    return back.size();
+    return size;
   }
 
-  public boolean isEmpty() { return back.isEmpty(); }
+  public boolean isEmpty() { return size == 0; }
 
   @Override
   public Set<Entry<String, String>> entrySet() {
-    return toMap().entrySet();
+    return new AbstractSet<Entry<String, String>>() {
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        final Context[] nodes = nodes();
+        return new Iterator<Entry<String, String>>() {
+          int next;
+
+          @Override
+          public boolean hasNext() {
+            return next < nodes.length;
+          }
+
+          @Override
+          public Entry<String, String> next() {
+            if (next == nodes.length) {
+              throw new NoSuchElementException();
+            }
+            Context node = nodes[next++];
+            return new SimpleImmutableEntry<String, String>(node.key, node.value);
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
   }
 
   @Override
@@ -80,40 +192,85 @@ public class Context extends AbstractMap<String, String> implements Serializable
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     Context context = (Context) o;
-    return back.equals(context.back);
+    if (size != context.size || hash != context.hash) return false;
+    // walk both chains until they join, which happens at the latest when reaching the empty context
+    for (Context a = this, b = context; a != b; a = a.parent, b = b.parent) {
+      if (a.size == 0) {
+        return true;
+      }
+      if (!Objects.equals(a.key, b.key) || !a.value.equals(b.value)) {
+        // same entries but added in a different order?
+        return context.contains(this);
+      }
+    }
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return back.hashCode();
-  }
-
-  @Override
-  public String toString() {
-    return back.toString();
+    return hash;
   }
 
   public boolean contains(Context subCtx) {
-    return back.entrySet().containsAll(subCtx.back.entrySet());
+    for (Context node = subCtx; node.size > 0; node = node.parent) {
+      if (!contains(node.key, node.value)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public boolean contains(String key) {
-    return back.containsKey(key);
+    return find(key) != null;
   }
 
   public boolean contains(String key, String val) {
-    return back.containsKey(key) && back.get(key).equals(val);
+    Context node = find(key);
+    return node != null && node.value.equals(val);
+  }
+
+  private Context find(String key) {
+    for (Context node = this; node.size > 0; node = node.parent) {
+      if (Objects.equals(node.key, key)) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  // the nodes of this context, in insertion order
+  private Context[] nodes() {
+    Context[] nodes = new Context[size];
+    for (Context node = this; node.size > 0; node = node.parent) {
+      nodes[node.size - 1] = node;
+    }
+    return nodes;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("back", new LinkedHashMap<String, String>(this));
+    out.writeFields();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    back = (Map<String, String>) in.readFields().get("back", null);
+  }
+
+  private Object readResolve() {
+    return back == null ? EMPTY : EMPTY.with(back);
   }
 
   public static Context create(String key, String val) {
-    return empty().with(key, val);
+    return EMPTY.with(key, val).intern();
   }
 
   public static Context create(Map<String, String> map) {
-    return new Context(map);
+    return map instanceof Context ? (Context) map : EMPTY.with(map);
   }
 
   public static Context empty() {
-    return new Context(Collections.<String, String>emptyMap());
+    return EMPTY;
   }
 }
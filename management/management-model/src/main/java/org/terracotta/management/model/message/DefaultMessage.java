@@ -16,8 +16,13 @@
 package org.terracotta.management.model.message;
 
 import org.terracotta.management.model.context.Contextual;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.model.stats.ContextualStatisticsCodec;
 import org.terracotta.management.sequence.Sequence;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
@@ -32,13 +37,27 @@ public class DefaultMessage implements Message, Serializable {
   private final Contextual[] data;
   private final Sequence sequence;
   private final String messageType;
+  private final transient boolean compactStatistics;
 
   public DefaultMessage(Sequence sequence, String messageType, Contextual... data) {
+    this(sequence, messageType, false, data);
+  }
+
+  private DefaultMessage(Sequence sequence, String messageType, boolean compactStatistics, Contextual[] data) {
     this.sequence = sequence;
     this.messageType = messageType;
+    this.compactStatistics = compactStatistics;
     this.data = data;
   }
 
+  /**
+   * @return a copy of this message which, when it holds statistics, is serialized in a compact form.
+   * Only send it to the clients which told they can read this form: older ones do not have its class.
+   */
+  public DefaultMessage withCompactStatistics() {
+    return compactStatistics ? this : new DefaultMessage(sequence, messageType, true, data);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public <T extends Contextual> List<T> unwrap(Class<T> type) {
@@ -89,4 +108,40 @@ public class DefaultMessage implements Message, Serializable {
     return result;
   }
 
+  // statistic messages are sent periodically to all the management clients, so they are serialized in a compact form
+  // when the receiving client supports it
+  private Object writeReplace() throws ObjectStreamException {
+    if (compactStatistics && data instanceof ContextualStatistics[]) {
+      try {
+        return new SerializedStatistics(sequence, messageType, ContextualStatisticsCodec.encode((ContextualStatistics[]) data));
+      } catch (IOException e) {
+        throw new InvalidObjectException(e.getMessage());
+      }
+    }
+    return this;
+  }
+
+  private static final class SerializedStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1;
+
+    private final Sequence sequence;
+    private final String messageType;
+    private final byte[] statistics;
+
+    SerializedStatistics(Sequence sequence, String messageType, byte[] statistics) {
+      this.sequence = sequence;
+      this.messageType = messageType;
+      this.statistics = statistics;
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+      try {
+        return new DefaultMessage(sequence, messageType, (Contextual[]) ContextualStatisticsCodec.decode(statistics));
+      } catch (IOException e) {
+        throw new InvalidObjectException(e.getMessage());
+      }
+    }
+  }
+
 }
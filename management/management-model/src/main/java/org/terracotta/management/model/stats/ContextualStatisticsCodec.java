@@ -0,0 +1,293 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.stats;
+
+import org.terracotta.management.model.context.Context;
+import org.terracotta.statistics.Sample;
+import org.terracotta.statistics.registry.Statistic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact columnar encoding of a batch of {@link ContextualStatistics}.
+ * <p>
+ * A batch usually contains the statistics of all the objects of a server collected at the same time, so
+ * contexts, capability names and statistic names are highly redundant: they are written once in a string table
+ * and a context table, and then referenced by index. Sample timestamps and integral sample values are
+ * delta-encoded as variable-length longs, and floating point values are written as primitive doubles.
+ * Any other sample value type falls back to Java serialization.
+ */
+public final class ContextualStatisticsCodec {
+
+  private static final byte VERSION = 1;
+
+  private static final byte VALUES_LONG = 0;
+  private static final byte VALUES_INTEGER = 1;
+  private static final byte VALUES_DOUBLE = 2;
+  private static final byte VALUES_SERIALIZED = 3;
+
+  private static final StatisticType[] STATISTIC_TYPES = StatisticType.values();
+
+  private ContextualStatisticsCodec() {
+  }
+
+  public static byte[] encode(ContextualStatistics... statistics) throws IOException {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    Map<Context, Integer> contexts = new LinkedHashMap<>();
+
+    // body is written first to build the tables
+    ByteArrayOutputStream body = new ByteArrayOutputStream(64 * statistics.length);
+    DataOutputStream out = new DataOutputStream(body);
+    writeVarLong(out, statistics.length);
+    for (ContextualStatistics contextualStatistics : statistics) {
+      writeVarLong(out, index(strings, contextualStatistics.getCapability()));
+      writeVarLong(out, index(contexts, contextualStatistics.getContext()));
+      Map<String, Statistic<? extends Serializable>> map = contextualStatistics.getStatistics();
+      writeVarLong(out, map.size());
+      for (Map.Entry<String, Statistic<? extends Serializable>> entry : map.entrySet()) {
+        writeVarLong(out, index(strings, entry.getKey()));
+        writeStatistic(out, entry.getValue());
+      }
+    }
+    out.flush();
+
+    // tables: contexts are made of string indexes, so they must be indexed before the string table is written
+    ByteArrayOutputStream contextTable = new ByteArrayOutputStream(32 * contexts.size());
+    DataOutputStream contextOut = new DataOutputStream(contextTable);
+    writeVarLong(contextOut, contexts.size());
+    for (Context context : contexts.keySet()) {
+      writeVarLong(contextOut, context.size());
+      for (Map.Entry<String, String> entry : context.entrySet()) {
+        writeVarLong(contextOut, index(strings, entry.getKey()));
+        writeVarLong(contextOut, index(strings, entry.getValue()));
+      }
+    }
+    contextOut.flush();
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream(body.size() + contextTable.size() + 16 * strings.size());
+    DataOutputStream resultOut = new DataOutputStream(result);
+    resultOut.writeByte(VERSION);
+    writeVarLong(resultOut, strings.size());
+    for (String s : strings.keySet()) {
+      resultOut.writeUTF(s);
+    }
+    contextTable.writeTo(resultOut);
+    body.writeTo(resultOut);
+    resultOut.flush();
+    return result.toByteArray();
+  }
+
+  public static ContextualStatistics[] decode(byte[] bytes) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new StreamCorruptedException("Unsupported statistics encoding version: " + version);
+    }
+
+    String[] strings = new String[(int) readVarLong(in)];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = in.readUTF();
+    }
+
+    Context[] contexts = new Context[(int) readVarLong(in)];
+    for (int i = 0; i < contexts.length; i++) {
+      int size = (int) readVarLong(in);
+      Map<String, String> map = new LinkedHashMap<>(size * 2);
+      for (int j = 0; j < size; j++) {
+        map.put(strings[(int) readVarLong(in)], strings[(int) readVarLong(in)]);
+      }
+      contexts[i] = Context.create(map);
+    }
+
+    ContextualStatistics[] statistics = new ContextualStatistics[(int) readVarLong(in)];
+    for (int i = 0; i < statistics.length; i++) {
+      String capability = strings[(int) readVarLong(in)];
+      Context context = contexts[(int) readVarLong(in)];
+      int size = (int) readVarLong(in);
+      Map<String, Statistic<? extends Serializable>> map = new HashMap<>(size * 2);
+      for (int j = 0; j < size; j++) {
+        String name = strings[(int) readVarLong(in)];
+        map.put(name, readStatistic(in));
+      }
+      statistics[i] = new ContextualStatistics(capability, context, map);
+    }
+    return statistics;
+  }
+
+  private static void writeStatistic(DataOutput out, Statistic<? extends Serializable> statistic) throws IOException {
+    out.writeByte(StatisticType.convert(statistic.getType()).ordinal());
+    List<? extends Sample<? extends Serializable>> samples = statistic.getSamples();
+    int count = samples.size();
+    writeVarLong(out, count);
+    if (count == 0) {
+      return;
+    }
+
+    long previous = 0;
+    for (Sample<? extends Serializable> sample : samples) {
+      writeVarLong(out, zigZag(sample.getTimestamp() - previous));
+      previous = sample.getTimestamp();
+    }
+
+    byte kind = valuesKind(samples);
+    out.writeByte(kind);
+    switch (kind) {
+      case VALUES_LONG:
+      case VALUES_INTEGER:
+        previous = 0;
+        for (Sample<? extends Serializable> sample : samples) {
+          long value = ((Number) sample.getSample()).longValue();
+          writeVarLong(out, zigZag(value - previous));
+          previous = value;
+        }
+        break;
+      case VALUES_DOUBLE:
+        for (Sample<? extends Serializable> sample : samples) {
+          out.writeDouble((Double) sample.getSample());
+        }
+        break;
+      default:
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+          for (Sample<? extends Serializable> sample : samples) {
+            oos.writeObject(sample.getSample());
+          }
+        }
+        writeVarLong(out, baos.size());
+        out.write(baos.toByteArray());
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Statistic<? extends Serializable> readStatistic(DataInput in) throws IOException {
+    StatisticType type = STATISTIC_TYPES[in.readByte()];
+    int count = (int) readVarLong(in);
+    List<Sample> samples = new ArrayList<>(count);
+    if (count > 0) {
+      long[] timestamps = new long[count];
+      long previous = 0;
+      for (int i = 0; i < count; i++) {
+        previous += unZigZag(readVarLong(in));
+        timestamps[i] = previous;
+      }
+
+      byte kind = in.readByte();
+      switch (kind) {
+        case VALUES_LONG:
+        case VALUES_INTEGER:
+          previous = 0;
+          for (int i = 0; i < count; i++) {
+            previous += unZigZag(readVarLong(in));
+            samples.add(new Sample<>(timestamps[i], kind == VALUES_LONG ? (Serializable) previous : (Serializable) (int) previous));
+          }
+          break;
+        case VALUES_DOUBLE:
+          for (int i = 0; i < count; i++) {
+            samples.add(new Sample<>(timestamps[i], in.readDouble()));
+          }
+          break;
+        case VALUES_SERIALIZED:
+          byte[] bytes = new byte[(int) readVarLong(in)];
+          in.readFully(bytes);
+          try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            for (int i = 0; i < count; i++) {
+              samples.add(new Sample<>(timestamps[i], (Serializable) ois.readObject()));
+            }
+          } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+          }
+          break;
+        default:
+          throw new StreamCorruptedException("Unsupported sample values: " + kind);
+      }
+    }
+    return new Statistic(StatisticType.convert(type), samples);
+  }
+
+  private static byte valuesKind(List<? extends Sample<? extends Serializable>> samples) {
+    Class<?> type = null;
+    for (Sample<? extends Serializable> sample : samples) {
+      Object value = sample.getSample();
+      if (value == null || (type != null && type != value.getClass())) {
+        return VALUES_SERIALIZED;
+      }
+      type = value.getClass();
+    }
+    if (type == Long.class) {
+      return VALUES_LONG;
+    }
+    if (type == Integer.class) {
+      return VALUES_INTEGER;
+    }
+    if (type == Double.class) {
+      return VALUES_DOUBLE;
+    }
+    return VALUES_SERIALIZED;
+  }
+
+  private static <K> int index(Map<K, Integer> table, K key) {
+    Integer idx = table.get(key);
+    if (idx == null) {
+      idx = table.size();
+      table.put(key, idx);
+    }
+    return idx;
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new StreamCorruptedException("Malformed variable-length long");
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.capabilities;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.model.capabilities.context.CapabilityContext;
+import org.terracotta.management.model.capabilities.descriptors.CallDescriptor;
+import org.terracotta.management.model.capabilities.descriptors.Descriptor;
+import org.terracotta.management.model.capabilities.descriptors.Settings;
+import org.terracotta.management.model.capabilities.descriptors.StatisticDescriptor;
+import org.terracotta.management.model.context.ContextContainer;
+import org.terracotta.testing.MicroBenchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares sending a whole management registry with sending a {@link ManagementRegistryDelta} when a client
+ * with 10k managed objects registers and unregisters 1% of them: serialized size, and server-side time to
+ * deserialize and rebuild the registry content.
+ */
+@RunWith(JUnit4.class)
+public class ManagementRegistryDeltaBenchmark {
+
+  private static final int OBJECTS = 10_000;
+  private static final int CHURN = OBJECTS / 100;
+
+  private static final CapabilityContext CAPABILITY_CONTEXT = new CapabilityContext(new CapabilityContext.Attribute("cacheManagerName", true), new CapabilityContext.Attribute("cacheName", true));
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  @Test
+  public void registry_refresh() throws Exception {
+    ContextContainer baseContextContainer = contextContainer(0, OBJECTS);
+    List<Capability> baseCapabilities = capabilities(0, OBJECTS);
+    ContextContainer contextContainer = contextContainer(CHURN, OBJECTS + CHURN);
+    List<Capability> capabilities = capabilities(CHURN, OBJECTS + CHURN);
+
+    ManagementRegistryDelta delta = ManagementRegistryDelta.between(1, baseContextContainer, baseCapabilities, 2, contextContainer, capabilities);
+    assertEquals(contextContainer, delta.applyTo(baseContextContainer));
+
+    byte[] fullBytes = serialize(new Object[]{contextContainer, capabilities.toArray(new Capability[0])});
+    byte[] deltaBytes = serialize(delta);
+
+    String name = OBJECTS + " managed objects, " + CHURN + " unregistered and " + CHURN + " registered";
+    benchmark.record(name + " - whole registry size", fullBytes.length + " bytes");
+    benchmark.record(name + " - delta size", deltaBytes.length + " bytes");
+    benchmark.measure(name + " - whole registry received", () -> receiveFull(fullBytes));
+    benchmark.measure(name + " - delta received", () -> receiveDelta(deltaBytes, baseContextContainer, baseCapabilities));
+    benchmark.measure(name + " - client-side diff", () -> ManagementRegistryDelta.between(1, baseContextContainer, baseCapabilities, 2, contextContainer, capabilities));
+  }
+
+  private static int receiveFull(byte[] bytes) {
+    Object[] o = (Object[]) deserialize(bytes);
+    ContextContainer contextContainer = (ContextContainer) o[0];
+    List<Capability> capabilities = new ArrayList<>(Arrays.asList((Capability[]) o[1]));
+    return contextContainer.getSubContexts().size() + capabilities.size();
+  }
+
+  private static int receiveDelta(byte[] bytes, ContextContainer baseContextContainer, List<Capability> baseCapabilities) {
+    ManagementRegistryDelta delta = (ManagementRegistryDelta) deserialize(bytes);
+    ContextContainer contextContainer = delta.applyTo(baseContextContainer);
+    List<Capability> capabilities = delta.applyTo(baseCapabilities);
+    return contextContainer.getSubContexts().size() + capabilities.size();
+  }
+
+  private static ContextContainer contextContainer(int from, int to) {
+    List<ContextContainer> subContexts = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      subContexts.add(new ContextContainer("cacheName", "cache-" + i));
+    }
+    return new ContextContainer("cacheManagerName", "cm", subContexts);
+  }
+
+  private static List<Capability> capabilities(int from, int to) {
+    List<Descriptor> settings = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      settings.add(new Settings()
+          .set("cacheName", "cache-" + i)
+          .set("keyType", String.class)
+          .set("valueType", String.class)
+          .set("heapSize", 1000));
+    }
+    List<Descriptor> statistics = new ArrayList<>();
+    for (String name : new String[]{"Cache:HitCount", "Cache:MissCount", "Cache:PutCount", "Cache:RemovalCount", "Cache:EvictionCount", "Cache:ExpirationCount"}) {
+      statistics.add(new StatisticDescriptor(name, "COUNTER"));
+    }
+    return Arrays.asList(
+        new DefaultCapability("SettingsCapability", CAPABILITY_CONTEXT, settings),
+        new DefaultCapability("StatisticsCapability", CAPABILITY_CONTEXT, statistics),
+        new DefaultCapability("ActionsCapability", CAPABILITY_CONTEXT, new CallDescriptor("clear", "void"), new CallDescriptor("get", "java.lang.Object", new CallDescriptor.Parameter("key", "java.lang.Object"))));
+  }
+
+  private static byte[] serialize(Object o) {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(o);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return baos.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (ClassNotFoundException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.capabilities;
+
+import org.junit.Test;
+import org.terracotta.management.model.capabilities.context.CapabilityContext;
+import org.terracotta.management.model.capabilities.descriptors.CallDescriptor;
+import org.terracotta.management.model.capabilities.descriptors.Descriptor;
+import org.terracotta.management.model.capabilities.descriptors.Settings;
+import org.terracotta.management.model.capabilities.descriptors.StatisticDescriptor;
+import org.terracotta.management.model.context.ContextContainer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ManagementRegistryDeltaTest {
+
+  private final CapabilityContext capabilityContext = new CapabilityContext(new CapabilityContext.Attribute("cacheManagerName", true), new CapabilityContext.Attribute("cacheName", true));
+
+  @Test
+  public void test_full() {
+    ContextContainer cc = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1"));
+    List<Capability> capabilities = Arrays.asList(statistics("hits", "misses"), calls("clear"));
+
+    ManagementRegistryDelta delta = ManagementRegistryDelta.full(1, cc, capabilities);
+
+    assertTrue(delta.isFull());
+    assertFalse(delta.isEmpty());
+    assertEquals(ManagementRegistryDelta.NO_VERSION, delta.getBaseVersion());
+    assertEquals(1, delta.getVersion());
+    assertEquals(cc, delta.applyTo(new ContextContainer("cacheManagerName", "other")));
+    assertEquals(capabilities, delta.applyTo(Collections.singletonList(calls("foo"))));
+  }
+
+  @Test
+  public void test_between_same_content_is_empty() {
+    ContextContainer cc = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1"));
+    List<Capability> capabilities = Arrays.asList(statistics("hits", "misses"), calls("clear"));
+
+    ManagementRegistryDelta delta = ManagementRegistryDelta.between(1, cc, capabilities, 2,
+        new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1")),
+        Arrays.asList(statistics("hits", "misses"), calls("clear")));
+
+    assertFalse(delta.isFull());
+    assertTrue(delta.isEmpty());
+    assertEquals(1, delta.getBaseVersion());
+    assertEquals(2, delta.getVersion());
+  }
+
+  @Test
+  public void test_between_sub_contexts_and_descriptors() {
+    ContextContainer base = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1"), new ContextContainer("cacheName", "c2"), new ContextContainer("cacheName", "c3"));
+    List<Capability> baseCapabilities = Arrays.asList(statistics("hits", "misses"), calls("clear"), settings("c1", "c2", "c3"));
+
+    ContextContainer cc = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1"), new ContextContainer("cacheName", "c3"), new ContextContainer("cacheName", "c4"));
+    List<Capability> capabilities = Arrays.asList(statistics("hits", "misses", "evictions"), settings("c1", "c3", "c4"), calls("clear", "get"));
+
+    ManagementRegistryDelta delta = ManagementRegistryDelta.between(1, base, baseCapabilities, 2, cc, capabilities);
+
+    assertFalse(delta.isFull());
+    assertFalse(delta.isEmpty());
+    assertEquals(cc, delta.applyTo(base));
+    // capabilities keep the order of the base registry
+    assertEquals(Arrays.asList(statistics("hits", "misses", "evictions"), calls("clear", "get"), settings("c1", "c3", "c4")), delta.applyTo(baseCapabilities));
+  }
+
+  @Test
+  public void test_between_added_and_removed_capabilities() {
+    ContextContainer cc = new ContextContainer("cacheManagerName", "cm");
+    List<Capability> baseCapabilities = Arrays.asList(statistics("hits"), calls("clear"));
+    List<Capability> capabilities = Arrays.asList(calls("clear"), settings("c1"), new DefaultCapability("StatisticsCapability", new CapabilityContext(), new StatisticDescriptor("hits", "COUNTER")));
+
+    ManagementRegistryDelta delta = ManagementRegistryDelta.between(1, cc, baseCapabilities, 2, cc, capabilities);
+
+    assertFalse(delta.isFull());
+    // a capability whose context changed is replaced in place, new ones are appended
+    assertEquals(Arrays.asList(capabilities.get(2), calls("clear"), settings("c1")), delta.applyTo(baseCapabilities));
+  }
+
+  @Test
+  public void test_between_duplicate_descriptors() {
+    ContextContainer cc = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1"), new ContextContainer("cacheName", "c1"));
+    ContextContainer updated = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1"));
+
+    ManagementRegistryDelta delta = ManagementRegistryDelta.between(1, cc, Collections.emptyList(), 2, updated, Collections.emptyList());
+
+    assertEquals(updated, delta.applyTo(cc));
+  }
+
+  @Test
+  public void test_between_other_root_context_is_full() {
+    ContextContainer base = new ContextContainer("cacheManagerName", "cm1");
+    ContextContainer cc = new ContextContainer("cacheManagerName", "cm2");
+
+    ManagementRegistryDelta delta = ManagementRegistryDelta.between(1, base, Collections.emptyList(), 2, cc, Collections.singletonList(calls("clear")));
+
+    assertTrue(delta.isFull());
+    assertEquals(cc, delta.applyTo(base));
+  }
+
+  @Test
+  public void test_changes_and_summary() {
+    ContextContainer cc = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1"));
+    List<Capability> baseCapabilities = Arrays.asList(statistics("hits"), calls("clear"), settings("c1"));
+    List<Capability> capabilities = Arrays.asList(statistics("hits", "misses"), calls("clear"), new DefaultCapability("SettingsCapability", new CapabilityContext(), new Settings()));
+
+    ManagementRegistryDelta unchanged = ManagementRegistryDelta.between(1, cc, baseCapabilities, 2, cc, baseCapabilities);
+    assertFalse(unchanged.changesSubContexts());
+    assertFalse(unchanged.changesCapabilities());
+
+    ManagementRegistryDelta delta = ManagementRegistryDelta.between(1, cc, baseCapabilities, 2, cc, capabilities);
+    assertFalse(delta.changesSubContexts());
+    assertTrue(delta.changesCapabilities());
+
+    Map<String, Object> summary = delta.toMap();
+    assertEquals(1L, summary.get("baseVersion"));
+    assertEquals(2L, summary.get("version"));
+    assertEquals(0, summary.get("removedSubContexts"));
+    assertEquals(0, summary.get("addedSubContexts"));
+    assertEquals(Collections.emptyList(), summary.get("removedCapabilities"));
+    assertEquals(Collections.singletonList("SettingsCapability"), summary.get("updatedCapabilities"));
+    assertEquals(Collections.singletonList("StatisticsCapability"), summary.get("changedCapabilities"));
+  }
+
+  @Test
+  public void test_serialization() throws Exception {
+    ContextContainer base = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c1"), new ContextContainer("cacheName", "c2"));
+    List<Capability> baseCapabilities = Arrays.asList(statistics("hits"), settings("c1", "c2"));
+    ContextContainer cc = new ContextContainer("cacheManagerName", "cm", new ContextContainer("cacheName", "c2"), new ContextContainer("cacheName", "c3"));
+    List<Capability> capabilities = Arrays.asList(statistics("hits"), settings("c2", "c3"));
+
+    ManagementRegistryDelta delta = copy(ManagementRegistryDelta.between(1, base, baseCapabilities, 2, cc, capabilities));
+
+    assertEquals(2, delta.getVersion());
+    assertEquals(cc, delta.applyTo(base));
+    assertEquals(capabilities, delta.applyTo(baseCapabilities));
+  }
+
+  private Capability statistics(String... names) {
+    Descriptor[] descriptors = new Descriptor[names.length];
+    for (int i = 0; i < names.length; i++) {
+      descriptors[i] = new StatisticDescriptor(names[i], "COUNTER");
+    }
+    return new DefaultCapability("StatisticsCapability", capabilityContext, descriptors);
+  }
+
+  private Capability calls(String... names) {
+    Descriptor[] descriptors = new Descriptor[names.length];
+    for (int i = 0; i < names.length; i++) {
+      descriptors[i] = new CallDescriptor(names[i], "void");
+    }
+    return new DefaultCapability("ActionsCapability", capabilityContext, descriptors);
+  }
+
+  private Capability settings(String... caches) {
+    Descriptor[] descriptors = new Descriptor[caches.length];
+    for (int i = 0; i < caches.length; i++) {
+      descriptors[i] = new Settings().set("cacheName", caches[i]).set("size", 100);
+    }
+    return new DefaultCapability("SettingsCapability", capabilityContext, descriptors);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T copy(T o) throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(o);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      return (T) ois.readObject();
+    }
+  }
+}
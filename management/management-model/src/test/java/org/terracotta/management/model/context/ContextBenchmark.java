@@ -0,0 +1,99 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.context;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.testing.MicroBenchmark;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares {@link Context} with the previous implementation, which copied a {@link LinkedHashMap} on each
+ * {@link Context#with(String, String)}, under the load of a statistic collection: each collected statistic gets
+ * its context completed with the collector id, the server context and the stripe name, and the contexts are
+ * then hashed and compared to group the statistics per context.
+ */
+@RunWith(JUnit4.class)
+public class ContextBenchmark {
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  @Test
+  public void statistic_collection() throws Exception {
+    Map<String, String> serverContext = new LinkedHashMap<>();
+    serverContext.put("serverId", "server-1");
+    serverContext.put("serverName", "server-1");
+    serverContext.put("stripeId", "stripe-1");
+
+    for (int contexts : new int[]{10, 100, 1000}) {
+      Context[] exposed = new Context[contexts];
+      Map<String, String>[] legacyExposed = newMapArray(contexts);
+      for (int i = 0; i < contexts; i++) {
+        exposed[i] = Context.create("consumerId", "1").with("cacheManagerName", "cm-" + (i / 10)).with("cacheName", "cache-" + i);
+        legacyExposed[i] = new LinkedHashMap<>(exposed[i]);
+      }
+
+      benchmark.measure(contexts + " contexts - LinkedHashMap copies", () -> collectLegacy(legacyExposed, serverContext));
+      benchmark.measure(contexts + " contexts - context chain", () -> collect(exposed, serverContext));
+    }
+  }
+
+  private static int collect(Context[] exposed, Map<String, String> serverContext) {
+    Set<Context> grouped = new HashSet<>();
+    for (Context context : exposed) {
+      grouped.add(context.with("collectorId", "1").with(serverContext).with("stripeName", "stripe-1"));
+    }
+    for (Context context : exposed) {
+      grouped.add(context.with("collectorId", "1").with(serverContext).with("stripeName", "stripe-1"));
+    }
+    return grouped.size();
+  }
+
+  private static int collectLegacy(Map<String, String>[] exposed, Map<String, String> serverContext) {
+    Set<Map<String, String>> grouped = new HashSet<>();
+    for (Map<String, String> context : exposed) {
+      grouped.add(legacyWith(legacyWith(legacyWith(context, "collectorId", "1"), serverContext), "stripeName", "stripe-1"));
+    }
+    for (Map<String, String> context : exposed) {
+      grouped.add(legacyWith(legacyWith(legacyWith(context, "collectorId", "1"), serverContext), "stripeName", "stripe-1"));
+    }
+    return grouped.size();
+  }
+
+  private static Map<String, String> legacyWith(Map<String, String> context, String key, String val) {
+    Map<String, String> copy = new LinkedHashMap<>(context);
+    copy.put(key, val);
+    return copy;
+  }
+
+  private static Map<String, String> legacyWith(Map<String, String> context, Map<String, String> props) {
+    Map<String, String> copy = new LinkedHashMap<>(context);
+    copy.putAll(props);
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, String>[] newMapArray(int size) {
+    return new Map[size];
+  }
+}
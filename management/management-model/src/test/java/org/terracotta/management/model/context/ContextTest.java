@@ -0,0 +1,125 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.context;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ContextTest {
+
+  @Test
+  public void test_with_keeps_insertion_order() {
+    Context context = Context.create("a", "1").with("b", "2").with("c", "3");
+    assertEquals(3, context.size());
+    assertEquals("{a=1, b=2, c=3}", context.toString());
+    assertEquals(new ArrayList<>(context.keySet()), new ArrayList<>(map("a", "1", "b", "2", "c", "3").keySet()));
+    assertEquals("2", context.get("b"));
+    assertNull(context.get("d"));
+  }
+
+  @Test
+  public void test_with_replaces_value_in_place() {
+    Context context = Context.create("a", "1").with("b", "2").with("c", "3");
+    Context updated = context.with("b", "4");
+    assertEquals("{a=1, b=4, c=3}", updated.toString());
+    assertEquals("{a=1, b=2, c=3}", context.toString());
+    assertSame(context, context.with("b", "2"));
+    assertEquals(map("a", "1", "b", "4", "c", "3"), updated.toMap());
+  }
+
+  @Test
+  public void test_equals_and_hashCode() {
+    Context context = Context.create("a", "1").with("b", "2");
+    Map<String, String> map = map("a", "1", "b", "2");
+
+    assertEquals(Context.create(map), context);
+    assertEquals(Context.empty().with("b", "2").with("a", "1"), context);
+    assertEquals(map.hashCode(), context.hashCode());
+    assertEquals(map, context);
+    assertNotEquals(Context.create("a", "1").with("b", "3"), context);
+    assertNotEquals(Context.create("a", "1"), context);
+    assertEquals(Context.empty(), Context.create(new LinkedHashMap<String, String>()));
+  }
+
+  @Test
+  public void test_contains() {
+    Context context = Context.create("a", "1").with("b", "2").with("c", "3");
+    assertTrue(context.contains(Context.create("c", "3").with("a", "1")));
+    assertFalse(context.contains(Context.create("c", "4")));
+    assertTrue(context.contains("b"));
+    assertTrue(context.containsKey("b"));
+    assertTrue(context.contains("b", "2"));
+    assertFalse(context.contains("b", "3"));
+    assertTrue(context.contains(Context.empty()));
+  }
+
+  @Test
+  public void test_intern() {
+    Context context = Context.create("consumerId", "12");
+    assertSame(context, Context.create("consumerId", "12"));
+    assertSame(context, Context.empty().with("consumerId", "12").intern());
+    assertSame(Context.empty(), Context.create(new LinkedHashMap<String, String>()).intern());
+  }
+
+  @Test
+  public void test_serialization() throws Exception {
+    Context context = Context.create("a", "1").with("b", "2").with("c", "3");
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(context);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      Context copy = (Context) ois.readObject();
+      assertEquals(context, copy);
+      assertEquals(context.hashCode(), copy.hashCode());
+      assertEquals(context.toString(), copy.toString());
+      assertEquals("{a=1, b=2, c=3, d=4}", copy.with("d", "4").toString());
+    }
+  }
+
+  @Test
+  public void test_deserialized_empty_context_is_shared() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(Context.empty());
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      assertSame(Context.empty(), ois.readObject());
+    }
+  }
+
+  private static Map<String, String> map(String... kv) {
+    Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < kv.length; i += 2) {
+      map.put(kv[i], kv[i + 1]);
+    }
+    return map;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.stats;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.testing.MicroBenchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+
+import static org.terracotta.management.model.stats.ContextualStatisticsCodecTest.createStatistics;
+import static org.terracotta.management.model.stats.ContextualStatisticsCodecTest.serialize;
+
+/**
+ * Compares the size and the encoding / decoding time of a statistic batch with Java serialization
+ * and with {@link ContextualStatisticsCodec}.
+ */
+@RunWith(JUnit4.class)
+public class ContextualStatisticsCodecBenchmark {
+
+  @Rule
+  public MicroBenchmark benchmark = new MicroBenchmark();
+
+  @Test
+  public void encode_decode() throws Exception {
+    for (int contexts : new int[]{10, 100, 1000}) {
+      ContextualStatistics[] statistics = createStatistics(contexts, 20, 3);
+
+      byte[] serialized = serialize(statistics);
+      byte[] encoded = ContextualStatisticsCodec.encode(statistics);
+
+      benchmark.record(contexts + " contexts - serialization size", serialized.length + " bytes");
+      benchmark.record(contexts + " contexts - codec size", encoded.length + " bytes");
+      benchmark.measure(contexts + " contexts - serialization encode", () -> serialize(statistics));
+      benchmark.measure(contexts + " contexts - serialization decode", () -> deserialize(serialized));
+      benchmark.measure(contexts + " contexts - codec encode", () -> ContextualStatisticsCodec.encode(statistics));
+      benchmark.measure(contexts + " contexts - codec decode", () -> ContextualStatisticsCodec.decode(encoded));
+    }
+  }
+
+  private static Object deserialize(byte[] bytes) throws Exception {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+
+}
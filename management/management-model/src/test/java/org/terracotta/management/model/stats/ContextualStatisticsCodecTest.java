@@ -0,0 +1,150 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.stats;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.message.Message;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.TimeSource;
+import org.terracotta.statistics.Sample;
+import org.terracotta.statistics.registry.Statistic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ContextualStatisticsCodecTest {
+
+  @Test
+  public void test_encode_decode() throws Exception {
+    ContextualStatistics[] statistics = createStatistics(50, 10, 5);
+    ContextualStatistics[] decoded = ContextualStatisticsCodec.decode(ContextualStatisticsCodec.encode(statistics));
+    assertArrayEquals(statistics, decoded);
+  }
+
+  @Test
+  public void test_encode_decode_all_value_types() throws Exception {
+    Map<String, Statistic<? extends Serializable>> map = new HashMap<>();
+    map.put("long", statistic(org.terracotta.statistics.StatisticType.COUNTER, 1000L, 5L, -3L, Long.MAX_VALUE, Long.MIN_VALUE));
+    map.put("int", statistic(org.terracotta.statistics.StatisticType.GAUGE, 1, -1, Integer.MAX_VALUE));
+    map.put("double", statistic(org.terracotta.statistics.StatisticType.RATE, 1.5d, Double.NaN, -0.0d));
+    map.put("string", statistic(org.terracotta.statistics.StatisticType.TABLE, "a", "b"));
+    map.put("mixed", statistic(org.terracotta.statistics.StatisticType.GAUGE, 1L, 2.0d));
+    map.put("empty", statistic(org.terracotta.statistics.StatisticType.RATIO));
+    ContextualStatistics[] statistics = {new ContextualStatistics("capability", Context.create("cacheName", "c1"), map)};
+
+    assertArrayEquals(statistics, ContextualStatisticsCodec.decode(ContextualStatisticsCodec.encode(statistics)));
+  }
+
+  @Test
+  public void test_statistics_message_serialization() throws Exception {
+    ContextualStatistics[] statistics = createStatistics(50, 10, 5);
+    DefaultMessage message = new DefaultMessage(new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST).next(), "STATISTICS", statistics);
+
+    Message copy = copy(message.withCompactStatistics());
+
+    assertEquals(message, copy);
+    assertEquals(Arrays.asList(statistics), copy.unwrap(ContextualStatistics.class));
+    assertTrue(serialize(message.withCompactStatistics()).length * 5 < serialize(message).length);
+  }
+
+  @Test
+  public void test_statistics_message_legacy_serialization() throws Exception {
+    ContextualStatistics[] statistics = createStatistics(5, 10, 5);
+    DefaultMessage message = new DefaultMessage(new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST).next(), "STATISTICS", statistics);
+
+    // older clients do not have the class of the compact form
+    assertFalse(new String(serialize(message), StandardCharsets.ISO_8859_1).contains("SerializedStatistics"));
+
+    Message copy = copy(message);
+    assertEquals(message, copy);
+    assertEquals(Arrays.asList(statistics), copy.unwrap(ContextualStatistics.class));
+  }
+
+  @Test
+  public void test_encoding_is_smaller_than_java_serialization() throws Exception {
+    ContextualStatistics[] statistics = createStatistics(500, 20, 3);
+    int encoded = ContextualStatisticsCodec.encode(statistics).length;
+    int serialized = serialize(statistics).length;
+    assertTrue(encoded + " >= " + serialized, encoded * 5 < serialized);
+  }
+
+  static ContextualStatistics[] createStatistics(int contexts, int statisticCount, int samplesPerStatistic) {
+    long now = 1476304913984L;
+    ContextualStatistics[] statistics = new ContextualStatistics[contexts];
+    for (int c = 0; c < contexts; c++) {
+      Map<String, Statistic<? extends Serializable>> map = new HashMap<>();
+      for (int s = 0; s < statisticCount; s++) {
+        List<Sample<Long>> samples = new ArrayList<>(samplesPerStatistic);
+        for (int i = 0; i < samplesPerStatistic; i++) {
+          samples.add(new Sample<>(now + i * 1000, (long) (c * 1000 + s * 10 + i)));
+        }
+        map.put("Cache:Statistic" + s, new Statistic<>(org.terracotta.statistics.StatisticType.COUNTER, samples));
+      }
+      Context context = Context.create("consumerId", "12")
+          .with("cacheManagerName", "my-cache-manager")
+          .with("cacheName", "cache-" + c)
+          .with("collectorId", "12");
+      statistics[c] = new ContextualStatistics("StatisticsCapability", context, map);
+    }
+    return statistics;
+  }
+
+  @SafeVarargs
+  private static <T extends Serializable> Statistic<T> statistic(org.terracotta.statistics.StatisticType type, T... values) {
+    List<Sample<T>> samples = new ArrayList<>(values.length);
+    for (int i = 0; i < values.length; i++) {
+      samples.add(new Sample<>(1476304913984L + i, values[i]));
+    }
+    return new Statistic<>(type, samples);
+  }
+
+  static byte[] serialize(Object o) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(o);
+    }
+    return baos.toByteArray();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T copy(T o) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(o)))) {
+      return (T) in.readObject();
+    }
+  }
+
+}
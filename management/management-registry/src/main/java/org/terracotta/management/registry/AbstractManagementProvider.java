@@ -28,11 +28,15 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Mathieu Carbou
@@ -48,6 +52,12 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
 
   private final Queue<ExposedObject<T>> exposedObjects = new ConcurrentLinkedQueue<ExposedObject<T>>();
 
+  // index of the exposed objects by their context, restricted to the attributes required by the capability context.
+  // exposed objects which context does not contain all the required attributes cannot be indexed and are scanned.
+  private final ConcurrentMap<Context, Queue<ExposedObject<T>>> exposedObjectsByContext = new ConcurrentHashMap<Context, Queue<ExposedObject<T>>>();
+  private final Queue<ExposedObject<T>> unindexedExposedObjects = new ConcurrentLinkedQueue<ExposedObject<T>>();
+  private final AtomicLong exposedObjectsVersion = new AtomicLong();
+
   private final String capabilityName;
   private final Class<? extends T> managedType;
   private final CapabilityContext capabilityContext;
@@ -82,6 +92,8 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
   public void register(T managedObject) {
     ExposedObject<T> exposedObject = wrap(managedObject);
     this.exposedObjects.add(exposedObject);
+    index(exposedObject);
+    exposedObjectsVersion.incrementAndGet();
   }
 
   @Override
@@ -89,6 +101,8 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
     for (ExposedObject<T> exposedObject : exposedObjects) {
       if (exposedObject.getTarget().equals(managedObject)) {
         if (this.exposedObjects.remove(exposedObject)) {
+          unindex(exposedObject);
+          exposedObjectsVersion.incrementAndGet();
           dispose(exposedObject);
           return;
         }
@@ -99,7 +113,12 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
   @Override
   public void close() {
     while (!exposedObjects.isEmpty()) {
-      dispose(exposedObjects.poll());
+      ExposedObject<T> exposedObject = exposedObjects.poll();
+      if (exposedObject != null) {
+        unindex(exposedObject);
+        exposedObjectsVersion.incrementAndGet();
+        dispose(exposedObject);
+      }
     }
   }
 
@@ -164,13 +183,28 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
     return exposedObjects;
   }
 
+  @Override
+  public long getExposedObjectsVersion() {
+    return exposedObjectsVersion.get();
+  }
+
   protected abstract ExposedObject<T> wrap(T managedObject);
 
   protected ExposedObject<T> findExposedObject(Context context) {
     if (!contextValid(context)) {
       return null;
     }
-    for (ExposedObject<T> exposedObject : exposedObjects) {
+    // a valid context has all the required attributes, so an exposed object matching this context
+    // must have the same values for these attributes: only this bucket needs to be checked.
+    Queue<ExposedObject<T>> candidates = exposedObjectsByContext.get(indexKey(context));
+    if (candidates != null) {
+      for (ExposedObject<T> exposedObject : candidates) {
+        if (context.contains(exposedObject.getContext())) {
+          return exposedObject;
+        }
+      }
+    }
+    for (ExposedObject<T> exposedObject : unindexedExposedObjects) {
       if (context.contains(exposedObject.getContext())) {
         return exposedObject;
       }
@@ -188,6 +222,36 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
     return null;
   }
 
+  private void index(ExposedObject<T> exposedObject) {
+    Context context = exposedObject.getContext();
+    if (contextValid(context)) {
+      exposedObjectsByContext.computeIfAbsent(indexKey(context), key -> new ConcurrentLinkedQueue<ExposedObject<T>>()).add(exposedObject);
+    } else {
+      unindexedExposedObjects.add(exposedObject);
+    }
+  }
+
+  private void unindex(ExposedObject<T> exposedObject) {
+    Context context = exposedObject.getContext();
+    if (contextValid(context)) {
+      exposedObjectsByContext.computeIfPresent(indexKey(context), (key, bucket) -> {
+        bucket.remove(exposedObject);
+        return bucket.isEmpty() ? null : bucket;
+      });
+    } else {
+      unindexedExposedObjects.remove(exposedObject);
+    }
+  }
+
+  private Context indexKey(Context context) {
+    Collection<CapabilityContext.Attribute> attributes = getCapabilityContext().getAttributes();
+    Map<String, String> key = new HashMap<String, String>(attributes.size() * 2);
+    for (CapabilityContext.Attribute attribute : attributes) {
+      key.put(attribute.getName(), context.get(attribute.getName()));
+    }
+    return Context.create(key);
+  }
+
   private boolean contextValid(Context context) {
     if (context == null) {
       return false;
@@ -125,5 +125,15 @@ public interface ManagementProvider<T> {
 
   Collection<ExposedObject<T>> getExposedObjects();
 
+  /**
+   * A version that changes each time an object is registered or unregistered, so that
+   * callers can cache what they compute from {@link #getExposedObjects()}.
+   *
+   * @return the current version, or a negative value if this provider does not track changes
+   */
+  default long getExposedObjectsVersion() {
+    return -1;
+  }
+
   ExposedObject<T> findExposedObject(T managedObject);
 }
@@ -27,9 +27,15 @@ import org.terracotta.management.registry.ResultSet;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -45,6 +51,10 @@ public class DefaultStatisticCollector implements StatisticCollector {
 
   private final ScheduledExecutorService scheduledExecutorService;
   private final Runnable runnable;
+  // contexts to collect per capability, only rebuilt when the providers or their exposed objects change
+  private final Map<String, StatisticContexts> statisticContexts = new ConcurrentHashMap<>();
+  // time of the last collect of the capabilities that have been skipped since then because the executor was overloaded
+  private final Map<String, Long> skippedSince = new ConcurrentHashMap<>();
 
   private volatile boolean running;
   private ScheduledFuture<?> task;
@@ -55,45 +65,57 @@ public class DefaultStatisticCollector implements StatisticCollector {
                                    ScheduledExecutorService scheduledExecutorService,
                                    final Collector collector,
                                    LongSupplier systemTimeSupplier) {
+    this(managementRegistry, scheduledExecutorService, Runnable::run, collector, systemTimeSupplier);
+  }
+
+  /**
+   * @param collectExecutor executor used to collect the statistics of each capability. The collection of
+   *                        each capability is done in parallel if this executor is backed by several threads.
+   */
+  public DefaultStatisticCollector(final CapabilityManagementSupport managementRegistry,
+                                   ScheduledExecutorService scheduledExecutorService,
+                                   Executor collectExecutor,
+                                   final Collector collector,
+                                   LongSupplier systemTimeSupplier) {
 
     this.scheduledExecutorService = Objects.requireNonNull(scheduledExecutorService);
 
     Objects.requireNonNull(managementRegistry);
+    Objects.requireNonNull(collectExecutor);
     Objects.requireNonNull(collector);
 
     this.runnable = () -> {
       try {
         if (running) {
-          Collection<ContextualStatistics> statistics = new ArrayList<>();
-
-          for (String capabilityName : managementRegistry.getCapabilityNames()) {
-
-            Set<Context> allContexts = new LinkedHashSet<>();
-
-            for (ManagementProvider<?> managementProvider : managementRegistry.getManagementProvidersByCapability(capabilityName)) {
-              if (managementProvider.getClass().isAnnotationPresent(StatisticProvider.class)) {
-                for (ExposedObject<?> exposedObject : managementProvider.getExposedObjects()) {
-                  allContexts.add(exposedObject.getContext());
-                }
-              }
-            }
+          Collection<String> capabilityNames = managementRegistry.getCapabilityNames();
+          List<CompletableFuture<Collection<ContextualStatistics>>> futures = new ArrayList<>(capabilityNames.size());
+          List<String> collected = new ArrayList<>(capabilityNames.size());
+          long since = lastCollectTime;
 
+          for (String capabilityName : capabilityNames) {
+            Set<Context> allContexts = getStatisticContexts(managementRegistry, capabilityName);
             if (!allContexts.isEmpty()) {
-              CapabilityManagement capabilityManagement = managementRegistry.withCapability(capabilityName);
-              ResultSet<ContextualStatistics> resultSet = capabilityManagement
-                  .queryAllStatistics()
-                  .on(allContexts)
-                  .since(lastCollectTime)
-                  .build()
-                  .execute();
-              for (ContextualStatistics contextualStatistics : resultSet) {
-                statistics.add(contextualStatistics);
+              long capabilitySince = skippedSince.getOrDefault(capabilityName, since);
+              try {
+                futures.add(CompletableFuture.supplyAsync(() -> collect(managementRegistry, capabilityName, allContexts, capabilitySince), collectExecutor));
+                collected.add(capabilityName);
+              } catch (RejectedExecutionException e) {
+                // the executor is overloaded: skip this capability for this round and collect its samples at the next one
+                LOGGER.debug("Skipping statistic collection of capability {}: {}", capabilityName, e.getMessage());
+                skippedSince.putIfAbsent(capabilityName, since);
               }
             }
           }
 
+          // results are added in capability order, whatever the order they have been collected
+          Collection<ContextualStatistics> statistics = new ArrayList<>();
+          for (CompletableFuture<Collection<ContextualStatistics>> future : futures) {
+            statistics.addAll(future.join());
+          }
+
           if (running && !statistics.isEmpty()) {
             collector.onStatistics(statistics);
+            skippedSince.keySet().removeAll(collected);
 
             // We set the time of last collect after the collector is called.
             // Thus, if any exception occurs (such as temporary network failure),
@@ -107,6 +129,36 @@ public class DefaultStatisticCollector implements StatisticCollector {
     };
   }
 
+  private Set<Context> getStatisticContexts(CapabilityManagementSupport managementRegistry, String capabilityName) {
+    List<ManagementProvider<?>> providers = new ArrayList<>();
+    for (ManagementProvider<?> managementProvider : managementRegistry.getManagementProvidersByCapability(capabilityName)) {
+      if (managementProvider.getClass().isAnnotationPresent(StatisticProvider.class)) {
+        providers.add(managementProvider);
+      }
+    }
+    StatisticContexts contexts = statisticContexts.get(capabilityName);
+    if (contexts == null || !contexts.isCurrent(providers)) {
+      contexts = new StatisticContexts(providers);
+      statisticContexts.put(capabilityName, contexts);
+    }
+    return contexts.contexts;
+  }
+
+  private static Collection<ContextualStatistics> collect(CapabilityManagementSupport managementRegistry, String capabilityName, Set<Context> contexts, long since) {
+    CapabilityManagement capabilityManagement = managementRegistry.withCapability(capabilityName);
+    ResultSet<ContextualStatistics> resultSet = capabilityManagement
+        .queryAllStatistics()
+        .on(contexts)
+        .since(since)
+        .build()
+        .execute();
+    Collection<ContextualStatistics> statistics = new ArrayList<>(resultSet.size());
+    for (ContextualStatistics contextualStatistics : resultSet) {
+      statistics.add(contextualStatistics);
+    }
+    return statistics;
+  }
+
   @Override
   public synchronized void startStatisticCollector(long interval, TimeUnit unit) {
     if (interval <= 0) {
@@ -153,4 +205,42 @@ public class DefaultStatisticCollector implements StatisticCollector {
     return running;
   }
 
+  /**
+   * Snapshot of the contexts exposed by the statistic providers of a capability, with the versions
+   * of the providers at the time the snapshot was taken.
+   */
+  private static final class StatisticContexts {
+    private final List<ManagementProvider<?>> providers;
+    private final long[] versions;
+    private final Set<Context> contexts;
+
+    StatisticContexts(List<ManagementProvider<?>> providers) {
+      this.providers = providers;
+      this.versions = new long[providers.size()];
+      Set<Context> contexts = new LinkedHashSet<>();
+      for (int i = 0; i < versions.length; i++) {
+        ManagementProvider<?> managementProvider = providers.get(i);
+        // read the version before the objects, so that a concurrent change will force a rebuild at next collection
+        versions[i] = managementProvider.getExposedObjectsVersion();
+        for (ExposedObject<?> exposedObject : managementProvider.getExposedObjects()) {
+          contexts.add(exposedObject.getContext());
+        }
+      }
+      this.contexts = Collections.unmodifiableSet(contexts);
+    }
+
+    boolean isCurrent(List<ManagementProvider<?>> providers) {
+      if (providers.size() != this.providers.size()) {
+        return false;
+      }
+      for (int i = 0; i < versions.length; i++) {
+        ManagementProvider<?> managementProvider = providers.get(i);
+        if (managementProvider != this.providers.get(i) || versions[i] < 0 || versions[i] != managementProvider.getExposedObjectsVersion()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.registry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.registry.action.MyManagementProvider;
+import org.terracotta.management.registry.action.MyObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class AbstractManagementProviderTest {
+
+  @Test
+  public void test_supports_uses_exposed_object_contexts() {
+    MyManagementProvider provider = new MyManagementProvider();
+    List<MyObject> objects = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      MyObject o = new MyObject("cm", "cache-" + i);
+      objects.add(o);
+      provider.register(o);
+    }
+
+    assertTrue(provider.supports(context("cm", "cache-0")));
+    assertTrue(provider.supports(context("cm", "cache-999")));
+    assertTrue(provider.supports(context("cm", "cache-500").with("other", "value")));
+    assertFalse(provider.supports(context("cm", "cache-1000")));
+    assertFalse(provider.supports(context("other-cm", "cache-0")));
+    assertFalse(provider.supports(Context.create("cacheManagerName", "cm")));
+
+    provider.unregister(objects.get(500));
+    assertFalse(provider.supports(context("cm", "cache-500")));
+    assertTrue(provider.supports(context("cm", "cache-501")));
+
+    provider.close();
+    assertFalse(provider.supports(context("cm", "cache-0")));
+  }
+
+  @Test
+  public void test_version_changes_on_registration() {
+    MyManagementProvider provider = new MyManagementProvider();
+    MyObject o = new MyObject("cm", "cache");
+
+    long v0 = provider.getExposedObjectsVersion();
+    provider.register(o);
+    long v1 = provider.getExposedObjectsVersion();
+    assertNotEquals(v0, v1);
+    assertEquals(v1, provider.getExposedObjectsVersion());
+
+    provider.unregister(o);
+    assertNotEquals(v1, provider.getExposedObjectsVersion());
+  }
+
+  private static Context context(String cacheManagerName, String cacheName) {
+    return Context.empty().with("cacheManagerName", cacheManagerName).with("cacheName", cacheName);
+  }
+
+}
@@ -19,6 +19,7 @@ import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.entity.CommonServerEntity;
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.capabilities.Capability;
+import org.terracotta.management.model.capabilities.ManagementRegistryDelta;
 import org.terracotta.management.model.context.ContextContainer;
 import org.terracotta.management.model.notification.ContextualNotification;
 import org.terracotta.management.model.stats.ContextualStatistics;
@@ -60,6 +61,14 @@ public interface ClientMonitoringService extends Closeable {
    */
   void exposeManagementRegistry(ClientDescriptor caller, ContextContainer contextContainer, Capability... capabilities);
 
+  /**
+   * Applies some changes onto the management registry exposed by the client identified by a client descriptor,
+   * or exposes a whole new registry if the delta is {@link ManagementRegistryDelta#isFull() full}
+   * <p>
+   * Can be called from active entity only
+   */
+  void updateManagementRegistry(ClientDescriptor caller, ManagementRegistryDelta delta);
+
   /**
    * Answer a management call we received and executed
    * <p>
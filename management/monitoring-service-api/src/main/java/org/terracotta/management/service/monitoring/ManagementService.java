@@ -17,9 +17,12 @@ package org.terracotta.management.service.monitoring;
 
 import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.entity.CommonServerEntity;
+import org.terracotta.entity.StateDumpCollector;
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
+import org.terracotta.management.model.cluster.TopologyChanges;
 import org.terracotta.management.model.context.Context;
+import org.terracotta.management.sequence.Sequence;
 
 import java.io.Closeable;
 
@@ -41,6 +44,15 @@ public interface ManagementService extends Closeable {
    */
   Cluster readTopology();
 
+  /**
+   * @return the topology changes that happened after the given version. A full snapshot of the topology is returned instead
+   * if the version is null (first read) or if the changes since this version are not available anymore (gap).
+   * The returned version must be used for the next read.
+   * <p>
+   * Can be called from active entity only
+   */
+  TopologyChanges readTopologyChanges(Sequence since);
+
   /**
    * Request a management call from an entity client to another client of the same entity
    * <p>
@@ -50,6 +62,12 @@ public interface ManagementService extends Closeable {
    */
   String sendManagementCallRequest(ClientDescriptor caller, Context context, String capabilityName, String methodName, Class<?> returnType, Parameter... parameters);
 
+  /**
+   * Adds the state of this service (i.e. the management calls in flight) to a state dump
+   */
+  default void addStateTo(StateDumpCollector dump) {
+  }
+
   /**
    * Closes this service from {@link CommonServerEntity#destroy()}
    */
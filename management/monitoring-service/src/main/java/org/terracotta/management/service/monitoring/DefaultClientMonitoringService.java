@@ -21,6 +21,7 @@ import org.terracotta.entity.ClientCommunicator;
 import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.capabilities.Capability;
+import org.terracotta.management.model.capabilities.ManagementRegistryDelta;
 import org.terracotta.management.model.cluster.Client;
 import org.terracotta.management.model.cluster.ClientIdentifier;
 import org.terracotta.management.model.cluster.ManagementRegistry;
@@ -33,6 +34,7 @@ import org.terracotta.management.model.stats.ContextualStatistics;
 import org.terracotta.voltron.proxy.ProxyEntityResponse;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -97,6 +99,16 @@ class DefaultClientMonitoringService implements ClientMonitoringService, Topolog
 
   }
 
+  @Override
+  public void updateManagementRegistry(ClientDescriptor from, ManagementRegistryDelta delta) {
+    if (delta.isFull()) {
+      exposeManagementRegistry(from, delta.applyTo((ContextContainer) null), delta.applyTo(Collections.emptyList()).toArray(new Capability[0]));
+    } else {
+      LOGGER.trace("[{}] updateManagementRegistry({}, {})", consumerId, from, delta);
+      topologyService.willUpdateClientManagementRegistry(consumerId, from, delta);
+    }
+  }
+
   @Override
   public void answerManagementCall(ClientDescriptor caller, String managementCallIdentifier, ContextualReturn<?> contextualReturn) {
     LOGGER.trace("[{}] answerManagementCall({}, {})", consumerId, managementCallIdentifier, contextualReturn);
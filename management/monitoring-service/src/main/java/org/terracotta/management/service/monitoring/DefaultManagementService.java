@@ -18,6 +18,7 @@ package org.terracotta.management.service.monitoring;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.entity.StateDumpCollector;
 import org.terracotta.management.model.call.ContextualCall;
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Client;
@@ -25,18 +26,17 @@ import org.terracotta.management.model.cluster.ClientIdentifier;
 import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.cluster.Server;
 import org.terracotta.management.model.cluster.ServerEntity;
+import org.terracotta.management.model.cluster.TopologyChanges;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.context.Contextual;
 import org.terracotta.management.model.message.ManagementCallMessage;
 import org.terracotta.management.model.message.Message;
+import org.terracotta.management.sequence.Sequence;
+import org.terracotta.management.sequence.SequenceGenerator;
+import org.terracotta.management.sequence.TimeSource;
 
-import java.util.Collection;
-import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Mathieu Carbou
@@ -45,17 +45,23 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DefaultManagementService.class);
 
+  // management calls not answered within this delay are forgotten
+  static final long MANAGEMENT_CALL_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+
   private final long consumerId;
   private final DefaultFiringService firingService;
   private final TopologyService topologyService;
-  private final Map<ClientDescriptor, Collection<String>> managementCallRequests = new ConcurrentHashMap<>();
+  private final SequenceGenerator sequenceGenerator;
+  private final ManagementCallTracker managementCallRequests;
 
   private volatile ManagementExecutor managementExecutor;
 
-  DefaultManagementService(long consumerId, TopologyService topologyService, DefaultFiringService firingService) {
+  DefaultManagementService(long consumerId, TopologyService topologyService, DefaultFiringService firingService, SequenceGenerator sequenceGenerator, TimeSource timeSource) {
     this.consumerId = consumerId;
     this.topologyService = Objects.requireNonNull(topologyService);
     this.firingService = Objects.requireNonNull(firingService);
+    this.sequenceGenerator = Objects.requireNonNull(sequenceGenerator);
+    this.managementCallRequests = new ManagementCallTracker(timeSource, MANAGEMENT_CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
 
     topologyService.addTopologyEventListener(this);
     firingService.addManagementService(this);
@@ -73,11 +79,17 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
     return topologyService.getClusterCopy();
   }
 
+  @Override
+  public TopologyChanges readTopologyChanges(Sequence since) {
+    LOGGER.trace("[{}] readTopologyChanges({})", consumerId, since);
+    return topologyService.readTopologyChanges(since);
+  }
+
   @Override
   public String sendManagementCallRequest(ClientDescriptor caller, final Context context, String capabilityName, String methodName, Class<?> returnType, Parameter... parameters) {
     LOGGER.trace("[{}] sendManagementCallRequest({}, {}, {})", consumerId, context, capabilityName, methodName);
 
-    String managementCallIdentifier = UUID.randomUUID().toString();
+    String managementCallIdentifier = nextManagementCallIdentifier();
     Context fullContext = null;
 
     if (context.contains(Client.KEY)) {
@@ -103,7 +115,7 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
       throw new IllegalArgumentException(context.toString());
     }
 
-    track(caller, managementCallIdentifier);
+    managementCallRequests.track(managementCallIdentifier, caller);
 
     firingService.fireManagementCallRequest(managementCallIdentifier, new ContextualCall<>(fullContext, capabilityName, methodName, returnType, parameters));
 
@@ -119,7 +131,7 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
   @Override
   public void onUnfetch(long consumerId, ClientDescriptor clientDescriptor) {
     if (consumerId == this.consumerId) {
-      if (managementCallRequests.remove(clientDescriptor) != null) {
+      if (managementCallRequests.unTrackAll(clientDescriptor)) {
         LOGGER.trace("[{}] onUnfetch({})", this.consumerId, clientDescriptor);
       }
     }
@@ -153,7 +165,7 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
       case "MANAGEMENT_CALL":
         ManagementCallMessage managementCallMessage = (ManagementCallMessage) message;
         String managementCallIdentifier = managementCallMessage.getManagementCallIdentifier();
-        if (isTracked(managementCallIdentifier)) {
+        if (managementCallRequests.isTracked(managementCallIdentifier)) {
           ContextualCall<?> call = managementCallMessage.unwrap(ContextualCall.class).get(0);
           if (managementExecutor != null) {
             managementExecutor.executeManagementCallOnServer(managementCallIdentifier, call);
@@ -163,7 +175,7 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
 
       case "MANAGEMENT_CALL_RETURN":
         ManagementCallMessage managementCallResultMessage = (ManagementCallMessage) message;
-        unTrack(managementCallResultMessage.getManagementCallIdentifier()).ifPresent(clientDescriptor -> {
+        managementCallRequests.unTrack(managementCallResultMessage.getManagementCallIdentifier()).ifPresent(clientDescriptor -> {
           if (managementExecutor != null) {
             managementExecutor.sendMessageToClient(message, clientDescriptor);
           }
@@ -175,28 +187,16 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
     }
   }
 
-  private void track(ClientDescriptor caller, String managementCallIdentifier) {
-    managementCallRequests
-        .computeIfAbsent(caller, clientDescriptor -> new ConcurrentSkipListSet<>())
-        .add(managementCallIdentifier);
-  }
-
-  private Optional<ClientDescriptor> unTrack(String managementCallIdentifier) {
-    for (Map.Entry<ClientDescriptor, Collection<String>> entry : managementCallRequests.entrySet()) {
-      if (entry.getValue().remove(managementCallIdentifier)) {
-        return Optional.of(entry.getKey());
-      }
-    }
-    return Optional.empty();
+  @Override
+  public void addStateTo(StateDumpCollector dump) {
+    dump.addState("inFlightManagementCalls", String.valueOf(managementCallRequests.getInFlightCount()));
+    dump.addState("completedManagementCalls", String.valueOf(managementCallRequests.getCompletedCount()));
+    dump.addState("timedOutManagementCalls", String.valueOf(managementCallRequests.getTimedOutCount()));
   }
 
-  private boolean isTracked(String managementCallIdentifier) {
-    for (Map.Entry<ClientDescriptor, Collection<String>> entry : managementCallRequests.entrySet()) {
-      if (entry.getValue().contains(managementCallIdentifier)) {
-        return true;
-      }
-    }
-    return false;
+  private String nextManagementCallIdentifier() {
+    Sequence sequence = sequenceGenerator.next();
+    return Long.toString(sequence.getTimestamp(), 36) + "-" + Long.toString(sequence.getNodeId(), 36) + "-" + Long.toString(sequence.getSequenceId(), 36);
   }
 
   @Override
@@ -28,11 +28,16 @@ import org.terracotta.management.service.monitoring.registry.provider.StatisticC
 
 import java.io.Closeable;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This service is the central point to create statistic registries and collectors running with the scheduler provided by this service
@@ -44,6 +49,7 @@ class DefaultStatisticService implements StatisticService, Closeable {
   private static final Logger LOGGER = LoggerFactory.getLogger(DefaultStatisticService.class);
 
   private static final AtomicLong managementSchedulerCount = new AtomicLong();
+  private static final AtomicLong statisticCollectorCount = new AtomicLong();
 
   private final ScheduledExecutorService managementScheduler = Executors.unconfigurableScheduledExecutorService(new ScheduledThreadPoolExecutor(
       1,
@@ -57,6 +63,18 @@ class DefaultStatisticService implements StatisticService, Closeable {
       new ThreadPoolExecutor.AbortPolicy()
   ));
 
+  // number of capability collections that can wait for a collector thread before new ones are dropped
+  static final int STATISTIC_COLLECTOR_QUEUE_CAPACITY = 1024;
+
+  // collections dropped because the collector threads could not keep up with the collection rate
+  private final LongAdder droppedCollections = new LongAdder();
+
+  // bounded pool used by the collectors to collect the statistics of each capability in parallel
+  private final ExecutorService statisticCollectorExecutor = createStatisticCollectorExecutor(
+      Math.min(4, Runtime.getRuntime().availableProcessors()),
+      STATISTIC_COLLECTOR_QUEUE_CAPACITY,
+      droppedCollections);
+
   private final SharedEntityManagementRegistry sharedEntityManagementRegistry;
   private final TimeSource timeSource;
 
@@ -85,6 +103,7 @@ class DefaultStatisticService implements StatisticService, Closeable {
         // This will avoid collecting stats on a registry from another NMS entity that already has its own stat collector.
         new CombiningCapabilityManagementSupport(sharedEntityManagementRegistry, registry),
         managementScheduler,
+        statisticCollectorExecutor,
         list -> {
           // Add a marker on the statistics to know which statistics collector has collected them (from which NMS entity)
           list.forEach(stats -> stats.setContext(stats.getContext().with("collectorId", "" + consumerId)));
@@ -99,10 +118,44 @@ class DefaultStatisticService implements StatisticService, Closeable {
     registry.refresh();
   }
 
+  /**
+   * @return the number of capability statistic collections dropped so far because the collector queue was full
+   */
+  long getDroppedCollectionCount() {
+    return droppedCollections.sum();
+  }
+
   @Override
   public void close() {
     LOGGER.info("Closing statistic service");
     ExecutorUtil.shutdownNow(managementScheduler);
+    ExecutorUtil.shutdownNow(statisticCollectorExecutor);
+  }
+
+  /**
+   * When the queue is full, the new collection is counted in {@code dropped} and rejected: the collector skips
+   * the statistics of this capability for this round and will collect them, with the samples since the last
+   * collect, at the next round.
+   */
+  static ThreadPoolExecutor createStatisticCollectorExecutor(int threads, int capacity, LongAdder dropped) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        threads,
+        threads,
+        60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(capacity),
+        r -> {
+          Thread t = Executors.defaultThreadFactory().newThread(r);
+          t.setDaemon(true);
+          t.setName("ManagementStatisticCollector-" + statisticCollectorCount.incrementAndGet());
+          t.setUncaughtExceptionHandler((thread, err) -> LOGGER.error("UncaughtException in thread " + thread.getName() + ": " + err.getMessage(), err));
+          return t;
+        },
+        (r, e) -> {
+          dropped.increment();
+          throw new RejectedExecutionException("Statistic collection dropped: " + capacity + " collections already waiting in " + e);
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.management.sequence.TimeSource;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the management calls in flight, indexed by their identifier, and expires the calls that
+ * never received an answer.
+ * <p>
+ * Expiry is done with a timer wheel that is advanced each time the tracker is used,
+ * so that tracking, answering and expiring a call are all O(1) and do not need a dedicated thread.
+ */
+class ManagementCallTracker {
+
+  private static final int WHEEL_SIZE = 512;
+
+  private final TimeSource timeSource;
+  private final long timeoutMs;
+  private final long tickMs;
+
+  private final Map<String, TrackedCall> calls = new HashMap<>();
+  private final Map<ClientDescriptor, Set<String>> callsByCaller = new HashMap<>();
+  @SuppressWarnings("unchecked")
+  private final ArrayDeque<TrackedCall>[] wheel = new ArrayDeque[WHEEL_SIZE];
+
+  // all the slots of the ticks up to this one have been swept
+  private long sweptTick;
+  private long completed;
+  private long timedOut;
+
+  ManagementCallTracker(TimeSource timeSource, long timeout, TimeUnit unit) {
+    this.timeSource = Objects.requireNonNull(timeSource);
+    this.timeoutMs = unit.toMillis(timeout);
+    if (timeoutMs <= 0) {
+      throw new IllegalArgumentException("Bad timeout: " + timeout + " " + unit);
+    }
+    // the wheel covers the timeout duration in one turn
+    this.tickMs = Math.max(1, timeoutMs / WHEEL_SIZE);
+    this.sweptTick = timeSource.getTimestamp() / tickMs - 1;
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = new ArrayDeque<>();
+    }
+  }
+
+  synchronized void track(String managementCallIdentifier, ClientDescriptor caller) {
+    long now = timeSource.getTimestamp();
+    expire(now);
+    TrackedCall call = new TrackedCall(managementCallIdentifier, caller, now + timeoutMs);
+    TrackedCall previous = calls.put(managementCallIdentifier, call);
+    if (previous != null) {
+      previous.done = true;
+    }
+    callsByCaller.computeIfAbsent(caller, c -> new HashSet<>()).add(managementCallIdentifier);
+    wheel[(int) ((call.expiry / tickMs) % WHEEL_SIZE)].add(call);
+  }
+
+  synchronized boolean isTracked(String managementCallIdentifier) {
+    long now = timeSource.getTimestamp();
+    expire(now);
+    return get(managementCallIdentifier, now) != null;
+  }
+
+  /**
+   * @return the caller of this management call if the call was in flight
+   */
+  synchronized Optional<ClientDescriptor> unTrack(String managementCallIdentifier) {
+    long now = timeSource.getTimestamp();
+    expire(now);
+    if (get(managementCallIdentifier, now) == null) {
+      return Optional.empty();
+    }
+    TrackedCall call = remove(managementCallIdentifier);
+    completed++;
+    return Optional.of(call.caller);
+  }
+
+  /**
+   * Forget all the management calls in flight of a caller that went away
+   *
+   * @return true if the caller had some calls in flight
+   */
+  synchronized boolean unTrackAll(ClientDescriptor caller) {
+    Set<String> ids = callsByCaller.remove(caller);
+    if (ids == null) {
+      return false;
+    }
+    for (String id : ids) {
+      TrackedCall call = calls.remove(id);
+      if (call != null) {
+        call.done = true;
+      }
+    }
+    return true;
+  }
+
+  synchronized void clear() {
+    calls.clear();
+    callsByCaller.clear();
+    for (ArrayDeque<TrackedCall> slot : wheel) {
+      slot.clear();
+    }
+  }
+
+  synchronized int getInFlightCount() {
+    expireAll(timeSource.getTimestamp());
+    return calls.size();
+  }
+
+  synchronized long getCompletedCount() {
+    return completed;
+  }
+
+  synchronized long getTimedOutCount() {
+    expireAll(timeSource.getTimestamp());
+    return timedOut;
+  }
+
+  private TrackedCall remove(String managementCallIdentifier) {
+    TrackedCall call = calls.remove(managementCallIdentifier);
+    if (call != null) {
+      // the entry in the wheel is lazily removed when its slot is visited
+      call.done = true;
+      Set<String> ids = callsByCaller.get(call.caller);
+      if (ids != null) {
+        ids.remove(managementCallIdentifier);
+        if (ids.isEmpty()) {
+          callsByCaller.remove(call.caller);
+        }
+      }
+    }
+    return call;
+  }
+
+  /**
+   * @return the call in flight with this identifier, after having expired it if its timeout is reached
+   */
+  private TrackedCall get(String managementCallIdentifier, long now) {
+    TrackedCall call = calls.get(managementCallIdentifier);
+    if (call != null && call.expiry <= now) {
+      // the call expires in the current tick, which is not swept yet
+      remove(managementCallIdentifier);
+      timedOut++;
+      return null;
+    }
+    return call;
+  }
+
+  /**
+   * Sweeps the slots of the ticks that are over and not swept yet, so that each slot is only visited once per turn.
+   * The calls expiring in the current tick are expired when they are looked up, or at the next sweep.
+   */
+  private void expire(long now) {
+    long tick = now / tickMs;
+    // after a long inactivity, one turn of the wheel visits all the slots
+    for (long t = Math.max(sweptTick + 1, tick - WHEEL_SIZE); t < tick; t++) {
+      sweep(t, now);
+    }
+    sweptTick = Math.max(sweptTick, tick - 1);
+  }
+
+  /**
+   * Also sweeps the slot of the current tick, to get accurate statistics
+   */
+  private void expireAll(long now) {
+    expire(now);
+    sweep(now / tickMs, now);
+  }
+
+  private void sweep(long tick, long now) {
+    ArrayDeque<TrackedCall> slot = wheel[(int) (tick % WHEEL_SIZE)];
+    for (Iterator<TrackedCall> it = slot.iterator(); it.hasNext(); ) {
+      TrackedCall call = it.next();
+      if (call.done) {
+        it.remove();
+      } else if (call.expiry <= now) {
+        it.remove();
+        remove(call.id);
+        timedOut++;
+      }
+    }
+  }
+
+  private static final class TrackedCall {
+    final String id;
+    final ClientDescriptor caller;
+    final long expiry;
+    boolean done;
+
+    TrackedCall(String id, ClientDescriptor caller, long expiry) {
+      this.id = id;
+      this.caller = caller;
+      this.expiry = expiry;
+    }
+  }
+
+}
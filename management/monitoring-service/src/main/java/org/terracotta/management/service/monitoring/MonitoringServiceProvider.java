@@ -76,7 +76,7 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
   @Override
   public boolean initialize(ServiceProviderConfiguration configuration, PlatformConfiguration platformConfiguration) {
     this.manageablePlugins = platformConfiguration.getExtendedConfiguration(ManageableServerComponent.class);
-    this.topologyService = new TopologyService(firingService, platformConfiguration);
+    this.topologyService = new TopologyService(firingService, platformConfiguration, sequenceGenerator);
     this.platformListenerAdapter = new IStripeMonitoringPlatformListenerAdapter(topologyService);
     this.managementDataListener = new DefaultManagementDataListener(topologyService, firingService);
     this.topologyService.addTopologyEventListener(managementDataListener);
@@ -144,7 +144,7 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
     if (ManagementService.class == serviceType) {
       if (configuration instanceof ManagementServiceConfiguration) {
         LOGGER.info("[{}] getService({})", consumerID, ManagementService.class.getSimpleName());
-        DefaultManagementService managementService = new DefaultManagementService(consumerID, topologyService, firingService);
+        DefaultManagementService managementService = new DefaultManagementService(consumerID, topologyService, firingService, sequenceGenerator, timeSource);
         return serviceType.cast(managementService);
       } else {
         throw new IllegalArgumentException("Missing configuration " + ManagementServiceConfiguration.class.getSimpleName() + " when requesting service " + serviceType.getName());
@@ -0,0 +1,98 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.terracotta.management.model.cluster.TopologyChange;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.sequence.Sequence;
+import org.terracotta.management.sequence.SequenceGenerator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Bounded, append-only log of the last topology changes, versioned by the {@link SequenceGenerator}.
+ * <p>
+ * Not thread-safe: accesses are guarded by the {@link TopologyService} lock so that the log version
+ * is always consistent with the topology.
+ */
+class TopologyChangeLog {
+
+  private final SequenceGenerator sequenceGenerator;
+  private final int capacity;
+  private final ArrayDeque<TopologyChange> changes;
+
+  private Sequence version;
+
+  TopologyChangeLog(SequenceGenerator sequenceGenerator, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity);
+    }
+    this.sequenceGenerator = Objects.requireNonNull(sequenceGenerator);
+    this.capacity = capacity;
+    this.changes = new ArrayDeque<>(capacity);
+    this.version = sequenceGenerator.next();
+  }
+
+  TopologyChange record(TopologyChange.Type type, Notification event, Context context, Map<String, Object> node) {
+    TopologyChange change = new TopologyChange(sequenceGenerator.next(), type, event.name(), context, node);
+    if (changes.size() == capacity) {
+      changes.pollFirst();
+    }
+    changes.addLast(change);
+    version = change.getVersion();
+    return change;
+  }
+
+  Sequence getVersion() {
+    return version;
+  }
+
+  int size() {
+    return changes.size();
+  }
+
+  /**
+   * @return the ordered changes that were recorded after the given version, or nothing if the version is unknown
+   * (too old, or coming from another server) meaning that the consumer must read a full snapshot.
+   */
+  Optional<List<TopologyChange>> since(Sequence since) {
+    if (since == null) {
+      return Optional.empty();
+    }
+    if (since.equals(version)) {
+      return Optional.of(Collections.emptyList());
+    }
+    // walk backward: the cost is proportional to the number of changes missed by the consumer
+    List<TopologyChange> missed = new ArrayList<>();
+    for (Iterator<TopologyChange> it = changes.descendingIterator(); it.hasNext(); ) {
+      TopologyChange change = it.next();
+      if (change.getVersion().equals(since)) {
+        Collections.reverse(missed);
+        return Optional.of(missed);
+      }
+      missed.add(change);
+    }
+    return Optional.empty();
+  }
+
+}
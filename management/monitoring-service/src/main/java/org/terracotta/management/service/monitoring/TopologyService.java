@@ -20,6 +20,8 @@ import org.slf4j.LoggerFactory;
 import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.entity.PlatformConfiguration;
 import org.terracotta.management.model.capabilities.Capability;
+import org.terracotta.management.model.capabilities.ManagementRegistryDelta;
+import org.terracotta.management.model.cluster.AbstractNode;
 import org.terracotta.management.model.cluster.Client;
 import org.terracotta.management.model.cluster.ClientIdentifier;
 import org.terracotta.management.model.cluster.Cluster;
@@ -30,9 +32,13 @@ import org.terracotta.management.model.cluster.Server;
 import org.terracotta.management.model.cluster.ServerEntity;
 import org.terracotta.management.model.cluster.ServerEntityIdentifier;
 import org.terracotta.management.model.cluster.Stripe;
+import org.terracotta.management.model.cluster.TopologyChange;
+import org.terracotta.management.model.cluster.TopologyChanges;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.notification.ContextualNotification;
 import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.Sequence;
+import org.terracotta.management.sequence.SequenceGenerator;
 import org.terracotta.monitoring.PlatformConnectedClient;
 import org.terracotta.monitoring.PlatformEntity;
 import org.terracotta.monitoring.PlatformServer;
@@ -60,6 +66,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static java.util.Collections.singletonMap;
 import static org.terracotta.management.service.monitoring.Notification.CLIENT_CONNECTED;
 import static org.terracotta.management.service.monitoring.Notification.CLIENT_DISCONNECTED;
 import static org.terracotta.management.service.monitoring.Notification.SERVER_ENTITY_CREATED;
@@ -78,6 +85,9 @@ class TopologyService implements PlatformListener {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(TopologyService.class);
 
+  // number of topology changes kept for consumers of the change feed, before they need a full snapshot
+  static final int TOPOLOGY_CHANGE_LOG_CAPACITY = 1024;
+
   private final Cluster cluster;
   private final Stripe stripe;
   // map of topology client created per fetch (client descriptor), per entity, on the active server
@@ -87,12 +97,14 @@ class TopologyService implements PlatformListener {
   private final FiringService firingService;
   private final PlatformConfiguration platformConfiguration;
   private final List<TopologyEventListener> topologyEventListeners = new CopyOnWriteArrayList<>();
+  private final TopologyChangeLog changeLog;
 
   private volatile Server currentActive;
 
-  TopologyService(FiringService firingService, PlatformConfiguration platformConfiguration) {
+  TopologyService(FiringService firingService, PlatformConfiguration platformConfiguration, SequenceGenerator sequenceGenerator) {
     this.firingService = Objects.requireNonNull(firingService);
     this.platformConfiguration = platformConfiguration;
+    this.changeLog = new TopologyChangeLog(sequenceGenerator, TOPOLOGY_CHANGE_LOG_CAPACITY);
     this.cluster = Cluster.create();
     this.cluster.addStripe(stripe = Stripe.create("SINGLE"));
   }
@@ -122,6 +134,7 @@ class TopologyService implements PlatformListener {
 
       topologyEventListeners.forEach(listener -> listener.onBecomeActive(platformConfiguration.getServerName()));
 
+      recordChange(TopologyChange.Type.ADDED, SERVER_JOINED, server);
       firingService.fireNotification(new ContextualNotification(server.getContext(), SERVER_JOINED.name()));
 
       // we assume server.getStartTime() == activate time, but this will be fixed after into serverStateChanged() call by platform
@@ -145,6 +158,7 @@ class TopologyService implements PlatformListener {
         .computeUpTime();
 
     if (stripe.addServer(server)) {
+      recordChange(TopologyChange.Type.ADDED, SERVER_JOINED, server);
       firingService.fireNotification(new ContextualNotification(server.getContext(), SERVER_JOINED.name()));
     }
   }
@@ -159,6 +173,7 @@ class TopologyService implements PlatformListener {
 
       serverEntities.remove(platformServer.getServerName());
 
+      recordRemoval(SERVER_LEFT, context);
       firingService.fireNotification(new ContextualNotification(context, SERVER_LEFT.name()));
     });
   }
@@ -183,6 +198,7 @@ class TopologyService implements PlatformListener {
           .setConsumerId(platformEntity.consumerID);
 
       if (server.addServerEntity(entity)) {
+        recordChange(TopologyChange.Type.ADDED, SERVER_ENTITY_CREATED, entity);
         firingService.fireNotification(new ContextualNotification(entity.getContext(), SERVER_ENTITY_CREATED.name()));
 
         whenServerEntity(platformEntity.consumerID, sender.getServerName()).complete(entity);
@@ -195,13 +211,17 @@ class TopologyService implements PlatformListener {
   }
 
   @Override
-  public void serverEntityReconfigured(PlatformServer sender, PlatformEntity platformEntity) {
+  // synchronized like the other platform callbacks: the recorded change is a copy of the entity state,
+  // which must not be read while another callback is mutating the topology
+  public synchronized void serverEntityReconfigured(PlatformServer sender, PlatformEntity platformEntity) {
     LOGGER.trace("[0] serverEntityReconfigured({}, {})", sender.getServerName(), platformEntity);
 
     stripe.getServerByName(sender.getServerName()).ifPresent(server -> {
       ServerEntityIdentifier identifier = ServerEntityIdentifier.create(platformEntity.name, platformEntity.typeName);
-      server.getServerEntity(identifier)
-          .ifPresent(entity -> firingService.fireNotification(new ContextualNotification(entity.getContext(), SERVER_ENTITY_RECONFIGURED.name())));
+      server.getServerEntity(identifier).ifPresent(entity -> {
+        recordChange(TopologyChange.Type.UPDATED, SERVER_ENTITY_RECONFIGURED, entity);
+        firingService.fireNotification(new ContextualNotification(entity.getContext(), SERVER_ENTITY_RECONFIGURED.name()));
+      });
     });
   }
 
@@ -234,6 +254,7 @@ class TopologyService implements PlatformListener {
           topologyEventListeners.forEach(listener -> listener.onEntityDestroyed(platformEntity.consumerID));
         }
 
+        recordRemoval(SERVER_ENTITY_DESTROYED, context);
         firingService.fireNotification(new ContextualNotification(context, SERVER_ENTITY_DESTROYED.name()));
       });
     });
@@ -255,6 +276,7 @@ class TopologyService implements PlatformListener {
           cluster.addClient(client);
 
           if (client.addConnection(Connection.create(clientIdentifier.getConnectionUid(), getActiveServer(), endpoint))) {
+            recordChange(TopologyChange.Type.ADDED, CLIENT_CONNECTED, client);
             firingService.fireNotification(new ContextualNotification(server.getContext(), CLIENT_CONNECTED.name(), client.getContext()));
           }
         });
@@ -271,6 +293,7 @@ class TopologyService implements PlatformListener {
           cluster.getClient(clientIdentifier)
               .ifPresent(client -> {
                 client.addProperty(key, value);
+                recordChange(TopologyChange.Type.UPDATED, Notification.CLIENT_PROPERTY_ADDED, client);
                 firingService.fireNotification(new ContextualNotification(client.getContext(), Notification.CLIENT_PROPERTY_ADDED.name(), Collections.singletonMap(key, value)));
               });
         });
@@ -290,6 +313,7 @@ class TopologyService implements PlatformListener {
 
                 client.remove();
 
+                recordRemoval(CLIENT_DISCONNECTED, clientContext);
                 firingService.fireNotification(new ContextualNotification(server.getContext(), CLIENT_DISCONNECTED.name(), clientContext));
               });
         });
@@ -307,6 +331,7 @@ class TopologyService implements PlatformListener {
       client.getConnection(currentActive, endpoint).ifPresent(connection -> {
         currentActive.getServerEntity(platformEntity.name, platformEntity.typeName).ifPresent(entity -> {
           connection.fetchServerEntity(platformEntity.name, platformEntity.typeName);
+          recordChange(TopologyChange.Type.UPDATED, SERVER_ENTITY_FETCHED, client);
           firingService.fireNotification(new ContextualNotification(entity.getContext(), SERVER_ENTITY_FETCHED.name(), client.getContext()));
           whenFetchClient(platformEntity.consumerID, clientDescriptor).complete(client);
           topologyEventListeners.forEach(listener -> listener.onFetch(platformEntity.consumerID, clientDescriptor));
@@ -328,6 +353,7 @@ class TopologyService implements PlatformListener {
         client.getConnection(currentActive, endpoint).ifPresent(connection -> {
           entityFetches.get(platformEntity.consumerID).remove(clientDescriptor);
           if (connection.unfetchServerEntity(platformEntity.name, platformEntity.typeName)) {
+            recordChange(TopologyChange.Type.UPDATED, SERVER_ENTITY_UNFETCHED, client);
             firingService.fireNotification(new ContextualNotification(entity.getContext(), SERVER_ENTITY_UNFETCHED.name(), client.getContext()));
           }
           topologyEventListeners.forEach(listener -> listener.onUnfetch(platformEntity.consumerID, clientDescriptor));
@@ -359,6 +385,7 @@ class TopologyService implements PlatformListener {
         attrs.put("state", serverState.getState());
         attrs.put("activateTime", serverState.getActivate() > 0 ? String.valueOf(serverState.getActivate()) : "0");
 
+        recordChange(TopologyChange.Type.UPDATED, SERVER_STATE_CHANGED, server);
         firingService.fireNotification(new ContextualNotification(server.getContext(), SERVER_STATE_CHANGED.name(), attrs));
       }
     });
@@ -399,12 +426,35 @@ class TopologyService implements PlatformListener {
    */
   void willSetClientManagementRegistry(long consumerId, ClientDescriptor clientDescriptor, ManagementRegistry newRegistry) {
     whenFetchClient(consumerId, clientDescriptor).executeOrDelay("client-registry", client -> {
-      boolean hadRegistry = client.getManagementRegistry().isPresent();
-      LOGGER.trace("[{}] willSetClientManagementRegistry({}, {})", consumerId, clientDescriptor, newRegistry);
-      client.setManagementRegistry(newRegistry);
-      if (!hadRegistry) {
-        LOGGER.info("[{}] New management registry received from client {}", consumerId, clientDescriptor);
-        firingService.fireNotification(new ContextualNotification(client.getContext(), Notification.CLIENT_REGISTRY_AVAILABLE.name()));
+      synchronized (this) {
+        boolean hadRegistry = client.getManagementRegistry().isPresent();
+        LOGGER.trace("[{}] willSetClientManagementRegistry({}, {})", consumerId, clientDescriptor, newRegistry);
+        client.setManagementRegistry(newRegistry);
+        recordChange(TopologyChange.Type.UPDATED, Notification.CLIENT_REGISTRY_AVAILABLE, client);
+        if (!hadRegistry) {
+          LOGGER.info("[{}] New management registry received from client {}", consumerId, clientDescriptor);
+          firingService.fireNotification(new ContextualNotification(client.getContext(), Notification.CLIENT_REGISTRY_AVAILABLE.name()));
+        }
+      }
+    });
+  }
+
+  /**
+   * Records registry changes that needs to be applied in future (or now) onto the registry set by {@link #willSetClientManagementRegistry}
+   */
+  void willUpdateClientManagementRegistry(long consumerId, ClientDescriptor clientDescriptor, ManagementRegistryDelta delta) {
+    // not tagged: a delta must not discard the pending registry it applies onto
+    whenFetchClient(consumerId, clientDescriptor).executeOrDelay(client -> {
+      synchronized (this) {
+        Optional<ManagementRegistry> registry = client.getManagementRegistry();
+        if (!registry.isPresent()) {
+          LOGGER.warn("[{}] Discarding registry update {} from client {}: no registry exposed", consumerId, delta, clientDescriptor);
+          return;
+        }
+        LOGGER.trace("[{}] willUpdateClientManagementRegistry({}, {})", consumerId, clientDescriptor, delta);
+        registry.get().apply(delta);
+        // the client attributes did not change: only the delta is recorded
+        changeLog.record(TopologyChange.Type.UPDATED, Notification.CLIENT_REGISTRY_AVAILABLE, client.getContext(), singletonMap("managementRegistryDelta", delta.toMap()));
       }
     });
   }
@@ -414,12 +464,15 @@ class TopologyService implements PlatformListener {
    */
   void willSetClientTags(long consumerId, ClientDescriptor clientDescriptor, String[] tags) {
     whenFetchClient(consumerId, clientDescriptor).executeOrDelay("client-tags", client -> {
-      Set<String> currtags = new HashSet<>(client.getTags());
-      Set<String> newTags = new HashSet<>(Arrays.asList(tags));
-      if (!currtags.equals(newTags)) {
-        LOGGER.trace("[{}] willSetClientTags({}, {})", consumerId, clientDescriptor, Arrays.toString(tags));
-        client.setTags(tags);
-        firingService.fireNotification(new ContextualNotification(client.getContext(), Notification.CLIENT_TAGS_UPDATED.name()));
+      synchronized (this) {
+        Set<String> currtags = new HashSet<>(client.getTags());
+        Set<String> newTags = new HashSet<>(Arrays.asList(tags));
+        if (!currtags.equals(newTags)) {
+          LOGGER.trace("[{}] willSetClientTags({}, {})", consumerId, clientDescriptor, Arrays.toString(tags));
+          client.setTags(tags);
+          recordChange(TopologyChange.Type.UPDATED, Notification.CLIENT_TAGS_UPDATED, client);
+          firingService.fireNotification(new ContextualNotification(client.getContext(), Notification.CLIENT_TAGS_UPDATED.name()));
+        }
       }
     });
   }
@@ -470,10 +523,13 @@ class TopologyService implements PlatformListener {
         List<String> names = newRegistry.getCapabilities().stream().map(Capability::getName).collect(Collectors.toList());
         LOGGER.trace("[{}] setManagementRegistry({}, {})", consumerId, serverName, names);
       }
-      boolean hadRegistry = serverEntity.getManagementRegistry().isPresent();
-      serverEntity.setManagementRegistry(newRegistry);
-      if (!hadRegistry) {
-        firingService.fireNotification(new ContextualNotification(serverEntity.getContext(), Notification.ENTITY_REGISTRY_AVAILABLE.name()));
+      synchronized (this) {
+        boolean hadRegistry = serverEntity.getManagementRegistry().isPresent();
+        serverEntity.setManagementRegistry(newRegistry);
+        recordChange(TopologyChange.Type.UPDATED, Notification.ENTITY_REGISTRY_AVAILABLE, serverEntity);
+        if (!hadRegistry) {
+          firingService.fireNotification(new ContextualNotification(serverEntity.getContext(), Notification.ENTITY_REGISTRY_AVAILABLE.name()));
+        }
       }
     });
   }
@@ -522,6 +578,16 @@ class TopologyService implements PlatformListener {
     }
   }
 
+  /**
+   * Reads the topology changes that happened after the given version, or a full snapshot of the topology
+   * if the version is null or if some changes since this version are not available anymore.
+   */
+  synchronized TopologyChanges readTopologyChanges(Sequence since) {
+    return changeLog.since(since)
+        .map(changes -> TopologyChanges.delta(changeLog.getVersion(), changes))
+        .orElseGet(() -> TopologyChanges.snapshot(changeLog.getVersion(), getClusterCopy()));
+  }
+
   void addTopologyEventListener(TopologyEventListener topologyEventListener) {
     topologyEventListeners.add(Objects.requireNonNull(topologyEventListener));
   }
@@ -548,6 +614,20 @@ class TopologyService implements PlatformListener {
     return isServerActive(getServerName());
   }
 
+  // Changes must be recorded while holding the lock of this service, in the same critical section as the
+  // topology mutation they describe, so that readTopologyChanges() never sees a snapshot and a version that disagree.
+  // Only the attributes of the node are recorded: its management registry and child nodes would make each change cost
+  // as much as the registries to build and to keep.
+  private void recordChange(TopologyChange.Type type, Notification event, AbstractNode<?> node) {
+    assert Thread.holdsLock(this);
+    changeLog.record(type, event, node.getContext(), node.toAttributeMap());
+  }
+
+  private void recordRemoval(Notification event, Context context) {
+    assert Thread.holdsLock(this);
+    changeLog.record(TopologyChange.Type.REMOVED, event, context, null);
+  }
+
   private ExecutionChain<Client> whenFetchClient(long consumerId, ClientDescriptor clientDescriptor) {
     ConcurrentMap<ClientDescriptor, ExecutionChain<Client>> fetches = entityFetches.computeIfAbsent(consumerId, cid -> new ConcurrentHashMap<>());
     return fetches.computeIfAbsent(clientDescriptor, key -> new ExecutionChain<>());
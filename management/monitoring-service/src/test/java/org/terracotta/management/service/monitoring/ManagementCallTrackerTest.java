@@ -0,0 +1,120 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.management.sequence.TimeSource;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@RunWith(JUnit4.class)
+public class ManagementCallTrackerTest {
+
+  long now = 1_000_000L;
+  TimeSource timeSource = () -> now;
+  ManagementCallTracker tracker = new ManagementCallTracker(timeSource, 1, TimeUnit.SECONDS);
+  ClientDescriptor client1 = mock(ClientDescriptor.class);
+  ClientDescriptor client2 = mock(ClientDescriptor.class);
+
+  @Test
+  public void test_untrack_returns_caller() {
+    tracker.track("1", client1);
+    tracker.track("2", client2);
+
+    assertTrue(tracker.isTracked("1"));
+    assertThat(tracker.unTrack("2"), equalTo(Optional.of(client2)));
+    assertThat(tracker.unTrack("2"), equalTo(Optional.empty()));
+    assertFalse(tracker.isTracked("2"));
+
+    assertThat(tracker.getInFlightCount(), equalTo(1));
+    assertThat(tracker.getCompletedCount(), equalTo(1L));
+    assertThat(tracker.getTimedOutCount(), equalTo(0L));
+  }
+
+  @Test
+  public void test_calls_expire() {
+    tracker.track("1", client1);
+    now += 500;
+    tracker.track("2", client1);
+
+    now += 499;
+    assertTrue(tracker.isTracked("1"));
+
+    now += 1;
+    assertFalse(tracker.isTracked("1"));
+    assertTrue(tracker.isTracked("2"));
+    assertThat(tracker.getTimedOutCount(), equalTo(1L));
+
+    // an answer arriving too late is ignored
+    assertThat(tracker.unTrack("1"), equalTo(Optional.empty()));
+
+    now += 500;
+    assertThat(tracker.getInFlightCount(), equalTo(0));
+    assertThat(tracker.getTimedOutCount(), equalTo(2L));
+    assertFalse(tracker.unTrackAll(client1));
+  }
+
+  @Test
+  public void test_calls_expire_after_long_inactivity() {
+    tracker.track("1", client1);
+    now += TimeUnit.HOURS.toMillis(1);
+    assertFalse(tracker.isTracked("1"));
+    assertThat(tracker.getTimedOutCount(), equalTo(1L));
+  }
+
+  @Test
+  public void test_tracking_again_a_call_replaces_its_expiry() {
+    tracker.track("1", client1);
+    now += 500;
+    tracker.track("1", client1);
+
+    now += 500;
+    assertTrue(tracker.isTracked("1"));
+    assertThat(tracker.getTimedOutCount(), equalTo(0L));
+
+    now += 500;
+    assertFalse(tracker.isTracked("1"));
+    assertThat(tracker.getTimedOutCount(), equalTo(1L));
+  }
+
+  @Test
+  public void test_untrack_all() {
+    tracker.track("1", client1);
+    tracker.track("2", client1);
+    tracker.track("3", client2);
+
+    assertTrue(tracker.unTrackAll(client1));
+    assertFalse(tracker.isTracked("1"));
+    assertFalse(tracker.isTracked("2"));
+    assertTrue(tracker.isTracked("3"));
+
+    // removed calls are not counted as timed out
+    now += 2_000;
+    assertThat(tracker.getTimedOutCount(), equalTo(1L));
+    assertThat(tracker.getCompletedCount(), equalTo(0L));
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.model.cluster.Client;
+import org.terracotta.management.model.cluster.TopologyChange;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.Sequence;
+import org.terracotta.management.sequence.TimeSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class TopologyChangeLogTest {
+
+  TopologyChangeLog log = new TopologyChangeLog(new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST), 3);
+
+  @Test
+  public void test_unknown_version_requires_snapshot() {
+    assertFalse(log.since(null).isPresent());
+    Sequence other = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST).next();
+    assertFalse(log.since(other).isPresent());
+  }
+
+  @Test
+  public void test_no_change_since_current_version() {
+    assertThat(log.since(log.getVersion()).get(), equalTo(Collections.emptyList()));
+    Sequence v1 = record("client-1").getVersion();
+    assertThat(log.getVersion(), equalTo(v1));
+    assertThat(log.since(v1).get(), equalTo(Collections.emptyList()));
+  }
+
+  @Test
+  public void test_changes_since_version_are_ordered() {
+    Sequence v0 = log.getVersion();
+    Sequence v1 = record("client-1").getVersion();
+    record("client-2");
+    record("client-3");
+
+    assertThat(ids(log.since(v0).get()), equalTo(Arrays.asList("client-1", "client-2", "client-3")));
+    assertThat(ids(log.since(v1).get()), equalTo(Arrays.asList("client-2", "client-3")));
+  }
+
+  @Test
+  public void test_gap_when_changes_are_evicted() {
+    Sequence v0 = log.getVersion();
+    Sequence v1 = record("client-1").getVersion();
+    record("client-2");
+    record("client-3");
+    record("client-4");
+
+    assertThat(log.size(), equalTo(3));
+    assertFalse(log.since(v0).isPresent());
+    assertTrue(log.since(v1).isPresent());
+    assertThat(ids(log.since(v1).get()), equalTo(Arrays.asList("client-2", "client-3", "client-4")));
+  }
+
+  private TopologyChange record(String clientId) {
+    return log.record(TopologyChange.Type.ADDED, Notification.CLIENT_CONNECTED, Context.create(Client.KEY, clientId), null);
+  }
+
+  private static List<String> ids(List<TopologyChange> changes) {
+    return changes.stream().map(change -> change.getContext().get(Client.KEY)).collect(Collectors.toList());
+  }
+
+}
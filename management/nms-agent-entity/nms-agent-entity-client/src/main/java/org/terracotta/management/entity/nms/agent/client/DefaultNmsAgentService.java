@@ -26,6 +26,7 @@ import org.terracotta.management.entity.nms.agent.client.diag.DiagnosticUtility;
 import org.terracotta.management.model.call.ContextualCall;
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.capabilities.Capability;
+import org.terracotta.management.model.capabilities.ManagementRegistryDelta;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.context.ContextContainer;
 import org.terracotta.management.model.message.ManagementCallMessage;
@@ -41,12 +42,18 @@ import org.terracotta.voltron.proxy.client.EndpointListener;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 
@@ -57,6 +64,10 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DefaultNmsAgentService.class);
   private static final String CAPABILITY_NAME = NmsAgentService.class.getSimpleName();
+  private static final int DEFAULT_PUSH_QUEUE_CAPACITY = 1024;
+  private static final int DEFAULT_PUSH_BATCH_SIZE = 64;
+  private static final long DEFAULT_PUSH_DELAY_MS = 100;
+  private static final AtomicLong pushSchedulerCount = new AtomicLong();
 
   private final Supplier<NmsAgentEntity> entitySupplier;
 
@@ -65,6 +76,29 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   private volatile ManagementRegistry registry;
   private volatile String[] previouslyExposedTags;
 
+  // registry content last sent to the server, which deltas are computed against
+  private final Object registryLock = new Object();
+  private final AtomicLong registryVersions = new AtomicLong();
+  private volatile SentRegistry sentRegistry;
+  private volatile boolean extendedCallsSupported;
+
+  // the thread is only started on the first push, and is not used anymore if another executor is set
+  private final ScheduledExecutorService pushScheduler = Executors.unconfigurableScheduledExecutorService(new ScheduledThreadPoolExecutor(
+      1,
+      r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setDaemon(true);
+        t.setName("NmsAgentPushScheduler-" + pushSchedulerCount.incrementAndGet());
+        t.setUncaughtExceptionHandler((thread, err) -> LOGGER.error("UncaughtException in thread " + thread.getName() + ": " + err.getMessage(), err));
+        return t;
+      },
+      new ThreadPoolExecutor.AbortPolicy()
+  ));
+
+  // notifications are sent from the calling thread unless a push executor is set, in order with the other calls to the server
+  private volatile PushQueue<ContextualNotification> notificationQueue;
+  private volatile PushQueue<ContextualStatistics> statisticsQueue = newStatisticsQueue(pushScheduler, DEFAULT_PUSH_QUEUE_CAPACITY, DEFAULT_PUSH_BATCH_SIZE, DEFAULT_PUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+
   private long timeoutMs = 5000;
   private Executor managementCallExecutor = Runnable::run;
   private final ManagementProvider<?> diagnosticProvider = new DiagnosticProvider(DiagnosticUtility.class);
@@ -102,6 +136,16 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
     if (message.getType().equals("MANAGEMENT_CALL")) {
       ContextualCall<?> contextualCall = message.unwrap(ContextualCall.class).get(0);
       getManagementCallExecutor().execute(() -> executeManagementCall(((ManagementCallMessage) message).getManagementCallIdentifier(), contextualCall));
+    } else if (message.getType().equals("EXTENDED_CALLS_SUPPORTED")) {
+      extendedCallsSupported = true;
+    } else if (message.getType().equals("MANAGEMENT_REGISTRY_DELTA_REJECTED")) {
+      // the server does not have our base version: resend everything
+      getManagementCallExecutor().execute(() -> {
+        synchronized (registryLock) {
+          sentRegistry = null;
+          refreshManagementRegistry();
+        }
+      });
     } else {
       LOGGER.warn("Received unsupported message: " + message);
     }
@@ -111,6 +155,9 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
 
   @Override
   public Object onReconnect() {
+    // the server receives the whole registry within the reconnect data, and might not support deltas anymore
+    sentRegistry = null;
+    extendedCallsSupported = false;
     if (isManagementRegistryBridged()) {
       ManagementRegistry registry = getRegistry();
       Collection<? extends Capability> capabilities = registry == null ? Collections.<Capability>emptyList() : registry.getCapabilities();
@@ -142,6 +189,11 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   public synchronized void close() {
     if (!closed) {
       LOGGER.info("Closing management agent service");
+      flushPushQueues();
+      long dropped = getDroppedPushCount();
+      if (dropped > 0) {
+        LOGGER.warn("Dropped {} notifications and statistics because the server could not keep up", dropped);
+      }
       ManagementRegistry registry = getRegistry();
       // disable bridging
       if (registry != null) {
@@ -150,6 +202,7 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
       }
       flushEntity();
       closed = true;
+      pushScheduler.shutdown();
     }
   }
 
@@ -220,6 +273,49 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
     this.onOperationError = onOperationError;
   }
 
+  public NmsAgentService setPushExecutor(ScheduledExecutorService pushExecutor) {
+    return setPushExecutor(pushExecutor, DEFAULT_PUSH_QUEUE_CAPACITY, DEFAULT_PUSH_BATCH_SIZE, DEFAULT_PUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Pushes notifications and statistics from the given executor instead of the calling thread, in batches of at most
+   * {@code maxBatchSize} items sent at most {@code maxDelay} after being pushed. At most {@code capacity} notifications
+   * and {@code capacity} statistics are queued: the oldest ones are dropped if the server cannot keep up.
+   */
+  public NmsAgentService setPushExecutor(ScheduledExecutorService pushExecutor, int capacity, int maxBatchSize, long maxDelay, TimeUnit unit) {
+    setStatisticsPushExecutor(pushExecutor, capacity, maxBatchSize, maxDelay, unit);
+    PushQueue<ContextualNotification> previous = this.notificationQueue;
+    this.notificationQueue = new PushQueue<>(pushExecutor, capacity, maxBatchSize, maxDelay, unit, this::sendNotifications);
+    if (previous != null) {
+      previous.flush();
+    }
+    return this;
+  }
+
+  public NmsAgentService setStatisticsPushExecutor(ScheduledExecutorService pushExecutor) {
+    return setStatisticsPushExecutor(pushExecutor, DEFAULT_PUSH_QUEUE_CAPACITY, DEFAULT_PUSH_BATCH_SIZE, DEFAULT_PUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Same as {@link #setPushExecutor(ScheduledExecutorService, int, int, long, TimeUnit)} for the statistics only:
+   * notifications are still sent from the calling thread, in order with the other calls to the server.
+   * By default, the statistics are queued and sent from an internal thread.
+   */
+  public NmsAgentService setStatisticsPushExecutor(ScheduledExecutorService pushExecutor, int capacity, int maxBatchSize, long maxDelay, TimeUnit unit) {
+    PushQueue<ContextualStatistics> previous = this.statisticsQueue;
+    this.statisticsQueue = newStatisticsQueue(pushExecutor, capacity, maxBatchSize, maxDelay, unit);
+    previous.flush();
+    return this;
+  }
+
+  /**
+   * @return the number of notifications and statistics dropped because the push queues were full
+   */
+  public long getDroppedPushCount() {
+    PushQueue<ContextualNotification> notificationQueue = this.notificationQueue;
+    return (notificationQueue == null ? 0 : notificationQueue.getDroppedCount()) + statisticsQueue.getDroppedCount();
+  }
+
   // features
 
   @Override
@@ -230,6 +326,7 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   @Override
   public void setCapabilities(ContextContainer contextContainer, Capability... capabilities) {
     LOGGER.trace("exposeManagementMetadata({})", contextContainer.getValue());
+    sentRegistry = null;
     runOperation(() -> getEntity().exposeManagementMetadata(null, contextContainer, capabilities));
   }
 
@@ -249,7 +346,12 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   public void pushNotification(ContextualNotification notification) {
     if (notification != null) {
       LOGGER.trace("pushNotification({})", notification);
-      runOperation(() -> getEntity().pushNotification(null, notification));
+      PushQueue<ContextualNotification> queue = notificationQueue;
+      if (queue != null) {
+        queue.offer(notification);
+      } else {
+        runOperation(() -> getEntity().pushNotification(null, notification));
+      }
     }
   }
 
@@ -262,7 +364,10 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   public void pushStatistics(ContextualStatistics... statistics) {
     if (statistics.length > 0) {
       LOGGER.trace("pushStatistics({})", statistics.length);
-      runOperation(() -> getEntity().pushStatistics(null, statistics));
+      PushQueue<ContextualStatistics> queue = statisticsQueue;
+      for (ContextualStatistics statistic : statistics) {
+        queue.offer(statistic);
+      }
     }
   }
 
@@ -279,17 +384,71 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   public void flushEntity() {
     NmsAgentEntity entity = this.entity;
     this.entity = null;
+    sentRegistry = null;
+    extendedCallsSupported = false;
     if (entity != null) {
       LOGGER.trace("flushEntity()");
       entity.setEndpointListener(null);
     }
   }
 
+  private void sendNotifications(List<ContextualNotification> notifications) {
+    if (extendedCallsSupported) {
+      runOperation(() -> getEntity().sendNotifications(null, notifications.toArray(new ContextualNotification[notifications.size()])));
+    } else {
+      // servers of the first version can only receive them one by one
+      for (ContextualNotification notification : notifications) {
+        runOperation(() -> getEntity().pushNotification(null, notification));
+      }
+    }
+  }
+
+  private void flushPushQueues() {
+    PushQueue<ContextualNotification> notificationQueue = this.notificationQueue;
+    if (notificationQueue != null) {
+      notificationQueue.flush();
+    }
+    statisticsQueue.flush();
+  }
+
+  private PushQueue<ContextualStatistics> newStatisticsQueue(ScheduledExecutorService pushExecutor, int capacity, int maxBatchSize, long maxDelay, TimeUnit unit) {
+    return new PushQueue<>(pushExecutor, capacity, maxBatchSize, maxDelay, unit,
+        batch -> runOperation(() -> getEntity().pushStatistics(null, batch.toArray(new ContextualStatistics[batch.size()]))));
+  }
+
   public void refreshManagementRegistry() {
     // expose the registry each time a new object is registered in the management registry
     if (isManagementRegistryBridged()) {
       ManagementRegistry registry = getRegistry();
-      setCapabilities(registry.getContextContainer(), registry.getCapabilities());
+      if (registry != null) {
+        updateManagementMetadata(registry.getContextContainer(), registry.getCapabilities());
+      }
+    }
+  }
+
+  /**
+   * Only sends what has changed since the last registry content sent to the server when the server supports it,
+   * or the whole registry otherwise.
+   */
+  private void updateManagementMetadata(ContextContainer contextContainer, Collection<? extends Capability> capabilities) {
+    synchronized (registryLock) {
+      SentRegistry base = sentRegistry;
+      if (base == null || !extendedCallsSupported) {
+        // understood by all servers, and the version 0 of the registry for the servers supporting deltas
+        Capability[] all = capabilities.toArray(new Capability[capabilities.size()]);
+        LOGGER.trace("exposeManagementMetadata({})", contextContainer.getValue());
+        boolean sent = callOperation(() -> getEntity().exposeManagementMetadata(null, contextContainer, all), this::refreshManagementRegistry);
+        sentRegistry = sent ? new SentRegistry(0, contextContainer, Arrays.asList(all)) : null;
+        return;
+      }
+      ManagementRegistryDelta delta = ManagementRegistryDelta.between(base.version, base.contextContainer, base.capabilities,
+          registryVersions.incrementAndGet(), contextContainer, capabilities);
+      if (delta.isEmpty()) {
+        return;
+      }
+      LOGGER.trace("updateManagementMetadata({})", delta);
+      boolean sent = callOperation(() -> getEntity().updateManagementMetadata(null, delta), this::refreshManagementRegistry);
+      sentRegistry = sent ? new SentRegistry(delta.getVersion(), delta.applyTo(base.contextContainer), delta.applyTo(base.capabilities)) : null;
     }
   }
 
@@ -311,27 +470,36 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   }
 
   protected void runOperation(Supplier<Future<?>> op) {
+    callOperation(op, () -> runOperation(op));
+  }
+
+  /**
+   * @return true if the operation succeeded
+   */
+  private boolean callOperation(Supplier<? extends Future<?>> op, Operation retry) {
     if (!isClosed()) {
       Future<?> future;
       try {
         future = op.get();
       } catch (ConnectionClosedException | ConnectionShutdownException e) {
         flushEntity();
-        onOperationError.accept(() -> runOperation(op), e);
-        return;
+        onOperationError.accept(retry, e);
+        return false;
       }
       try {
         future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        return true;
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
       } catch (ExecutionException e) {
         // do not flush entity: these exception do not mean that the connection is broken
-        onOperationError.accept(() -> runOperation(op), e.getCause());
+        onOperationError.accept(retry, e.getCause());
       } catch (TimeoutException | RuntimeException e) {
         // do not flush entity: these exception do not mean that the connection is broken
-        onOperationError.accept(() -> runOperation(op), e);
+        onOperationError.accept(retry, e);
       }
     }
+    return false;
   }
 
   protected NmsAgentEntity getEntity() {
@@ -368,4 +536,16 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
     void retry();
   }
 
+  private static final class SentRegistry {
+    final long version;
+    final ContextContainer contextContainer;
+    final List<Capability> capabilities;
+
+    SentRegistry(long version, ContextContainer contextContainer, List<Capability> capabilities) {
+      this.version = version;
+      this.contextContainer = contextContainer;
+      this.capabilities = capabilities;
+    }
+  }
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.agent.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of items offered by any thread and sent in batches from a scheduler, so that the offering threads
+ * never wait for the server. A batch is sent as soon as it is full, or at most after a delay following the first
+ * item offered. When the queue is full, the oldest items are dropped.
+ */
+final class PushQueue<T> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PushQueue.class);
+
+  private final BlockingQueue<T> queue;
+  private final int maxBatchSize;
+  private final long maxDelayNanos;
+  private final ScheduledExecutorService scheduler;
+  private final Consumer<List<T>> sender;
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final AtomicBoolean submitted = new AtomicBoolean();
+  private final LongAdder dropped = new LongAdder();
+  // held while draining and sending, so that concurrent flushes send the batches in the order they were queued
+  private final Object sendLock = new Object();
+
+  PushQueue(ScheduledExecutorService scheduler, int capacity, int maxBatchSize, long maxDelay, TimeUnit unit, Consumer<List<T>> sender) {
+    if (maxBatchSize < 1 || capacity < maxBatchSize) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity + " or batch size: " + maxBatchSize);
+    }
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayNanos = unit.toNanos(maxDelay);
+    this.scheduler = Objects.requireNonNull(scheduler);
+    this.sender = Objects.requireNonNull(sender);
+  }
+
+  void offer(T item) {
+    while (!queue.offer(item)) {
+      if (queue.poll() != null) {
+        dropped.increment();
+      }
+    }
+    if (queue.size() >= maxBatchSize) {
+      if (submitted.compareAndSet(false, true)) {
+        schedule(submitted, 0);
+      }
+    } else if (scheduled.compareAndSet(false, true)) {
+      schedule(scheduled, maxDelayNanos);
+    }
+  }
+
+  /**
+   * Sends all the queued items from the calling thread
+   */
+  void flush() {
+    // reset before draining so that the items offered from now on are sent by a next flush
+    scheduled.set(false);
+    submitted.set(false);
+    // the offering threads never take the lock, so a slow server only delays the other flushes
+    synchronized (sendLock) {
+      List<T> batch = new ArrayList<>(maxBatchSize);
+      while (queue.drainTo(batch, maxBatchSize) > 0) {
+        sender.accept(batch);
+        batch = new ArrayList<>(maxBatchSize);
+      }
+    }
+  }
+
+  /**
+   * @return the number of items dropped because the queue was full
+   */
+  long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  private void schedule(AtomicBoolean flag, long delayNanos) {
+    try {
+      scheduler.schedule(() -> {
+        try {
+          flush();
+        } catch (RuntimeException e) {
+          LOGGER.warn("Failed to push queued items: {}", e.getMessage(), e);
+        }
+      }, delayNanos, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      // scheduler shut down: items will be sent on next flush
+      flag.set(false);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.agent.client;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.notification.ContextualNotification;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.TimeSource;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class DefaultNmsAgentServiceTest {
+
+  PushQueueTest.ManualScheduler scheduler = new PushQueueTest.ManualScheduler();
+  List<String> calls = Collections.synchronizedList(new ArrayList<>());
+  NmsAgentEntity entity = (NmsAgentEntity) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{NmsAgentEntity.class}, (proxy, method, args) -> {
+    String call = method.getName();
+    if (call.equals("pushNotification")) {
+      call += " " + ((ContextualNotification) args[1]).getType();
+    } else if (call.equals("sendNotifications")) {
+      call += " " + Arrays.stream((ContextualNotification[]) args[1]).map(ContextualNotification::getType).reduce((a, b) -> a + "," + b).get();
+    } else if (call.equals("pushStatistics")) {
+      call += " " + ((ContextualStatistics[]) args[1]).length;
+    } else if (call.equals("setEndpointListener") && args[0] == null) {
+      call += " null";
+    }
+    calls.add(call);
+    return method.getReturnType() == Future.class ? CompletableFuture.completedFuture(null) : null;
+  });
+  DefaultNmsAgentService service = new DefaultNmsAgentService(entity);
+
+  @After
+  public void tearDown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void test_queued_notifications_sent_one_by_one_on_close() {
+    service.setPushExecutor(scheduler, 100, 10, 1, TimeUnit.SECONDS);
+    service.setTags("tag");
+    service.pushNotification(notification("N1"));
+    service.pushNotification(notification("N2"));
+    assertThat(calls, equalTo(Arrays.asList("registerMessageListener", "setEndpointListener", "exposeTags")));
+
+    service.close();
+    assertThat(calls, equalTo(Arrays.asList("registerMessageListener", "setEndpointListener", "exposeTags",
+        "pushNotification N1", "pushNotification N2", "setEndpointListener null")));
+  }
+
+  @Test
+  public void test_queued_notifications_sent_in_one_call_on_close() {
+    service.setPushExecutor(scheduler, 100, 10, 1, TimeUnit.SECONDS);
+    service.setTags("tag");
+    service.onMessage(new DefaultMessage(new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST).next(), "EXTENDED_CALLS_SUPPORTED"));
+    service.pushNotification(notification("N1"));
+    service.pushNotification(notification("N2"));
+
+    service.close();
+    assertThat(calls, equalTo(Arrays.asList("registerMessageListener", "setEndpointListener", "exposeTags",
+        "sendNotifications N1,N2", "setEndpointListener null")));
+  }
+
+  @Test
+  public void test_statistics_queued_by_default() {
+    service.setTags("tag");
+    service.pushStatistics(statistics(), statistics());
+    service.close();
+    assertThat(calls, equalTo(Arrays.asList("registerMessageListener", "setEndpointListener", "exposeTags",
+        "pushStatistics 2", "setEndpointListener null")));
+  }
+
+  private static ContextualStatistics statistics() {
+    return new ContextualStatistics("capability", Context.empty(), Collections.emptyMap());
+  }
+
+  private static ContextualNotification notification(String type) {
+    return new ContextualNotification(Context.empty(), type);
+  }
+}
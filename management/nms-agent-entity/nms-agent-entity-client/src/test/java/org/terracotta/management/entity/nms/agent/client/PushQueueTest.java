@@ -0,0 +1,145 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.agent.client;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class PushQueueTest {
+
+  ManualScheduler scheduler = new ManualScheduler();
+  List<List<Integer>> batches = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void test_batch_sent_after_delay() {
+    PushQueue<Integer> queue = new PushQueue<>(scheduler, 100, 10, 1, TimeUnit.SECONDS, batches::add);
+    offer(queue, 0, 3);
+
+    // only the first item schedules a flush
+    assertThat(scheduler.delays, equalTo(Arrays.asList(TimeUnit.SECONDS.toNanos(1))));
+    assertThat(batches.size(), equalTo(0));
+
+    scheduler.runAll();
+    assertThat(batches, equalTo(Arrays.asList(range(0, 3))));
+
+    // the next item schedules a new flush
+    offer(queue, 3, 4);
+    assertThat(scheduler.delays.size(), equalTo(1));
+  }
+
+  @Test
+  public void test_full_batches_sent_without_delay() {
+    PushQueue<Integer> queue = new PushQueue<>(scheduler, 100, 10, 1, TimeUnit.SECONDS, batches::add);
+    offer(queue, 0, 25);
+
+    assertThat(scheduler.delays, equalTo(Arrays.asList(TimeUnit.SECONDS.toNanos(1), 0L)));
+
+    scheduler.runAll();
+    assertThat(batches, equalTo(Arrays.asList(range(0, 10), range(10, 20), range(20, 25))));
+    assertThat(queue.getDroppedCount(), equalTo(0L));
+  }
+
+  @Test
+  public void test_drop_oldest() {
+    PushQueue<Integer> queue = new PushQueue<>(scheduler, 10, 5, 1, TimeUnit.SECONDS, batches::add);
+    offer(queue, 0, 15);
+
+    queue.flush();
+    assertThat(batches, equalTo(Arrays.asList(range(5, 10), range(10, 15))));
+    assertThat(queue.getDroppedCount(), equalTo(5L));
+  }
+
+  @Test
+  public void test_flush_from_calling_thread() {
+    PushQueue<Integer> queue = new PushQueue<>(scheduler, 100, 10, 1, TimeUnit.SECONDS, batches::add);
+    offer(queue, 0, 3);
+
+    queue.flush();
+    assertThat(batches, equalTo(Arrays.asList(range(0, 3))));
+
+    // the scheduled flush has nothing left to send
+    scheduler.runAll();
+    assertThat(batches.size(), equalTo(1));
+  }
+
+  @Test
+  public void test_shutdown_scheduler() {
+    scheduler.shutdown();
+    PushQueue<Integer> queue = new PushQueue<>(scheduler, 100, 10, 1, TimeUnit.SECONDS, batches::add);
+    offer(queue, 0, 3);
+
+    queue.flush();
+    assertThat(batches, equalTo(Arrays.asList(range(0, 3))));
+  }
+
+  private static void offer(PushQueue<Integer> queue, int from, int to) {
+    IntStream.range(from, to).forEach(queue::offer);
+  }
+
+  private static List<Integer> range(int from, int to) {
+    return IntStream.range(from, to).boxed().collect(Collectors.toList());
+  }
+
+  /**
+   * Records the scheduled tasks, which are only run when asked
+   */
+  static class ManualScheduler extends ScheduledThreadPoolExecutor {
+
+    final List<Runnable> tasks = new ArrayList<>();
+    final List<Long> delays = new ArrayList<>();
+
+    ManualScheduler() {
+      super(1);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+      if (isShutdown()) {
+        return super.schedule(command, delay, unit);
+      }
+      tasks.add(command);
+      delays.add(unit.toNanos(delay));
+      return null;
+    }
+
+    void runAll() {
+      List<Runnable> tasks = new ArrayList<>(this.tasks);
+      this.tasks.clear();
+      this.delays.clear();
+      tasks.forEach(Runnable::run);
+    }
+  }
+}
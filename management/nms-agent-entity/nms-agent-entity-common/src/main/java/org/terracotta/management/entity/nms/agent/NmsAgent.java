@@ -17,6 +17,7 @@ package org.terracotta.management.entity.nms.agent;
 
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.capabilities.Capability;
+import org.terracotta.management.model.capabilities.ManagementRegistryDelta;
 import org.terracotta.management.model.context.ContextContainer;
 import org.terracotta.management.model.notification.ContextualNotification;
 import org.terracotta.management.model.stats.ContextualStatistics;
@@ -30,6 +31,11 @@ import java.util.concurrent.Future;
 import static org.terracotta.voltron.proxy.ExecutionStrategy.Location.ACTIVE;
 
 /**
+ * The proxy identifies the methods of this interface by their position in the sorted method signatures. The methods
+ * added after the first version of this entity must sort after the others and return a {@code Future<Void>}, so that
+ * older clients keep calling the right methods. Clients only call them once the server has sent them a
+ * {@code EXTENDED_CALLS_SUPPORTED} message, so that older servers never receive them.
+ *
  * @author Mathieu Carbou
  */
 public interface NmsAgent {
@@ -87,4 +93,30 @@ public interface NmsAgent {
   @ExecutionStrategy(location = ACTIVE)
   Future<Void> pushStatistics(@ClientId Object clientDescriptor, ContextualStatistics... statistics);
 
+  /**
+   * Sends a batch of client's notifications to the server
+   *
+   * @param notifications    the client's notifications, in the order they were fired
+   * @param clientDescriptor must be null, used only for implementation
+   */
+  @Async(Async.Ack.NONE)
+  @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+  @ExecutionStrategy(location = ACTIVE)
+  Future<Void> sendNotifications(@ClientId Object clientDescriptor, ContextualNotification... notifications);
+
+  /**
+   * Updates the management registry output exposed over this connection with the changes made since the last
+   * version the server has received. The registry exposed through {@link #exposeManagementMetadata(Object, ContextContainer, Capability...)}
+   * is version 0.
+   * <p>
+   * Clients expose their whole registry again when the server answers with a {@code MANAGEMENT_REGISTRY_DELTA_REJECTED} message.
+   *
+   * @param clientDescriptor must be null, used only for implementation
+   * @param delta            the registry changes
+   */
+  @Async(Async.Ack.NONE)
+  @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+  @ExecutionStrategy(location = ACTIVE)
+  Future<Void> updateManagementMetadata(@ClientId Object clientDescriptor, ManagementRegistryDelta delta);
+
 }
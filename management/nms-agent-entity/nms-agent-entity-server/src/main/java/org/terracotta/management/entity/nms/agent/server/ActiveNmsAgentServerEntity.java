@@ -22,15 +22,24 @@ import org.terracotta.management.entity.nms.agent.NmsAgent;
 import org.terracotta.management.entity.nms.agent.ReconnectData;
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.capabilities.Capability;
+import org.terracotta.management.model.capabilities.ManagementRegistryDelta;
 import org.terracotta.management.model.context.ContextContainer;
+import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.message.Message;
 import org.terracotta.management.model.notification.ContextualNotification;
 import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.SequenceGenerator;
+import org.terracotta.management.sequence.TimeSource;
 import org.terracotta.management.service.monitoring.ClientMonitoringService;
 import org.terracotta.voltron.proxy.ClientId;
 import org.terracotta.voltron.proxy.server.ActiveProxiedServerEntity;
 import org.terracotta.voltron.proxy.server.Messenger;
 
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 /**
@@ -41,6 +50,9 @@ class ActiveNmsAgentServerEntity extends ActiveProxiedServerEntity<Void, Reconne
   private static final Logger LOGGER = LoggerFactory.getLogger(ActiveNmsAgentServerEntity.class);
 
   private final ClientMonitoringService clientMonitoringService;
+  // registry version of the clients sending deltas: the registry exposed as a whole is version 0
+  private final Map<ClientDescriptor, Long> registryVersions = new ConcurrentHashMap<>();
+  private final SequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
 
   ActiveNmsAgentServerEntity(ClientMonitoringService clientMonitoringService) {
     this.clientMonitoringService = clientMonitoringService;
@@ -54,12 +66,22 @@ class ActiveNmsAgentServerEntity extends ActiveProxiedServerEntity<Void, Reconne
     super.destroy();
   }
 
+  @Override
+  public void disconnected(ClientDescriptor clientDescriptor) {
+    registryVersions.remove(clientDescriptor);
+    super.disconnected(clientDescriptor);
+  }
+
   @Override
   protected void onReconnect(ClientDescriptor clientDescriptor, ReconnectData reconnectData) {
     if (reconnectData != null && clientMonitoringService != null) {
       LOGGER.info("Client reconnecting: {}", clientDescriptor);
       exposeTags(clientDescriptor, reconnectData.tags);
-      exposeManagementMetadata(clientDescriptor, reconnectData.contextContainer, reconnectData.capabilities);
+      if (reconnectData.contextContainer != null && reconnectData.capabilities != null) {
+        // the client exposes its whole registry again after a reconnect, and learns then if the extended calls are supported
+        registryVersions.remove(clientDescriptor);
+        clientMonitoringService.exposeManagementRegistry(clientDescriptor, reconnectData.contextContainer, reconnectData.capabilities);
+      }
       pushNotification(clientDescriptor, reconnectData.contextualNotification);
     }
   }
@@ -80,10 +102,43 @@ class ActiveNmsAgentServerEntity extends ActiveProxiedServerEntity<Void, Reconne
     return CompletableFuture.completedFuture(null);
   }
 
+  @Override
+  public Future<Void> sendNotifications(@ClientId Object caller, ContextualNotification... notifications) {
+    if (clientMonitoringService != null && notifications != null) {
+      for (ContextualNotification notification : notifications) {
+        clientMonitoringService.pushNotification((ClientDescriptor) caller, notification);
+      }
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+
   @Override
   public Future<Void> exposeManagementMetadata(@ClientId Object caller, ContextContainer contextContainer, Capability... capabilities) {
     if (clientMonitoringService != null && contextContainer != null && capabilities != null) {
-      clientMonitoringService.exposeManagementRegistry((ClientDescriptor) caller, contextContainer, capabilities);
+      ClientDescriptor clientDescriptor = (ClientDescriptor) caller;
+      clientMonitoringService.exposeManagementRegistry(clientDescriptor, contextContainer, capabilities);
+      if (registryVersions.put(clientDescriptor, 0L) == null) {
+        // clients only make the extended calls once told that this server supports them: older clients ignore this message
+        sendMessage(clientDescriptor, "EXTENDED_CALLS_SUPPORTED");
+      }
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public Future<Void> updateManagementMetadata(@ClientId Object caller, ManagementRegistryDelta delta) {
+    if (clientMonitoringService != null && delta != null) {
+      ClientDescriptor clientDescriptor = (ClientDescriptor) caller;
+      if (!delta.isFull()) {
+        Long version = registryVersions.get(clientDescriptor);
+        if (version == null || version != delta.getBaseVersion()) {
+          LOGGER.debug("Registry delta from client {} is based on version {} but current version is {}", clientDescriptor, delta.getBaseVersion(), version);
+          sendMessage(clientDescriptor, "MANAGEMENT_REGISTRY_DELTA_REJECTED");
+          return CompletableFuture.completedFuture(null);
+        }
+      }
+      registryVersions.put(clientDescriptor, delta.getVersion());
+      clientMonitoringService.updateManagementRegistry(clientDescriptor, delta);
     }
     return CompletableFuture.completedFuture(null);
   }
@@ -104,4 +159,12 @@ class ActiveNmsAgentServerEntity extends ActiveProxiedServerEntity<Void, Reconne
     return CompletableFuture.completedFuture(null);
   }
 
+  private void sendMessage(ClientDescriptor clientDescriptor, String type) {
+    try {
+      fireMessage(Message.class, new DefaultMessage(sequenceGenerator.next(), type), clientDescriptor);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Unable to send message {} to client {}: {}", type, clientDescriptor, e.getMessage(), e);
+    }
+  }
+
 }
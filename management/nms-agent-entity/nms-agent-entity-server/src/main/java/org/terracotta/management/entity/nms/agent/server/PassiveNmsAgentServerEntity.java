@@ -18,6 +18,7 @@ package org.terracotta.management.entity.nms.agent.server;
 import org.terracotta.management.entity.nms.agent.NmsAgent;
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.capabilities.Capability;
+import org.terracotta.management.model.capabilities.ManagementRegistryDelta;
 import org.terracotta.management.model.context.ContextContainer;
 import org.terracotta.management.model.notification.ContextualNotification;
 import org.terracotta.management.model.stats.ContextualStatistics;
@@ -35,6 +36,16 @@ class PassiveNmsAgentServerEntity extends PassiveProxiedServerEntity implements
     throw new UnsupportedOperationException("Cannot be called on a passive server");
   }
 
+  @Override
+  public Future<Void> sendNotifications(@ClientId Object clientDescriptor, ContextualNotification... notifications) {
+    throw new UnsupportedOperationException("Cannot be called on a passive server");
+  }
+
+  @Override
+  public Future<Void> updateManagementMetadata(@ClientId Object clientDescriptor, ManagementRegistryDelta delta) {
+    throw new UnsupportedOperationException("Cannot be called on a passive server");
+  }
+
   @Override
   public Future<Void> exposeTags(@ClientId Object clientDescriptor, String... tags) {
     throw new UnsupportedOperationException("Cannot be called on a passive server");
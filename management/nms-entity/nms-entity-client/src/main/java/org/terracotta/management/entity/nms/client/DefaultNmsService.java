@@ -20,9 +20,13 @@ import org.slf4j.LoggerFactory;
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
+import org.terracotta.management.model.cluster.TopologyChange;
+import org.terracotta.management.model.cluster.TopologyChanges;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.message.ManagementCallMessage;
 import org.terracotta.management.model.message.Message;
+import org.terracotta.management.sequence.Sequence;
+import org.terracotta.voltron.proxy.client.EndpointListener;
 
 import java.io.Closeable;
 import java.util.ArrayList;
@@ -36,9 +40,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -49,14 +54,29 @@ public class DefaultNmsService implements NmsService, Closeable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(NmsService.class);
 
+  public static final int DEFAULT_MESSAGE_QUEUE_CAPACITY = 8192;
+
   private final NmsEntity entity;
   private final BlockingQueue<Optional<Message>> incomingMessageQueue;
   private final ConcurrentMap<String, CompletableFuture<ContextualReturn<?>>> managementCallAnswers = new ConcurrentHashMap<>();
+  // messages refused by a queue that is not a message ring
+  private final LongAdder refused = new LongAdder();
+  private final AtomicLong reportedDrops = new AtomicLong();
+  // set once the server has told it supports the calls added after the first version of the entity
+  private volatile boolean extendedCallsSupported;
 
   private long timeout = 5000;
 
+  /**
+   * Creates a service queuing the messages received in a {@link MessageRing} of {@link #DEFAULT_MESSAGE_QUEUE_CAPACITY} messages.
+   * <p>
+   * This queue is lossy: if the messages are not read fast enough, statistics are dropped first, then the oldest notifications,
+   * so that a slow consumer cannot make the heap grow without limit. Drops are logged and counted by
+   * {@link #getDroppedMessageCount()}. Use {@link #DefaultNmsService(NmsEntity, BlockingQueue)} with an unbounded queue
+   * for a lossless service.
+   */
   public DefaultNmsService(final NmsEntity entity) {
-    this(entity, new LinkedBlockingQueue<>());
+    this(entity, new MessageRing(DEFAULT_MESSAGE_QUEUE_CAPACITY, MessageRing.DropPolicy.DROP_STATISTICS_FIRST));
   }
 
   public DefaultNmsService(final NmsEntity entity, BlockingQueue<Optional<Message>> incomingMessageQueue) {
@@ -78,10 +98,17 @@ public class DefaultNmsService implements NmsService, Closeable {
           getManagementAnswerFor(managementCallIdentifier).complete(contextualReturn);
           break;
 
+        case "EXTENDED_CALLS_SUPPORTED":
+          extendedCallsSupported = true;
+          // the answer is not awaited: this listener must not block
+          entity.enableCompactStatistics(null);
+          break;
+
         case "NOTIFICATION":
         case "STATISTICS":
           boolean offered = incomingMessageQueue.offer(Optional.of(message));
           if (!offered) {
+            refused.increment();
             sink.accept(message);
           }
           break;
@@ -91,6 +118,19 @@ public class DefaultNmsService implements NmsService, Closeable {
 
       }
     });
+    // the server we reconnect to tells again whether it supports the extended calls
+    this.entity.setEndpointListener(new EndpointListener() {
+      @Override
+      public Object onReconnect() {
+        extendedCallsSupported = false;
+        return null;
+      }
+
+      @Override
+      public void onDisconnectUnexpectedly() {
+        extendedCallsSupported = false;
+      }
+    });
   }
 
   public NmsEntity getEntity() {
@@ -123,9 +163,22 @@ public class DefaultNmsService implements NmsService, Closeable {
     return get(entity.readTopology());
   }
 
+  @Override
+  public TopologyChanges readTopologyChanges(Sequence since) throws TimeoutException, InterruptedException, ExecutionException {
+    if (!extendedCallsSupported) {
+      // the server might not know this call: read the whole topology, without any version to read the changes from
+      return TopologyChanges.snapshot(null, readTopology());
+    }
+    Message message = get(entity.readTopologyChanges(since));
+    return message.getType().equals("TOPOLOGY") ?
+        TopologyChanges.snapshot(message.getSequence(), message.unwrap(Cluster.class).get(0)) :
+        TopologyChanges.delta(message.getSequence(), message.unwrap(TopologyChange.class));
+  }
+
   @Override
   public Message waitForMessage() throws InterruptedException {
     Optional<Message> o = incomingMessageQueue.take();
+    reportDrops();
     if (!o.isPresent()) {
       throw new InterruptedException();
     }
@@ -138,6 +191,7 @@ public class DefaultNmsService implements NmsService, Closeable {
     if (o == null) {
       throw new TimeoutException("No message arrived within " + time + " " + unit);
     }
+    reportDrops();
     if (!o.isPresent()) {
       throw new InterruptedException();
     }
@@ -146,15 +200,51 @@ public class DefaultNmsService implements NmsService, Closeable {
 
   @Override
   public List<Message> readMessages() {
-    List<Optional<Message>> optionals = new ArrayList<>(incomingMessageQueue.size());
-    incomingMessageQueue.drainTo(optionals);
+    return readMessages(Integer.MAX_VALUE);
+  }
+
+  @Override
+  public List<Message> readMessages(int maxMessages) {
+    List<Optional<Message>> optionals = new ArrayList<>(Math.min(maxMessages, incomingMessageQueue.size()));
+    incomingMessageQueue.drainTo(optionals, maxMessages);
     List<Message> messages = optionals.stream().filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList());
-    if (!messages.isEmpty()) {
+    // the message ring already keeps the messages ordered
+    if (!(incomingMessageQueue instanceof MessageRing) && !messages.isEmpty()) {
       messages.sort(MESSAGE_COMPARATOR);
     }
+    reportDrops();
     return messages;
   }
 
+  @Override
+  public long getDroppedMessageCount() {
+    long dropped = refused.sum();
+    if (incomingMessageQueue instanceof MessageRing) {
+      dropped += ((MessageRing) incomingMessageQueue).getDroppedCount();
+    }
+    return dropped;
+  }
+
+  @Override
+  public long getCoalescedMessageCount() {
+    return incomingMessageQueue instanceof MessageRing ? ((MessageRing) incomingMessageQueue).getCoalescedCount() : 0;
+  }
+
+  /**
+   * @return the queue holding the messages not read yet
+   */
+  public BlockingQueue<Optional<Message>> getMessageQueue() {
+    return incomingMessageQueue;
+  }
+
+  private void reportDrops() {
+    long dropped = getDroppedMessageCount();
+    long reported = reportedDrops.getAndSet(dropped);
+    if (dropped > reported) {
+      LOGGER.warn("{} messages were dropped because they were not read fast enough (total: {})", dropped - reported, dropped);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public <T> ManagementCall<T> call(Context context, String capabilityName, String methodName, Class<T> returnType, Parameter... parameters) throws InterruptedException, ExecutionException, TimeoutException {
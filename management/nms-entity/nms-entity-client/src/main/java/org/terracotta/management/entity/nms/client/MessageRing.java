@@ -0,0 +1,422 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.client;
+
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.context.Contextual;
+import org.terracotta.management.model.message.Message;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A bounded queue for the messages received by a management client.
+ * <p>
+ * The ring never refuses a message: when it is full, a message is dropped according to the {@link DropPolicy},
+ * so that a slow consumer cannot make the client heap grow. Messages are kept ordered by sequence when they are
+ * inserted, so consumers can drain them without sorting.
+ * <p>
+ * An empty {@link Optional} can be offered to wake up consumers: it is always added at the end and never dropped.
+ */
+public class MessageRing extends AbstractQueue<Optional<Message>> implements BlockingQueue<Optional<Message>> {
+
+  public enum DropPolicy {
+    /**
+     * When the ring is full, the oldest message is dropped
+     */
+    DROP_OLDEST,
+    /**
+     * When the ring is full, the oldest statistic message is dropped, or the oldest message if there is no statistic message
+     */
+    DROP_STATISTICS_FIRST,
+    /**
+     * A statistic message replaces the statistic message of the same contexts that was not consumed yet.
+     * When the ring is full, the oldest message is dropped
+     */
+    COALESCE_STATISTICS
+  }
+
+  private final int capacity;
+  private final DropPolicy dropPolicy;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+
+  // Dropped and coalesced entries leave a hole in the ring until the ring is compacted.
+  // The ring has twice the capacity so that a compaction happens at most once every 'capacity' insertions.
+  private Entry[] slots;
+  private int head;
+  private int span;
+  private int count;
+
+  // statistic entries in order, to find the oldest one to drop (DROP_STATISTICS_FIRST)
+  private final ArrayDeque<Entry> statistics = new ArrayDeque<>();
+  // last statistic entry of a list of contexts (COALESCE_STATISTICS)
+  private final Map<List<Context>, Entry> latestStatistics = new HashMap<>();
+
+  private long dropped;
+  private long coalesced;
+
+  public MessageRing(int capacity, DropPolicy dropPolicy) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity);
+    }
+    this.capacity = capacity;
+    this.dropPolicy = Objects.requireNonNull(dropPolicy);
+    this.slots = new Entry[capacity * 2];
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public DropPolicy getDropPolicy() {
+    return dropPolicy;
+  }
+
+  /**
+   * @return the number of messages dropped because the ring was full
+   */
+  public long getDroppedCount() {
+    lock.lock();
+    try {
+      return dropped;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of statistic messages replaced by a newer one
+   */
+  public long getCoalescedCount() {
+    lock.lock();
+    try {
+      return coalesced;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(Optional<Message> message) {
+    Objects.requireNonNull(message);
+    boolean statistic = isStatistic(message);
+    // computed outside the lock to not block the consumers
+    List<Context> key = statistic && dropPolicy == DropPolicy.COALESCE_STATISTICS ? contextsOf(message.get()) : null;
+    Entry entry = new Entry(message, statistic, key);
+    lock.lock();
+    try {
+      if (key != null) {
+        Entry previous = latestStatistics.put(key, entry);
+        if (previous != null) {
+          unlink(previous);
+          coalesced++;
+        }
+      }
+      if (count == capacity) {
+        dropOne();
+        dropped++;
+      }
+      if (span == slots.length) {
+        compact();
+      }
+      insert(entry);
+      if (statistic && dropPolicy == DropPolicy.DROP_STATISTICS_FIRST) {
+        statistics.add(entry);
+      }
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(Optional<Message> message, long timeout, TimeUnit unit) {
+    return offer(message);
+  }
+
+  @Override
+  public void put(Optional<Message> message) {
+    offer(message);
+  }
+
+  @Override
+  public Optional<Message> poll() {
+    lock.lock();
+    try {
+      return count == 0 ? null : removeFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Message> poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return removeFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Message> take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        notEmpty.await();
+      }
+      return removeFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Message> peek() {
+    lock.lock();
+    try {
+      trimHead();
+      return count == 0 ? null : slots[head].message;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    lock.lock();
+    try {
+      return capacity - count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super Optional<Message>> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Moves up to {@code maxElements} messages to the collection, in sequence order, in one lock acquisition
+   */
+  @Override
+  public int drainTo(Collection<? super Optional<Message>> c, int maxElements) {
+    Objects.requireNonNull(c);
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int n = 0;
+      while (n < maxElements && count > 0) {
+        c.add(removeFirst());
+        n++;
+      }
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      Arrays.fill(slots, null);
+      head = 0;
+      span = 0;
+      count = 0;
+      statistics.clear();
+      latestStatistics.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return an iterator over a snapshot of the messages in the ring
+   */
+  @Override
+  public Iterator<Optional<Message>> iterator() {
+    lock.lock();
+    try {
+      List<Optional<Message>> snapshot = new ArrayList<>(count);
+      for (int i = 0; i < span; i++) {
+        Entry entry = slots[(head + i) % slots.length];
+        if (!entry.removed) {
+          snapshot.add(entry.message);
+        }
+      }
+      return Collections.unmodifiableList(snapshot).iterator();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    lock.lock();
+    try {
+      return getClass().getSimpleName() + "{capacity=" + capacity + ", dropPolicy=" + dropPolicy + ", size=" + count + ", dropped=" + dropped + ", coalesced=" + coalesced + '}';
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // messages are nearly always received in order, so an out of order message only moves back a few slots
+  private void insert(Entry entry) {
+    int i = span;
+    if (entry.message.isPresent()) {
+      Message message = entry.message.get();
+      while (i > 0) {
+        Entry previous = slots[(head + i - 1) % slots.length];
+        if (!previous.removed && (!previous.message.isPresent() || NmsService.MESSAGE_COMPARATOR.compare(previous.message.get(), message) <= 0)) {
+          break;
+        }
+        slots[(head + i) % slots.length] = previous;
+        i--;
+      }
+    }
+    slots[(head + i) % slots.length] = entry;
+    span++;
+    count++;
+  }
+
+  private Optional<Message> removeFirst() {
+    trimHead();
+    Entry entry = slots[head];
+    unlink(entry);
+    if (entry.statistic && dropPolicy == DropPolicy.DROP_STATISTICS_FIRST) {
+      // statistic entries are consumed in order, so this is nearly always the first one
+      statistics.remove(entry);
+    }
+    trimHead();
+    return entry.message;
+  }
+
+  private void dropOne() {
+    Entry victim = null;
+    if (dropPolicy == DropPolicy.DROP_STATISTICS_FIRST) {
+      victim = statistics.poll();
+    }
+    if (victim == null) {
+      trimHead();
+      victim = slots[head];
+      // the wake-up markers are not dropped, unless the ring only contains markers
+      for (int i = 0; i < span; i++) {
+        Entry entry = slots[(head + i) % slots.length];
+        if (!entry.removed && entry.message.isPresent()) {
+          victim = entry;
+          break;
+        }
+      }
+      if (victim.statistic && dropPolicy == DropPolicy.DROP_STATISTICS_FIRST) {
+        statistics.remove(victim);
+      }
+    }
+    unlink(victim);
+    trimHead();
+  }
+
+  private void unlink(Entry entry) {
+    entry.removed = true;
+    count--;
+    if (entry.key != null) {
+      latestStatistics.remove(entry.key, entry);
+    }
+  }
+
+  private void trimHead() {
+    while (span > 0 && slots[head].removed) {
+      slots[head] = null;
+      head = (head + 1) % slots.length;
+      span--;
+    }
+  }
+
+  private void compact() {
+    Entry[] compacted = new Entry[slots.length];
+    int n = 0;
+    for (int i = 0; i < span; i++) {
+      Entry entry = slots[(head + i) % slots.length];
+      if (!entry.removed) {
+        compacted[n++] = entry;
+      }
+    }
+    slots = compacted;
+    head = 0;
+    span = n;
+  }
+
+  private static boolean isStatistic(Optional<Message> message) {
+    return message.isPresent() && "STATISTICS".equals(message.get().getType());
+  }
+
+  private static List<Context> contextsOf(Message message) {
+    return message.unwrap(Contextual.class).stream().map(Contextual::getContext).collect(toList());
+  }
+
+  private static final class Entry {
+    final Optional<Message> message;
+    final boolean statistic;
+    final List<Context> key;
+    boolean removed;
+
+    Entry(Optional<Message> message, boolean statistic, List<Context> key) {
+      this.message = message;
+      this.statistic = statistic;
+      this.key = key;
+    }
+  }
+
+}
@@ -17,8 +17,10 @@ package org.terracotta.management.entity.nms.client;
 
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
+import org.terracotta.management.model.cluster.TopologyChanges;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.message.Message;
+import org.terracotta.management.sequence.Sequence;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -39,6 +41,18 @@ public interface NmsService {
 
   Cluster readTopology() throws TimeoutException, InterruptedException, ExecutionException;
 
+  /**
+   * Read the topology changes that happened after a version.
+   * <p>
+   * On first read (null version), or if the server does not have all the changes since this version anymore,
+   * a full snapshot of the topology is returned instead. The version returned must be used for the next read.
+   * <p>
+   * Until the server has told it supports this call, a full snapshot without version is returned.
+   *
+   * @param since the version returned by the previous read, or null
+   */
+  TopologyChanges readTopologyChanges(Sequence since) throws TimeoutException, InterruptedException, ExecutionException;
+
   /**
    * Wait for a message to arrive in the queue
    */
@@ -54,6 +68,25 @@ public interface NmsService {
    */
   List<Message> readMessages();
 
+  /**
+   * Drain at most {@code maxMessages} messages received in the queue. Drained messages are ordered by their sequence
+   */
+  List<Message> readMessages(int maxMessages);
+
+  /**
+   * @return the number of messages dropped because they were not read fast enough and the queue was full
+   */
+  default long getDroppedMessageCount() {
+    return 0;
+  }
+
+  /**
+   * @return the number of statistic messages replaced in the queue by newer statistics of the same contexts
+   */
+  default long getCoalescedMessageCount() {
+    return 0;
+  }
+
   /**
    * Wait for a message until the predicate returns true and returns the collected messages during this time, sorted by sequence
    *
@@ -0,0 +1,157 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.notification.ContextualNotification;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.SequenceGenerator;
+import org.terracotta.management.sequence.TimeSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class MessageRingTest {
+
+  SequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+
+  @Test
+  public void test_drop_oldest() {
+    MessageRing ring = new MessageRing(3, MessageRing.DropPolicy.DROP_OLDEST);
+    Message n1 = notification("1");
+    Message s1 = statistics("1");
+    Message n2 = notification("2");
+    Message n3 = notification("3");
+    offer(ring, n1, s1, n2, n3);
+
+    assertThat(drain(ring, Integer.MAX_VALUE), equalTo(Arrays.asList(s1, n2, n3)));
+    assertThat(ring.getDroppedCount(), equalTo(1L));
+    assertThat(ring.size(), equalTo(0));
+  }
+
+  @Test
+  public void test_drop_statistics_first() {
+    MessageRing ring = new MessageRing(3, MessageRing.DropPolicy.DROP_STATISTICS_FIRST);
+    Message n1 = notification("1");
+    Message s1 = statistics("1");
+    Message s2 = statistics("2");
+    Message n2 = notification("2");
+    Message n3 = notification("3");
+    Message n4 = notification("4");
+    offer(ring, n1, s1, s2, n2, n3, n4);
+
+    // both statistics are dropped before the notifications
+    assertThat(drain(ring, Integer.MAX_VALUE), equalTo(Arrays.asList(n2, n3, n4)));
+    assertThat(ring.getDroppedCount(), equalTo(3L));
+  }
+
+  @Test
+  public void test_coalesce_statistics() {
+    MessageRing ring = new MessageRing(10, MessageRing.DropPolicy.COALESCE_STATISTICS);
+    Message s1 = statistics("1");
+    Message s2 = statistics("2");
+    Message n1 = notification("1");
+    Message s3 = statistics("1");
+    offer(ring, s1, s2, n1, s3);
+
+    assertThat(drain(ring, Integer.MAX_VALUE), equalTo(Arrays.asList(s2, n1, s3)));
+    assertThat(ring.getCoalescedCount(), equalTo(1L));
+    assertThat(ring.getDroppedCount(), equalTo(0L));
+
+    // consumed statistics are not coalesced anymore
+    Message s4 = statistics("1");
+    offer(ring, s4);
+    assertThat(drain(ring, Integer.MAX_VALUE), equalTo(Collections.singletonList(s4)));
+    assertThat(ring.getCoalescedCount(), equalTo(1L));
+  }
+
+  @Test
+  public void test_messages_are_kept_in_sequence_order() {
+    MessageRing ring = new MessageRing(10, MessageRing.DropPolicy.DROP_OLDEST);
+    Message n1 = notification("1");
+    Message n2 = notification("2");
+    Message n3 = notification("3");
+    Message n4 = notification("4");
+    offer(ring, n2, n4, n1, n3);
+
+    assertThat(drain(ring, 3), equalTo(Arrays.asList(n1, n2, n3)));
+    assertThat(drain(ring, 3), equalTo(Collections.singletonList(n4)));
+  }
+
+  @Test
+  public void test_holes_are_compacted() {
+    MessageRing ring = new MessageRing(4, MessageRing.DropPolicy.DROP_STATISTICS_FIRST);
+    List<Message> notifications = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Message n = notification(String.valueOf(i));
+      offer(ring, statistics(String.valueOf(i)), n);
+      notifications.add(n);
+    }
+    assertThat(ring.getDroppedCount(), equalTo(196L));
+    assertThat(drain(ring, Integer.MAX_VALUE), equalTo(notifications.subList(96, 100)));
+    assertThat(ring.poll(), is(nullValue()));
+  }
+
+  @Test
+  public void test_markers_are_not_dropped() throws InterruptedException {
+    MessageRing ring = new MessageRing(2, MessageRing.DropPolicy.DROP_OLDEST);
+    Message n1 = notification("1");
+    Message n2 = notification("2");
+    ring.offer(Optional.empty());
+    offer(ring, n1, n2);
+
+    assertThat(ring.take(), equalTo(Optional.empty()));
+    assertThat(ring.take(), equalTo(Optional.of(n2)));
+  }
+
+  private void offer(MessageRing ring, Message... messages) {
+    for (Message message : messages) {
+      ring.offer(Optional.of(message));
+    }
+  }
+
+  private static List<Message> drain(MessageRing ring, int max) {
+    List<Optional<Message>> drained = new ArrayList<>();
+    ring.drainTo(drained, max);
+    return drained.stream().map(Optional::get).collect(Collectors.toList());
+  }
+
+  private Message notification(String name) {
+    return new DefaultMessage(sequenceGenerator.next(), "NOTIFICATION", new ContextualNotification(Context.create("cacheName", name), "EVENT"));
+  }
+
+  private Message statistics(String name) {
+    return new DefaultMessage(sequenceGenerator.next(), "STATISTICS", new ContextualStatistics("StatisticsCapability", Context.create("cacheName", name), Collections.emptyMap()));
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.entity.nms.Nms;
+import org.terracotta.management.model.call.Parameter;
+import org.terracotta.management.model.cluster.Cluster;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.notification.ContextualNotification;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.SequenceGenerator;
+import org.terracotta.management.sequence.TimeSource;
+import org.terracotta.voltron.proxy.Async;
+import org.terracotta.voltron.proxy.ClientId;
+import org.terracotta.voltron.proxy.ConcurrencyStrategy;
+import org.terracotta.voltron.proxy.ExecutionStrategy;
+import org.terracotta.voltron.proxy.MessageType;
+import org.terracotta.voltron.proxy.MethodDescriptor;
+import org.terracotta.voltron.proxy.ProxyEntityMessage;
+import org.terracotta.voltron.proxy.ProxyEntityResponse;
+import org.terracotta.voltron.proxy.ProxyMessageCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.terracotta.voltron.proxy.ExecutionStrategy.Location.ACTIVE;
+
+/**
+ * Checks that the clients of the first version of the {@link Nms} interface keep understanding the current servers
+ */
+@RunWith(JUnit4.class)
+public class NmsCompatibilityTest {
+
+  SequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+  ProxyMessageCodec serverCodec = new ProxyMessageCodec(Nms.class, new Class<?>[]{Message.class});
+  ProxyMessageCodec olderClientCodec = new ProxyMessageCodec(NmsV1.class, new Class<?>[]{Message.class});
+
+  @Test
+  public void test_older_clients_decode_events() throws Exception {
+    Message notification = new DefaultMessage(sequenceGenerator.next(), "NOTIFICATION", new ContextualNotification(Context.create("clientId", "1"), "CLIENT_CONNECTED"));
+    ProxyEntityResponse event = olderClientCodec.decodeResponse(serverCodec.encodeResponse(ProxyEntityResponse.messageResponse(Message.class, notification)));
+    assertThat(event.getResponseType(), equalTo(Message.class));
+    assertThat(event.getResponse(), equalTo(notification));
+
+    Message supported = new DefaultMessage(sequenceGenerator.next(), "EXTENDED_CALLS_SUPPORTED");
+    event = olderClientCodec.decodeResponse(serverCodec.encodeResponse(ProxyEntityResponse.messageResponse(Message.class, supported)));
+    assertThat(event.getResponseType(), equalTo(Message.class));
+    assertThat(event.getResponse(), equalTo(supported));
+  }
+
+  @Test
+  public void test_older_clients_decode_statistics() throws Exception {
+    ContextualStatistics[] contextualStatistics = {new ContextualStatistics("capability", Context.create("clientId", "1"), Collections.emptyMap())};
+    DefaultMessage statistics = new DefaultMessage(sequenceGenerator.next(), "STATISTICS", contextualStatistics);
+    byte[] encoded = serverCodec.encodeResponse(ProxyEntityResponse.messageResponse(Message.class, statistics));
+    // the compact form is only sent to the clients which enabled it
+    assertFalse(new String(encoded, StandardCharsets.ISO_8859_1).contains("SerializedStatistics"));
+    ProxyEntityResponse event = olderClientCodec.decodeResponse(encoded);
+    assertThat(event.getResponseType(), equalTo(Message.class));
+    assertThat(event.getResponse(), equalTo(statistics));
+
+    encoded = serverCodec.encodeResponse(ProxyEntityResponse.messageResponse(Message.class, statistics.withCompactStatistics()));
+    assertTrue(new String(encoded, StandardCharsets.ISO_8859_1).contains("SerializedStatistics"));
+    assertThat(serverCodec.decodeResponse(encoded).getResponse(), equalTo(statistics));
+  }
+
+  @Test
+  public void test_older_clients_decode_responses() throws Exception {
+    Cluster cluster = Cluster.create();
+    ProxyEntityResponse response = olderClientCodec.decodeResponse(serverCodec.encodeResponse(ProxyEntityResponse.messageResponse(Cluster.class, cluster)));
+    assertThat(response.getResponseType(), equalTo(Cluster.class));
+    assertThat(response.getResponse(), equalTo(cluster));
+
+    response = olderClientCodec.decodeResponse(serverCodec.encodeResponse(ProxyEntityResponse.messageResponse(String.class, "call-1")));
+    assertThat(response.getResponseType(), equalTo(String.class));
+    assertThat(response.getResponse(), equalTo("call-1"));
+  }
+
+  @Test
+  public void test_older_clients_calls() throws Exception {
+    ProxyEntityMessage message = serverCodec.decodeMessage(olderClientCodec.encodeMessage(new ProxyEntityMessage(MethodDescriptor.of(NmsV1.class.getMethod("readTopology")), new Object[0], MessageType.MESSAGE)));
+    assertThat(message.getMethod().getMethod(), equalTo(Nms.class.getMethod("readTopology")));
+
+    Object[] args = {null, Context.create("clientId", "1"), "capability", "method", String.class, new Parameter[0]};
+    message = serverCodec.decodeMessage(olderClientCodec.encodeMessage(new ProxyEntityMessage(MethodDescriptor.of(NmsV1.class.getMethod("call", Object.class, Context.class, String.class, String.class, Class.class, Parameter[].class)), args, MessageType.MESSAGE)));
+    assertThat(message.getMethod().getMethod(), equalTo(Nms.class.getMethod("call", Object.class, Context.class, String.class, String.class, Class.class, Parameter[].class)));
+  }
+
+  /**
+   * The {@link Nms} interface of the first version of the entity
+   */
+  public interface NmsV1 {
+
+    @Async(Async.Ack.NONE)
+    @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+    @ExecutionStrategy(location = ACTIVE)
+    Future<Cluster> readTopology();
+
+    @Async(Async.Ack.NONE)
+    @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+    @ExecutionStrategy(location = ACTIVE)
+    Future<String> call(@ClientId Object callerDescriptor, Context context, String capabilityName, String methodName, Class<?> returnType, Parameter... parameters);
+  }
+}
@@ -18,6 +18,8 @@ package org.terracotta.management.entity.nms;
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.Message;
+import org.terracotta.management.sequence.Sequence;
 import org.terracotta.voltron.proxy.Async;
 import org.terracotta.voltron.proxy.ClientId;
 import org.terracotta.voltron.proxy.ConcurrencyStrategy;
@@ -28,6 +30,12 @@ import java.util.concurrent.Future;
 import static org.terracotta.voltron.proxy.ExecutionStrategy.Location.ACTIVE;
 
 /**
+ * The proxy identifies the methods of this interface by their position in the sorted method signatures, and their
+ * response types and the event types by their order of appearance. The methods added after the first version of this
+ * entity must sort after the others and only return the types already used, so that older clients keep decoding the
+ * responses and events they receive. Clients only call them once the server has sent them an
+ * {@code EXTENDED_CALLS_SUPPORTED} message, so that older servers never receive them.
+ *
  * @author Mathieu Carbou
  */
 public interface Nms {
@@ -37,6 +45,28 @@ public interface Nms {
   @ExecutionStrategy(location = ACTIVE)
   Future<Cluster> readTopology();
 
+  /**
+   * Read the topology changes since a version, or a full topology snapshot if the version is null or too old.
+   * <p>
+   * The answer is a {@code TOPOLOGY_CHANGES} message holding the changes, or a {@code TOPOLOGY} message holding the
+   * cluster. The sequence of the message is the version to read the next changes from.
+   */
+  @Async(Async.Ack.NONE)
+  @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+  @ExecutionStrategy(location = ACTIVE)
+  Future<Message> readTopologyChanges(Sequence since);
+
+  /**
+   * Tell the server that this client reads the statistics messages in their compact form. The server keeps sending
+   * the other clients the form older versions understand.
+   * <p>
+   * The answer is a {@code COMPACT_STATISTICS_ENABLED} message.
+   */
+  @Async(Async.Ack.NONE)
+  @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+  @ExecutionStrategy(location = ACTIVE)
+  Future<Message> enableCompactStatistics(@ClientId Object callerDescriptor);
+
   /**
    * Execute a management call on the server and returns the results
    */
@@ -29,11 +29,19 @@ import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.cluster.Connection;
 import org.terracotta.management.model.cluster.Server;
 import org.terracotta.management.model.cluster.Stripe;
+import org.terracotta.management.model.cluster.TopologyChange;
+import org.terracotta.management.model.cluster.TopologyChanges;
+import org.terracotta.management.model.message.DefaultMessage;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.context.Contextual;
 import org.terracotta.management.model.message.Message;
 import org.terracotta.management.registry.CapabilityManagementSupport;
 import org.terracotta.management.registry.CombiningCapabilityManagementSupport;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.Sequence;
+import org.terracotta.management.sequence.SequenceGenerator;
+import org.terracotta.management.sequence.TimeSource;
 import org.terracotta.management.service.monitoring.EntityManagementRegistry;
 import org.terracotta.management.service.monitoring.ManagementExecutor;
 import org.terracotta.management.service.monitoring.ManagementService;
@@ -44,7 +52,9 @@ import org.terracotta.voltron.proxy.server.ActiveProxiedServerEntity;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 /**
@@ -59,6 +69,9 @@ class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCal
   private final EntityManagementRegistry entityManagementRegistry;
   private final CapabilityManagementSupport capabilityManagementSupport;
   private final long consumerId;
+  private final SequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+  // clients which told they read the statistics in their compact form
+  private final Set<ClientDescriptor> compactStatisticsClients = ConcurrentHashMap.newKeySet();
 
   ActiveNmsServerEntity(NmsConfig config, ManagementService managementService, EntityManagementRegistry entityManagementRegistry, SharedEntityManagementRegistry sharedEntityManagementRegistry) {
     this.entityManagementRegistry = Objects.requireNonNull(entityManagementRegistry);
@@ -94,17 +107,55 @@ class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCal
     entityManagementRegistry.refresh();
   }
 
+  @Override
+  public void connected(ClientDescriptor clientDescriptor) {
+    super.connected(clientDescriptor);
+    // clients only use the calls added after the first version once told that this server supports them: older clients ignore this message
+    fireMessage(Message.class, new DefaultMessage(sequenceGenerator.next(), "EXTENDED_CALLS_SUPPORTED"), clientDescriptor);
+  }
+
+  @Override
+  public void disconnected(ClientDescriptor clientDescriptor) {
+    compactStatisticsClients.remove(clientDescriptor);
+    super.disconnected(clientDescriptor);
+  }
+
   @Override
   protected void dumpState(StateDumpCollector dump) {
     dump.addState("consumerId", String.valueOf(consumerId));
     dump.addState("stripeName", String.valueOf(stripeName));
+    managementService.addStateTo(dump.subStateDumpCollector("managementCalls"));
   }
 
   // Nms
 
   @Override
   public Future<Cluster> readTopology() {
-    return CompletableFuture.completedFuture(readCluster());
+    return CompletableFuture.completedFuture(renameStripe(managementService.readTopology()));
+  }
+
+  @Override
+  public Future<Message> readTopologyChanges(Sequence since) {
+    TopologyChanges changes = managementService.readTopologyChanges(since);
+    if (changes.isSnapshot()) {
+      return CompletableFuture.completedFuture(new DefaultMessage(changes.getVersion(), "TOPOLOGY", renameStripe(changes.getSnapshot().get())));
+    }
+    // add stripe info to the changes, like we do for messages.
+    // changes are shared with the server change log so they must not be mutated
+    TopologyChange[] named = new TopologyChange[changes.getChanges().size()];
+    for (int i = 0; i < named.length; i++) {
+      TopologyChange change = changes.getChanges().get(i);
+      named[i] = change.getContext().contains(Stripe.KEY) ?
+          new TopologyChange(change.getVersion(), change.getType(), change.getEvent(), change.getContext().with(Stripe.KEY, stripeName), change.getNode()) :
+          change;
+    }
+    return CompletableFuture.completedFuture(new DefaultMessage(changes.getVersion(), "TOPOLOGY_CHANGES", named));
+  }
+
+  @Override
+  public Future<Message> enableCompactStatistics(@ClientId Object callerDescriptor) {
+    compactStatisticsClients.add((ClientDescriptor) callerDescriptor);
+    return CompletableFuture.completedFuture(new DefaultMessage(sequenceGenerator.next(), "COMPACT_STATISTICS_ENABLED"));
   }
 
   @Override
@@ -115,8 +166,7 @@ class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCal
     return CompletableFuture.completedFuture(managementService.sendManagementCallRequest((ClientDescriptor) callerDescriptor, context, capabilityName, methodName, returnType, parameters));
   }
 
-  private Cluster readCluster() {
-    Cluster cluster = managementService.readTopology();
+  private Cluster renameStripe(Cluster cluster) {
     // if we want a specific name for our stripe, just rename it
     if (!stripeName.equals(cluster.getSingleStripe().getName())) {
 
@@ -186,7 +236,18 @@ class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCal
     // add stripe info to the message
     addStripeName(message);
     // send message
-    fireMessage(Message.class, message, false);
+    if (message instanceof DefaultMessage && message.getType().equals("STATISTICS") && !compactStatisticsClients.isEmpty()) {
+      // older clients do not have the class of the compact form, so they receive the statistics as they used to
+      List<ClientDescriptor> compact = new ArrayList<>();
+      List<ClientDescriptor> legacy = new ArrayList<>();
+      for (ClientDescriptor client : getClients()) {
+        (compactStatisticsClients.contains(client) ? compact : legacy).add(client);
+      }
+      fireMessage(Message.class, ((DefaultMessage) message).withCompactStatistics(), compact.toArray(new ClientDescriptor[0]));
+      fireMessage(Message.class, message, legacy.toArray(new ClientDescriptor[0]));
+    } else {
+      fireMessage(Message.class, message, false);
+    }
   }
 
   @Override
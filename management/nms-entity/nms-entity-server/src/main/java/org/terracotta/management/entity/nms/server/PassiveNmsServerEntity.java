@@ -25,8 +25,10 @@ import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.cluster.Server;
 import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.Message;
 import org.terracotta.management.registry.CapabilityManagementSupport;
 import org.terracotta.management.registry.CombiningCapabilityManagementSupport;
+import org.terracotta.management.sequence.Sequence;
 import org.terracotta.management.service.monitoring.EntityManagementRegistry;
 import org.terracotta.management.service.monitoring.SharedEntityManagementRegistry;
 import org.terracotta.voltron.proxy.ClientId;
@@ -97,6 +99,16 @@ class PassiveNmsServerEntity extends PassiveProxiedServerEntity implements Nms,
     throw new UnsupportedOperationException("Cannot be called on a passive server");
   }
 
+  @Override
+  public Future<Message> readTopologyChanges(Sequence since) {
+    throw new UnsupportedOperationException("Cannot be called on a passive server");
+  }
+
+  @Override
+  public Future<Message> enableCompactStatistics(@ClientId Object callerDescriptor) {
+    throw new UnsupportedOperationException("Cannot be called on a passive server");
+  }
+
   @Override
   public Future<String> call(@ClientId Object callerDescriptor, Context context, String capabilityName, String methodName, Class<?> returnType, Parameter... parameters) {
     throw new UnsupportedOperationException("Cannot be called on a passive server");